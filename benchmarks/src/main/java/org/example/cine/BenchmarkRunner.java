@@ -0,0 +1,45 @@
+package org.example.cine;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Punto de entrada de {@code benchmarks.jar}: acepta las mismas opciones que
+ * {@link Main} y añade siempre {@link GCProfiler}, de modo que cada resultado
+ * trae la asignación por operación ({@code gc.alloc.rate.norm}) junto al
+ * tiempo. Si ya se pasó {@code -prof gc} no se duplica.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+                || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!hasGcProfiler(cmd)) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static boolean hasGcProfiler(CommandLineOptions cmd) {
+        for (ProfilerConfig profiler : cmd.getProfilers()) {
+            String name = profiler.getKlass();
+            if (name.equals("gc") || name.equals(GCProfiler.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.cine;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construcción del grafo en memoria: la carga por lotes de un catálogo
+ * sintético del tamaño indicado frente a {@link Demo#createRDFModel} (siempre
+ * las 10 películas de ejemplo, vía Resource/Property), que va en su propio
+ * estado para no repetirse con cada valor de {@code films}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildBenchmark {
+
+    @Param({"10", "10000", "1000000", "10000000"})
+    public int films;
+
+    @Benchmark
+    public Model bulkBuild() {
+        return CatalogFixtures.build(films);
+    }
+
+    /** El catálogo de ejemplo de {@code createRDFModel}, de tamaño fijo. */
+    @State(Scope.Benchmark)
+    @BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public static class Demo {
+
+        @Benchmark
+        public Model createRDFModel() {
+            return CineColombiaManager.createRDFModel();
+        }
+    }
+}
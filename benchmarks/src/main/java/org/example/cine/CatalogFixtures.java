@@ -0,0 +1,32 @@
+package org.example.cine;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDF;
+
+/**
+ * Catálogos de prueba para los benchmarks, de tamaño arbitrario.
+ *
+ * Usa {@link CatalogGenerator} con una semilla fija, de modo que cada
+ * ejecución mide exactamente los mismos datos y la distribución de géneros,
+ * clasificaciones y fechas se parece a la de producción.
+ */
+final class CatalogFixtures {
+
+    /** Semilla fija para que todas las ejecuciones usen el mismo catálogo. */
+    static final long SEED = 20251113L;
+
+    private CatalogFixtures() {
+    }
+
+    /** Construye en memoria un catálogo de {@code films} películas. */
+    static Model build(int films) {
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("cine", CineVocab.NS);
+        StreamRDF sink = CatalogBulkLoader.batchInto(model.getGraph(), CatalogBulkLoader.DEFAULT_BATCH);
+        sink.start();
+        new CatalogGenerator(SEED).generate(sink, films);
+        sink.finish();
+        return model;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.cine;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Informes sobre {@link CatalogColumns}: construcción de la instantánea,
+ * duración media por género de todo el catálogo (la consulta 8 sin umbral)
+ * y conteo por clasificación de los estrenos de un mes con duración mayor
+ * de 100 minutos. Compárese con la consulta 8 de {@link QueryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int films;
+
+    private Model model;
+    private CatalogColumns columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = CatalogFixtures.build(films);
+        columns = CatalogColumns.build(model.getGraph());
+    }
+
+    @Benchmark
+    public CatalogColumns build() {
+        return CatalogColumns.build(model.getGraph());
+    }
+
+    @Benchmark
+    public Map<String, CatalogAggregates.DurationStats> durationByGenre() {
+        return columns.durationBy(CatalogColumns.Dimension.GENERO, columns.all());
+    }
+
+    @Benchmark
+    public Map<String, Long> filteredCountByRating() {
+        BitSet selection = columns.releasedBetween(LocalDate.of(2025, 11, 1), LocalDate.of(2025, 11, 30));
+        selection.and(columns.durationBetween(101, Integer.MAX_VALUE));
+        return columns.countBy(CatalogColumns.Dimension.CLASIFICACION, selection);
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.cine;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Volcado del catálogo completo ({@code catalogoCompleto}) con
+ * {@link ResultExporter} en cada formato y compresión, frente a la tabla de
+ * consola de {@link TableRenderer} escrita a un destino nulo. Sin caché de
+ * resultados, para medir evaluación más escritura. Las consultas pasan por
+ * {@link QueryGovernor} como en la aplicación: lote para la exportación e
+ * interactiva para la tabla.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"CSV", "TSV", "JSON", "COLUMNAR"})
+    public ResultExporter.Format format;
+
+    @Param({"NONE", "ZSTD"})
+    public RdfSnapshot.Compression compression;
+
+    private Model model;
+    private QueryRegistry.CompiledQuery compiled;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ResultCache.get().resize(0);
+        model = CatalogFixtures.build(films);
+        compiled = CineColombiaManager.QUERIES.compile("catalogoCompleto");
+        dir = Files.createTempDirectory("export-bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        Path file = dir.resolve(ResultExporter.fileName("catalogo", format, compression));
+        return ResultExporter.export(
+            QueryGovernor.get().execute(compiled, model, Map.of(), QueryGovernor.Priority.BATCH),
+            compiled.resultVars, file, format, compression).rows;
+    }
+
+    @Benchmark
+    public long consoleTable() {
+        QueryGovernor.GovernedResultSet results = QueryGovernor.get()
+            .execute(compiled, model, Map.of(), QueryGovernor.Priority.INTERACTIVE);
+        try {
+            return TableRenderer.sampled(new BufferedWriter(Writer.nullWriter(), 1 << 16), TableRenderer.DEFAULT_SAMPLE)
+                .render(results, compiled.resultVars);
+        } finally {
+            results.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.cine;
+
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia (percentiles) de una consulta interactiva corta mientras un
+ * informe por lotes ejecuta en bucle las consultas pesadas del informe de
+ * ejemplo desde tantos hilos como núcleos, con y sin {@link QueryGovernor}.
+ * Sin caché de resultados, para medir la evaluación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class GovernorBenchmark {
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"true", "false"})
+    public boolean governed;
+
+    private Model model;
+    private ReportQuery interactive;
+    private QueryRegistry.CompiledQuery compiled;
+    private final List<Thread> batch = new ArrayList<>();
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ResultCache.get().resize(0);
+        model = CatalogFixtures.build(films);
+        CatalogIndexes.attach(model.getGraph());
+        // Películas en preventa: resuelta por el índice de preventa
+        interactive = CineColombiaManager.DEMO_QUERIES.get(1);
+        compiled = CineColombiaManager.QUERIES.compile(interactive.name);
+        running = true;
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            Thread t = new Thread(this::report, "informe-" + i);
+            t.setDaemon(true);
+            t.start();
+            batch.add(t);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        for (Thread t : batch) t.join();
+        batch.clear();
+    }
+
+    /** Bucle de un hilo del informe: todas las consultas de ejemplo, una y otra vez. */
+    private void report() {
+        while (running) {
+            for (ReportQuery q : CineColombiaManager.DEMO_QUERIES) {
+                if (!running) return;
+                QueryRegistry.CompiledQuery compiled = CineColombiaManager.QUERIES.compile(q.name);
+                try {
+                    drain(governed
+                        ? QueryGovernor.get().execute(compiled, model, q.params, QueryGovernor.Priority.BATCH)
+                        : QueryRegistry.execute(compiled, model, q.params), null);
+                } catch (QueryGovernor.Rejected e) {
+                    // Cola de lotes llena: el informe reintenta en la siguiente vuelta
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void interactiveQuery(Blackhole bh) {
+        drain(governed
+            ? QueryGovernor.get().execute(compiled, model, interactive.params, QueryGovernor.Priority.INTERACTIVE)
+            : QueryRegistry.execute(compiled, model, interactive.params), bh);
+    }
+
+    private static void drain(ResultSet results, Blackhole bh) {
+        try {
+            while (results.hasNext()) {
+                Object row = results.nextBinding();
+                if (bh != null) bh.consume(row);
+            }
+        } finally {
+            results.close();
+        }
+    }
+}
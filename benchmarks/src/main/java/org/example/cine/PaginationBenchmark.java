@@ -0,0 +1,74 @@
+package org.example.cine;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Páginas de 20 filas con {@link QueryPager} de las consultas ordenadas por
+ * estreno (1. EN CARTELERA) y por duración descendente (3. &gt;2 HORAS): la
+ * primera página y una página profunda, a la que se llega con el cursor de
+ * {@code depth} páginas antes. Con {@code indexes=true} el coste no debería
+ * depender ni de {@code films} ni de {@code depth}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    private static final int PAGE = 20;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int films;
+
+    /** Posición (1-10) de la consulta en el informe de ejemplo. */
+    @Param({"1", "3"})
+    public int query;
+
+    /** Páginas que se saltan con el cursor antes de medir. */
+    @Param({"0", "100"})
+    public int depth;
+
+    @Param({"true", "false"})
+    public boolean indexes;
+
+    private Model model;
+    private ReportQuery report;
+    private QueryRegistry.CompiledQuery compiled;
+    private QueryPager.Cursor cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = CatalogFixtures.build(films);
+        if (indexes) {
+            CatalogIndexes.attach(model.getGraph());
+        }
+        report = CineColombiaManager.DEMO_QUERIES.get(query - 1);
+        compiled = CineColombiaManager.QUERIES.compile(report.name);
+        for (int i = 0; i < depth; i++) {
+            QueryPager.Page page = QueryPager.page(compiled, model, report.params, cursor, PAGE);
+            if (page.next == null) break;
+            cursor = page.next;
+        }
+    }
+
+    @Benchmark
+    public QueryPager.Page page() {
+        return QueryPager.page(compiled, model, report.params, cursor, PAGE);
+    }
+}
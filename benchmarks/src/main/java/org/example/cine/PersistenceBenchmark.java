@@ -0,0 +1,94 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura y lectura de instantáneas ({@code saveRDFModel}/{@code loadRDFModel})
+ * para cada combinación de sintaxis y compresión, más RDF/XML como referencia.
+ * Como en {@code loadRDFModel}, N-Triples sin comprimir se lee con
+ * {@link ParallelRdfLoader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"10", "10000", "1000000", "10000000"})
+    public int films;
+
+    /** "RDFXML" o FORMATO_COMPRESION (ej. THRIFT_ZSTD). */
+    @Param({"RDFXML", "THRIFT_NONE", "THRIFT_GZIP", "THRIFT_ZSTD", "PROTOBUF_NONE", "PROTOBUF_GZIP", "PROTOBUF_ZSTD",
+        "NTRIPLES_NONE", "NTRIPLES_ZSTD"})
+    public String format;
+
+    private Graph graph;
+    private Path dir;
+    private Path file;
+    private RdfSnapshot.Format syntax;
+    private RdfSnapshot.Compression compression;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        graph = CatalogFixtures.build(films).getGraph();
+        dir = Files.createTempDirectory("cine-bench");
+        if (format.equals("RDFXML")) {
+            file = dir.resolve("catalogo.rdf");
+            RdfSnapshot.exportRDFXML(graph, file);
+        } else {
+            String[] parts = format.split("_");
+            syntax = RdfSnapshot.Format.valueOf(parts[0]);
+            compression = RdfSnapshot.Compression.valueOf(parts[1]);
+            file = dir.resolve(RdfSnapshot.fileName("catalogo", syntax, compression));
+            RdfSnapshot.save(graph, file, syntax, compression);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Path save() throws IOException {
+        if (syntax == null) {
+            RdfSnapshot.exportRDFXML(graph, file);
+        } else {
+            RdfSnapshot.save(graph, file, syntax, compression);
+        }
+        return file;
+    }
+
+    @Benchmark
+    public Graph load() throws IOException {
+        Graph loaded = GraphFactory.createDefaultGraph();
+        if (ParallelRdfLoader.supports(file)) {
+            ParallelRdfLoader.load(file, loaded, null);
+        } else {
+            RdfSnapshot.load(file, loaded);
+        }
+        return loaded;
+    }
+}
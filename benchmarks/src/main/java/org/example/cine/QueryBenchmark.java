@@ -0,0 +1,85 @@
+package org.example.cine;
+
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cada una de las diez consultas de {@code executeDemoQueries}, evaluada con
+ * el plan en caché del registro y consumiendo todas las filas (sin renderizar).
+ * Con {@code indexes=true} el grafo lleva las mismas estructuras derivadas
+ * que {@code attachDerived} ({@link CatalogIndexes}, {@link TitleSearchIndex}
+ * y {@link CatalogAggregates}); con {@code indexes=false} las funciones idx:
+ * recorren el grafo. Con {@code cachedResults=true} el grafo tiene
+ * {@link GraphGeneration} y, salvo la primera, las ejecuciones salen de
+ * {@link ResultCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"10", "10000", "1000000", "10000000"})
+    public int films;
+
+    /** Posición (1-10) de la consulta en el informe de ejemplo. */
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    public int query;
+
+    @Param({"true", "false"})
+    public boolean indexes;
+
+    @Param({"false", "true"})
+    public boolean cachedResults;
+
+    private Model model;
+    private ReportQuery report;
+    private QueryRegistry.CompiledQuery compiled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = CatalogFixtures.build(films);
+        if (indexes) {
+            CatalogIndexes.attach(model.getGraph());
+            TitleSearchIndex.attach(model.getGraph());
+            CatalogAggregates.attach(model.getGraph());
+        }
+        if (cachedResults) {
+            GraphGeneration.attach(model.getGraph());
+        }
+        report = CineColombiaManager.DEMO_QUERIES.get(query - 1);
+        compiled = CineColombiaManager.QUERIES.compile(report.name);
+    }
+
+    @Benchmark
+    public long execute(Blackhole bh) {
+        ResultSet results = QueryRegistry.execute(compiled, model, report.params);
+        long rows = 0;
+        try {
+            while (results.hasNext()) {
+                bh.consume(results.nextBinding());
+                rows++;
+            }
+        } finally {
+            results.close();
+        }
+        return rows;
+    }
+}
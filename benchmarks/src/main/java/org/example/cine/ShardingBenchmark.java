@@ -0,0 +1,90 @@
+package org.example.cine;
+
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas del informe de ejemplo sobre {@link ShardedCatalog}: en todas las
+ * sedes (reparto en paralelo y combinación) y en una sola sede, frente a la
+ * misma consulta sobre el catálogo sin repartir. Sin caché de resultados,
+ * para medir la evaluación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardingBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int films;
+
+    /** Posición (1-10) de la consulta en el informe de ejemplo. */
+    @Param({"1", "3", "8"})
+    public int query;
+
+    private Model model;
+    private ShardedCatalog catalog;
+    private ReportQuery report;
+    private QueryRegistry.CompiledQuery compiled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ResultCache.get().resize(0);
+        model = CatalogFixtures.build(films);
+        CatalogIndexes.attach(model.getGraph());
+        CatalogAggregates.attach(model.getGraph());
+        catalog = ShardedCatalog.split(model.getGraph(), ShardedCatalog.byCity(model.getGraph()),
+            CineColombiaManager.QUERIES, 0);
+        report = CineColombiaManager.DEMO_QUERIES.get(query - 1);
+        compiled = CineColombiaManager.QUERIES.compile(report.name);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public void unsharded(Blackhole bh) {
+        consume(QueryRegistry.execute(compiled, model, report.params), bh);
+    }
+
+    @Benchmark
+    public void allShards(Blackhole bh) {
+        consume(catalog.execute(compiled, report.params, catalog.shards()), bh);
+    }
+
+    @Benchmark
+    public void oneShard(Blackhole bh) {
+        consume(catalog.execute(compiled, report.params, List.of(ShardedCatalog.CITIES.get(0))), bh);
+    }
+
+    private static void consume(ResultSet results, Blackhole bh) {
+        try {
+            while (results.hasNext()) {
+                bh.consume(results.nextBinding());
+            }
+        } finally {
+            results.close();
+        }
+    }
+}
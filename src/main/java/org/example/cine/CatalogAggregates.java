@@ -0,0 +1,320 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.nodevalue.XSDFuncOp;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+/**
+ * Agregados del catálogo mantenidos de forma incremental con un listener
+ * del grafo: por género, número de películas y estadísticas de duración
+ * (conteo, suma, mínimo y máximo); por clasificación y por estado, número
+ * de películas.
+ *
+ * Para cada película se guarda el conjunto de géneros, duraciones,
+ * clasificaciones y estados que tiene en el grafo, de modo que añadir un
+ * triple repetido no cuenta doble y un género añadido después de la
+ * duración (o al revés) se contabiliza igual. Por género se mantiene un
+ * histograma de duraciones, con el que también se responden umbrales
+ * arbitrarios ({@code duracion > minimo}) sin recorrer las películas.
+ *
+ * Con {@link #duracionPorGenero(Model, Map)} la consulta registrada
+ * "duracionPorGenero" se responde directamente desde estos agregados.
+ */
+public final class CatalogAggregates extends TripleListener {
+
+    /** Agregados registrados por grafo (claves débiles: no retienen el grafo). */
+    private static final Map<Graph, CatalogAggregates> ATTACHED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** Variables del resultado de la plantilla "duracionPorGenero". */
+    private static final List<String> DURACION_POR_GENERO_VARS =
+        List.of("genero", "duracionPromedio", "totalPeliculas");
+
+    /**
+     * Estadísticas de duración de un género.
+     */
+    public static final class DurationStats {
+        public final long count;
+        public final long sum;
+        public final long min;
+        public final long max;
+
+        DurationStats(long count, long sum, long min, long max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        /** @return Duración media, o NaN si no hay películas con duración. */
+        public double average() {
+            return count == 0 ? Double.NaN : (double) sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d, media=%.1f, min=%d, max=%d", count, average(), min, max);
+        }
+    }
+
+    /** Valores que tiene una película en los predicados agregados. */
+    private static final class Movie {
+        final Set<Node> genres = new HashSet<>(4);
+        /** Literales de duración tal cual están en el grafo (dos literales del mismo valor son dos filas). */
+        final Set<Node> durations = new HashSet<>(2);
+        final Set<Node> ratings = new HashSet<>(2);
+        final Set<Node> statuses = new HashSet<>(2);
+
+        boolean isEmpty() {
+            return genres.isEmpty() && durations.isEmpty() && ratings.isEmpty() && statuses.isEmpty();
+        }
+    }
+
+    /** Histograma de duraciones de un género (duración → número de filas). */
+    private static final class Histogram {
+        final TreeMap<Integer, Integer> counts = new TreeMap<>();
+        long count;
+        long sum;
+
+        void add(int duration) {
+            counts.merge(duration, 1, Integer::sum);
+            count++;
+            sum += duration;
+        }
+
+        void remove(int duration) {
+            counts.computeIfPresent(duration, (k, v) -> v == 1 ? null : v - 1);
+            count--;
+            sum -= duration;
+        }
+
+        DurationStats above(int min) {
+            if (counts.isEmpty() || counts.firstKey() > min) {
+                return counts.isEmpty() ? null : new DurationStats(count, sum, counts.firstKey(), counts.lastKey());
+            }
+            long n = 0, s = 0;
+            Map<Integer, Integer> tail = counts.tailMap(min, false);
+            for (Map.Entry<Integer, Integer> e : tail.entrySet()) {
+                n += e.getValue();
+                s += (long) e.getKey() * e.getValue();
+            }
+            return n == 0 ? null : new DurationStats(n, s, counts.higherKey(min), counts.lastKey());
+        }
+    }
+
+    private final Map<Node, Movie> movies = new HashMap<>();
+    private final Map<Node, Integer> moviesByGenre = new HashMap<>();
+    private final Map<Node, Histogram> durationsByGenre = new HashMap<>();
+    private final Map<Node, Integer> moviesByRating = new HashMap<>();
+    private final Map<Node, Integer> moviesByStatus = new HashMap<>();
+
+    private CatalogAggregates() {
+    }
+
+    /**
+     * Calcula los agregados del contenido actual del grafo y los mantiene
+     * actualizados a partir de ese momento. Si el grafo ya tenía agregados,
+     * se devuelven los existentes.
+     *
+     * @param graph Grafo a agregar.
+     * @return Agregados del grafo.
+     */
+    public static CatalogAggregates attach(Graph graph) {
+        synchronized (ATTACHED) {
+            CatalogAggregates existing = ATTACHED.get(graph);
+            if (existing != null) return existing;
+            CatalogAggregates aggregates = new CatalogAggregates();
+            for (Node p : List.of(CineVocab.GENERO, CineVocab.DURACION, CineVocab.CLASIFICACION, CineVocab.ESTADO)) {
+                ExtendedIterator<Triple> it = graph.find(Node.ANY, p, Node.ANY);
+                try {
+                    while (it.hasNext()) aggregates.added(it.next());
+                } finally {
+                    it.close();
+                }
+            }
+            graph.getEventManager().register(aggregates);
+            ATTACHED.put(graph, aggregates);
+            return aggregates;
+        }
+    }
+
+    /**
+     * @return Agregados asociados al grafo, o null si no se han calculado.
+     */
+    public static CatalogAggregates forGraph(Graph graph) {
+        return ATTACHED.get(graph);
+    }
+
+    /**
+     * Deja de mantener los agregados del grafo y los descarta.
+     */
+    public static void detach(Graph graph) {
+        CatalogAggregates aggregates = ATTACHED.remove(graph);
+        if (aggregates != null) graph.getEventManager().unregister(aggregates);
+    }
+
+    @Override
+    protected void added(Triple t) {
+        update(t, true);
+    }
+
+    @Override
+    protected void removed(Triple t) {
+        update(t, false);
+    }
+
+    @Override
+    protected synchronized void cleared() {
+        movies.clear();
+        moviesByGenre.clear();
+        durationsByGenre.clear();
+        moviesByRating.clear();
+        moviesByStatus.clear();
+    }
+
+    private synchronized void update(Triple t, boolean add) {
+        Node p = t.getPredicate();
+        Node o = t.getObject();
+        if (p.equals(CineVocab.GENERO)) {
+            Movie m = movie(t.getSubject(), add);
+            if (m == null || !toggle(m.genres, o, add)) return;
+            count(moviesByGenre, o, add);
+            for (Node d : m.durations) histogram(o, CatalogIndexes.intValue(d), add);
+        } else if (p.equals(CineVocab.DURACION)) {
+            Integer d = CatalogIndexes.intValue(o);
+            Movie m = d == null ? null : movie(t.getSubject(), add);
+            if (m == null || !toggle(m.durations, o, add)) return;
+            for (Node g : m.genres) histogram(g, d, add);
+        } else if (p.equals(CineVocab.CLASIFICACION)) {
+            Movie m = movie(t.getSubject(), add);
+            if (m == null || !toggle(m.ratings, o, add)) return;
+            count(moviesByRating, o, add);
+        } else if (p.equals(CineVocab.ESTADO)) {
+            Movie m = movie(t.getSubject(), add);
+            if (m == null || !toggle(m.statuses, o, add)) return;
+            count(moviesByStatus, o, add);
+        } else {
+            return;
+        }
+        Movie m = movies.get(t.getSubject());
+        if (m != null && m.isEmpty()) movies.remove(t.getSubject());
+    }
+
+    /** Estado de la película; al borrar no se crea si no existía. */
+    private Movie movie(Node subject, boolean create) {
+        Movie m = movies.get(subject);
+        if (m == null && create) movies.put(subject, m = new Movie());
+        return m;
+    }
+
+    /** Añade o quita el valor del conjunto; true si el conjunto ha cambiado. */
+    private static <T> boolean toggle(Set<T> set, T value, boolean add) {
+        return add ? set.add(value) : set.remove(value);
+    }
+
+    private static void count(Map<Node, Integer> counts, Node key, boolean add) {
+        counts.merge(key, add ? 1 : -1, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private void histogram(Node genre, int duration, boolean add) {
+        Histogram h = durationsByGenre.computeIfAbsent(genre, g -> new Histogram());
+        if (add) {
+            h.add(duration);
+        } else {
+            h.remove(duration);
+            if (h.count == 0) durationsByGenre.remove(genre);
+        }
+    }
+
+    /** @return Número de películas por género. */
+    public synchronized Map<Node, Integer> moviesByGenre() {
+        return new HashMap<>(moviesByGenre);
+    }
+
+    /** @return Número de películas por clasificación. */
+    public synchronized Map<Node, Integer> moviesByRating() {
+        return new HashMap<>(moviesByRating);
+    }
+
+    /** @return Número de películas por estado comercial. */
+    public synchronized Map<Node, Integer> moviesByStatus() {
+        return new HashMap<>(moviesByStatus);
+    }
+
+    /**
+     * Estadísticas de duración por género, contando sólo duraciones
+     * estrictamente mayores que el mínimo. Cada par (película, duración)
+     * cuenta una vez por cada género de la película, igual que la unión
+     * de patrones en SPARQL.
+     *
+     * @param minDuration Umbral exclusivo en minutos.
+     * @return Estadísticas por género (sólo géneros con alguna duración).
+     */
+    public synchronized Map<Node, DurationStats> durationByGenre(int minDuration) {
+        Map<Node, DurationStats> stats = new HashMap<>();
+        durationsByGenre.forEach((g, h) -> {
+            DurationStats s = h.above(minDuration);
+            if (s != null) stats.put(g, s);
+        });
+        return stats;
+    }
+
+    /**
+     * Responde la plantilla "duracionPorGenero" (media y número de películas
+     * por género con duración mayor que ?minDuracion, por media descendente)
+     * desde los agregados del grafo del modelo.
+     *
+     * @return ResultSet equivalente al de la consulta, o null si el grafo no
+     *         tiene agregados o el parámetro no es un número entero.
+     */
+    public static ResultSet duracionPorGenero(Model model, Map<String, Node> params) {
+        CatalogAggregates aggregates = forGraph(model.getGraph());
+        Integer min = CatalogIndexes.intValue(params.get("minDuracion"));
+        if (aggregates == null || min == null) return null;
+
+        List<Map.Entry<Node, DurationStats>> rows = new ArrayList<>(aggregates.durationByGenre(min).entrySet());
+        rows.sort(Comparator.comparingDouble((Map.Entry<Node, DurationStats> e) -> e.getValue().average()).reversed()
+            .thenComparing(e -> e.getKey().toString()));
+
+        Var genero = Var.alloc(DURACION_POR_GENERO_VARS.get(0));
+        Var promedio = Var.alloc(DURACION_POR_GENERO_VARS.get(1));
+        Var total = Var.alloc(DURACION_POR_GENERO_VARS.get(2));
+        List<Binding> bindings = new ArrayList<>(rows.size());
+        for (Map.Entry<Node, DurationStats> e : rows) {
+            DurationStats s = e.getValue();
+            // Misma aritmética que AVG en ARQ: suma entera / conteo -> xsd:decimal
+            NodeValue avg = XSDFuncOp.numDivide(NodeValue.makeInteger(s.sum), NodeValue.makeInteger(s.count));
+            BindingBuilder row = BindingBuilder.create();
+            row.add(genero, e.getKey());
+            row.add(promedio, avg.asNode());
+            row.add(total, NodeValue.makeInteger(s.count).asNode());
+            bindings.add(row.build());
+        }
+        return ResultSetStream.create(DURACION_POR_GENERO_VARS, model, bindings.iterator());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%,d películas, %d géneros, %d clasificaciones, %d estados",
+            movies.size(), moviesByGenre.size(), moviesByRating.size(), moviesByStatus.size());
+    }
+}
@@ -0,0 +1,441 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Carga masiva del catálogo de películas desde ficheros CSV o JSON-lines.
+ *
+ * A diferencia de {@code createMovieResource}, que añade triple a triple a
+ * través de Resource/Property, este cargador lee el fichero en streaming,
+ * reutiliza un único array de campos para todas las filas y entrega los
+ * triples a un {@link StreamRDF}. El destino habitual es
+ * {@link #batchInto(Graph, int)}, que agrupa los triples y los inserta en el
+ * grafo por lotes con {@link GraphUtil#add(Graph, Triple[])}.
+ *
+ * Columnas/claves reconocidas (el orden en CSV lo marca la cabecera):
+ * id, titulo, tituloEspanol, genero, duracion, clasificacion, estreno,
+ * estado, preventa, formato. En CSV los géneros múltiples van entre comillas
+ * separados por ", "; en JSON-lines pueden ser una cadena o un array.
+ */
+public final class CatalogBulkLoader {
+
+    /** Nombres de columna en el orden interno de los campos. */
+    static final String[] COLUMNS = {
+        "id", "titulo", "tituloEspanol", "genero", "duracion",
+        "clasificacion", "estreno", "estado", "preventa", "formato"
+    };
+
+    private static final int ID = 0, TITULO = 1, TITULO_ES = 2, GENERO = 3, DURACION = 4,
+        CLASIFICACION = 5, ESTRENO = 6, ESTADO = 7, PREVENTA = 8, FORMATO = 9;
+
+    /** Tamaño de lote por defecto para la inserción en el grafo. */
+    public static final int DEFAULT_BATCH = 8192;
+
+    private CatalogBulkLoader() {
+    }
+
+    /**
+     * Estadísticas de una carga: filas, triples y tiempo transcurrido.
+     */
+    public static final class Stats {
+        public final long rows;
+        public final long skipped;
+        public final long triples;
+        public final long nanos;
+
+        Stats(long rows, long skipped, long triples, long nanos) {
+            this.rows = rows;
+            this.skipped = skipped;
+            this.triples = triples;
+            this.nanos = nanos;
+        }
+
+        /** @return Triples por segundo de la carga completa. */
+        public double triplesPerSecond() {
+            return nanos == 0 ? 0 : triples * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d películas (%,d descartadas), %,d triples en %.2f s → %,.0f triples/s",
+                rows, skipped, triples, nanos / 1e9, triplesPerSecond());
+        }
+    }
+
+    /**
+     * Carga un fichero de catálogo en el grafo indicado, por lotes.
+     * El formato se decide por la extensión: .jsonl/.ndjson/.json → JSON-lines,
+     * cualquier otra → CSV con cabecera.
+     *
+     * @param file Fichero de entrada (UTF-8).
+     * @param graph Grafo destino.
+     * @return Estadísticas de la carga.
+     * @throws IOException Si falla la lectura del fichero.
+     */
+    public static Stats load(Path file, Graph graph) throws IOException {
+        StreamRDF sink = NodeDictionary.attach(graph).wrap(batchInto(graph, DEFAULT_BATCH));
+        sink.start();
+        try {
+            return load(file, sink);
+        } finally {
+            sink.finish();
+        }
+    }
+
+    /**
+     * Lee un fichero de catálogo y emite sus triples al destino. No llama a
+     * {@code start()}/{@code finish()} sobre el destino.
+     *
+     * @param file Fichero de entrada (UTF-8).
+     * @param out Destino de los triples.
+     * @return Estadísticas de la carga.
+     * @throws IOException Si falla la lectura del fichero.
+     */
+    public static Stats load(Path file, StreamRDF out) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        boolean json = name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return json ? loadJsonLines(in, out) : loadCsv(in, out);
+        }
+    }
+
+    /**
+     * Carga CSV con cabecera. Los campos entre comillas admiten comas y
+     * comillas escapadas (""), pero no saltos de línea.
+     */
+    static Stats loadCsv(Reader reader, StreamRDF out) throws IOException {
+        long t0 = System.nanoTime();
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+        String headerLine = in.readLine();
+        if (headerLine == null) {
+            return new Stats(0, 0, 0, System.nanoTime() - t0);
+        }
+        // Cabecera: posición en el CSV → índice interno del campo (-1 si se ignora)
+        String[] header = new String[64];
+        StringBuilder cell = new StringBuilder(128);
+        int headerCols = splitCsv(headerLine, header, cell);
+        int[] slot = new int[headerCols];
+        for (int c = 0; c < headerCols; c++) {
+            slot[c] = columnIndex(header[c].trim());
+        }
+
+        String[] raw = new String[headerCols];
+        String[] fields = new String[COLUMNS.length];
+        long rows = 0, skipped = 0, triples = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isEmpty()) continue;
+            Arrays.fill(fields, null);
+            int n = splitCsv(line, raw, cell);
+            for (int c = 0; c < n; c++) {
+                if (slot[c] >= 0) fields[slot[c]] = raw[c];
+            }
+            int emitted = emitRow(fields, out);
+            if (emitted < 0) {
+                skipped++;
+            } else {
+                rows++;
+                triples += emitted;
+            }
+        }
+        return new Stats(rows, skipped, triples, System.nanoTime() - t0);
+    }
+
+    /**
+     * Carga JSON-lines: un objeto plano por línea. El campo "genero" puede ser
+     * una cadena o un array de cadenas.
+     */
+    static Stats loadJsonLines(Reader reader, StreamRDF out) throws IOException {
+        long t0 = System.nanoTime();
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+        String[] fields = new String[COLUMNS.length];
+        StringBuilder buf = new StringBuilder(128);
+        long rows = 0, skipped = 0, triples = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) continue;
+            Arrays.fill(fields, null);
+            int emitted = parseJsonObject(line, fields, buf) ? emitRow(fields, out) : -1;
+            if (emitted < 0) {
+                skipped++;
+            } else {
+                rows++;
+                triples += emitted;
+            }
+        }
+        return new Stats(rows, skipped, triples, System.nanoTime() - t0);
+    }
+
+    /**
+     * Destino que acumula triples en un array reutilizable y los inserta en el
+     * grafo por lotes. Los prefijos y bases se ignoran.
+     *
+     * @param graph Grafo destino.
+     * @param batchSize Número de triples por lote.
+     * @return StreamRDF que escribe en el grafo; hay que llamar a finish() al final.
+     */
+    public static StreamRDF batchInto(Graph graph, int batchSize) {
+        return new GraphBatchSink(graph, batchSize);
+    }
+
+    private static final class GraphBatchSink extends StreamRDFBase {
+        private final Graph graph;
+        private final Triple[] batch;
+        private int size;
+
+        GraphBatchSink(Graph graph, int batchSize) {
+            this.graph = graph;
+            this.batch = new Triple[Math.max(1, batchSize)];
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            batch[size++] = triple;
+            if (size == batch.length) flush();
+        }
+
+        @Override
+        public void finish() {
+            flush();
+        }
+
+        private void flush() {
+            if (size == 0) return;
+            GraphUtil.add(graph, size == batch.length ? batch : Arrays.copyOf(batch, size));
+            Arrays.fill(batch, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /** Emite una fila ya separada en campos. Devuelve -1 si la fila no es válida. */
+    private static int emitRow(String[] f, StreamRDF out) {
+        if (isEmpty(f[ID]) || isEmpty(f[TITULO]) || isEmpty(f[ESTRENO])) {
+            return -1;
+        }
+        long duration;
+        try {
+            duration = isEmpty(f[DURACION]) ? 0 : Long.parseLong(f[DURACION].trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        try {
+            // Se emite como xsd:date: sólo se aceptan fechas ISO válidas (AAAA-MM-DD)
+            LocalDate.parse(f[ESTRENO].trim());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+        return MovieTriples.emit(out, f[ID], f[TITULO],
+            orDefault(f[TITULO_ES], f[TITULO]),
+            orDefault(f[GENERO], "Por confirmar"),
+            duration,
+            orDefault(f[CLASIFICACION], "Por confirmar"),
+            f[ESTRENO].trim(),
+            orDefault(f[ESTADO], "En cartelera"),
+            parseBoolean(f[PREVENTA]),
+            orDefault(f[FORMATO], "Estreno"));
+    }
+
+    private static int columnIndex(String name) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Separa una línea CSV en el array dado (reutilizado entre filas).
+     *
+     * @return Número de campos leídos (como máximo out.length).
+     */
+    static int splitCsv(String line, String[] out, StringBuilder cell) {
+        int n = 0;
+        int len = line.length();
+        int i = 0;
+        while (n < out.length) {
+            cell.setLength(0);
+            if (i < len && line.charAt(i) == '"') {
+                i++;
+                while (i < len) {
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < len && line.charAt(i) == '"') {
+                            cell.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        cell.append(c);
+                    }
+                }
+                out[n++] = cell.toString();
+                // Saltar hasta el siguiente separador
+                while (i < len && line.charAt(i) != ',') i++;
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? len : comma;
+                out[n++] = line.substring(i, end);
+                i = end;
+            }
+            if (i >= len) break;
+            i++; // consumir la coma
+        }
+        return n;
+    }
+
+    /**
+     * Analiza un objeto JSON plano de una línea y rellena los campos conocidos.
+     * Las claves desconocidas se ignoran; los arrays se unen con ", ".
+     *
+     * @return false si la línea no es un objeto JSON bien formado.
+     */
+    static boolean parseJsonObject(String s, String[] fields, StringBuilder buf) {
+        int[] pos = {skipWs(s, 0)};
+        if (pos[0] >= s.length() || s.charAt(pos[0]) != '{') return false;
+        pos[0]++;
+        while (true) {
+            pos[0] = skipWs(s, pos[0]);
+            if (pos[0] >= s.length()) return false;
+            char c = s.charAt(pos[0]);
+            if (c == '}') return true;
+            if (c == ',') {
+                pos[0]++;
+                continue;
+            }
+            if (c != '"') return false;
+            String key = readString(s, pos, buf);
+            if (key == null) return false;
+            pos[0] = skipWs(s, pos[0]);
+            if (pos[0] >= s.length() || s.charAt(pos[0]) != ':') return false;
+            pos[0] = skipWs(s, pos[0] + 1);
+            String value = readValue(s, pos, buf);
+            if (pos[0] < 0) return false;
+            int idx = columnIndex(key);
+            if (idx >= 0) fields[idx] = value;
+        }
+    }
+
+    private static String readValue(String s, int[] pos, StringBuilder buf) {
+        if (pos[0] >= s.length()) {
+            pos[0] = -1;
+            return null;
+        }
+        char c = s.charAt(pos[0]);
+        if (c == '"') {
+            String v = readString(s, pos, buf);
+            if (v == null) pos[0] = -1;
+            return v;
+        }
+        if (c == '[') {
+            // Array de cadenas → "a, b, c"
+            StringBuilder joined = new StringBuilder();
+            pos[0]++;
+            while (true) {
+                pos[0] = skipWs(s, pos[0]);
+                if (pos[0] >= s.length()) {
+                    pos[0] = -1;
+                    return null;
+                }
+                char d = s.charAt(pos[0]);
+                if (d == ']') {
+                    pos[0]++;
+                    return joined.toString();
+                }
+                if (d == ',') {
+                    pos[0]++;
+                    continue;
+                }
+                String item = readValue(s, pos, buf);
+                if (pos[0] < 0) return null;
+                if (item != null) {
+                    if (joined.length() > 0) joined.append(", ");
+                    joined.append(item);
+                }
+            }
+        }
+        // Número, true/false/null: hasta el siguiente separador
+        int start = pos[0];
+        int i = start;
+        while (i < s.length() && ",}] \t".indexOf(s.charAt(i)) < 0) i++;
+        pos[0] = i;
+        String token = s.substring(start, i);
+        return "null".equals(token) ? null : token;
+    }
+
+    private static String readString(String s, int[] pos, StringBuilder buf) {
+        buf.setLength(0);
+        int i = pos[0] + 1;
+        while (i < s.length()) {
+            char c = s.charAt(i++);
+            if (c == '"') {
+                pos[0] = i;
+                return buf.toString();
+            }
+            if (c == '\\' && i < s.length()) {
+                char e = s.charAt(i++);
+                switch (e) {
+                    case 'n': buf.append('\n'); break;
+                    case 't': buf.append('\t'); break;
+                    case 'r': buf.append('\r'); break;
+                    case 'b': buf.append('\b'); break;
+                    case 'f': buf.append('\f'); break;
+                    case 'u':
+                        int code = hex4(s, i);
+                        if (code < 0) return null;
+                        buf.append((char) code);
+                        i += 4;
+                        break;
+                    default: buf.append(e);
+                }
+            } else {
+                buf.append(c);
+            }
+        }
+        return null;
+    }
+
+    /** Valor de las cuatro cifras hexadecimales de un escape JSON de carácter, o -1 si no lo son. */
+    private static int hex4(String s, int i) {
+        if (i + 4 > s.length()) return -1;
+        int code = 0;
+        for (int k = i; k < i + 4; k++) {
+            int d = Character.digit(s.charAt(k), 16);
+            if (d < 0) return -1;
+            code = code << 4 | d;
+        }
+        return code;
+    }
+
+    private static int skipWs(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean parseBoolean(String s) {
+        if (s == null) return false;
+        String t = s.trim();
+        return t.equalsIgnoreCase("true") || t.equals("1") || t.equalsIgnoreCase("si") || t.equalsIgnoreCase("sí");
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static String orDefault(String s, String def) {
+        return isEmpty(s) ? def : s;
+    }
+}
@@ -0,0 +1,439 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Instantánea columnar del catálogo para informes analíticos.
+ *
+ * Cada película es una fila y cada propiedad una columna de tipo primitivo:
+ * <ul>
+ *   <li>cine:duracion: {@code int[]} en minutos ({@link #NO_DURATION} si no tiene);</li>
+ *   <li>cine:estreno: {@code long[]} en días desde epoch ({@link #NO_DATE} si no tiene);</li>
+ *   <li>cine:genero: {@code long[]} con un bit por código de género (una
+ *       película tiene varios géneros); cada fila ocupa tantas palabras de 64
+ *       bits como haga falta para el diccionario, normalmente una;</li>
+ *   <li>cine:clasificacion y cine:estado: {@code int[]} de códigos de diccionario
+ *       ({@link #NO_CODE} si no tiene);</li>
+ *   <li>cine:preventa: {@link BitSet}.</li>
+ * </ul>
+ * Los filtros devuelven la selección de filas como {@link BitSet} y se
+ * combinan con {@code and}/{@code or}; las agregaciones reciben la selección.
+ * Todo se evalúa en bucles sobre arrays, sin nodos ni mapas, repartiendo las
+ * filas en bloques de 64K entre los hilos de un stream paralelo y fundiendo
+ * después los parciales.
+ *
+ * La instantánea no sigue los cambios del grafo: {@link #isCurrent(Graph)}
+ * indica si sigue valiendo según su {@link GraphGeneration}. Si una película
+ * tiene varias duraciones o estrenos, se queda con el último que encuentra.
+ */
+public final class CatalogColumns {
+
+    public static final int NO_DURATION = -1;
+    public static final long NO_DATE = Long.MIN_VALUE;
+    public static final int NO_CODE = -1;
+
+    /** Filas por bloque paralelo (múltiplo de 64: cada bloque escribe sus propias palabras). */
+    private static final int BLOCK = 1 << 16;
+
+    /** Columnas agrupables. */
+    public enum Dimension { GENERO, CLASIFICACION, ESTADO }
+
+    /** Valores distintos de una columna codificada, en orden de aparición. */
+    private static final class Dictionary {
+        final Map<Node, Integer> codes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+
+        int code(Node value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value.isLiteral() ? value.getLiteralLexicalForm() : value.toString());
+            }
+            return code;
+        }
+
+        int find(String value) {
+            return values.indexOf(value);
+        }
+    }
+
+    private final int size;
+    private final Node[] movies;
+    private final int[] duracion;
+    private final long[] estreno;
+    private final long[] generos;
+    /** Palabras de {@link #generos} por fila. */
+    private final int genreWords;
+    private final int[] clasificacion;
+    private final int[] estado;
+    private final BitSet preventa;
+    private final Dictionary genreDict;
+    private final Dictionary ratingDict;
+    private final Dictionary statusDict;
+    private final long generation;
+
+    private CatalogColumns(int size, Node[] movies, int[] duracion, long[] estreno, long[] generos,
+                           int genreWords, int[] clasificacion, int[] estado, BitSet preventa, Dictionary genreDict,
+                           Dictionary ratingDict, Dictionary statusDict, long generation) {
+        this.size = size;
+        this.movies = movies;
+        this.duracion = duracion;
+        this.estreno = estreno;
+        this.generos = generos;
+        this.genreWords = genreWords;
+        this.clasificacion = clasificacion;
+        this.estado = estado;
+        this.preventa = preventa;
+        this.genreDict = genreDict;
+        this.ratingDict = ratingDict;
+        this.statusDict = statusDict;
+        this.generation = generation;
+    }
+
+    /** Columnas en construcción, crecen al numerar películas nuevas. */
+    private static final class Builder {
+        final Map<Node, Integer> rows = new HashMap<>();
+        Node[] movies = new Node[1024];
+        int[] duracion = new int[1024];
+        long[] estreno = new long[1024];
+        long[] generos = new long[1024];
+        int genreWords = 1;
+        int[] clasificacion = new int[1024];
+        int[] estado = new int[1024];
+        final BitSet preventa = new BitSet();
+        final Dictionary genreDict = new Dictionary();
+        final Dictionary ratingDict = new Dictionary();
+        final Dictionary statusDict = new Dictionary();
+
+        int row(Node movie) {
+            Integer row = rows.get(movie);
+            if (row != null) return row;
+            int n = rows.size();
+            if (n == movies.length) {
+                int cap = n * 2;
+                movies = Arrays.copyOf(movies, cap);
+                duracion = Arrays.copyOf(duracion, cap);
+                estreno = Arrays.copyOf(estreno, cap);
+                generos = Arrays.copyOf(generos, cap * genreWords);
+                clasificacion = Arrays.copyOf(clasificacion, cap);
+                estado = Arrays.copyOf(estado, cap);
+            }
+            movies[n] = movie;
+            duracion[n] = NO_DURATION;
+            estreno[n] = NO_DATE;
+            clasificacion[n] = NO_CODE;
+            estado[n] = NO_CODE;
+            rows.put(movie, n);
+            return n;
+        }
+
+        void add(Triple t) {
+            // La fila se numera antes de indexar las columnas: row() puede
+            // ampliarlas y la referencia al array se evalúa antes que el índice
+            Node p = t.getPredicate(), o = t.getObject();
+            if (p.equals(CineVocab.DURACION)) {
+                Integer d = CatalogIndexes.intValue(o);
+                if (d != null) {
+                    int row = row(t.getSubject());
+                    duracion[row] = d;
+                }
+            } else if (p.equals(CineVocab.ESTRENO)) {
+                Long day = CatalogIndexes.epochDay(o);
+                if (day != null) {
+                    int row = row(t.getSubject());
+                    estreno[row] = day;
+                }
+            } else if (p.equals(CineVocab.GENERO)) {
+                int code = genreDict.code(o);
+                if (code >= genreWords << 6) {
+                    widenGenres();
+                }
+                int row = row(t.getSubject());
+                generos[row * genreWords + (code >>> 6)] |= 1L << code;
+            } else if (p.equals(CineVocab.CLASIFICACION)) {
+                int row = row(t.getSubject());
+                clasificacion[row] = ratingDict.code(o);
+            } else if (p.equals(CineVocab.ESTADO)) {
+                int row = row(t.getSubject());
+                estado[row] = statusDict.code(o);
+            } else if (p.equals(CineVocab.PREVENTA)) {
+                int row = row(t.getSubject());
+                preventa.set(row, o.isLiteral() && "true".equals(o.getLiteralLexicalForm()));
+            }
+        }
+
+        /** Duplica las palabras por fila cuando el diccionario de géneros ya no cabe. */
+        private void widenGenres() {
+            int words = genreWords * 2;
+            long[] wider = new long[movies.length * words];
+            for (int row = 0; row < rows.size(); row++) {
+                System.arraycopy(generos, row * genreWords, wider, row * words, genreWords);
+            }
+            generos = wider;
+            genreWords = words;
+        }
+    }
+
+    /**
+     * Construye la instantánea con el contenido actual del grafo. El
+     * llamador debe impedir escrituras durante la construcción (lock de
+     * lectura del modelo).
+     *
+     * @param graph Grafo del catálogo.
+     * @return Columnas del catálogo.
+     */
+    public static CatalogColumns build(Graph graph) {
+        GraphGeneration counter = GraphGeneration.forGraph(graph);
+        long generation = counter == null ? -1 : counter.current();
+        Builder b = new Builder();
+        for (Node p : List.of(CineVocab.ESTRENO, CineVocab.DURACION, CineVocab.GENERO,
+                              CineVocab.CLASIFICACION, CineVocab.ESTADO, CineVocab.PREVENTA)) {
+            ExtendedIterator<Triple> it = graph.find(Node.ANY, p, Node.ANY);
+            try {
+                while (it.hasNext()) b.add(it.next());
+            } finally {
+                it.close();
+            }
+        }
+        int n = b.rows.size();
+        return new CatalogColumns(n, Arrays.copyOf(b.movies, n), Arrays.copyOf(b.duracion, n),
+            Arrays.copyOf(b.estreno, n), Arrays.copyOf(b.generos, n * b.genreWords), b.genreWords,
+            Arrays.copyOf(b.clasificacion, n),
+            Arrays.copyOf(b.estado, n), b.preventa, b.genreDict, b.ratingDict, b.statusDict, generation);
+    }
+
+    /**
+     * @return true si el grafo tiene {@link GraphGeneration} y no ha cambiado
+     *         desde que se construyó la instantánea.
+     */
+    public boolean isCurrent(Graph graph) {
+        GraphGeneration counter = GraphGeneration.forGraph(graph);
+        return counter != null && generation >= 0 && counter.current() == generation;
+    }
+
+    /** @return Número de filas (películas). */
+    public int size() {
+        return size;
+    }
+
+    /** @return Película de una fila. */
+    public Node movie(int row) {
+        return movies[row];
+    }
+
+    // ---------------------------------------------------------------- filtros
+
+    /** Predicado sobre una fila, evaluado dentro de un bucle por bloques. */
+    @FunctionalInterface
+    private interface RowTest {
+        boolean test(int row);
+    }
+
+    /** @return Todas las filas. */
+    public BitSet all() {
+        BitSet all = new BitSet(size);
+        all.set(0, size);
+        return all;
+    }
+
+    /** Filas con duración en [min, max] minutos. */
+    public BitSet durationBetween(int min, int max) {
+        int[] d = duracion;
+        return select(i -> d[i] != NO_DURATION && d[i] >= min && d[i] <= max);
+    }
+
+    /** Filas con estreno en [desde, hasta]; un extremo null deja el rango abierto. */
+    public BitSet releasedBetween(LocalDate from, LocalDate to) {
+        long lo = from == null ? Long.MIN_VALUE + 1 : from.toEpochDay();
+        long hi = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        long[] e = estreno;
+        return select(i -> e[i] >= lo && e[i] <= hi);
+    }
+
+    /** Filas con alguno de los valores en la columna indicada. */
+    public BitSet anyOf(Dimension dimension, String... values) {
+        Dictionary dict = dictionary(dimension);
+        if (dimension == Dimension.GENERO) {
+            int words = genreWords;
+            long[] mask = new long[words];
+            for (String v : values) {
+                int code = dict.find(v);
+                if (code >= 0) mask[code >>> 6] |= 1L << code;
+            }
+            long[] g = generos;
+            return select(i -> {
+                for (int k = 0, base = i * words; k < words; k++) {
+                    if ((g[base + k] & mask[k]) != 0) return true;
+                }
+                return false;
+            });
+        }
+        boolean[] wanted = new boolean[dict.values.size()];
+        for (String v : values) {
+            int code = dict.find(v);
+            if (code >= 0) wanted[code] = true;
+        }
+        int[] col = dimension == Dimension.CLASIFICACION ? clasificacion : estado;
+        return select(i -> col[i] != NO_CODE && wanted[col[i]]);
+    }
+
+    /** @return Filas con preventa (copia). */
+    public BitSet preSale() {
+        return (BitSet) preventa.clone();
+    }
+
+    /** Evalúa el predicado por bloques en paralelo; cada bloque escribe palabras disjuntas. */
+    private BitSet select(RowTest test) {
+        long[] words = new long[(size + 63) >>> 6];
+        IntStream.range(0, blocks()).parallel().forEach(b -> {
+            int end = Math.min(size, (b + 1) * BLOCK);
+            for (int i = b * BLOCK; i < end; i++) {
+                if (test.test(i)) words[i >>> 6] |= 1L << i;
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    // ------------------------------------------------------------ agregación
+
+    /** Acumuladores por código de grupo (conteo, suma, mínimo, máximo de duración). */
+    private static final class Partial {
+        final long[] count;
+        final long[] sum;
+        final int[] min;
+        final int[] max;
+
+        Partial(int groups) {
+            count = new long[groups];
+            sum = new long[groups];
+            min = new int[groups];
+            max = new int[groups];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+        }
+
+        void add(int group, int duration) {
+            count[group]++;
+            sum[group] += duration;
+            if (duration < min[group]) min[group] = duration;
+            if (duration > max[group]) max[group] = duration;
+        }
+
+        Partial merge(Partial other) {
+            for (int g = 0; g < count.length; g++) {
+                count[g] += other.count[g];
+                sum[g] += other.sum[g];
+                min[g] = Math.min(min[g], other.min[g]);
+                max[g] = Math.max(max[g], other.max[g]);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Estadísticas de duración por valor de la columna sobre las filas
+     * seleccionadas que tienen duración. Con {@link Dimension#GENERO} una
+     * película cuenta en cada uno de sus géneros, como en la consulta 8.
+     *
+     * @param dimension Columna por la que agrupar.
+     * @param selection Filas a considerar (ver los filtros).
+     * @return Estadísticas por valor, en orden de diccionario (sólo grupos no vacíos).
+     */
+    public Map<String, CatalogAggregates.DurationStats> durationBy(Dimension dimension, BitSet selection) {
+        Partial total = aggregate(dimension, selection, true);
+        Map<String, CatalogAggregates.DurationStats> out = new LinkedHashMap<>();
+        List<String> values = dictionary(dimension).values;
+        for (int g = 0; g < values.size(); g++) {
+            if (total.count[g] > 0) {
+                out.put(values.get(g), new CatalogAggregates.DurationStats(
+                    total.count[g], total.sum[g], total.min[g], total.max[g]));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Número de filas seleccionadas por valor de la columna.
+     *
+     * @return Conteo por valor, en orden de diccionario (sólo grupos no vacíos).
+     */
+    public Map<String, Long> countBy(Dimension dimension, BitSet selection) {
+        Partial total = aggregate(dimension, selection, false);
+        Map<String, Long> out = new LinkedHashMap<>();
+        List<String> values = dictionary(dimension).values;
+        for (int g = 0; g < values.size(); g++) {
+            if (total.count[g] > 0) out.put(values.get(g), total.count[g]);
+        }
+        return out;
+    }
+
+    /**
+     * Recorre las filas seleccionadas por bloques en paralelo. Con
+     * {@code durations} sólo cuentan las filas con duración y se acumula.
+     */
+    private Partial aggregate(Dimension dimension, BitSet selection, boolean durations) {
+        int groups = dictionary(dimension).values.size();
+        long[] sel = selection.toLongArray();
+        int[] d = duracion;
+        long[] g = generos;
+        int words = genreWords;
+        int[] col = dimension == Dimension.CLASIFICACION ? clasificacion : estado;
+        return IntStream.range(0, blocks()).parallel().mapToObj(b -> {
+            Partial p = new Partial(groups);
+            int end = Math.min(size, (b + 1) * BLOCK);
+            for (int i = b * BLOCK; i < end; i++) {
+                int w = i >>> 6;
+                if (w >= sel.length || (sel[w] & (1L << i)) == 0) continue;
+                int minutes = d[i];
+                if (durations && minutes == NO_DURATION) continue;
+                if (dimension == Dimension.GENERO) {
+                    for (int k = 0; k < words; k++) {
+                        long m = g[i * words + k];
+                        for (; m != 0; m &= m - 1) p.add((k << 6) + Long.numberOfTrailingZeros(m), minutes);
+                    }
+                } else if (col[i] != NO_CODE) {
+                    p.add(col[i], minutes);
+                }
+            }
+            return p;
+        }).reduce(Partial::merge).orElseGet(() -> new Partial(groups));
+    }
+
+    private int blocks() {
+        return (size + BLOCK - 1) / BLOCK;
+    }
+
+    private Dictionary dictionary(Dimension dimension) {
+        switch (dimension) {
+            case GENERO: return genreDict;
+            case CLASIFICACION: return ratingDict;
+            default: return statusDict;
+        }
+    }
+
+    /** @return Estimación del heap que ocupan las columnas (sin los nodos de película). */
+    public long estimatedBytes() {
+        return (long) size * (4 + 8 + 8L * genreWords + 4 + 4 + 4) + size / 8;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d películas, %d géneros, %d clasificaciones, %d estados, ~%,d KiB",
+            size, genreDict.values.size(), ratingDict.values.size(), statusDict.values.size(),
+            estimatedBytes() / 1024);
+    }
+}
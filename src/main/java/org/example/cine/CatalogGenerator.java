@@ -0,0 +1,218 @@
+package org.example.cine;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Generador determinista de catálogos sintéticos con el esquema 'cine:'.
+ *
+ * Con la misma semilla y el mismo tamaño produce siempre la misma secuencia
+ * de películas. Las distribuciones imitan un catálogo real: géneros con
+ * sesgo tipo Zipf (pocos géneros concentran la mayoría de títulos) y de uno
+ * a tres géneros por película, clasificaciones ponderadas, estrenos
+ * concentrados en las semanas cercanas a la fecha de referencia, duración
+ * aproximadamente normal y preventa más frecuente en los próximos estrenos.
+ *
+ * La salida es un {@link StreamRDF}: cada película se emite y se olvida, por
+ * lo que el tamaño del catálogo no está limitado por la memoria. Se puede
+ * escribir a cualquier sintaxis RDF con escritor en streaming
+ * ({@link #writeTo(Path)}) o cargar en un almacén ({@link CatalogStore#bulkAdd}).
+ */
+public final class CatalogGenerator {
+
+    /** Fecha de referencia ("hoy") respecto a la que se reparten los estrenos. */
+    public static final LocalDate REFERENCE_DATE = LocalDate.of(2025, 11, 13);
+
+    /** Géneros en orden de popularidad (peso ~ 1/rango). */
+    private static final String[] GENRES = {
+        "Acción", "Comedia", "Drama", "Terror", "Animación", "Aventura", "Thriller",
+        "Ciencia Ficción", "Familiar", "Musical", "Romance", "Documental", "Suspenso",
+        "Fantasía", "Concierto"
+    };
+
+    private static final String[] RATINGS = {
+        "Mayores de 12 años", "Mayores de 7 años", "Para todo el Público",
+        "Exclusiva para Mayores de 15 años", "Mayores de 18 años", "Por confirmar"
+    };
+    private static final double[] RATING_WEIGHTS = {35, 22, 18, 15, 7, 3};
+
+    private static final String[] FORMATS = {"Estreno", "2D", "3D", "IMAX", "4DX", "Preventa"};
+    private static final double[] FORMAT_WEIGHTS = {40, 30, 12, 8, 5, 5};
+
+    private static final String[] ADJ_EN = {
+        "Dark", "Last", "Silent", "Broken", "Hidden", "Wild", "Lost", "Golden", "Final", "Secret",
+        "Eternal", "Crimson", "Frozen", "Burning", "Savage", "Midnight"
+    };
+    private static final String[] NOUN_EN = {
+        "Kingdom", "Night", "River", "Empire", "Legacy", "Storm", "Heart", "Mission", "Dream", "Game",
+        "Shadow", "Island", "Road", "Signal", "Garden", "Machine"
+    };
+    private static final String[] NOUN_ES = {
+        "Reino", "Noche", "Río", "Imperio", "Legado", "Tormenta", "Corazón", "Misión", "Sueño", "Juego",
+        "Sombra", "Isla", "Camino", "Señal", "Jardín", "Máquina"
+    };
+    private static final String[] ADJ_ES = {
+        "Oscuro", "Final", "Silencioso", "Roto", "Oculto", "Salvaje", "Perdido", "Dorado", "Último", "Secreto",
+        "Eterno", "Carmesí", "Helado", "Ardiente", "Feroz", "de Medianoche"
+    };
+
+    private final long seed;
+    private final double[] genreCdf;
+    private final double[] ratingCdf;
+    private final double[] formatCdf;
+
+    /**
+     * @param seed Semilla del generador pseudoaleatorio.
+     */
+    public CatalogGenerator(long seed) {
+        this.seed = seed;
+        double[] zipf = new double[GENRES.length];
+        for (int i = 0; i < zipf.length; i++) zipf[i] = 1.0 / (i + 1);
+        this.genreCdf = cdf(zipf);
+        this.ratingCdf = cdf(RATING_WEIGHTS);
+        this.formatCdf = cdf(FORMAT_WEIGHTS);
+    }
+
+    /**
+     * Emite {@code films} películas (ids 1..films) al destino. No llama a
+     * {@code start()}/{@code finish()}.
+     *
+     * @param out Destino de los triples.
+     * @param films Número de películas.
+     * @return Número de triples emitidos.
+     */
+    public long generate(StreamRDF out, long films) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        StringBuilder genre = new StringBuilder(48);
+        long triples = 0;
+        for (long i = 1; i <= films; i++) {
+            int a = rnd.nextInt(ADJ_EN.length);
+            int n = rnd.nextInt(NOUN_EN.length);
+            String suffix = rnd.nextInt(4) == 0 ? " " + (2 + rnd.nextInt(4)) : "";
+            String title = "The " + ADJ_EN[a] + " " + NOUN_EN[n] + suffix;
+            String spanishTitle = "El " + NOUN_ES[n] + " " + ADJ_ES[a] + suffix;
+
+            // 1 a 3 géneros distintos (60% / 30% / 10%)
+            double g = rnd.nextDouble();
+            int genres = g < 0.6 ? 1 : g < 0.9 ? 2 : 3;
+            genre.setLength(0);
+            int first = pick(genreCdf, rnd), second = -1;
+            genre.append(GENRES[first]);
+            for (int k = 1; k < genres; k++) {
+                int next = pick(genreCdf, rnd);
+                if (next == first || next == second) continue;
+                genre.append(", ").append(GENRES[next]);
+                second = next;
+            }
+
+            // Duración ~ N(110, 20) acotada; un 2% sin duración conocida
+            long duration = rnd.nextInt(50) == 0 ? 0
+                : Math.max(70, Math.min(240, Math.round(110 + 20 * gaussian(rnd))));
+
+            // Estrenos: 85% en el pasado con decaimiento exponencial (media 45 días), 15% próximos 120 días
+            boolean upcoming = rnd.nextInt(100) < 15;
+            long offset = upcoming ? 1 + rnd.nextInt(120) : -Math.round(-45 * Math.log(1 - rnd.nextDouble()));
+            LocalDate release = REFERENCE_DATE.plusDays(offset);
+            String status = upcoming ? "Próximamente" : offset >= -120 ? "En cartelera" : "Fuera de cartelera";
+            boolean preSale = upcoming ? rnd.nextInt(100) < 70 : rnd.nextInt(100) < 10;
+            String format = upcoming && preSale ? "Preventa" : FORMATS[pick(formatCdf, rnd)];
+
+            triples += MovieTriples.emit(out, Long.toString(i), title, spanishTitle, genre.toString(), duration,
+                RATINGS[pick(ratingCdf, rnd)], release.toString(), status, preSale, format);
+        }
+        return triples;
+    }
+
+    /**
+     * Escribe un catálogo en un fichero. La sintaxis se deduce de la extensión
+     * (.nt, .ttl, .rt, .rpb, .nq, .trig...) y debe tener escritor en streaming;
+     * una extensión final .gz o .zst añade compresión.
+     *
+     * @param file Fichero destino.
+     * @param films Número de películas.
+     * @return Número de triples escritos.
+     * @throws IOException Si falla la escritura.
+     */
+    public long writeTo(Path file, long films) throws IOException {
+        Lang lang = RDFLanguages.filenameToLang(RdfSnapshot.baseName(file));
+        if (lang == null || !StreamRDFWriter.registered(lang)) {
+            throw new IllegalArgumentException("Sintaxis sin escritor en streaming: " + file);
+        }
+        try (OutputStream out = RdfSnapshot.openOutput(file, RdfSnapshot.compressionOf(file))) {
+            StreamRDF writer = StreamRDFWriter.getWriterStream(out, lang);
+            writer.start();
+            writer.prefix("cine", CineVocab.NS);
+            long triples = generate(writer, films);
+            writer.finish();
+            return triples;
+        }
+    }
+
+    /**
+     * Genera catálogos desde la línea de comandos:
+     * {@code <peliculas> <fichero | --tdb2 directorio> [semilla]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || (args[1].equals("--tdb2") && args.length < 3)) {
+            System.err.println("Uso: CatalogGenerator <peliculas> <fichero | --tdb2 directorio> [semilla]");
+            return;
+        }
+        long films = Long.parseLong(args[0]);
+        boolean store = args[1].equals("--tdb2");
+        Path target = Paths.get(store ? args[2] : args[1]);
+        int seedArg = store ? 3 : 2;
+        CatalogGenerator generator = new CatalogGenerator(args.length > seedArg ? Long.parseLong(args[seedArg]) : 42L);
+
+        long t0 = System.nanoTime();
+        long triples;
+        if (store) {
+            try (CatalogStore catalog = CatalogStore.open(target)) {
+                triples = catalog.bulkAdd(out -> generator.generate(out, films));
+            }
+        } else {
+            triples = generator.writeTo(target, films);
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("✓ %,d películas, %,d triples en %s (%.2f s, %,.0f triples/s)%n",
+            films, triples, target, secs, triples / secs);
+    }
+
+    private static double[] cdf(double[] weights) {
+        double total = 0;
+        for (double w : weights) total += w;
+        double[] cdf = new double[weights.length];
+        double acc = 0;
+        for (int i = 0; i < weights.length; i++) {
+            acc += weights[i] / total;
+            cdf[i] = acc;
+        }
+        cdf[cdf.length - 1] = 1.0;
+        return cdf;
+    }
+
+    private static int pick(double[] cdf, SplittableRandom rnd) {
+        double u = rnd.nextDouble();
+        int lo = 0, hi = cdf.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cdf[mid] < u) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Normal estándar (Box-Muller). */
+    private static double gaussian(SplittableRandom rnd) {
+        double u = 1 - rnd.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * rnd.nextDouble());
+    }
+}
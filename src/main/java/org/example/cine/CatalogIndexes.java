@@ -0,0 +1,317 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.datatypes.xsd.impl.XSDBaseNumericType;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Índices secundarios del catálogo, mantenidos en sincronía con el grafo
+ * mediante un listener.
+ *
+ * <ul>
+ *   <li>cine:estreno: índice ordenado de días desde epoch ({@code long[]}).</li>
+ *   <li>cine:duracion: índice ordenado de minutos.</li>
+ *   <li>cine:genero, cine:clasificacion, cine:preventa: un {@link BitSet}
+ *       de películas por cada valor distinto.</li>
+ * </ul>
+ *
+ * Las películas se numeran con un diccionario sujeto → id entero; los ids no
+ * se reutilizan. Las consultas acceden a los índices mediante las funciones
+ * de propiedad de {@link IndexFunctions}, que localizan el índice del grafo
+ * activo con {@link #forGraph(Graph)}.
+ */
+public final class CatalogIndexes extends TripleListener {
+
+    /** Índices registrados por grafo (claves débiles: no retienen el grafo). */
+    private static final Map<Graph, CatalogIndexes> ATTACHED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** Predicados con índice de bitmaps por valor. */
+    private static final List<Node> BITMAP_PREDICATES =
+        List.of(CineVocab.GENERO, CineVocab.CLASIFICACION, CineVocab.PREVENTA);
+
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private final List<Node> movies = new ArrayList<>();
+    private final SortedLongIndex estreno = new SortedLongIndex();
+    private final SortedLongIndex duracion = new SortedLongIndex();
+    private final Map<Node, Map<Node, BitSet>> bitmaps = new HashMap<>();
+
+    private CatalogIndexes() {
+        for (Node p : BITMAP_PREDICATES) bitmaps.put(p, new HashMap<>());
+    }
+
+    /**
+     * Construye los índices a partir del contenido actual del grafo y los
+     * mantiene actualizados a partir de ese momento. Si el grafo ya tenía
+     * índices, se devuelven los existentes.
+     *
+     * @param graph Grafo a indexar.
+     * @return Índices del grafo.
+     */
+    public static CatalogIndexes attach(Graph graph) {
+        synchronized (ATTACHED) {
+            CatalogIndexes existing = ATTACHED.get(graph);
+            if (existing != null) return existing;
+            CatalogIndexes indexes = new CatalogIndexes();
+            indexes.build(graph);
+            graph.getEventManager().register(indexes);
+            ATTACHED.put(graph, indexes);
+            return indexes;
+        }
+    }
+
+    /**
+     * @return Índices asociados al grafo, o null si no se han construido.
+     */
+    public static CatalogIndexes forGraph(Graph graph) {
+        return ATTACHED.get(graph);
+    }
+
+    /**
+     * Deja de mantener los índices del grafo y los descarta.
+     */
+    public static void detach(Graph graph) {
+        CatalogIndexes indexes = ATTACHED.remove(graph);
+        if (indexes != null) graph.getEventManager().unregister(indexes);
+    }
+
+    private void build(Graph graph) {
+        long[] dates = new long[1024];
+        long[] durations = new long[1024];
+        int nd = 0, nu = 0;
+        synchronized (this) {
+            ExtendedIterator<Triple> it = graph.find(Node.ANY, CineVocab.ESTRENO, Node.ANY);
+            try {
+                while (it.hasNext()) {
+                    Triple t = it.next();
+                    Long day = epochDay(t.getObject());
+                    if (day == null) continue;
+                    if (nd == dates.length) dates = Arrays.copyOf(dates, nd * 2);
+                    dates[nd++] = SortedLongIndex.key(day.intValue(), id(t.getSubject()));
+                }
+            } finally {
+                it.close();
+            }
+            it = graph.find(Node.ANY, CineVocab.DURACION, Node.ANY);
+            try {
+                while (it.hasNext()) {
+                    Triple t = it.next();
+                    Integer minutes = intValue(t.getObject());
+                    if (minutes == null) continue;
+                    if (nu == durations.length) durations = Arrays.copyOf(durations, nu * 2);
+                    durations[nu++] = SortedLongIndex.key(minutes, id(t.getSubject()));
+                }
+            } finally {
+                it.close();
+            }
+            for (Node p : BITMAP_PREDICATES) {
+                it = graph.find(Node.ANY, p, Node.ANY);
+                try {
+                    while (it.hasNext()) added(it.next());
+                } finally {
+                    it.close();
+                }
+            }
+        }
+        estreno.load(dates, nd);
+        duracion.load(durations, nu);
+    }
+
+    @Override
+    protected void added(Triple t) {
+        update(t, true);
+    }
+
+    @Override
+    protected void removed(Triple t) {
+        update(t, false);
+    }
+
+    @Override
+    protected synchronized void cleared() {
+        estreno.clear();
+        duracion.clear();
+        bitmaps.values().forEach(Map::clear);
+    }
+
+    private void update(Triple t, boolean add) {
+        Node p = t.getPredicate();
+        if (p.equals(CineVocab.ESTRENO)) {
+            Long day = epochDay(t.getObject());
+            if (day == null) return;
+            int id = id(t.getSubject());
+            if (add) estreno.add(day.intValue(), id);
+            else estreno.remove(day.intValue(), id);
+        } else if (p.equals(CineVocab.DURACION)) {
+            Integer minutes = intValue(t.getObject());
+            if (minutes == null) return;
+            int id = id(t.getSubject());
+            if (add) duracion.add(minutes, id);
+            else duracion.remove(minutes, id);
+        } else {
+            Map<Node, BitSet> byValue = bitmaps.get(p);
+            if (byValue == null) return;
+            synchronized (this) {
+                int id = id(t.getSubject());
+                BitSet bits = byValue.get(t.getObject());
+                if (add) {
+                    if (bits == null) byValue.put(t.getObject(), bits = new BitSet());
+                    bits.set(id);
+                } else if (bits != null) {
+                    bits.clear(id);
+                }
+            }
+        }
+    }
+
+    /** Id entero de una película, asignándolo si es nueva. */
+    synchronized int id(Node movie) {
+        Integer id = ids.get(movie);
+        if (id == null) {
+            id = movies.size();
+            ids.put(movie, id);
+            movies.add(movie);
+        }
+        return id;
+    }
+
+    /** @return Nodo de la película con ese id. */
+    synchronized Node movie(int id) {
+        return movies.get(id);
+    }
+
+    /**
+     * Películas con estreno en [desde, hasta] (inclusive), por fecha ascendente.
+     * Un extremo null deja el rango abierto por ese lado.
+     */
+    public int[] estrenoBetween(LocalDate from, LocalDate to) {
+        int min = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int max = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        return estreno.range(min, max);
+    }
+
+    /**
+     * Películas con duración en [min, max] minutos (inclusive), por duración ascendente.
+     */
+    public int[] duracionBetween(int min, int max) {
+        return duracion.range(min, max);
+    }
+
+    /**
+     * Películas que tienen alguno de los valores dados en el predicado indicado
+     * (genero, clasificacion o preventa).
+     *
+     * @return Copia del bitmap resultante (OR de los bitmaps de cada valor).
+     */
+    public synchronized BitSet anyOf(Node predicate, Collection<Node> values) {
+        Map<Node, BitSet> byValue = bitmaps.get(predicate);
+        if (byValue == null) {
+            throw new IllegalArgumentException("Predicado sin índice de bitmaps: " + predicate);
+        }
+        BitSet result = new BitSet();
+        for (Node v : values) {
+            BitSet bits = byValue.get(v);
+            if (bits != null) result.or(bits);
+        }
+        return result;
+    }
+
+    /**
+     * Películas cuyo valor indexado (ver {@link #indexValue}) de cine:estreno
+     * o cine:duracion es exactamente {@code value}, por id.
+     */
+    int[] withValue(Node predicate, int value) {
+        return sorted(predicate).range(value, value);
+    }
+
+    /**
+     * Siguiente valor indexado de cine:estreno o cine:duracion tras
+     * {@code value} en el orden pedido (el primero si es null), o null si no
+     * quedan más. Junto con {@link #withValue} recorre el índice en orden
+     * sin copiarlo.
+     */
+    Integer nextValue(Node predicate, Integer value, boolean descending) {
+        return sorted(predicate).nextValue(value, descending);
+    }
+
+    private SortedLongIndex sorted(Node predicate) {
+        if (predicate.equals(CineVocab.ESTRENO)) return estreno;
+        if (predicate.equals(CineVocab.DURACION)) return duracion;
+        throw new IllegalArgumentException("Predicado sin índice ordenado: " + predicate);
+    }
+
+    /**
+     * Valor con el que se indexa un literal de cine:estreno (día desde epoch)
+     * o cine:duracion (minutos), o null si no es indexable.
+     */
+    static Long indexValue(Node predicate, Node literal) {
+        if (predicate.equals(CineVocab.ESTRENO)) return epochDay(literal);
+        Integer minutes = predicate.equals(CineVocab.DURACION) ? intValue(literal) : null;
+        return minutes == null ? null : minutes.longValue();
+    }
+
+    /** @return Número de entradas en el índice de estrenos. */
+    public int estrenoSize() {
+        return estreno.size();
+    }
+
+    /** @return Número de películas distintas numeradas en el diccionario. */
+    public synchronized int movieCount() {
+        return movies.size();
+    }
+
+    /**
+     * Día desde epoch de un literal xsd:date (YYYY-MM-DD[zona]) o xsd:dateTime,
+     * o null si no lo es. Un texto sin tipo con forma de fecha no cuenta.
+     */
+    static Long epochDay(Node node) {
+        if (node == null || !node.isLiteral()) return null;
+        RDFDatatype dt = node.getLiteralDatatype();
+        if (!XSDDatatype.XSDdate.equals(dt) && !XSDDatatype.XSDdateTime.equals(dt)
+                && !XSDDatatype.XSDdateTimeStamp.equals(dt)) {
+            return null;
+        }
+        String lex = node.getLiteralLexicalForm();
+        if (lex.length() < 10) return null;
+        try {
+            return LocalDate.parse(lex.substring(0, 10)).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Valor entero de un literal de tipo numérico XSD, o null si no lo es, no
+     * es entero o no cabe en un int. Un texto sin tipo con forma de número no cuenta.
+     */
+    static Integer intValue(Node node) {
+        if (node == null || !node.isLiteral() || !(node.getLiteralDatatype() instanceof XSDBaseNumericType)) return null;
+        try {
+            long v = Long.parseLong(node.getLiteralLexicalForm().trim());
+            return v < Integer.MIN_VALUE || v > Integer.MAX_VALUE ? null : (int) v;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d películas, %,d estrenos, %,d duraciones, %d valores de género",
+            movieCount(), estreno.size(), duracion.size(), bitmaps.get(CineVocab.GENERO).size());
+    }
+}
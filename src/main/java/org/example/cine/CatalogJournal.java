@@ -0,0 +1,546 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdfpatch.RDFChanges;
+import org.apache.jena.rdfpatch.RDFPatch;
+import org.apache.jena.rdfpatch.RDFPatchOps;
+import org.apache.jena.rdfpatch.changes.PatchSummary;
+import org.apache.jena.rdfpatch.changes.RDFChangesCollector;
+import org.apache.jena.rdfpatch.text.RDFChangesWriterText;
+import org.apache.jena.shared.Lock;
+import org.apache.jena.sparql.graph.GraphFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Persistencia del catálogo como instantánea más diario de cambios.
+ *
+ * El grafo vive en memoria. Cada actualización ({@link #update}) se registra
+ * como una transacción RDF Patch ({@code TX ... TC .}) al final del diario
+ * activo y no vuelve hasta que el diario está en disco (fsync), así que el
+ * coste de guardar depende del tamaño del cambio y no del catálogo. Varias
+ * actualizaciones concurrentes comparten el mismo fsync (group commit): la
+ * que llega primero escribe y sincroniza todo lo acumulado mientras las
+ * demás esperan su turno, y al recibirlo ya están en disco.
+ *
+ * En el directorio hay instantáneas {@code catalogo-N.rt.zst} (estado tras
+ * aplicar los diarios anteriores a N) y diarios {@code diario-N.rdfp}. Al
+ * abrir se carga la instantánea más reciente y se reproducen los diarios
+ * desde su número; una transacción a medio escribir al final del último
+ * diario (caída durante un append) se descarta y se trunca.
+ *
+ * Cuando el diario activo supera el umbral de compactación se cierra, se
+ * abre el siguiente y un hilo de fondo construye la instantánea siguiente a
+ * partir de la anterior y el diario cerrado, sin bloquear a los escritores.
+ * La instantánea se escribe en un temporal y se renombra de forma atómica;
+ * sólo después se borran los ficheros que sustituye.
+ */
+public final class CatalogJournal implements AutoCloseable {
+
+    /** Tamaño del diario activo a partir del cual se compacta. */
+    public static final long DEFAULT_COMPACT_BYTES = 16L << 20;
+
+    private static final Pattern SNAPSHOT = Pattern.compile("catalogo-(\\d{8})\\.rt\\.zst");
+    private static final Pattern JOURNAL = Pattern.compile("diario-(\\d{8})\\.rdfp");
+    private static final byte[] COMMIT = "TC .\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path dir;
+    private final Model model;
+    private final long compactBytes;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "compactador-diario");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Object compactLock = new Object();
+
+    // Segmento activo y transacciones pendientes de escribir (protegidos por this)
+    private long segment;
+    private FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+    private long segmentBytes;
+
+    // Sincronización con disco (orden de bloqueo: syncLock y después this)
+    private final Object syncLock = new Object();
+    private volatile long durable;
+    private IOException failure;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private final long replayed;
+
+    private CatalogJournal(Path dir, Model model, long compactBytes, long segment, long replayed) throws IOException {
+        this.dir = dir;
+        this.model = model;
+        this.compactBytes = compactBytes;
+        this.segment = segment;
+        this.replayed = replayed;
+        this.channel = FileChannel.open(journalFile(segment),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.segmentBytes = channel.size();
+    }
+
+    /**
+     * Abre (o crea) el diario con el umbral de compactación por defecto.
+     */
+    public static CatalogJournal open(Path dir) throws IOException {
+        return open(dir, DEFAULT_COMPACT_BYTES);
+    }
+
+    /**
+     * Abre (o crea) el diario del directorio: carga la última instantánea,
+     * reproduce los diarios posteriores y deja abierto el último para añadir.
+     *
+     * @param dir Directorio de instantáneas y diarios.
+     * @param compactBytes Tamaño del diario activo que dispara la compactación.
+     * @return Diario abierto, con el catálogo recuperado en {@link #model()}.
+     */
+    public static CatalogJournal open(Path dir, long compactBytes) throws IOException {
+        Files.createDirectories(dir);
+        deleteMatching(dir, name -> name.endsWith(".tmp"));
+        long last = Math.max(latest(dir, SNAPSHOT, Long.MAX_VALUE), latest(dir, JOURNAL, Long.MAX_VALUE));
+        if (last < 0) last = 0;
+
+        Model model = ModelFactory.createDefaultModel();
+        long replayed = restore(dir, model.getGraph(), last, true);
+        long snapshot = Math.max(0, latest(dir, SNAPSHOT, last));
+        deleteObsolete(dir, snapshot);
+        return new CatalogJournal(dir, model, compactBytes, last, replayed);
+    }
+
+    /** @return Modelo con el catálogo; leer bajo {@code Lock.READ}, escribir sólo con {@link #update}. */
+    public Model model() {
+        return model;
+    }
+
+    /**
+     * Aplica un cambio al catálogo y lo registra en el diario. El cambio se
+     * hace bajo el bloqueo de escritura del modelo sobre un grafo que anota
+     * cada alta, baja y prefijo; al volver, la transacción está en disco.
+     *
+     * Si el cambio lanza una excepción, la parte ya aplicada en memoria se
+     * registra igualmente (el diario nunca diverge del modelo) y la
+     * excepción se propaga.
+     *
+     * @param change Cambio a aplicar sobre el grafo recibido.
+     * @return Valor devuelto por el cambio.
+     * @throws IOException Si no se pudo escribir o sincronizar el diario.
+     */
+    public <T> T update(Function<Graph, T> change) throws IOException {
+        RDFChangesCollector collector = new RDFChangesCollector();
+        long ticket;
+        T result;
+        model.enterCriticalSection(Lock.WRITE);
+        try {
+            try {
+                result = change.apply(RDFPatchOps.changes(model.getGraph(), collector));
+            } finally {
+                ticket = enqueue(collector.getRDFPatch());
+            }
+        } finally {
+            model.leaveCriticalSection();
+        }
+        if (ticket > 0) {
+            sync(ticket);
+            maybeCompact();
+        }
+        return result;
+    }
+
+    /**
+     * Sincroniza el catálogo con las películas del grafo origen (ver
+     * {@link CatalogStore#sync}) en una única transacción del diario.
+     */
+    public CatalogStore.ApplyResult apply(Graph source) throws IOException {
+        return update(target -> CatalogStore.sync(source, target));
+    }
+
+    /**
+     * Añade una transacción a las pendientes del segmento activo.
+     *
+     * @return Número de orden de la transacción, o 0 si no tenía cambios.
+     */
+    private synchronized long enqueue(RDFPatch patch) {
+        PatchSummary summary = RDFPatchOps.summary(patch);
+        if (summary.getCountAddData() + summary.getCountDeleteData()
+            + summary.getCountAddPrefix() + summary.getCountDeletePrefix() == 0) {
+            return 0;
+        }
+        int before = pending.size();
+        RDFChangesWriterText writer = RDFPatchOps.textWriter(pending);
+        writer.txnBegin();
+        patch.apply(writer);
+        writer.txnCommit();
+        writer.finish();
+        segmentBytes += pending.size() - before;
+        commits.increment();
+        return ++appended;
+    }
+
+    /**
+     * Espera a que la transacción esté en disco. Si nadie está sincronizando,
+     * este hilo escribe y sincroniza todas las pendientes de una vez; si no,
+     * espera al que lo está haciendo y, al entrar, comprueba si su
+     * transacción ya iba en ese lote.
+     */
+    private void sync(long ticket) throws IOException {
+        synchronized (syncLock) {
+            if (failure != null) throw new IOException("Diario no disponible: " + failure.getMessage(), failure);
+            if (durable >= ticket) return;
+            byte[] batch;
+            long upTo;
+            FileChannel ch;
+            synchronized (this) {
+                batch = pending.toByteArray();
+                pending.reset();
+                upTo = appended;
+                ch = channel;
+            }
+            try {
+                write(ch, batch);
+                ch.force(false);
+            } catch (IOException e) {
+                // Las transacciones de este lote ya no están pendientes: a
+                // partir de aquí ninguna escritura puede darse por duradera.
+                failure = e;
+                throw e;
+            }
+            fsyncs.increment();
+            durable = upTo;
+        }
+    }
+
+    /**
+     * Cierra el diario activo (con todo lo pendiente en disco) y abre el
+     * siguiente.
+     *
+     * @return Número del diario cerrado.
+     */
+    private long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                write(channel, pending.toByteArray());
+                pending.reset();
+                channel.force(false);
+                channel.close();
+                durable = appended;
+                long sealed = segment++;
+                channel = FileChannel.open(journalFile(segment),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                segmentBytes = 0;
+                forceDirectory(dir);
+                return sealed;
+            }
+        }
+    }
+
+    private void maybeCompact() {
+        long size;
+        synchronized (this) {
+            size = segmentBytes;
+        }
+        if (size < compactBytes || !compacting.compareAndSet(false, true)) return;
+        compactor.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Error compactando el diario: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Compacta ahora: cierra el diario activo y escribe la instantánea que lo
+     * incluye, reconstruida desde disco (no bloquea el modelo en memoria).
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            compactSegment(rotate());
+        }
+    }
+
+    private void compactSegment(long sealed) throws IOException {
+        Graph graph = GraphFactory.createDefaultGraph();
+        restore(dir, graph, sealed, false);
+
+        Path target = snapshotFile(sealed + 1);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        RdfSnapshot.save(graph, tmp, RdfSnapshot.Format.THRIFT, RdfSnapshot.Compression.ZSTD);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(dir);
+        deleteObsolete(dir, sealed + 1);
+        compactions.increment();
+    }
+
+    /**
+     * Reconstruye en el grafo el estado al final del diario {@code last}: la
+     * instantánea más reciente que no lo supere y los diarios desde ella.
+     *
+     * @param truncate Si es true, trunca el final incompleto del último diario.
+     * @return Transacciones reproducidas.
+     */
+    private static long restore(Path dir, Graph graph, long last, boolean truncate) throws IOException {
+        long snapshot = latest(dir, SNAPSHOT, last);
+        if (snapshot >= 0) {
+            RdfSnapshot.load(dir.resolve(snapshotName(snapshot)), graph);
+        }
+        long transactions = 0;
+        for (long n = Math.max(snapshot, 0); n <= last; n++) {
+            Path journal = dir.resolve(journalName(n));
+            if (Files.exists(journal)) {
+                transactions += replay(journal, graph, truncate && n == last);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Aplica al grafo las transacciones completas de un diario.
+     *
+     * @return Transacciones aplicadas.
+     */
+    private static long replay(Path journal, Graph graph, boolean truncate) throws IOException {
+        byte[] data = Files.readAllBytes(journal);
+        int end = committedLength(data);
+        if (end < data.length && truncate) {
+            try (FileChannel ch = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                ch.truncate(end);
+                ch.force(false);
+            }
+        }
+        if (end == 0) return 0;
+        Replay replay = new Replay(graph);
+        RDFPatchOps.read(new ByteArrayInputStream(data, 0, end)).apply(replay);
+        return replay.transactions;
+    }
+
+    /**
+     * @return Longitud del prefijo del diario que termina en una línea
+     *         {@code TC .}; lo que sigue es una transacción a medio escribir.
+     */
+    static int committedLength(byte[] data) {
+        outer:
+        for (int end = data.length; end >= COMMIT.length; end--) {
+            int start = end - COMMIT.length;
+            if (start > 0 && data[start - 1] != '\n') continue;
+            for (int i = 0; i < COMMIT.length; i++) {
+                if (data[start + i] != COMMIT[i]) continue outer;
+            }
+            return end;
+        }
+        return 0;
+    }
+
+    /** Aplica al grafo los cambios leídos, compartiendo nodos con el diccionario del grafo. */
+    private static final class Replay implements RDFChanges {
+        private final Graph graph;
+        private final NodeDictionary dictionary;
+        long transactions;
+
+        Replay(Graph graph) {
+            this.graph = graph;
+            this.dictionary = NodeDictionary.attach(graph);
+        }
+
+        @Override
+        public void add(Node g, Node s, Node p, Node o) {
+            graph.add(dictionary.intern(Triple.create(s, p, o)));
+        }
+
+        @Override
+        public void delete(Node g, Node s, Node p, Node o) {
+            graph.delete(Triple.create(s, p, o));
+        }
+
+        @Override
+        public void addPrefix(Node g, String prefix, String uriStr) {
+            graph.getPrefixMapping().setNsPrefix(prefix, uriStr);
+        }
+
+        @Override
+        public void deletePrefix(Node g, String prefix) {
+            graph.getPrefixMapping().removeNsPrefix(prefix);
+        }
+
+        @Override
+        public void txnCommit() {
+            transactions++;
+        }
+
+        @Override
+        public void header(String field, Node value) {
+        }
+
+        @Override
+        public void txnBegin() {
+        }
+
+        @Override
+        public void txnAbort() {
+        }
+
+        @Override
+        public void segment() {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    /** @return Transacciones reproducidas al abrir. */
+    public long replayed() {
+        return replayed;
+    }
+
+    /** @return Transacciones registradas desde que se abrió. */
+    public long commits() {
+        return commits.sum();
+    }
+
+    /** @return Sincronizaciones con disco (una por lote de transacciones). */
+    public long fsyncs() {
+        return fsyncs.sum();
+    }
+
+    /** @return Compactaciones terminadas desde que se abrió. */
+    public long compactions() {
+        return compactions.sum();
+    }
+
+    /** @return Bytes del diario activo, incluidos los pendientes de escribir. */
+    public synchronized long journalBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Espera a que termine la compactación en curso, escribe lo pendiente y
+     * cierra el diario.
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (syncLock) {
+            synchronized (this) {
+                write(channel, pending.toByteArray());
+                pending.reset();
+                channel.force(false);
+                channel.close();
+                durable = appended;
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        long n = commits(), f = fsyncs();
+        return String.format("diario %d, %,d transacciones en %,d fsync (%.1f por fsync), %,d KB en el diario activo, %,d compactaciones",
+            segment, n, f, f == 0 ? 0.0 : (double) n / f, segmentBytes / 1024, compactions());
+    }
+
+    private Path journalFile(long n) {
+        return dir.resolve(journalName(n));
+    }
+
+    private Path snapshotFile(long n) {
+        return dir.resolve(snapshotName(n));
+    }
+
+    private static String journalName(long n) {
+        return String.format("diario-%08d.rdfp", n);
+    }
+
+    private static String snapshotName(long n) {
+        return String.format("catalogo-%08d.rt.zst", n);
+    }
+
+    /** @return Mayor número de fichero con ese patrón que no supere {@code max}, o -1. */
+    private static long latest(Path dir, Pattern pattern, long max) throws IOException {
+        long latest = -1;
+        for (Path p : list(dir)) {
+            Matcher m = pattern.matcher(p.getFileName().toString());
+            if (m.matches()) {
+                long n = Long.parseLong(m.group(1));
+                if (n <= max) latest = Math.max(latest, n);
+            }
+        }
+        return latest;
+    }
+
+    /** Borra las instantáneas anteriores a {@code snapshot} y los diarios que ésta ya incluye. */
+    private static void deleteObsolete(Path dir, long snapshot) throws IOException {
+        deleteMatching(dir, name -> {
+            Matcher s = SNAPSHOT.matcher(name), j = JOURNAL.matcher(name);
+            return (s.matches() && Long.parseLong(s.group(1)) < snapshot)
+                || (j.matches() && Long.parseLong(j.group(1)) < snapshot);
+        });
+    }
+
+    private static void deleteMatching(Path dir, Predicate<String> names) throws IOException {
+        for (Path p : list(dir)) {
+            if (names.test(p.getFileName().toString())) Files.deleteIfExists(p);
+        }
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files.toList());
+        }
+    }
+
+    private static void write(FileChannel ch, byte[] data) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    /** Sincroniza la entrada de directorio (altas, renombrados); no todos los sistemas lo permiten. */
+    private static void forceDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // Sin soporte para sincronizar directorios (p. ej. Windows)
+        }
+    }
+}
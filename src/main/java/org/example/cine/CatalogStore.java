@@ -0,0 +1,173 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Almacén persistente del catálogo sobre un dataset TDB2 (ficheros mapeados
+ * en memoria dentro de un directorio).
+ *
+ * Abrir un almacén existente no relee el catálogo: los índices ya están en
+ * disco. Las actualizaciones se aplican película a película
+ * ({@link #apply(Graph)}), reescribiendo sólo los sujetos cuyo conjunto de
+ * triples ha cambiado, dentro de una única transacción de escritura.
+ */
+public final class CatalogStore implements AutoCloseable {
+
+    private final Dataset dataset;
+
+    private CatalogStore(Dataset dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     * Abre (o crea si no existe) el almacén TDB2 en el directorio indicado.
+     *
+     * @param dir Directorio del dataset.
+     * @return Almacén abierto.
+     */
+    public static CatalogStore open(Path dir) {
+        return new CatalogStore(TDB2Factory.connectDataset(dir.toString()));
+    }
+
+    /** @return Dataset transaccional subyacente. */
+    public Dataset dataset() {
+        return dataset;
+    }
+
+    /**
+     * Resultado de aplicar un catálogo sobre el almacén.
+     */
+    public static final class ApplyResult {
+        public final int added;
+        public final int updated;
+        public final int unchanged;
+
+        ApplyResult(int added, int updated, int unchanged) {
+            this.added = added;
+            this.updated = updated;
+            this.unchanged = unchanged;
+        }
+
+        @Override
+        public String toString() {
+            return added + " nuevas, " + updated + " modificadas, " + unchanged + " sin cambios";
+        }
+    }
+
+    /**
+     * Sincroniza el grafo por defecto del almacén con las películas del grafo
+     * origen. Sólo se escriben los sujetos nuevos o con triples distintos; los
+     * sujetos del almacén que no aparecen en el origen se conservan.
+     *
+     * @param source Grafo con el catálogo actual.
+     * @return Conteo de películas nuevas, modificadas y sin cambios.
+     */
+    public ApplyResult apply(Graph source) {
+        return Txn.calculateWrite(dataset, () -> sync(source, dataset.asDatasetGraph().getDefaultGraph()));
+    }
+
+    /**
+     * Lleva al grafo destino las películas del grafo origen, sujeto a sujeto:
+     * de un sujeto modificado sólo se borran los triples que ya no están y se
+     * añaden los que faltan. Copia también los prefijos que falten. Los
+     * sujetos del destino que no aparecen en el origen se conservan.
+     *
+     * @return Conteo de películas nuevas, modificadas y sin cambios.
+     */
+    static ApplyResult sync(Graph source, Graph target) {
+        Set<Node> subjects = new HashSet<>();
+        source.find().mapWith(Triple::getSubject).forEachRemaining(subjects::add);
+
+        int added = 0, updated = 0, unchanged = 0;
+        for (Node s : subjects) {
+            Set<Triple> wanted = collect(source.find(s, Node.ANY, Node.ANY));
+            Set<Triple> current = collect(target.find(s, Node.ANY, Node.ANY));
+            if (current.equals(wanted)) {
+                unchanged++;
+                continue;
+            }
+            if (current.isEmpty()) {
+                added++;
+            } else {
+                updated++;
+            }
+            for (Triple t : current) {
+                if (!wanted.contains(t)) target.delete(t);
+            }
+            for (Triple t : wanted) {
+                if (!current.contains(t)) target.add(t);
+            }
+        }
+        // Prefijos del origen, por si el destino es nuevo
+        source.getPrefixMapping().getNsPrefixMap().forEach((prefix, uri) -> {
+            if (!uri.equals(target.getPrefixMapping().getNsPrefixURI(prefix))) {
+                target.getPrefixMapping().setNsPrefix(prefix, uri);
+            }
+        });
+        return new ApplyResult(added, updated, unchanged);
+    }
+
+    /**
+     * Añade al grafo por defecto todos los triples que emita el productor, por
+     * lotes y en una única transacción de escritura. No compara con el
+     * contenido existente: pensado para cargas iniciales o generadas.
+     *
+     * @param producer Función que emite los triples y devuelve cuántos emitió.
+     * @return Valor devuelto por el productor.
+     */
+    public long bulkAdd(ToLongFunction<StreamRDF> producer) {
+        return Txn.calculateWrite(dataset, () -> {
+            StreamRDF sink = CatalogBulkLoader.batchInto(dataset.asDatasetGraph().getDefaultGraph(),
+                CatalogBulkLoader.DEFAULT_BATCH);
+            sink.start();
+            long n = producer.applyAsLong(sink);
+            sink.finish();
+            return n;
+        });
+    }
+
+    /**
+     * Elimina del almacén las películas indicadas.
+     *
+     * @param movies Nodos URI de las películas a borrar.
+     */
+    public void remove(List<Node> movies) {
+        Txn.executeWrite(dataset, () -> {
+            Graph target = dataset.asDatasetGraph().getDefaultGraph();
+            for (Node m : movies) {
+                target.remove(m, Node.ANY, Node.ANY);
+            }
+        });
+    }
+
+    /** @return Número de triples del grafo por defecto. */
+    public long size() {
+        return Txn.calculateRead(dataset, () -> dataset.getDefaultModel().size());
+    }
+
+    private static Set<Triple> collect(ExtendedIterator<Triple> it) {
+        try {
+            return it.toSet();
+        } finally {
+            it.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        dataset.close();
+    }
+}
@@ -5,23 +5,34 @@ import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.query.Query;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
-import org.apache.jena.query.QueryFactory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.ResultSet;
-import org.apache.jena.query.QuerySolution;
-import org.apache.jena.query.ResultSetFormatter;
-import org.apache.jena.util.FileManager;
-import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.shared.Lock;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.system.Txn;
 
-import java.io.FileOutputStream;
-import java.io.InputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * CineColombiaManager — Ejemplo de aplicación que construye un modelo RDF
@@ -30,31 +41,419 @@ import java.util.Map;
  */
 public class CineColombiaManager {
 
-    /** Nombre del fichero RDF en disco (salida/entrada). */
+    /** Nombre del fichero de exportación en RDF/XML. */
     private static final String RDF_FILE = "cine_colombia_actual.rdf";
 
+    /** Código de salida cuando una opción de línea de comandos no es válida. */
+    static final int EXIT_USAGE = 2;
+
+    /** Nombre base de la instantánea binaria; la extensión depende del formato. */
+    private static final String SNAPSHOT_BASE = "cine_colombia_actual";
+
     /** Espacio de nombres base para las propiedades del dominio 'cine'. */
-    private static final String NS = "http://example.org/cine#";
+    private static final String NS = CineVocab.NS;
+
+    /** Si es true, cada consulta muestra su traza y su plan ({@code --perfil}). */
+    private static boolean profile;
+
+    /** Si es true, antes de las consultas se imprime el informe columnar ({@code --analitica}). */
+    private static boolean analytics;
+
+    /** Si es true, antes de las consultas se muestran las consultas continuas ({@code --continuas}). */
+    private static boolean standing;
+
+    /** Sede a consultar con {@link ShardedCatalog} ({@code --sedes}; "todas" reparte entre todas), o null. */
+    private static String shardSelection;
+
+    /** Directorio de {@link ResultExporter} ({@code --exportar}), o null para imprimir tablas. */
+    private static Path exportDir;
+
+    /** Formato de {@link ResultExporter} ({@code --formato-exportacion}). */
+    private static ResultExporter.Format exportFormat;
+
+    /** Compresión de {@link ResultExporter} ({@code --compresion-exportacion}). */
+    private static RdfSnapshot.Compression exportCompression;
+
+    /** Hilos de {@link ParallelRdfLoader} ({@code --hilos-carga}; 0 = número de núcleos). */
+    private static int loadThreads;
 
     /**
      * Punto de entrada de la aplicación.
      * Crea el modelo RDF, lo guarda en disco y luego lo recarga para ejecutar
      * las consultas SPARQL de ejemplo.
+     *
+     * Opciones:
+     * <ul>
+     *   <li>{@code --catalogo <fichero>}: carga masiva desde CSV o JSON-lines
+     *       en lugar de las películas de ejemplo.</li>
+     *   <li>{@code --generar <n>} [{@code --semilla <s>}]: catálogo sintético de n
+     *       películas (ver {@link CatalogGenerator}).</li>
+     *   <li>{@code --volcado <fichero>}: parte de un volcado RDF existente; si es
+     *       N-Triples/N-Quads sin comprimir se carga en paralelo
+     *       ({@link ParallelRdfLoader}).</li>
+     *   <li>{@code --hilos-carga <n>}: hilos para la carga en paralelo de
+     *       volcados y de instantáneas N-Triples (0 = número de núcleos, por defecto).</li>
+     *   <li>{@code --formato thrift|protobuf|ntriples}: sintaxis de la instantánea (thrift por defecto).</li>
+     *   <li>{@code --compresion none|gzip|zstd}: compresión de la instantánea (zstd por defecto).</li>
+     *   <li>{@code --exportar-rdfxml}: exporta además el grafo a {@value #RDF_FILE}.</li>
+     *   <li>{@code --tdb2 <directorio>}: usa un almacén TDB2 persistente en lugar
+     *       de la instantánea; sólo se escriben las películas nuevas o modificadas.</li>
+     *   <li>{@code --diario <directorio>}: persiste con {@link CatalogJournal}
+     *       (instantánea más diario RDF Patch) en lugar de reescribir la
+     *       instantánea; sólo se registran los triples que cambian.</li>
+     *   <li>{@code --hilos <n>}: ejecuta las consultas de ejemplo en paralelo
+     *       con n hilos (0 = número de núcleos).</li>
+     *   <li>{@code --analitica}: antes de las consultas construye
+     *       {@link CatalogColumns} e imprime la duración por género y los
+     *       conteos por clasificación y estado calculados sobre columnas.</li>
+     *   <li>{@code --sedes todas|<ciudad>}: reparte el catálogo por ciudad
+     *       ({@link ShardedCatalog}) y ejecuta las consultas de ejemplo en todas
+     *       las sedes en paralelo, combinando los resultados, o sólo en una.</li>
+     *   <li>{@code --simular-preventa <n>}: da de alta tres funciones por
+     *       película en preventa ({@link ShowtimeInventory}), lanza n reservas
+     *       concurrentes publicando el inventario en el grafo por lotes y
+     *       muestra las funciones con asientos libres.</li>
+     *   <li>{@code --continuas}: antes de las consultas suscribe las consultas
+     *       2 y 10 como consultas continuas ({@link StandingQueries}), añade y
+     *       retira una película y muestra sólo las filas que entran y salen.</li>
+     *   <li>{@code --perfil}: muestra tras cada consulta sus tiempos (análisis,
+     *       optimización, primera fila, total), las filas y el plan optimizado.</li>
+     *   <li>{@code --metricas <fichero>}: al terminar escribe las métricas por
+     *       consulta (JSON si la extensión es .json, Prometheus en otro caso).</li>
+     *   <li>{@code --cache <MB>}: capacidad de la caché de resultados
+     *       ({@link ResultCache}, 64 MB por defecto; 0 la desactiva).</li>
+     *   <li>{@code --exportar <directorio>}: en lugar de imprimir las tablas,
+     *       exporta el catálogo completo y cada consulta de ejemplo a un fichero
+     *       del directorio con {@link ResultExporter}, como consultas por lotes.
+     *       Con {@code --formato-exportacion csv|tsv|json|columnar} (csv por
+     *       defecto) y {@code --compresion-exportacion none|gzip|zstd} (none por
+     *       defecto).</li>
+     *   <li>{@code --tiempo-max <ms>}, {@code --filas-max <n>},
+     *       {@code --memoria-max <MB>}: límites de {@link QueryGovernor} para
+     *       las consultas interactivas (consola y endpoint); las que los
+     *       superan se cancelan.</li>
+     *   <li>{@code --servidor <puerto>}: en lugar de las consultas de ejemplo,
+     *       sirve el catálogo por HTTP con {@link SparqlEndpoint} hasta que se
+     *       detenga el proceso.</li>
+     * </ul>
      */
     public static void main(String[] args) {
         System.out.println("=== SISTEMA DE GESTIÓN CINE COLOMBIA ===\n");
+        profile = hasFlag(args, "--perfil");
+        analytics = hasFlag(args, "--analitica");
+        standing = hasFlag(args, "--continuas");
+        shardSelection = option(args, "--sedes");
+        String export = option(args, "--exportar");
+        exportDir = export != null ? Paths.get(export) : null;
+        try {
+            // Las opciones se validan antes de cargar nada
+            if (exportDir != null) {
+                exportFormat = enumOption(args, "--formato-exportacion", ResultExporter.Format.CSV);
+                exportCompression = enumOption(args, "--compresion-exportacion", RdfSnapshot.Compression.NONE);
+            }
+            enumOption(args, "--formato", RdfSnapshot.Format.THRIFT);
+            enumOption(args, "--compresion", RdfSnapshot.Compression.ZSTD);
+            long cacheMb = longOption(args, "--cache", -1);
+            if (cacheMb >= 0) {
+                ResultCache.get().resize(cacheMb << 20);
+            }
+            configureGovernor(args);
+            loadThreads = intOption(args, "--hilos-carga", 0);
+            threads(args);
+            port(args);
+            for (String name : List.of("--generar", "--semilla", "--simular-preventa")) {
+                longOption(args, name, 0);
+            }
+        } catch (UsageError e) {
+            System.err.println("Error de uso: " + e.getMessage());
+            System.exit(EXIT_USAGE);
+        }
+        boolean usageError = false;
+        try {
+            run(args);
+        } catch (UsageError e) {
+            System.err.println("Error de uso: " + e.getMessage());
+            usageError = true;
+        } finally {
+            if (profile) {
+                System.out.println("✓ Caché de resultados: " + ResultCache.get());
+                System.out.println("✓ Gobernador de consultas: " + QueryGovernor.get());
+            }
+            String metrics = option(args, "--metricas");
+            if (metrics != null) {
+                writeMetrics(Paths.get(metrics));
+            }
+        }
+        if (usageError) {
+            System.exit(EXIT_USAGE);
+        }
+    }
 
-        // 1) Construcción en memoria del grafo RDF con datos de ejemplo
-        Model model = createRDFModel();
+    /**
+     * Flujo principal de {@link #main}: construcción, persistencia, recarga y consultas.
+     */
+    private static void run(String[] args) {
+
+        // 1) Construcción en memoria del grafo RDF (catálogo externo o datos de ejemplo)
+        String catalog = option(args, "--catalogo");
+        String generated = option(args, "--generar");
+        String dump = option(args, "--volcado");
+        Model model = catalog != null ? loadCatalog(catalog)
+            : dump != null ? loadRDFModel(Paths.get(dump))
+            : generated != null ? generateCatalog(longOption(args, "--generar", 0), longOption(args, "--semilla", 42))
+            : createRDFModel();
+        if (model == null) {
+            return;
+        }
 
-        // 2) Persistencia del grafo a disco en formato RDF/XML (abreviado)
-        saveRDFModel(model);
+        // Modo almacén persistente: se aplican los cambios sobre TDB2 y se
+        // consulta directamente el dataset, sin volcar ni releer el grafo
+        String storeDir = option(args, "--tdb2");
+        if (storeDir != null) {
+            runWithStore(Paths.get(storeDir), model, threads(args), port(args));
+            return;
+        }
+
+        // Modo diario: sólo se escriben en disco los cambios respecto a lo
+        // ya persistido; el catálogo se consulta en memoria
+        String journalDir = option(args, "--diario");
+        if (journalDir != null) {
+            runWithJournal(Paths.get(journalDir), model, threads(args), port(args));
+            return;
+        }
+
+        // 2) Persistencia del grafo a disco como instantánea binaria
+        RdfSnapshot.Format format = enumOption(args, "--formato", RdfSnapshot.Format.THRIFT);
+        RdfSnapshot.Compression compression = enumOption(args, "--compresion", RdfSnapshot.Compression.ZSTD);
+        Path snapshot = Paths.get(RdfSnapshot.fileName(SNAPSHOT_BASE, format, compression));
+        saveRDFModel(model, snapshot, format, compression);
+        if (hasFlag(args, "--exportar-rdfxml")) {
+            exportRDFXML(model);
+        }
 
         // 3) Lectura del grafo desde disco y ejecución de consultas
-        Model loadedModel = loadRDFModel();
+        Model loadedModel = loadRDFModel(snapshot);
         if (loadedModel != null) {
-            executeDemoQueries(loadedModel);
+            attachDerived(loadedModel);
+            int presale = intOption(args, "--simular-preventa", -1);
+            if (presale >= 0) {
+                simulatePresale(loadedModel, presale);
+            }
+            executeQueries(loadedModel, threads(args), port(args));
+        }
+    }
+
+    /**
+     * Construye sobre el grafo cargado las estructuras que se mantienen con
+     * listeners: índices secundarios, índice de títulos, agregados y
+     * contador de generación.
+     */
+    static void attachDerived(Model model) {
+        long t0 = System.nanoTime();
+        CatalogIndexes indexes = CatalogIndexes.attach(model.getGraph());
+        System.out.printf("✓ Índices secundarios construidos: %s (%.1f ms)%n",
+            indexes, (System.nanoTime() - t0) / 1e6);
+        t0 = System.nanoTime();
+        TitleSearchIndex titles = TitleSearchIndex.attach(model.getGraph());
+        System.out.printf("✓ Índice de títulos construido: %s (%.1f ms)%n",
+            titles, (System.nanoTime() - t0) / 1e6);
+        t0 = System.nanoTime();
+        CatalogAggregates aggregates = CatalogAggregates.attach(model.getGraph());
+        System.out.printf("✓ Agregados materializados: %s (%.1f ms)%n",
+            aggregates, (System.nanoTime() - t0) / 1e6);
+        System.out.println("✓ Diccionario de nodos: " + NodeDictionary.attach(model.getGraph()) + "\n");
+        // Sin contador de generación no se cachean resultados de este grafo
+        GraphGeneration.attach(model.getGraph());
+    }
+
+    /**
+     * Sirve el modelo por HTTP si se indicó puerto; si no, ejecuta las
+     * consultas de ejemplo, en paralelo si se indicaron hilos.
+     */
+    static void executeQueries(Model model, Integer threads, Integer port) {
+        if (analytics) {
+            printAnalytics(model);
+        }
+        if (standing) {
+            demoStandingQueries(model);
+        }
+        if (port != null) {
+            serve(model, port);
+        } else if (exportDir != null) {
+            exportQueries(model, exportDir, exportFormat, exportCompression);
+        } else if (shardSelection != null) {
+            executeShardedQueries(model, shardSelection, threads != null ? threads : 0);
+        } else if (threads != null) {
+            executeDemoQueriesParallel(model, threads);
+        } else {
+            executeDemoQueries(model);
+        }
+    }
+
+    /**
+     * Informe analítico sobre {@link CatalogColumns}: duración por género
+     * (como la consulta 8, sin umbral) y películas por clasificación y por
+     * estado, con el tiempo de construcción y de cada agregación.
+     */
+    static void printAnalytics(Model model) {
+        System.out.println("=== INFORME ANALÍTICO (columnar) ===\n");
+        long t0 = System.nanoTime();
+        CatalogColumns columns = CatalogColumns.build(model.getGraph());
+        System.out.printf("✓ Columnas construidas: %s (%.1f ms)%n", columns, (System.nanoTime() - t0) / 1e6);
+
+        t0 = System.nanoTime();
+        Map<String, CatalogAggregates.DurationStats> byGenre =
+            columns.durationBy(CatalogColumns.Dimension.GENERO, columns.all());
+        System.out.printf("--- Duración por género (%.1f ms) ---%n", (System.nanoTime() - t0) / 1e6);
+        byGenre.entrySet().stream()
+            .sorted((a, b) -> Double.compare(b.getValue().average(), a.getValue().average()))
+            .forEach(e -> System.out.printf("  %-20s %s%n", e.getKey(), e.getValue()));
+
+        for (CatalogColumns.Dimension d : List.of(CatalogColumns.Dimension.CLASIFICACION, CatalogColumns.Dimension.ESTADO)) {
+            t0 = System.nanoTime();
+            Map<String, Long> counts = columns.countBy(d, columns.all());
+            System.out.printf("--- Películas por %s (%.1f ms) ---%n", d.name().toLowerCase(), (System.nanoTime() - t0) / 1e6);
+            counts.forEach((k, v) -> System.out.printf("  %-36s %,d%n", k, v));
+        }
+        System.out.printf("✓ En preventa: %,d%n%n", columns.preSale().cardinality());
+    }
+
+    /**
+     * Suscribe las consultas 2 (PREVENTAS) y 10 (PRÓXIMOS ESTRENOS) como
+     * consultas continuas, añade una película en preventa con estreno
+     * próximo y después la retira, mostrando en cada paso sólo las filas que
+     * entran y salen de cada resultado. El catálogo queda como estaba.
+     *
+     * @param model Modelo del catálogo.
+     */
+    static void demoStandingQueries(Model model) {
+        System.out.println("=== CONSULTAS CONTINUAS ===\n");
+        try (StandingQueries queries = StandingQueries.attach(model)) {
+            for (ReportQuery q : List.of(DEMO_QUERIES.get(1), DEMO_QUERIES.get(9))) {
+                queries.subscribe(QUERIES.compile(q.name), q.params, delta -> printDelta(model, q.title, delta));
+            }
+
+            System.out.println("✓ Alta de una película en preventa\n");
+            model.enterCriticalSection(Lock.WRITE);
+            try {
+                MovieTriples.emit(StreamRDFLib.graph(model.getGraph()), "continua-1", "Avatar: Fire and Ash",
+                    "Avatar: Fuego y Cenizas", "Ciencia ficción", 195, "Mayores de 12 años", "2025-12-18",
+                    "Próximamente", true, "Preventa");
+            } finally {
+                model.leaveCriticalSection();
+            }
+            queries.flush();
+
+            System.out.println("✓ Baja de la película\n");
+            model.enterCriticalSection(Lock.WRITE);
+            try {
+                model.getGraph().remove(CineVocab.movie("continua-1"), Node.ANY, Node.ANY);
+            } finally {
+                model.leaveCriticalSection();
+            }
+            queries.flush();
+            System.out.println("✓ " + queries + "\n");
+        }
+    }
+
+    /** Muestra una notificación de una consulta continua: filas que entran y que salen. */
+    private static void printDelta(Model model, String title, StandingQueries.Delta delta) {
+        System.out.println("--- " + title + ": " + delta + " ---");
+        if (!delta.added.isEmpty()) {
+            System.out.println("Entran:");
+            CONSOLE_TABLES.render(delta.addedAsResultSet(model), delta.vars);
+        }
+        if (!delta.removed.isEmpty()) {
+            System.out.println("Salen:");
+            CONSOLE_TABLES.render(delta.removedAsResultSet(model), delta.vars);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Simula una preventa: tres funciones (15:00, 18:00 y 21:00 del día de
+     * estreno) por cada película en preventa y n reservas de 1 a 4 asientos
+     * lanzadas a la vez desde hilos virtuales, mientras el inventario se
+     * publica en el grafo cada 100 ms. Al terminar comprueba que ninguna
+     * función quedó sobrevendida y que el grafo coincide con el inventario.
+     *
+     * @param model Modelo del catálogo.
+     * @param reservations Número de reservas a lanzar.
+     */
+    static void simulatePresale(Model model, int reservations) {
+        System.out.println("=== SIMULACIÓN DE PREVENTA ===\n");
+        Graph graph = model.getGraph();
+        List<String> ids = new ArrayList<>();
+        ShowtimeInventory inventory = new ShowtimeInventory();
+        model.enterCriticalSection(Lock.READ);
+        try {
+            for (Triple t : graph.find(Node.ANY, CineVocab.PREVENTA, NodeValue.TRUE.asNode()).toList()) {
+                Node movie = t.getSubject();
+                LocalDate day = releaseDate(graph, movie);
+                String id = movie.getURI().substring(movie.getURI().lastIndexOf('/') + 1);
+                for (int hour : new int[] {15, 18, 21}) {
+                    String screening = id + "-" + hour;
+                    inventory.add(screening, movie, "Sala " + (1 + ids.size() % 8), day.atTime(hour, 0), 120);
+                    ids.add(screening);
+                }
+            }
+        } finally {
+            model.leaveCriticalSection();
+        }
+        if (ids.isEmpty()) {
+            System.out.println("No hay películas en preventa.\n");
+            return;
+        }
+
+        long t0 = System.nanoTime();
+        try (inventory) {
+            inventory.startPublishing(model, Duration.ofMillis(100));
+            try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < reservations; i++) {
+                    writers.submit(() -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        inventory.reserve(ids.get(random.nextInt(ids.size())), 1 + random.nextInt(4));
+                    });
+                }
+            }
         }
+        System.out.printf("✓ %s (%.1f ms)%n", inventory, (System.nanoTime() - t0) / 1e6);
+
+        int mismatches = 0;
+        model.enterCriticalSection(Lock.READ);
+        try {
+            for (String id : ids) {
+                ShowtimeInventory.Screening s = inventory.screening(id);
+                List<Triple> published = graph.find(s.node, CineVocab.DISPONIBLES, Node.ANY).toList();
+                if (s.sold() > s.capacity || published.size() != 1
+                        || Integer.parseInt(published.get(0).getObject().getLiteralLexicalForm()) != s.available()) {
+                    mismatches++;
+                }
+            }
+        } finally {
+            model.leaveCriticalSection();
+        }
+        if (mismatches > 0) {
+            System.err.println("Funciones sobrevendidas o desincronizadas con el grafo: " + mismatches);
+        } else {
+            System.out.println("✓ Ninguna función sobrevendida; el grafo coincide con el inventario");
+        }
+
+        System.out.println("--- FUNCIONES CON ASIENTOS LIBRES ---");
+        executeRegisteredQuery(model, "funcionesConCupo", Map.of("minAsientos", NodeValue.makeInteger(1).asNode()));
+        System.out.println();
+    }
+
+    /** Fecha de estreno de una película, o hoy si no tiene una válida. */
+    private static LocalDate releaseDate(Graph graph, Node movie) {
+        for (Triple t : graph.find(movie, CineVocab.ESTRENO, Node.ANY).toList()) {
+            try {
+                return LocalDate.parse(t.getObject().getLiteralLexicalForm());
+            } catch (RuntimeException e) {
+                // Valor no válido: se prueba el siguiente
+            }
+        }
+        return LocalDate.now();
     }
 
     /**
@@ -64,7 +463,7 @@ public class CineColombiaManager {
      *
      * @return Modelo RDF en memoria con los recursos creados
      */
-    private static Model createRDFModel() {
+    static Model createRDFModel() {
         Model model = ModelFactory.createDefaultModel();
         model.setNsPrefix("cine", NS);
 
@@ -80,6 +479,8 @@ public class CineColombiaManager {
         Property estado = model.createProperty(NS, "estado");
         Property preventa = model.createProperty(NS, "preventa");
         Property formato = model.createProperty(NS, "formato");
+        // Diccionario de nodos del grafo, buscado una sola vez para toda la construcción
+        NodeDictionary dictionary = NodeDictionary.attach(model.getGraph());
 
         /*
          * Añadimos manualmente una serie de recursos (películas) para poblar el
@@ -87,44 +488,210 @@ public class CineColombiaManager {
          * (CSV, API, base de datos, etc.). Aquí se ilustran distintas propiedades
          * y tipos de valores (literales, enteros, booleanos, fechas tipadas).
          */
-        createMovieResource(model, "1", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "1", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Now You See Me: Now You Don't", "Los Ilusionistas 3", "Thriller", 112, "Mayores de 12 años", "2025-11-13", "En cartelera", true, "Estreno");
 
-        createMovieResource(model, "2", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "2", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Wicked: for Good", "Wicked: Por Siempre", "Musical", 138, "Mayores de 12 años", "2025-11-20", "En cartelera", true, "Preventa");
 
-        createMovieResource(model, "3", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "3", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Seventeen World Tour [NEW_] In Japan: Live Viewing", "Seventeen World Tour [NEW_] In Japan: Live Viewing",
             "Concierto", 225, "Por confirmar", "2025-11-29", "En cartelera", true, "Estreno");
 
-        createMovieResource(model, "4", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "4", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Predator: Badlands", "Depredador: Tierras Salvajes", "Acción", 0, "Mayores de 12 años", "2025-11-06", "En cartelera", false, "Estreno");
 
-        createMovieResource(model, "5", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "5", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Twice One in a Million", "Twice One in a Million", "Documental", 121, "Mayores de 7 años", "2025-11-06", "En cartelera", true, "Estreno");
 
-        createMovieResource(model, "6", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "6", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Grand Prix of Europe", "El Gran Premio: A Toda Velocidad", "Animación", 98, "Para todo el Público", "2025-11-06", "En cartelera", false, "Estreno");
 
-        createMovieResource(model, "7", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "7", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Roofman", "Un Buen Ladrón", "Comedia", 126, "Mayores de 12 años", "2025-11-06", "En cartelera", false, "Estreno");
 
-        createMovieResource(model, "8", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "8", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Dollhouse", "Dollhouse: Muñeca Maldita", "Terror", 109, "Exclusiva para Mayores de 15 años", "2025-11-06", "En cartelera", true, "Preventa");
 
-        createMovieResource(model, "9", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "9", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Rebbeca: Becky G", "Rebbeca: Becky G", "Musical", 98, "Mayores de 12 años", "2025-12-10", "En cartelera", true, "Preventa");
 
-        createMovieResource(model, "10", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
+        createMovieResource(model, dictionary, "10", titulo, tituloEspanol, genero, duracion, clasificacion, estreno, estado, preventa, formato,
             "Tron: Ares", "Tron: Ares", "Acción", 119, "Mayores de 7 años", "2025-10-09", "En cartelera", false, "Estreno");
 
         return model;
     }
 
+    /**
+     * Construye el modelo a partir de un fichero de catálogo (CSV o JSON-lines)
+     * usando la carga masiva por lotes. Informa del rendimiento obtenido.
+     *
+     * @param file Ruta del fichero de catálogo.
+     * @return Modelo cargado o null si ocurre un error de lectura.
+     */
+    static Model loadCatalog(String file) {
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("cine", NS);
+        try {
+            CatalogBulkLoader.Stats stats = CatalogBulkLoader.load(Paths.get(file), model.getGraph());
+            System.out.println("✓ Catálogo cargado desde " + file + ": " + stats + "\n");
+            return model;
+        } catch (IOException e) {
+            System.err.println("Error cargando el catálogo: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Construye el modelo con un catálogo sintético determinista.
+     *
+     * @param films Número de películas a generar.
+     * @param seed Semilla del generador.
+     * @return Modelo con el catálogo generado.
+     */
+    static Model generateCatalog(long films, long seed) {
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("cine", NS);
+        long t0 = System.nanoTime();
+        StreamRDF sink = NodeDictionary.attach(model.getGraph()).wrap(
+            CatalogBulkLoader.batchInto(model.getGraph(), CatalogBulkLoader.DEFAULT_BATCH));
+        sink.start();
+        long triples = new CatalogGenerator(seed).generate(sink, films);
+        sink.finish();
+        System.out.printf("✓ Catálogo sintético generado: %,d películas, %,d triples en %.2f s%n%n",
+            films, triples, (System.nanoTime() - t0) / 1e9);
+        return model;
+    }
+
+    /**
+     * Devuelve el valor que sigue a una opción de línea de comandos, o null si
+     * la opción no aparece.
+     *
+     * @param args Argumentos de main.
+     * @param name Nombre de la opción (ej. "--catalogo").
+     * @return Valor de la opción o null.
+     */
+    static String option(String[] args, String name) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) return args[i + 1];
+        }
+        return null;
+    }
+
+    /**
+     * Aplica {@code --tiempo-max}, {@code --filas-max} y {@code --memoria-max}
+     * a la clase interactiva de {@link QueryGovernor}.
+     */
+    static void configureGovernor(String[] args) {
+        QueryGovernor governor = QueryGovernor.get();
+        QueryGovernor.Limits limits = governor.limits(QueryGovernor.Priority.INTERACTIVE);
+        long timeout = longOption(args, "--tiempo-max", -1);
+        if (timeout >= 0) limits = limits.withTimeout(Duration.ofMillis(timeout));
+        long rows = longOption(args, "--filas-max", -1);
+        if (rows >= 0) limits = limits.withMaxRows(rows);
+        long memory = longOption(args, "--memoria-max", -1);
+        if (memory >= 0) limits = limits.withMaxBytes(memory << 20);
+        if (limits != governor.limits(QueryGovernor.Priority.INTERACTIVE)) {
+            governor.configure(QueryGovernor.Priority.INTERACTIVE, limits);
+        }
+    }
+
+    /**
+     * Valor de {@code --hilos}: null si no se pidió ejecución paralela.
+     */
+    static Integer threads(String[] args) {
+        return option(args, "--hilos") != null ? intOption(args, "--hilos", 0) : null;
+    }
+
+    /**
+     * Valor de {@code --servidor}: null si no se pidió el endpoint HTTP.
+     */
+    static Integer port(String[] args) {
+        if (option(args, "--servidor") == null) return null;
+        int port = intOption(args, "--servidor", 0);
+        if (port > 65535) {
+            throw new UsageError("--servidor espera un puerto entre 0 y 65535, no " + port);
+        }
+        return port;
+    }
+
+    /** Opción de línea de comandos con un valor no válido. */
+    static final class UsageError extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        UsageError(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Valor entero no negativo de una opción, o el valor por defecto si no aparece.
+     *
+     * @throws UsageError si el valor no es un entero no negativo.
+     */
+    static long longOption(String[] args, String name, long def) {
+        String value = option(args, name);
+        if (value == null) return def;
+        long n;
+        try {
+            n = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            throw new UsageError(name + " espera un entero no negativo, no '" + value + "'");
+        }
+        return n;
+    }
+
+    /**
+     * Valor de una opción que nombra una constante del enum (sin distinguir
+     * mayúsculas), o el valor por defecto si no aparece.
+     *
+     * @throws UsageError si el valor no es ninguna de las constantes.
+     */
+    static <E extends Enum<E>> E enumOption(String[] args, String name, E def) {
+        String value = option(args, name);
+        if (value == null) return def;
+        try {
+            return Enum.valueOf(def.getDeclaringClass(), value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            StringJoiner valid = new StringJoiner("|");
+            for (E constant : def.getDeclaringClass().getEnumConstants()) {
+                valid.add(constant.name().toLowerCase(Locale.ROOT));
+            }
+            throw new UsageError(name + " espera " + valid + ", no '" + value + "'");
+        }
+    }
+
+    /**
+     * Como {@link #longOption}, para opciones que se usan como int.
+     *
+     * @throws UsageError si el valor no es un entero entre 0 y {@link Integer#MAX_VALUE}.
+     */
+    static int intOption(String[] args, String name, int def) {
+        long n = longOption(args, name, def);
+        if (n > Integer.MAX_VALUE) {
+            throw new UsageError(name + " es demasiado grande: " + n);
+        }
+        return (int) n;
+    }
+
+    /**
+     * Indica si un indicador sin valor aparece en la línea de comandos.
+     */
+    static boolean hasFlag(String[] args, String name) {
+        for (String a : args) {
+            if (a.equals(name)) return true;
+        }
+        return false;
+    }
+
     /**
      * Helper que crea un recurso 'película' en el modelo.
      *
      * @param model Modelo RDF donde se crea el recurso.
+     * @param dictionary Diccionario de nodos del grafo del modelo.
      * @param id Identificador simple para construir la URI del recurso.
      * @param titulo Propiedad RDF para el título original.
      * @param tituloEspanol Propiedad RDF para el título en español.
@@ -145,7 +712,8 @@ public class CineColombiaManager {
      * @param preSale Booleano que indica si tiene preventa.
      * @param format Etiqueta de formato (e.g. "Estreno", "Preventa").
      */
-    private static void createMovieResource(Model model, String id, Property titulo, Property tituloEspanol,
+    private static void createMovieResource(Model model, NodeDictionary dictionary, String id,
+                                          Property titulo, Property tituloEspanol,
                                           Property genero, Property duracion, Property clasificacion,
                                           Property estreno, Property estado, Property preventa, Property formato,
                                           String title, String spanishTitle, String genre, int duration,
@@ -162,35 +730,109 @@ public class CineColombiaManager {
         if (genre.contains(",")) {
             String[] genres = genre.split(", ");
             for (String g : genres) {
-                movie.addProperty(genero, g);
+                movie.addProperty(genero, shared(model, dictionary, genero, MovieTriples.string(g)));
             }
         } else {
-            movie.addProperty(genero, genre);
+            movie.addProperty(genero, shared(model, dictionary, genero, MovieTriples.string(genre)));
         }
 
         // Duración: añadimos como literal numérico sólo si es mayor a 0
         if (duration > 0) {
-            movie.addLiteral(duracion, duration);
+            movie.addProperty(duracion, shared(model, dictionary, duracion, MovieTriples.duration(duration)));
+        }
+
+        // Clasificación, fecha tipada (xsd:date), estado y flags. Los valores
+        // se repiten entre películas: se comparte un único nodo por valor.
+        movie.addProperty(clasificacion, shared(model, dictionary, clasificacion, MovieTriples.string(rating)));
+        movie.addProperty(estreno, shared(model, dictionary, estreno, MovieTriples.date(releaseDate)));
+        movie.addProperty(estado, shared(model, dictionary, estado, MovieTriples.string(status)));
+        movie.addProperty(preventa, shared(model, dictionary, preventa, preSale ? MovieTriples.TRUE : MovieTriples.FALSE));
+        movie.addProperty(formato, shared(model, dictionary, formato, MovieTriples.string(format)));
+    }
+
+    /**
+     * Devuelve el literal como nodo del modelo, usando la instancia compartida
+     * del diccionario de nodos para ese predicado.
+     */
+    private static RDFNode shared(Model model, NodeDictionary dictionary, Property property, Node literal) {
+        return model.asRDFNode(dictionary.intern(property.asNode(), literal));
+    }
+
+    /**
+     * Abre el almacén TDB2, le aplica las películas del modelo y ejecuta las
+     * consultas de ejemplo dentro de una transacción de lectura sobre el
+     * dataset. El modelo en memoria se libera antes de consultar.
+     *
+     * @param dir Directorio del almacén TDB2.
+     * @param model Catálogo actual a sincronizar con el almacén.
+     * @param threads Hilos para el lote de consultas, o null para ejecución secuencial.
+     * @param port Puerto del endpoint HTTP, o null para ejecutar las consultas de ejemplo.
+     */
+    static void runWithStore(Path dir, Model model, Integer threads, Integer port) {
+        long t0 = System.nanoTime();
+        try (CatalogStore store = CatalogStore.open(dir)) {
+            System.out.printf("✓ Almacén TDB2 abierto en %s (%.1f ms)%n", dir, (System.nanoTime() - t0) / 1e6);
+            CatalogStore.ApplyResult result = store.apply(model.getGraph());
+            model.close();
+            System.out.println("✓ Cambios aplicados: " + result);
+            System.out.println("✓ Total de triples en el almacén: " + store.size() + "\n");
+            if (port != null) {
+                try (SparqlEndpoint endpoint = SparqlEndpoint.start(store.dataset(), QUERIES, port)) {
+                    awaitShutdown(endpoint);
+                }
+            } else if (threads != null) {
+                try (QueryBatchExecutor executor = new QueryBatchExecutor(QUERIES, threads)) {
+                    System.out.println("=== EJECUCIÓN DE CONSULTAS SPARQL (paralela) ===\n");
+                    System.out.println("✓ " + executor.run(store.dataset(), DEMO_QUERIES, System.out));
+                }
+            } else {
+                Txn.executeRead(store.dataset(), () -> executeDemoQueries(store.dataset().getDefaultModel()));
+            }
+        } catch (Exception e) {
+            System.err.println("Error en el almacén TDB2: " + e.getMessage());
         }
+    }
 
-        // Clasificación, fecha tipada (xsd:date), estado y flags
-        movie.addProperty(clasificacion, rating);
-        movie.addLiteral(estreno, model.createTypedLiteral(releaseDate, XSDDatatype.XSDdate));
-        movie.addProperty(estado, status);
-        movie.addLiteral(preventa, preSale);
-        movie.addProperty(formato, format);
+    /**
+     * Abre el diario del catálogo (última instantánea más cambios
+     * posteriores), registra en él las diferencias con el modelo y ejecuta
+     * las consultas de ejemplo sobre el catálogo recuperado.
+     *
+     * @param dir Directorio del diario.
+     * @param model Catálogo actual a sincronizar con el diario.
+     * @param threads Hilos para el lote de consultas, o null para ejecución secuencial.
+     * @param port Puerto del endpoint HTTP, o null para ejecutar las consultas de ejemplo.
+     */
+    static void runWithJournal(Path dir, Model model, Integer threads, Integer port) {
+        long t0 = System.nanoTime();
+        try (CatalogJournal journal = CatalogJournal.open(dir)) {
+            System.out.printf("✓ Diario abierto en %s: %d triples, %d transacciones reproducidas (%.1f ms)%n",
+                dir, journal.model().size(), journal.replayed(), (System.nanoTime() - t0) / 1e6);
+            t0 = System.nanoTime();
+            CatalogStore.ApplyResult result = journal.apply(model.getGraph());
+            model.close();
+            System.out.printf("✓ Cambios registrados: %s (%.1f ms)%n", result, (System.nanoTime() - t0) / 1e6);
+            System.out.println("✓ " + journal + "\n");
+            attachDerived(journal.model());
+            executeQueries(journal.model(), threads, port);
+        } catch (IOException e) {
+            System.err.println("Error en el diario del catálogo: " + e.getMessage());
+        }
     }
 
     /**
-     * Persiste en disco el modelo RDF en formato RDF/XML abreviado.
-     * El método utiliza try-with-resources para asegurar el cierre del stream.
+     * Persiste en disco el modelo RDF como instantánea binaria (RDF Thrift o
+     * Protobuf, con compresión opcional). La escritura es en streaming.
      *
      * @param model Modelo RDF a escribir en disco.
+     * @param file Fichero destino.
+     * @param format Sintaxis binaria.
+     * @param compression Compresión a aplicar.
      */
-    private static void saveRDFModel(Model model) {
-        try (FileOutputStream out = new FileOutputStream(RDF_FILE)) {
-            model.write(out, "RDF/XML-ABBREV");
-            System.out.println("✓ Base de datos RDF guardada en: " + RDF_FILE);
+    static void saveRDFModel(Model model, Path file, RdfSnapshot.Format format, RdfSnapshot.Compression compression) {
+        try {
+            RdfSnapshot.save(model.getGraph(), file, format, compression);
+            System.out.println("✓ Base de datos RDF guardada en: " + file + " (" + Files.size(file) + " bytes)");
             System.out.println("✓ Total de triples creados: " + model.size() + "\n");
         } catch (IOException e) {
             System.err.println("Error guardando archivo RDF: " + e.getMessage());
@@ -198,21 +840,46 @@ public class CineColombiaManager {
     }
 
     /**
-     * Carga el modelo RDF desde el archivo en disco. Se utiliza FileManager de
-     * Jena para buscar y abrir el recurso. Retorna null en caso de error.
+     * Exporta el modelo en RDF/XML abreviado a {@value #RDF_FILE}. Es un formato
+     * de intercambio: la instantánea de trabajo es la binaria.
+     *
+     * @param model Modelo RDF a exportar.
+     */
+    static void exportRDFXML(Model model) {
+        try {
+            RdfSnapshot.exportRDFXML(model.getGraph(), Paths.get(RDF_FILE));
+            System.out.println("✓ Exportación RDF/XML escrita en: " + RDF_FILE + "\n");
+        } catch (IOException e) {
+            System.err.println("Error exportando RDF/XML: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Carga el modelo RDF desde disco. La compresión y la sintaxis se detectan
+     * a partir de la cabecera y la extensión del fichero. Los ficheros
+     * N-Triples/N-Quads sin comprimir se parten por líneas y se analizan en
+     * paralelo, informando del rendimiento mientras cargan. Retorna null en
+     * caso de error.
      *
+     * @param file Fichero a leer.
      * @return Modelo RDF cargado o null si ocurre un error.
      */
-    private static Model loadRDFModel() {
+    static Model loadRDFModel(Path file) {
         try {
+            if (!Files.exists(file)) {
+                throw new IllegalArgumentException("Archivo no encontrado: " + file);
+            }
             Model model = ModelFactory.createDefaultModel();
-            InputStream in = FileManager.get().open(RDF_FILE);
-            if (in == null) {
-                throw new IllegalArgumentException("Archivo no encontrado: " + RDF_FILE);
+            if (ParallelRdfLoader.supports(file)) {
+                ParallelRdfLoader.Stats stats = ParallelRdfLoader.load(file, model.getGraph(), loadThreads,
+                    ParallelRdfLoader.DEFAULT_CHUNK, p -> System.out.println("  … " + p));
+                System.out.println("✓ Base de datos RDF cargada en paralelo: " + stats);
+                return model;
             }
-            model.read(in, null, "RDF/XML");
-            in.close();
-            System.out.println("✓ Base de datos RDF cargada exitosamente");
+            long t0 = System.nanoTime();
+            RdfSnapshot.load(file, model.getGraph());
+            System.out.printf("✓ Base de datos RDF cargada exitosamente (%d triples en %.1f ms)%n",
+                model.size(), (System.nanoTime() - t0) / 1e6);
             return model;
         } catch (Exception e) {
             System.err.println("Error cargando el archivo RDF: " + e.getMessage());
@@ -220,381 +887,378 @@ public class CineColombiaManager {
         }
     }
 
+    /** Prefijos comunes a todas las plantillas de ejemplo. */
+    private static final String PREFIXES =
+        "PREFIX cine: <" + NS + ">\n" +
+        "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n" +
+        "PREFIX idx: <" + IndexFunctions.NS + ">\n";
+
     /**
-     * Ejecuta un conjunto de consultas SPARQL de ejemplo sobre el modelo
-     * proporcionado y muestra los resultados en tablas ASCII claro/compactas.
+     * Renderer de tablas sobre la salida estándar: un único writer con buffer
+     * y anchos calculados con una muestra acotada de filas. Codifica con el
+     * mismo juego de caracteres que {@code System.out}, para que las tablas y
+     * los títulos que se imprimen con println muestren igual las tildes.
+     */
+    private static final TableRenderer CONSOLE_TABLES = TableRenderer.sampled(
+        new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16),
+        TableRenderer.DEFAULT_SAMPLE);
+
+    /** Registro con las plantillas de las consultas de ejemplo. */
+    static final QueryRegistry QUERIES = demoRegistry();
+
+    /**
+     * Las diez consultas del informe de ejemplo, en orden de presentación.
+     * Los valores que antes iban concatenados en el texto SPARQL ahora son
+     * parámetros de la plantilla.
+     */
+    static final List<ReportQuery> DEMO_QUERIES = List.of(
+        new ReportQuery("1. PELÍCULAS EN CARTELERA", "porEstado",
+            Map.of("estado", NodeFactory.createLiteral("En cartelera"))),
+        new ReportQuery("2. PREVENTAS", "porPreventa",
+            Map.of("preventa", NodeValue.TRUE.asNode())),
+        new ReportQuery("3. >2 HORAS", "duracionMinima",
+            Map.of("minDuracion", NodeValue.makeInteger(120).asNode())),
+        new ReportQuery("4. POR CLASIFICACIÓN", "porClasificacion",
+            Map.of()),
+        new ReportQuery("5. CONCIERTOS Y EVENTOS", "generosConEstreno",
+            Map.of("genero1", NodeFactory.createLiteral("Concierto"),
+                   "genero2", NodeFactory.createLiteral("Documental"))),
+        new ReportQuery("6. ESTRENOS NOV 2025", "estrenosEntre",
+            Map.of("desde", NodeValue.makeDate("2025-11-01").asNode(),
+                   "hasta", NodeValue.makeDate("2025-11-30").asNode())),
+        new ReportQuery("7. FAMILIA/ANIMACIÓN", "generosConClasificacion",
+            Map.of("genero1", NodeFactory.createLiteral("Familiar"),
+                   "genero2", NodeFactory.createLiteral("Animación"))),
+        new ReportQuery("8. DURACIÓN PROMEDIO POR GÉNERO", "duracionPorGenero",
+            Map.of("minDuracion", NodeValue.makeInteger(0).asNode())),
+        new ReportQuery("9. TERROR / SUSPENSO", "generosConClasificacion",
+            Map.of("genero1", NodeFactory.createLiteral("Terror"),
+                   "genero2", NodeFactory.createLiteral("Suspenso"),
+                   "genero3", NodeFactory.createLiteral("Thriller"))),
+        new ReportQuery("10. PRÓXIMOS ESTRENOS", "estrenosDespues",
+            Map.of("desde", NodeValue.makeDate("2025-11-13").asNode()))
+    );
+
+    /**
+     * Registra las plantillas de las consultas de ejemplo. Cada plantilla
+     * ilustra distintas operaciones: filtros, ordenamientos, agregaciones
+     * (AVG, COUNT) y uso de tipos xsd:date. Los filtros por rango de fechas,
+     * duración, género y preventa se expresan con las funciones idx: de
+     * {@link IndexFunctions}, que usan los índices del grafo si existen.
      *
-     * Las consultas están diseñadas para ilustrar distintas operaciones: filtros,
-     * ordenamientos, agregaciones (AVG, COUNT) y uso de tipos xsd:date.
+     * @return Registro con las plantillas, aún sin compilar.
      */
-    private static void executeDemoQueries(Model model) {
-        System.out.println("=== EJECUCIÓN DE CONSULTAS SPARQL ===\n");
-        String[] queries = new String[] {
-            // 1. Todas las películas en cartelera con sus fechas de estreno
-            "PREFIX cine: <" + NS + ">\n" +
+    private static QueryRegistry demoRegistry() {
+        // Las funciones idx: deben estar registradas antes de optimizar los planes
+        IndexFunctions.register();
+        QueryRegistry registry = new QueryRegistry();
+
+        // Películas con un estado comercial dado, con sus fechas de estreno
+        registry.register("porEstado", PREFIXES +
             "SELECT ?tituloEspanol ?estreno ?duracion WHERE {\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
             "    ?pelicula cine:estreno ?estreno .\n" +
             "    ?pelicula cine:duracion ?duracion .\n" +
-            "    ?pelicula cine:estado \"En cartelera\" .\n" +
-            "} ORDER BY ?estreno",
+            "    ?pelicula cine:estado ?estado .\n" +
+            "} ORDER BY ?estreno");
 
-            // 2. Películas disponibles en preventa
-            "PREFIX cine: <" + NS + ">\n" +
+        // Películas según su disponibilidad en preventa
+        registry.register("porPreventa", PREFIXES +
             "SELECT ?tituloEspanol ?estreno ?formato WHERE {\n" +
+            "    ?pelicula idx:preventa ?preventa .\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
-            "    ?pelicula cine:preventa true .\n" +
             "    ?pelicula cine:estreno ?estreno .\n" +
             "    ?pelicula cine:formato ?formato .\n" +
-            "} ORDER BY ?estreno",
+            "} ORDER BY ?estreno");
 
-            // 3. Películas de más de 2 horas
-            "PREFIX cine: <" + NS + ">\n" +
+        // Películas que superan una duración mínima
+        registry.register("duracionMinima", PREFIXES +
             "SELECT ?tituloEspanol ?duracion ?genero WHERE {\n" +
+            "    ?pelicula idx:duracionMayor ?minDuracion .\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
             "    ?pelicula cine:duracion ?duracion .\n" +
             "    ?pelicula cine:genero ?genero .\n" +
-            "    FILTER (?duracion > 120)\n" +
-            "} ORDER BY DESC(?duracion)",
+            "} ORDER BY DESC(?duracion)");
 
-            // 4. Películas por clasificación de edad
-            "PREFIX cine: <" + NS + ">\n" +
+        // Películas por clasificación de edad
+        registry.register("porClasificacion", PREFIXES +
             "SELECT ?tituloEspanol ?clasificacion ?genero WHERE {\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
             "    ?pelicula cine:clasificacion ?clasificacion .\n" +
             "    ?pelicula cine:genero ?genero .\n" +
-            "} ORDER BY ?clasificacion",
+            "} ORDER BY ?clasificacion");
 
-            // 5. Conciertos y eventos especiales
-            "PREFIX cine: <" + NS + ">\n" +
+        // Películas de hasta tres géneros, con duración y estreno
+        registry.register("generosConEstreno", PREFIXES +
             "SELECT ?tituloEspanol ?duracion ?estreno WHERE {\n" +
+            "    ?pelicula idx:genero (?genero1 ?genero2 ?genero3) .\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
-            "    ?pelicula cine:genero ?genero .\n" +
             "    ?pelicula cine:duracion ?duracion .\n" +
             "    ?pelicula cine:estreno ?estreno .\n" +
-            "    FILTER (?genero = \"Concierto\" || ?genero = \"Documental\")\n" +
-            "}",
+            "}");
 
-            // 6. Películas estrenadas en noviembre 2025
-            "PREFIX cine: <" + NS + ">\n" +
-            "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n" +
+        // Películas estrenadas en un rango de fechas (inclusive)
+        registry.register("estrenosEntre", PREFIXES +
             "SELECT ?tituloEspanol ?estreno ?genero WHERE {\n" +
+            "    ?pelicula idx:estrenoEntre (?desde ?hasta) .\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
             "    ?pelicula cine:estreno ?estreno .\n" +
             "    ?pelicula cine:genero ?genero .\n" +
-            "    FILTER (?estreno >= \"2025-11-01\"^^xsd:date && ?estreno <= \"2025-11-30\"^^xsd:date)\n" +
-            "} ORDER BY ?estreno",
+            "} ORDER BY ?estreno");
 
-            // 7. Películas familiares y animadas
-            "PREFIX cine: <" + NS + ">\n" +
+        // Películas de hasta tres géneros, con clasificación y duración
+        registry.register("generosConClasificacion", PREFIXES +
             "SELECT ?tituloEspanol ?clasificacion ?duracion WHERE {\n" +
+            "    ?pelicula idx:genero (?genero1 ?genero2 ?genero3) .\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
-            "    ?pelicula cine:genero ?genero .\n" +
             "    ?pelicula cine:clasificacion ?clasificacion .\n" +
             "    ?pelicula cine:duracion ?duracion .\n" +
-            "    FILTER (?genero = \"Familiar\" || ?genero = \"Animación\")\n" +
-            "}",
+            "}");
 
-            // 8. Duración promedio de las películas por género
-            "PREFIX cine: <" + NS + ">\n" +
+        // Duración promedio de las películas por género (respondida desde
+        // CatalogAggregates cuando el grafo tiene agregados)
+        registry.register("duracionPorGenero", PREFIXES +
             "SELECT ?genero (AVG(?duracion) AS ?duracionPromedio) (COUNT(?pelicula) AS ?totalPeliculas) WHERE {\n" +
+            "    ?pelicula idx:duracionMayor ?minDuracion .\n" +
             "    ?pelicula cine:genero ?genero .\n" +
             "    ?pelicula cine:duracion ?duracion .\n" +
-            "    FILTER (?duracion > 0)\n" +
-            "} GROUP BY ?genero ORDER BY DESC(?duracionPromedio)",
+            "} GROUP BY ?genero ORDER BY DESC(?duracionPromedio)");
+        registry.registerView("duracionPorGenero", CatalogAggregates::duracionPorGenero);
 
-            // 9. Películas de terror y suspenso
-            "PREFIX cine: <" + NS + ">\n" +
-            "SELECT ?tituloEspanol ?clasificacion ?duracion WHERE {\n" +
+        // Estrenos posteriores a una fecha
+        registry.register("estrenosDespues", PREFIXES +
+            "SELECT ?tituloEspanol ?estreno ?formato WHERE {\n" +
+            "    ?pelicula idx:estrenoDespues ?desde .\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
-            "    ?pelicula cine:genero ?genero .\n" +
-            "    ?pelicula cine:clasificacion ?clasificacion .\n" +
-            "    ?pelicula cine:duracion ?duracion .\n" +
-            "    FILTER (?genero = \"Terror\" || ?genero = \"Suspenso\" || ?genero = \"Thriller\")\n" +
-            "}",
+            "    ?pelicula cine:estreno ?estreno .\n" +
+            "    ?pelicula cine:formato ?formato .\n" +
+            "} ORDER BY ?estreno");
 
-            // 10. Próximos estrenos (después de hoy)
-            "PREFIX cine: <" + NS + ">\n" +
-            "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n" +
-            "SELECT ?tituloEspanol ?estreno ?formato WHERE {\n" +
+        // Búsqueda de texto en los títulos (original y en español), por relevancia
+        registry.register("buscarTitulo", PREFIXES +
+            "SELECT ?tituloEspanol ?titulo ?estreno ?puntuacion WHERE {\n" +
+            "    (?pelicula ?puntuacion) idx:titulo (?texto 20) .\n" +
             "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
+            "    ?pelicula cine:titulo ?titulo .\n" +
+            "    ?pelicula cine:estreno ?estreno .\n" +
+            "}");
+
+        // Catálogo completo para los volcados a socios (una fila por película y género)
+        registry.register("catalogoCompleto", PREFIXES +
+            "SELECT ?pelicula ?titulo ?tituloEspanol ?genero ?duracion ?clasificacion ?estreno ?estado ?preventa ?formato WHERE {\n" +
+            "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
+            "    ?pelicula cine:titulo ?titulo .\n" +
+            "    ?pelicula cine:genero ?genero .\n" +
+            "    ?pelicula cine:duracion ?duracion .\n" +
+            "    ?pelicula cine:clasificacion ?clasificacion .\n" +
             "    ?pelicula cine:estreno ?estreno .\n" +
+            "    ?pelicula cine:estado ?estado .\n" +
+            "    ?pelicula cine:preventa ?preventa .\n" +
             "    ?pelicula cine:formato ?formato .\n" +
-            "    FILTER (?estreno > \"2025-11-13\"^^xsd:date)\n" +
-            "} ORDER BY ?estreno"
-        };
-
-        String[] titles = new String[] {
-            "1. PELÍCULAS EN CARTELERA",
-            "2. PREVENTAS",
-            "3. >2 HORAS",
-            "4. POR CLASIFICACIÓN",
-            "5. CONCIERTOS Y EVENTOS",
-            "6. ESTRENOS NOV 2025",
-            "7. FAMILIA/ANIMACIÓN",
-            "8. DURACIÓN PROMEDIO POR GÉNERO",
-            "9. TERROR / SUSPENSO",
-            "10. PRÓXIMOS ESTRENOS"
-        };
-
-        for (int i = 0; i < queries.length; i++) {
-            System.out.println("--- " + titles[i] + " ---");
-            executeSPARQLQuery(model, queries[i]);
+            "}");
+
+        // Funciones con asientos libres publicadas por ShowtimeInventory
+        registry.register("funcionesConCupo", PREFIXES +
+            "SELECT ?tituloEspanol ?sala ?inicio ?disponibles WHERE {\n" +
+            "    ?funcion cine:pelicula ?pelicula .\n" +
+            "    ?funcion cine:disponibles ?disponibles .\n" +
+            "    FILTER(?disponibles >= ?minAsientos)\n" +
+            "    ?funcion cine:sala ?sala .\n" +
+            "    ?funcion cine:inicio ?inicio .\n" +
+            "    ?pelicula cine:tituloEspanol ?tituloEspanol .\n" +
+            "} ORDER BY ?inicio ?sala");
+
+        return registry;
+    }
+
+    /**
+     * Ejecuta las consultas de ejemplo ({@link #DEMO_QUERIES}) sobre el modelo
+     * proporcionado y muestra los resultados en tablas ASCII claro/compactas.
+     * Cada plantilla se compila una sola vez; las ejecuciones siguientes
+     * reutilizan el plan en caché con nuevos valores de parámetros.
+     */
+    static void executeDemoQueries(Model model) {
+        System.out.println("=== EJECUCIÓN DE CONSULTAS SPARQL ===\n");
+        for (ReportQuery q : DEMO_QUERIES) {
+            System.out.println("--- " + q.title + " ---");
+            executeRegisteredQuery(model, q.name, q.params);
             System.out.println();
         }
     }
 
     /**
-     * Ejecuta una consulta SPARQL sobre el modelo y presenta los resultados
-     * en formato de tabla ASCII compacta en la consola.
-     *
-     * Estrategia de presentación:
-     * - Trunca valores largos (>MAX_COL_WIDTH) con "..." para mantener filas
-     *   en una sola línea y mejorar la legibilidad.
-     * - Centra las cabeceras de columna y alinea valores numéricos a la derecha.
-     * - Construye separadores horizontales automáticos según el ancho de columnas.
+     * Ejecuta las consultas de ejemplo en paralelo sobre una vista de sólo
+     * lectura del modelo. Las tablas se imprimen en el orden original y al
+     * final se informa del tiempo real frente al tiempo de CPU sumado.
      *
-     * @param model Modelo RDF sobre el que ejecutar la consulta.
-     * @param queryStr Texto de la consulta SPARQL (SELECT).
+     * @param model Modelo RDF a consultar.
+     * @param threads Tamaño del pool (0 = número de núcleos).
      */
-    private static void executeSPARQLQuery(Model model, String queryStr) {
-        try {
-            // Compilar la consulta SPARQL y ejecutarla sobre el modelo
-            Query query = QueryFactory.create(queryStr);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, model)) {
-                ResultSet results = qexec.execSelect();
-                // Convertir ResultSet a lista para poder iterar varias veces
-                List<QuerySolution> rows = ResultSetFormatter.toList(results);
-                List<String> vars = query.getResultVars();
-
-                // Caso especial: si no hay resultados, informar y retornar temprano
-                if (rows.isEmpty()) {
-                    System.out.println("(sin resultados)");
-                    return;
-                }
-
-                int cols = vars.size();
-                final int MAX_COL_WIDTH = 40; // ancho máximo para cualquier columna visualizada
-                int[] widths = new int[cols];
-                // Inicializar anchos con el tamaño del nombre de variable (header)
-                for (int i = 0; i < cols; i++) {
-                    widths[i] = Math.min(vars.get(i).length(), MAX_COL_WIDTH);
-                }
-
-                // Construir tabla de visualización truncando valores largos
-                List<List<String>> displayTable = new ArrayList<>();
-                for (QuerySolution qs : rows) {
-                    List<String> displayRow = new ArrayList<>();
-                    for (int i = 0; i < cols; i++) {
-                        String v = vars.get(i);
-                        String val = "";
-                        // Extraer valor del nodo RDF (literal o recurso)
-                        if (qs.contains(v)) {
-                            RDFNode node = qs.get(v);
-                            if (node.isLiteral()) val = node.asLiteral().getString();
-                            else val = node.toString();
-                        }
-                        // Truncar si excede ancho máximo
-                        String display = val;
-                        if (display.length() > MAX_COL_WIDTH) {
-                            display = display.substring(0, MAX_COL_WIDTH - 3) + "...";
-                        }
-                        displayRow.add(display);
-                        // Actualizar ancho de columna si el valor es más ancho que el header
-                        widths[i] = Math.max(widths[i], display.length());
-                    }
-                    displayTable.add(displayRow);
-                }
-
-                // Construir separador horizontal (líneas de guiones entre celdas)
-                StringBuilder sep = new StringBuilder();
-                sep.append("+");
-                for (int w : widths) {
-                    sep.append(repeat('-', w + 2)); // +2 para espacios de padding
-                    sep.append("+");
-                }
-
-                // Construir fila de cabecera (nombres legibles de variables centrados)
-                StringBuilder header = new StringBuilder();
-                header.append("|");
-                for (int i = 0; i < cols; i++) {
-                    String label = niceLabel(vars.get(i));
-                    header.append(' ').append(center(label, widths[i])).append(' ').append('|');
-                }
+    static void executeDemoQueriesParallel(Model model, int threads) {
+        System.out.println("=== EJECUCIÓN DE CONSULTAS SPARQL (paralela) ===\n");
+        try (QueryBatchExecutor executor = new QueryBatchExecutor(QUERIES, threads)) {
+            System.out.println("✓ " + executor.run(model, DEMO_QUERIES, System.out));
+        }
+    }
 
-                // Imprimir tabla: separador, cabecera, separador, filas, separador final
-                System.out.println(sep.toString());
-                System.out.println(header.toString());
-                System.out.println(sep.toString());
-
-                // Imprimir cada fila de datos (una línea por fila)
-                for (List<String> row : displayTable) {
-                    StringBuilder rb = new StringBuilder();
-                    rb.append('|');
-                    for (int i = 0; i < cols; i++) {
-                        String cell = row.get(i);
-                        // Alinear números a la derecha, texto a la izquierda
-                        boolean rightAlign = isNumeric(cell);
-                        rb.append(' ').append(formatCell(cell, widths[i], rightAlign)).append(' ').append('|');
+    /**
+     * Reparte el catálogo por ciudad y ejecuta las consultas de ejemplo con el
+     * enrutador de {@link ShardedCatalog}: en todas las sedes a la vez
+     * (combinando filas y reagrupando agregados como los de la consulta 8) o
+     * sólo en la sede pedida.
+     *
+     * @param model Modelo RDF completo.
+     * @param selection "todas" o el nombre de una sede.
+     * @param threads Hilos para consultar las sedes (0 = número de núcleos).
+     */
+    static void executeShardedQueries(Model model, String selection, int threads) {
+        System.out.println("=== EJECUCIÓN DE CONSULTAS SPARQL (por sedes) ===\n");
+        long t0 = System.nanoTime();
+        try (ShardedCatalog catalog = ShardedCatalog.split(
+                model.getGraph(), ShardedCatalog.byCity(model.getGraph()), QUERIES, threads)) {
+            System.out.printf("✓ Catálogo repartido: %s (%.1f ms)%n%n", catalog, (System.nanoTime() - t0) / 1e6);
+            Collection<String> keys = "todas".equalsIgnoreCase(selection) ? catalog.shards() : List.of(selection);
+            for (ReportQuery q : DEMO_QUERIES) {
+                System.out.println("--- " + q.title + " ---");
+                try {
+                    QueryRegistry.CompiledQuery compiled = QUERIES.compile(q.name);
+                    ResultSet results = catalog.execute(compiled, q.params, keys);
+                    try {
+                        CONSOLE_TABLES.render(results, compiled.resultVars);
+                    } finally {
+                        results.close();
                     }
-                    System.out.println(rb.toString());
+                } catch (Exception e) {
+                    System.err.println("Error en consulta SPARQL '" + q.name + "': " + e.getMessage());
                 }
-
-                // Separador final de tabla
-                System.out.println(sep.toString());
+                System.out.println();
             }
-        } catch (Exception e) {
-            System.err.println("Error en consulta SPARQL: " + e.getMessage());
         }
     }
 
     /**
-     * Rellena una cadena con espacios hasta alcanzar el ancho especificado.
-     * Si la cadena ya es igual o más larga que el ancho, se devuelve tal cual.
+     * Exporta el catálogo completo ({@code catalogoCompleto}) y las consultas
+     * de ejemplo a ficheros con {@link ResultExporter}, uno por consulta
+     * ("catalogo", "consulta-01"...). Cada consulta pasa por
+     * {@link QueryGovernor} como lote.
      *
-     * @param s Cadena a rellenar.
-     * @param width Ancho objetivo.
-     * @return Cadena rellenada con espacios al final.
+     * @param model Modelo RDF a consultar.
+     * @param dir Directorio destino (se crea si no existe).
+     * @param format Formato de los ficheros.
+     * @param compression Compresión de los ficheros.
      */
-    private static String pad(String s, int width) {
-        if (s == null) s = "";
-        if (s.length() >= width) return s;
-        return s + " ".repeat(width - s.length());
+    static void exportQueries(Model model, Path dir, ResultExporter.Format format,
+                              RdfSnapshot.Compression compression) {
+        System.out.println("=== EXPORTACIÓN DE CONSULTAS SPARQL ===\n");
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            System.err.println("Error creando el directorio de exportación: " + e.getMessage());
+            return;
+        }
+        List<ReportQuery> queries = new ArrayList<>();
+        queries.add(new ReportQuery("catalogo", "catalogoCompleto", Map.of()));
+        for (int i = 0; i < DEMO_QUERIES.size(); i++) {
+            ReportQuery q = DEMO_QUERIES.get(i);
+            queries.add(new ReportQuery(String.format("consulta-%02d", i + 1), q.name, q.params));
+        }
+        long t0 = System.nanoTime();
+        for (ReportQuery q : queries) {
+            try {
+                QueryRegistry.CompiledQuery compiled = QUERIES.compile(q.name);
+                ResultSet results = QueryGovernor.get().execute(compiled, model, q.params, QueryGovernor.Priority.BATCH);
+                Path file = dir.resolve(ResultExporter.fileName(q.title, format, compression));
+                System.out.println("✓ " + ResultExporter.export(results, compiled.resultVars, file, format, compression));
+            } catch (Exception e) {
+                System.err.println("Error exportando la consulta '" + q.name + "': " + e.getMessage());
+            }
+        }
+        System.out.printf("✓ Exportación terminada en %s (%.1f ms)%n%n", dir, (System.nanoTime() - t0) / 1e6);
     }
 
     /**
-     * Repite un carácter n veces y devuelve la cadena resultante.
+     * Sirve el modelo con {@link SparqlEndpoint} hasta que se detenga el proceso.
      *
-     * @param c Carácter a repetir.
-     * @param n Número de repeticiones (si es negativo, devuelve cadena vacía).
-     * @return Cadena con el carácter repetido n veces.
+     * @param model Modelo RDF a servir.
+     * @param port Puerto TCP.
      */
-    private static String repeat(char c, int n) {
-        return String.valueOf(c).repeat(Math.max(0, n));
+    static void serve(Model model, int port) {
+        try (SparqlEndpoint endpoint = SparqlEndpoint.start(model, QUERIES, port)) {
+            awaitShutdown(endpoint);
+        } catch (IOException e) {
+            System.err.println("Error arrancando el endpoint SPARQL: " + e.getMessage());
+        }
     }
 
     /**
-     * Convierte nombres de variables SPARQL en etiquetas legibles para humanos.
-     * Utiliza un mapa de traducciones comunes y, si no encuentra coincidencia,
-     * transforma camelCase y guiones bajos en espacios.
-     *
-     * Ejemplo: "duracionPromedio" → "duracionPromedio" (según mapa),
-     *          "myVariableName" → "my Variable Name" (transformación genérica).
-     *
-     * @param var Nombre de la variable SPARQL.
-     * @return Etiqueta legible para mostrar en la cabecera de tabla.
-     */
-    private static String niceLabel(String var) {
-        if (var == null || var.isEmpty()) return "";
-        // Mapeo de nombres comunes a etiquetas preferidas (puedes personalizarlo)
-        Map<String, String> map = new HashMap<>();
-        map.put("tituloEspanol", "tituloEspanol");
-        map.put("titulo", "titulo");
-        map.put("estreno", "estreno");
-        map.put("duracion", "duracion");
-        map.put("genero", "genero");
-        map.put("clasificacion", "clasificacion");
-        map.put("preventa", "preventa");
-        map.put("formato", "formato");
-        map.put("duracionPromedio", "duracionPromedio");
-        map.put("totalPeliculas", "totalPeliculas");
-        // Si la variable está en el mapa, usar la etiqueta personalizada
-        if (map.containsKey(var)) return map.get(var);
-        // Transformación genérica: insertar espacio antes de mayúsculas y reemplazar '_'
-        String t = var.replaceAll("([a-z])([A-Z])", "$1 $2").replace('_', ' ');
-        return t;
-    }
-
-    /**
-     * Formatea una celda para que ocupe exactamente el ancho especificado,
-     * añadiendo espacios de relleno a la izquierda (si rightAlign=true)
-     * o a la derecha (si rightAlign=false).
-     *
-     * Si la cadena excede el ancho, se trunca.
-     *
-     * @param s Contenido de la celda.
-     * @param width Ancho objetivo de la celda.
-     * @param rightAlign Si true, alinea a la derecha (útil para números).
-     * @return Cadena formateada con el ancho exacto especificado.
-     */
-    private static String formatCell(String s, int width, boolean rightAlign) {
-        if (s == null) s = "";
-        // Truncar si excede el ancho
-        if (s.length() > width) s = s.substring(0, width);
-        int pad = width - s.length();
-        if (pad <= 0) return s;
-        // Alineación derecha: espacios antes del texto
-        if (rightAlign) {
-            return " ".repeat(pad) + s;
-        } else {
-            // Alineación izquierda: espacios después del texto
-            return s + " ".repeat(pad);
+     * Informa de las rutas del endpoint y bloquea hasta que el proceso reciba
+     * la señal de parada (Ctrl+C), momento en que se cierra el endpoint.
+     */
+    private static void awaitShutdown(SparqlEndpoint endpoint) {
+        System.out.println("=== ENDPOINT SPARQL ===\n");
+        System.out.println("✓ Escuchando en http://localhost:" + endpoint.port() + "/sparql?query=...");
+        System.out.println("✓ Consultas registradas: http://localhost:" + endpoint.port() + "/consultas/<nombre>?param=valor");
+        System.out.println("✓ Métricas: http://localhost:" + endpoint.port() + "/metricas");
+        System.out.println("  (Ctrl+C para detener)\n");
+        Runtime.getRuntime().addShutdownHook(new Thread(endpoint::close));
+        try {
+            endpoint.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Determina si una cadena representa un número (entero o decimal).
-     * Utiliza una expresión regular simple para detectar patrones numéricos.
+     * Ejecuta una consulta registrada en {@link #QUERIES} con los parámetros
+     * dados y muestra el resultado como tabla ASCII.
      *
-     * @param s Cadena a evaluar.
-     * @return true si la cadena coincide con un patrón numérico, false en caso contrario.
+     * @param model Modelo RDF sobre el que ejecutar la consulta.
+     * @param name Nombre de la plantilla registrada.
+     * @param params Valores de los parámetros de la plantilla.
      */
-    private static boolean isNumeric(String s) {
-        if (s == null || s.isEmpty()) return false;
-        return s.matches("^-?\\d+(\\.\\d+)?$");
+    static void executeRegisteredQuery(Model model, String name, Map<String, Node> params) {
+        try {
+            render(model, QUERIES.compile(name), params);
+        } catch (Exception e) {
+            System.err.println("Error en consulta SPARQL '" + name + "': " + e.getMessage());
+        }
     }
 
     /**
-     * Divide una cadena larga en múltiples líneas para que ninguna exceda
-     * el ancho máximo especificado. Intenta romper en espacios cuando es posible;
-     * si no hay espacios disponibles, realiza un corte duro.
-     *
-     * Nota: Esta función no se usa actualmente (se prefirió truncado en Option A),
-     *       pero se conserva para uso futuro si se desea wrapping multi-línea.
-     *
-     * @param s Cadena a dividir.
-     * @param maxWidth Ancho máximo por línea.
-     * @return Lista de líneas, cada una con longitud <= maxWidth.
-     */
-    private static List<String> wrapToLines(String s, int maxWidth) {
-        List<String> out = new ArrayList<>();
-        if (s == null) {
-            out.add("");
-            return out;
-        }
-        String remaining = s;
-        while (!remaining.isEmpty()) {
-            if (remaining.length() <= maxWidth) {
-                out.add(remaining);
-                break;
+     * Ejecuta una consulta compilada y la muestra como tabla. Con
+     * {@code --perfil} imprime además la traza de la ejecución y el plan.
+     * Si la evaluación falla a mitad, la traza registra el error y las filas
+     * entregadas hasta ese momento antes de propagar la excepción. La consulta
+     * pasa por {@link QueryGovernor} como interactiva.
+     */
+    private static void render(Model model, QueryRegistry.CompiledQuery compiled, Map<String, Node> params) {
+        QueryGovernor.GovernedResultSet results = QueryGovernor.get()
+            .execute(compiled, model, params, QueryGovernor.Priority.INTERACTIVE);
+        try {
+            CONSOLE_TABLES.render(results, compiled.resultVars);
+        } finally {
+            results.close();
+            if (profile) {
+                QueryTrace trace = results.trace();
+                System.out.println("⏱ " + trace);
+                if (!trace.isMaterialized() && !trace.isCached()) {
+                    System.out.print(compiled.plan);
+                }
             }
-            // Intentar cortar en el último espacio dentro del ancho máximo
-            int breakPos = remaining.lastIndexOf(' ', maxWidth);
-            if (breakPos <= 0) breakPos = maxWidth; // corte duro si no hay espacios
-            out.add(remaining.substring(0, breakPos));
-            remaining = remaining.substring(breakPos).trim();
         }
-        if (out.isEmpty()) out.add("");
-        return out;
     }
 
     /**
-     * Centra una cadena dentro de un ancho especificado, distribuyendo
-     * espacios de relleno de forma equitativa a ambos lados.
-     *
-     * Si la cadena es más larga que el ancho, se trunca.
+     * Escribe las métricas acumuladas de todas las consultas ejecutadas.
      *
-     * @param s Cadena a centrar.
-     * @param width Ancho objetivo.
-     * @return Cadena centrada con espacios de padding.
-     */
-    private static String center(String s, int width) {
-        if (s == null) s = "";
-        // Truncar si excede el ancho
-        if (s.length() >= width) return s.substring(0, width);
-        int totalPad = width - s.length();
-        int left = totalPad / 2;
-        int right = totalPad - left;
-        return " ".repeat(left) + s + " ".repeat(right);
+     * @param file Fichero destino (.json o formato de texto de Prometheus).
+     */
+    static void writeMetrics(Path file) {
+        try {
+            QueryMetrics.get().write(file);
+            System.out.println("✓ Métricas de consultas escritas en: " + file);
+        } catch (IOException e) {
+            System.err.println("Error escribiendo las métricas: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,65 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+/**
+ * Vocabulario del dominio 'cine' expresado como constantes {@link Node}.
+ *
+ * Las rutas de carga masiva trabajan directamente con el API de grafos
+ * (Triple/Node) en lugar de Resource/Property, por lo que los predicados se
+ * crean una sola vez aquí y se reutilizan en cada fila procesada.
+ */
+public final class CineVocab {
+
+    /** Espacio de nombres base para las propiedades del dominio 'cine'. */
+    public static final String NS = "http://example.org/cine#";
+
+    /** Prefijo de las URIs de las películas ({@code http://example.org/pelicula/{id}}). */
+    public static final String MOVIE_NS = "http://example.org/pelicula/";
+
+    /** Prefijo de las URIs de las funciones ({@code http://example.org/funcion/{id}}). */
+    public static final String SCREENING_NS = "http://example.org/funcion/";
+
+    public static final Node TITULO = NodeFactory.createURI(NS + "titulo");
+    public static final Node TITULO_ESPANOL = NodeFactory.createURI(NS + "tituloEspanol");
+    public static final Node GENERO = NodeFactory.createURI(NS + "genero");
+    public static final Node DURACION = NodeFactory.createURI(NS + "duracion");
+    public static final Node CLASIFICACION = NodeFactory.createURI(NS + "clasificacion");
+    public static final Node ESTRENO = NodeFactory.createURI(NS + "estreno");
+    public static final Node ESTADO = NodeFactory.createURI(NS + "estado");
+    public static final Node PREVENTA = NodeFactory.createURI(NS + "preventa");
+    public static final Node FORMATO = NodeFactory.createURI(NS + "formato");
+    /** Ciudad (o "ciudad/teatro") que programa la película; clave de partición de {@link ShardedCatalog}. */
+    public static final Node SEDE = NodeFactory.createURI(NS + "sede");
+
+    // Funciones (ver ShowtimeInventory)
+    public static final Node PELICULA = NodeFactory.createURI(NS + "pelicula");
+    public static final Node SALA = NodeFactory.createURI(NS + "sala");
+    public static final Node INICIO = NodeFactory.createURI(NS + "inicio");
+    public static final Node CAPACIDAD = NodeFactory.createURI(NS + "capacidad");
+    public static final Node DISPONIBLES = NodeFactory.createURI(NS + "disponibles");
+
+    private CineVocab() {
+    }
+
+    /**
+     * Construye el nodo URI de una película a partir de su identificador.
+     *
+     * @param id Identificador simple de la película.
+     * @return Nodo URI {@code http://example.org/pelicula/{id}}.
+     */
+    public static Node movie(String id) {
+        return NodeFactory.createURI(MOVIE_NS + id);
+    }
+
+    /**
+     * Construye el nodo URI de una función a partir de su identificador.
+     *
+     * @param id Identificador simple de la función.
+     * @return Nodo URI {@code http://example.org/funcion/{id}}.
+     */
+    public static Node screening(String id) {
+        return NodeFactory.createURI(SCREENING_NS + id);
+    }
+}
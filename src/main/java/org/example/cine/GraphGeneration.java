@@ -0,0 +1,85 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador de generación de un grafo: cada mutación notificada (alta, baja o
+ * vaciado) lo incrementa. Dos lecturas con el mismo valor garantizan que el
+ * grafo no ha cambiado entre ellas, así que un resultado calculado en una
+ * generación sólo es válido mientras ésta no avance (ver {@link ResultCache}).
+ *
+ * Como el resto de listeners, sólo ve las mutaciones hechas a través del
+ * mismo objeto {@link Graph} en el que se registró.
+ */
+public final class GraphGeneration extends TripleListener {
+
+    private static final Map<Graph, GraphGeneration> ATTACHED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private GraphGeneration() {
+    }
+
+    /**
+     * Empieza a contar las mutaciones del grafo. Si ya tenía contador, lo
+     * devuelve sin crear otro.
+     */
+    public static GraphGeneration attach(Graph graph) {
+        synchronized (ATTACHED) {
+            GraphGeneration existing = ATTACHED.get(graph);
+            if (existing != null) return existing;
+            GraphGeneration counter = new GraphGeneration();
+            graph.getEventManager().register(counter);
+            ATTACHED.put(graph, counter);
+            return counter;
+        }
+    }
+
+    /** @return Contador asociado al grafo, o null si no tiene. */
+    public static GraphGeneration forGraph(Graph graph) {
+        return ATTACHED.get(graph);
+    }
+
+    /**
+     * Deja de contar las mutaciones del grafo. Los resultados en caché
+     * asociados al contador dejan de poder servirse.
+     */
+    public static void detach(Graph graph) {
+        GraphGeneration counter = ATTACHED.remove(graph);
+        if (counter != null) {
+            graph.getEventManager().unregister(counter);
+            counter.generation.incrementAndGet();
+        }
+    }
+
+    /** @return Generación actual. */
+    public long current() {
+        return generation.get();
+    }
+
+    @Override
+    protected void added(Triple t) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    protected void removed(Triple t) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    protected void cleared() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "generación " + current();
+    }
+}
@@ -0,0 +1,401 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.pfunction.PropFuncArg;
+import org.apache.jena.sparql.pfunction.PropertyFunction;
+import org.apache.jena.sparql.pfunction.PropertyFunctionBase;
+import org.apache.jena.sparql.pfunction.PropertyFunctionFactory;
+import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Funciones de propiedad SPARQL que resuelven filtros del catálogo con los
+ * índices de {@link CatalogIndexes} en lugar de recorrer todos los triples
+ * del predicado y filtrar después.
+ *
+ * <pre>
+ * PREFIX idx: &lt;http://example.org/cine/idx#&gt;
+ * ?pelicula idx:estrenoEntre (?desde ?hasta) .   # desde &lt;= estreno &lt;= hasta
+ * ?pelicula idx:estrenoDespues ?fecha .          # estreno &gt; fecha
+ * ?pelicula idx:duracionMayor ?minutos .         # duracion &gt; minutos
+ * ?pelicula idx:genero (?g1 ?g2 ?g3) .           # algún género de la lista
+ * ?pelicula idx:clasificacion (?c1 ...) .
+ * ?pelicula idx:preventa ?valor .
+ * ?pelicula idx:titulo "depredador" .           # búsqueda de texto en los títulos
+ * (?pelicula ?puntuacion) idx:titulo ("tron" 20) .
+ * </pre>
+ *
+ * Los argumentos de lista sin valor se ignoran (un extremo de rango sin valor
+ * deja el rango abierto). Cada película aparece una sola vez aunque tenga
+ * varios valores que cumplan la condición (varios géneros de la lista, o
+ * varias fechas de estreno dentro del rango). Sólo cuentan los literales con
+ * tipo: xsd:date o xsd:dateTime para las fechas y un tipo numérico XSD para
+ * la duración; un texto sin tipo con forma de fecha o de número no se indexa
+ * ni cumple las condiciones. Si el grafo activo no tiene índices (por ejemplo, un
+ * dataset TDB2) se recorre el predicado con {@code Graph.find}, con el mismo
+ * resultado.
+ *
+ * idx:titulo usa {@link TitleSearchIndex} (sin índice, se indexan al vuelo
+ * los títulos del grafo una vez por ejecución de la consulta, no en cada
+ * fila de entrada) y devuelve las películas en orden de relevancia;
+ * el segundo sujeto opcional recibe la puntuación y el segundo argumento
+ * opcional limita el número de resultados.
+ *
+ * Conviene escribir el patrón idx: al principio del grupo: así se evalúa
+ * primero y el resto de patrones sólo se une con las películas candidatas.
+ */
+public final class IndexFunctions {
+
+    /** Espacio de nombres de las funciones de índice. */
+    public static final String NS = "http://example.org/cine/idx#";
+
+    private IndexFunctions() {
+    }
+
+    /**
+     * Registra las funciones en el registro global de ARQ. Debe llamarse antes
+     * de compilar las consultas que las usan.
+     */
+    public static void register() {
+        PropertyFunctionRegistry registry = PropertyFunctionRegistry.get();
+        registry.put(NS + "estrenoEntre", uri -> new EstrenoEntre());
+        registry.put(NS + "estrenoDespues", uri -> new EstrenoDespues());
+        registry.put(NS + "duracionMayor", uri -> new DuracionMayor());
+        registry.put(NS + "genero", uri -> new AnyOf(CineVocab.GENERO));
+        registry.put(NS + "clasificacion", uri -> new AnyOf(CineVocab.CLASIFICACION));
+        registry.put(NS + "preventa", uri -> new AnyOf(CineVocab.PREVENTA));
+        registry.put(NS + "titulo", uri -> new TituloSearch());
+    }
+
+    /**
+     * Predicado del catálogo que lee una función idx: de filtro.
+     *
+     * @param function URI de la función (ej. idx:preventa).
+     * @return El predicado (ej. cine:preventa), o null si no es una función
+     *         registrada de un solo predicado (idx:titulo lee varios).
+     */
+    static Node property(Node function) {
+        if (!function.isURI()) return null;
+        PropertyFunctionFactory factory = PropertyFunctionRegistry.get().get(function.getURI());
+        PropertyFunction pf = factory == null ? null : factory.create(function.getURI());
+        return pf instanceof IndexFunction ? ((IndexFunction) pf).property() : null;
+    }
+
+    /**
+     * Base común: calcula las películas candidatas (con o sin índice) y las
+     * enlaza al sujeto. Si el sujeto ya tiene valor sólo se miran sus
+     * triples del predicado, sin calcular todas las candidatas.
+     */
+    private abstract static class IndexFunction extends PropertyFunctionBase {
+
+        /** Predicado sobre el que filtra la función. */
+        abstract Node property();
+
+        /** Condición que debe cumplir algún valor del predicado. */
+        abstract Predicate<Node> condition(List<Node> args);
+
+        /** Películas candidatas usando los índices. */
+        abstract List<Node> withIndex(CatalogIndexes indexes, List<Node> args);
+
+        /** Películas candidatas recorriendo el grafo. */
+        List<Node> withScan(Graph graph, List<Node> args) {
+            return scan(graph, property(), condition(args));
+        }
+
+        @Override
+        public QueryIterator exec(Binding binding, PropFuncArg argSubject, Node predicate,
+                                  PropFuncArg argObject, ExecutionContext execCxt) {
+            List<Node> args = new ArrayList<>();
+            if (argObject.isList()) {
+                for (Node n : argObject.getArgList()) args.add(resolve(binding, n));
+            } else {
+                args.add(resolve(binding, argObject.getArg()));
+            }
+
+            Graph graph = execCxt.getActiveGraph();
+            Node subject = resolve(binding, argSubject.getArg());
+            List<Binding> out = new ArrayList<>();
+            if (subject != null) {
+                if (matches(graph, subject, property(), condition(args))) out.add(binding);
+                return QueryIterPlainWrapper.create(out.iterator(), execCxt);
+            }
+
+            CatalogIndexes indexes = CatalogIndexes.forGraph(graph);
+            List<Node> movies = indexes != null ? withIndex(indexes, args) : withScan(graph, args);
+            Var var = Var.alloc(argSubject.getArg());
+            for (Node m : movies) out.add(BindingFactory.binding(binding, var, m));
+            return QueryIterPlainWrapper.create(out.iterator(), execCxt);
+        }
+    }
+
+    /** estreno en [desde, hasta], con extremos opcionales. */
+    private static final class EstrenoEntre extends IndexFunction {
+        @Override
+        List<Node> withIndex(CatalogIndexes indexes, List<Node> args) {
+            return movies(indexes, indexes.estrenoBetween(date(arg(args, 0)), date(arg(args, 1))));
+        }
+
+        @Override
+        Node property() {
+            return CineVocab.ESTRENO;
+        }
+
+        @Override
+        Predicate<Node> condition(List<Node> args) {
+            LocalDate from = date(arg(args, 0)), to = date(arg(args, 1));
+            return o -> {
+                Long day = CatalogIndexes.epochDay(o);
+                return day != null && (from == null || day >= from.toEpochDay())
+                    && (to == null || day <= to.toEpochDay());
+            };
+        }
+    }
+
+    /** estreno estrictamente posterior a la fecha. */
+    private static final class EstrenoDespues extends IndexFunction {
+        @Override
+        List<Node> withIndex(CatalogIndexes indexes, List<Node> args) {
+            LocalDate after = date(arg(args, 0));
+            return movies(indexes, indexes.estrenoBetween(after == null ? null : after.plusDays(1), null));
+        }
+
+        @Override
+        Node property() {
+            return CineVocab.ESTRENO;
+        }
+
+        @Override
+        Predicate<Node> condition(List<Node> args) {
+            LocalDate after = date(arg(args, 0));
+            return o -> {
+                Long day = CatalogIndexes.epochDay(o);
+                return day != null && (after == null || day > after.toEpochDay());
+            };
+        }
+    }
+
+    /** duración estrictamente mayor que el mínimo (en minutos). */
+    private static final class DuracionMayor extends IndexFunction {
+        @Override
+        List<Node> withIndex(CatalogIndexes indexes, List<Node> args) {
+            int min = minutes(arg(args, 0));
+            return min == Integer.MAX_VALUE ? List.of() : movies(indexes, indexes.duracionBetween(min + 1, Integer.MAX_VALUE));
+        }
+
+        @Override
+        Node property() {
+            return CineVocab.DURACION;
+        }
+
+        @Override
+        Predicate<Node> condition(List<Node> args) {
+            int min = minutes(arg(args, 0));
+            return o -> {
+                Integer d = CatalogIndexes.intValue(o);
+                return d != null && d > min;
+            };
+        }
+    }
+
+    /** Algún valor de la lista en el predicado (género, clasificación, preventa). */
+    private static final class AnyOf extends IndexFunction {
+        private final Node property;
+
+        AnyOf(Node property) {
+            this.property = property;
+        }
+
+        @Override
+        Node property() {
+            return property;
+        }
+
+        @Override
+        Predicate<Node> condition(List<Node> args) {
+            return new HashSet<>(values(args))::contains;
+        }
+
+        @Override
+        List<Node> withIndex(CatalogIndexes indexes, List<Node> args) {
+            BitSet bits = indexes.anyOf(property, values(args));
+            List<Node> movies = new ArrayList<>(bits.cardinality());
+            for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+                movies.add(indexes.movie(id));
+            }
+            return movies;
+        }
+
+        @Override
+        List<Node> withScan(Graph graph, List<Node> args) {
+            Set<Node> movies = new LinkedHashSet<>();
+            for (Node value : values(args)) {
+                ExtendedIterator<Triple> it = graph.find(Node.ANY, property, value);
+                try {
+                    while (it.hasNext()) movies.add(it.next().getSubject());
+                } finally {
+                    it.close();
+                }
+            }
+            return new ArrayList<>(movies);
+        }
+
+        private static List<Node> values(List<Node> args) {
+            List<Node> values = new ArrayList<>(args.size());
+            for (Node n : args) {
+                if (n != null) values.add(n);
+            }
+            return values;
+        }
+    }
+
+    /** Índices de títulos construidos al vuelo durante una ejecución, por grafo. */
+    private static final Symbol TRANSIENT_TITLES = Symbol.create(NS + "indicesTitulosTemporales");
+
+    /**
+     * Índice de títulos de un grafo sin índice asociado, construido la
+     * primera vez que lo pide la ejecución y guardado en su contexto (que es
+     * propio de cada ejecución): las filas siguientes lo reutilizan y se
+     * descarta con ella, así que nunca queda desfasado respecto al grafo.
+     */
+    private static TitleSearchIndex transientIndex(Context context, Graph graph) {
+        Map<Graph, TitleSearchIndex> built = context.get(TRANSIENT_TITLES);
+        if (built == null) {
+            built = new IdentityHashMap<>();
+            context.set(TRANSIENT_TITLES, built);
+        }
+        return built.computeIfAbsent(graph, TitleSearchIndex::build);
+    }
+
+    /** Búsqueda de texto en cine:titulo y cine:tituloEspanol. */
+    private static final class TituloSearch extends PropertyFunctionBase {
+        @Override
+        public QueryIterator exec(Binding binding, PropFuncArg argSubject, Node predicate,
+                                  PropFuncArg argObject, ExecutionContext execCxt) {
+            List<Node> args = argObject.isList() ? argObject.getArgList() : List.of(argObject.getArg());
+            Node text = resolve(binding, args.get(0));
+            if (text == null || !text.isLiteral()) {
+                throw new IllegalArgumentException("idx:titulo espera un texto: " + text);
+            }
+            Node limitArg = args.size() > 1 ? resolve(binding, args.get(1)) : null;
+            int limit = limitArg == null ? 0 : (int) NodeValue.makeNode(limitArg).getInteger().longValue();
+
+            Graph graph = execCxt.getActiveGraph();
+            TitleSearchIndex index = TitleSearchIndex.forGraph(graph);
+            if (index == null) index = transientIndex(execCxt.getContext(), graph);
+            List<TitleSearchIndex.Hit> hits = index.search(text.getLiteralLexicalForm(), limit);
+
+            List<Node> subjects = argSubject.isList() ? argSubject.getArgList() : List.of(argSubject.getArg());
+            Node subject = resolve(binding, subjects.get(0));
+            Node scoreArg = subjects.size() > 1 ? subjects.get(1) : null;
+            List<Binding> out = new ArrayList<>();
+            for (TitleSearchIndex.Hit hit : hits) {
+                if (subject != null && !subject.equals(hit.movie)) continue;
+                Binding row = subject == null ? BindingFactory.binding(binding, Var.alloc(subjects.get(0)), hit.movie) : binding;
+                if (scoreArg != null) {
+                    Node score = NodeValue.makeDouble(hit.score).asNode();
+                    Node bound = resolve(row, scoreArg);
+                    if (bound == null) row = BindingFactory.binding(row, Var.alloc(scoreArg), score);
+                    else if (!bound.sameValueAs(score)) continue;
+                }
+                out.add(row);
+            }
+            return QueryIterPlainWrapper.create(out.iterator(), execCxt);
+        }
+    }
+
+    /** Valor del nodo en la fila actual: null si es una variable sin valor. */
+    private static Node resolve(Binding binding, Node node) {
+        return Var.isVar(node) ? binding.get(Var.alloc(node)) : node;
+    }
+
+    private static Node arg(List<Node> args, int i) {
+        return i < args.size() ? args.get(i) : null;
+    }
+
+    /** Fecha de un argumento xsd:date (sin valor: extremo abierto). */
+    private static LocalDate date(Node node) {
+        if (node == null) return null;
+        Long day = CatalogIndexes.epochDay(node);
+        if (day == null) {
+            throw new IllegalArgumentException("Se esperaba una fecha xsd:date: " + node);
+        }
+        return LocalDate.ofEpochDay(day);
+    }
+
+    /** Parte entera de un argumento numérico (sin valor: sin mínimo). */
+    private static int minutes(Node node) {
+        if (node == null) return Integer.MIN_VALUE;
+        NodeValue nv = NodeValue.makeNode(node);
+        if (!nv.isNumber()) {
+            throw new IllegalArgumentException("idx:duracionMayor espera un número: " + node);
+        }
+        double d = Math.floor(nv.getDouble());
+        return d >= Integer.MAX_VALUE ? Integer.MAX_VALUE : d <= Integer.MIN_VALUE ? Integer.MIN_VALUE : (int) d;
+    }
+
+    /**
+     * Películas de un rango del índice, en el orden del índice. Una película
+     * con varios valores dentro del rango (dos fechas de estreno, por ejemplo)
+     * sólo aparece la primera vez.
+     */
+    private static List<Node> movies(CatalogIndexes indexes, int[] ids) {
+        List<Node> movies = new ArrayList<>(ids.length);
+        BitSet seen = new BitSet();
+        for (int id : ids) {
+            if (!seen.get(id)) {
+                seen.set(id);
+                movies.add(indexes.movie(id));
+            }
+        }
+        return movies;
+    }
+
+    /** Comprueba si algún valor del predicado en la película cumple la condición. */
+    private static boolean matches(Graph graph, Node movie, Node property, Predicate<Node> test) {
+        ExtendedIterator<Triple> it = graph.find(movie, property, Node.ANY);
+        try {
+            while (it.hasNext()) {
+                if (test.test(it.next().getObject())) return true;
+            }
+            return false;
+        } finally {
+            it.close();
+        }
+    }
+
+    private static List<Node> scan(Graph graph, Node property, Predicate<Node> test) {
+        Set<Node> movies = new LinkedHashSet<>();
+        ExtendedIterator<Triple> it = graph.find(Node.ANY, property, Node.ANY);
+        try {
+            while (it.hasNext()) {
+                Triple t = it.next();
+                if (test.test(t.getObject())) movies.add(t.getSubject());
+            }
+        } finally {
+            it.close();
+        }
+        return new ArrayList<>(movies);
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+
+/**
+ * Emite los triples de una película hacia un {@link StreamRDF}.
+ *
+ * Produce exactamente los mismos triples que
+ * {@code CineColombiaManager.createMovieResource} (mismos tipos de literal),
+ * pero sin pasar por el API de Resource/Property: los predicados y los
+ * literales booleanos son constantes compartidas y cada triple se entrega
+ * directamente al destino.
+ */
+public final class MovieTriples {
+
+    /** Literales booleanos compartidos para cine:preventa. */
+    static final Node TRUE = NodeFactory.createLiteral("true", XSDDatatype.XSDboolean);
+    static final Node FALSE = NodeFactory.createLiteral("false", XSDDatatype.XSDboolean);
+
+    private MovieTriples() {
+    }
+
+    /**
+     * Emite una película completa.
+     *
+     * @param out Destino de los triples.
+     * @param id Identificador simple para construir la URI del recurso.
+     * @param title Título original.
+     * @param spanishTitle Título en español.
+     * @param genre Género(s); varios géneros se separan con ", ".
+     * @param duration Duración en minutos. Si es 0 (o negativa) se omite.
+     * @param rating Clasificación por edad.
+     * @param releaseDate Fecha de estreno YYYY-MM-DD (se tipa como xsd:date).
+     * @param status Estado comercial.
+     * @param preSale Indica si la película tiene preventa.
+     * @param format Etiqueta de formato.
+     * @return Número de triples emitidos.
+     */
+    public static int emit(StreamRDF out, String id, String title, String spanishTitle, String genre,
+                           long duration, String rating, String releaseDate, String status,
+                           boolean preSale, String format) {
+        Node movie = CineVocab.movie(id);
+        int n = 0;
+
+        out.triple(Triple.create(movie, CineVocab.TITULO, string(title)));
+        out.triple(Triple.create(movie, CineVocab.TITULO_ESPANOL, string(spanishTitle)));
+        n += 2;
+
+        // Género multivalor: se recorre la cadena sin String.split para no crear arrays intermedios
+        int start = 0;
+        while (true) {
+            int sep = genre.indexOf(", ", start);
+            String g = sep < 0 ? genre.substring(start) : genre.substring(start, sep);
+            out.triple(Triple.create(movie, CineVocab.GENERO, string(g)));
+            n++;
+            if (sep < 0) break;
+            start = sep + 2;
+        }
+
+        if (duration > 0) {
+            out.triple(Triple.create(movie, CineVocab.DURACION, duration(duration)));
+            n++;
+        }
+
+        out.triple(Triple.create(movie, CineVocab.CLASIFICACION, string(rating)));
+        out.triple(Triple.create(movie, CineVocab.ESTRENO, date(releaseDate)));
+        out.triple(Triple.create(movie, CineVocab.ESTADO, string(status)));
+        out.triple(Triple.create(movie, CineVocab.PREVENTA, preSale ? TRUE : FALSE));
+        out.triple(Triple.create(movie, CineVocab.FORMATO, string(format)));
+        return n + 5;
+    }
+
+    /** Literal simple (xsd:string), equivalente a {@code Resource.addProperty(p, String)}. */
+    static Node string(String lex) {
+        return NodeFactory.createLiteral(lex);
+    }
+
+    /** Literal xsd:long, equivalente a {@code Resource.addLiteral(p, int)}. */
+    static Node duration(long minutes) {
+        return NodeFactory.createLiteral(Long.toString(minutes), XSDDatatype.XSDlong);
+    }
+
+    /** Literal xsd:date a partir de una fecha YYYY-MM-DD. */
+    static Node date(String lex) {
+        return NodeFactory.createLiteral(lex, XSDDatatype.XSDdate);
+    }
+}
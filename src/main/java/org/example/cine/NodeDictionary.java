@@ -0,0 +1,199 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diccionario de nodos: comparte una única instancia de {@link Node} por
+ * cada valor distinto, de modo que los millones de triples con el mismo
+ * estado, formato, género o clasificación apunten al mismo objeto en lugar
+ * de a copias idénticas.
+ *
+ * Se codifican:
+ * <ul>
+ *   <li>los IRIs en posición de predicado y de objeto;</li>
+ *   <li>los literales objeto de los predicados de baja cardinalidad indicados
+ *       (una "columna" por predicado), hasta {@link #MAX_DISTINCT} valores
+ *       distintos por columna; a partir de ahí los valores nuevos pasan sin
+ *       codificar.</li>
+ * </ul>
+ * Los sujetos no se codifican: cada película ya comparte su nodo entre todos
+ * sus triples (lo crea una sola vez {@link MovieTriples} y el parser de RIOT
+ * tiene su propia caché de IRIs), así que un diccionario de sujetos sólo
+ * añadiría una entrada por película sin ahorrar nada.
+ *
+ * Además de ahorrar memoria, las comparaciones de igualdad entre nodos
+ * compartidos se resuelven por identidad.
+ *
+ * Cada grafo tiene su propio diccionario ({@link #attach(Graph)}): las
+ * cargas sucesivas en el mismo grafo reutilizan las instancias canónicas, y
+ * el diccionario se libera con el grafo (o con {@link #detach(Graph)}) en
+ * lugar de retener para siempre los valores de catálogos ya descartados.
+ */
+public final class NodeDictionary {
+
+    /** Valores distintos máximos por columna de literales. */
+    public static final int MAX_DISTINCT = 1 << 16;
+
+    /** Predicados del catálogo con literales de baja cardinalidad. */
+    public static final List<Node> CATALOG_COLUMNS = List.of(
+        CineVocab.GENERO, CineVocab.CLASIFICACION, CineVocab.ESTADO, CineVocab.FORMATO,
+        CineVocab.PREVENTA, CineVocab.DURACION, CineVocab.ESTRENO);
+
+    /** Diccionario de cada grafo; no retiene el grafo (el diccionario sólo guarda nodos). */
+    private static final Map<Graph, NodeDictionary> ATTACHED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** Valores de un predicado: instancia canónica por valor y contadores. */
+    private static final class Column {
+        final Map<Node, Node> values = new ConcurrentHashMap<>();
+        final LongAdder hits = new LongAdder();
+        final LongAdder bytesSaved = new LongAdder();
+
+        Node intern(Node node) {
+            Node canonical = values.get(node);
+            if (canonical == null) {
+                if (values.size() >= MAX_DISTINCT) return node;
+                canonical = values.putIfAbsent(node, node);
+                if (canonical == null) return node;
+            }
+            if (canonical != node) {
+                hits.increment();
+                bytesSaved.add(estimateBytes(node));
+            }
+            return canonical;
+        }
+    }
+
+    private final Column iris = new Column();
+    private final Map<Node, Column> columns = new LinkedHashMap<>();
+
+    /**
+     * @param predicates Predicados cuyos literales objeto se codifican.
+     */
+    public NodeDictionary(List<Node> predicates) {
+        for (Node p : predicates) columns.put(p, new Column());
+    }
+
+    /**
+     * Diccionario con las columnas del catálogo asociado al grafo; se crea en
+     * el primer uso y se comparte entre todas las cargas en ese grafo.
+     *
+     * @param graph Grafo destino de las cargas.
+     * @return Diccionario del grafo.
+     */
+    public static NodeDictionary attach(Graph graph) {
+        synchronized (ATTACHED) {
+            return ATTACHED.computeIfAbsent(graph, g -> new NodeDictionary(CATALOG_COLUMNS));
+        }
+    }
+
+    /**
+     * @return Diccionario asociado al grafo, o null si no se ha cargado nada en él.
+     */
+    public static NodeDictionary forGraph(Graph graph) {
+        return ATTACHED.get(graph);
+    }
+
+    /**
+     * Descarta el diccionario del grafo; las instancias ya insertadas siguen
+     * siendo válidas, pero las cargas siguientes empiezan de cero.
+     */
+    public static void detach(Graph graph) {
+        ATTACHED.remove(graph);
+    }
+
+    /**
+     * @return Instancia canónica del objeto de un triple con ese predicado, o
+     *         el propio nodo si no se codifica.
+     */
+    public Node intern(Node predicate, Node object) {
+        if (object.isURI()) return iris.intern(object);
+        if (!object.isLiteral()) return object;
+        Column column = columns.get(predicate);
+        return column == null ? object : column.intern(object);
+    }
+
+    /** @return Triple con predicado y objeto codificados (el mismo si no cambia nada). */
+    public Triple intern(Triple t) {
+        Node p = iris.intern(t.getPredicate());
+        Node o = intern(p, t.getObject());
+        return p == t.getPredicate() && o == t.getObject() ? t : Triple.create(t.getSubject(), p, o);
+    }
+
+    /**
+     * Envuelve un destino para que reciba los triples ya codificados.
+     */
+    public StreamRDF wrap(StreamRDF out) {
+        return new StreamRDFWrapper(out) {
+            @Override
+            public void triple(Triple triple) {
+                super.triple(intern(triple));
+            }
+        };
+    }
+
+    /** @return Valores distintos por columna (nombre local del predicado → número). */
+    public Map<String, Integer> distinctCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("IRIs", iris.values.size());
+        columns.forEach((p, c) -> counts.put(p.getLocalName(), c.values.size()));
+        return counts;
+    }
+
+    /** @return Referencias resueltas a una instancia ya existente. */
+    public long hits() {
+        long n = iris.hits.sum();
+        for (Column c : columns.values()) n += c.hits.sum();
+        return n;
+    }
+
+    /** @return Estimación de los bytes de heap que ocupaban las copias evitadas. */
+    public long bytesSaved() {
+        long n = iris.bytesSaved.sum();
+        for (Column c : columns.values()) n += c.bytesSaved.sum();
+        return n;
+    }
+
+    /**
+     * Tamaño aproximado de un nodo y los objetos que retiene (JVM de 64 bits
+     * con oops comprimidos): cabecera y campos del nodo, la etiqueta del
+     * literal con su valor ya interpretado y la cadena léxica.
+     */
+    static long estimateBytes(Node node) {
+        if (node.isURI()) {
+            return 16 + string(node.getURI());
+        }
+        if (node.isLiteral()) {
+            // Node_Literal + LiteralLabel + valor interpretado (Long, XSDDateTime, Boolean...)
+            return 16 + 40 + 24 + string(node.getLiteralLexicalForm());
+        }
+        return 16;
+    }
+
+    /** String con su array de bytes (Latin-1 o UTF-16). */
+    private static long string(String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) latin1 = s.charAt(i) < 256;
+        long array = 16 + (long) s.length() * (latin1 ? 1 : 2);
+        return 24 + ((array + 7) & ~7L);
+    }
+
+    @Override
+    public String toString() {
+        int distinct = 0;
+        for (int n : distinctCounts().values()) distinct += n;
+        return String.format("%,d valores distintos, %,d referencias compartidas, ~%,d KiB ahorrados %s",
+            distinct, hits(), bytesSaved() / 1024, distinctCounts());
+    }
+}
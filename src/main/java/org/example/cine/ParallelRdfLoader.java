@@ -0,0 +1,294 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Carga en paralelo de volcados RDF orientados a líneas (N-Triples y N-Quads).
+ *
+ * RDF/XML y las instantáneas binarias sólo se pueden leer de principio a fin
+ * ({@link RdfSnapshot#load}), pero en N-Triples cada línea es un triple
+ * completo: el fichero se proyecta en memoria, se corta en trozos alineados
+ * a fin de línea y cada trozo se analiza en un {@link ForkJoinPool} sobre su
+ * propio buffer de triples. El hilo llamador fusiona los buffers en el grafo
+ * por lotes, en el orden del fichero, mientras los trabajadores siguen
+ * analizando los trozos siguientes. Como mucho hay dos trozos por hilo en
+ * vuelo, así que la memoria extra no depende del tamaño del volcado.
+ *
+ * Los literales e IRIs se comparten con el diccionario de nodos del grafo
+ * destino ({@link NodeDictionary#attach}) ya en los trabajadores. Las
+ * etiquetas de nodos en blanco se conservan tal cual para que "_:b0" sea el
+ * mismo nodo en todos los trozos; por eso el grafo destino no debería tener
+ * ya nodos en blanco de otra fuente. En N-Quads el grafo nombrado se
+ * descarta y todos los triples van al grafo destino.
+ */
+public final class ParallelRdfLoader {
+
+    /** Tamaño nominal de cada trozo (se amplía hasta el siguiente fin de línea). */
+    public static final int DEFAULT_CHUNK = 8 << 20;
+
+    /** Intervalo mínimo entre dos avisos de progreso. */
+    private static final long PROGRESS_NANOS = 1_000_000_000L;
+
+    private ParallelRdfLoader() {
+    }
+
+    /**
+     * Estadísticas de una carga (parcial, en los avisos de progreso, o final).
+     */
+    public static final class Stats {
+        public final long bytes;
+        public final long totalBytes;
+        public final int chunks;
+        public final long triples;
+        public final int threads;
+        public final long nanos;
+
+        Stats(long bytes, long totalBytes, int chunks, long triples, int threads, long nanos) {
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            this.chunks = chunks;
+            this.triples = triples;
+            this.threads = threads;
+            this.nanos = nanos;
+        }
+
+        /** @return Triples por segundo hasta el momento. */
+        public double triplesPerSecond() {
+            return nanos == 0 ? 0 : triples * 1_000_000_000.0 / nanos;
+        }
+
+        /** @return MB/s leídos del fichero hasta el momento. */
+        public double megabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1_000_000_000.0 / nanos / (1 << 20);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d triples, %d trozos, %.0f%% de %,d MB en %.2f s con %d hilos → %,.0f triples/s, %.1f MB/s",
+                triples, chunks, totalBytes == 0 ? 100.0 : bytes * 100.0 / totalBytes, totalBytes >> 20,
+                nanos / 1e9, threads, triplesPerSecond(), megabytesPerSecond());
+        }
+    }
+
+    /**
+     * @return true si el fichero es N-Triples o N-Quads sin comprimir, que es
+     *         lo único que se puede partir por líneas.
+     */
+    public static boolean supports(Path file) {
+        return RdfSnapshot.compressionOf(file) == RdfSnapshot.Compression.NONE && lineLang(file) != null;
+    }
+
+    /**
+     * Carga el fichero en el grafo con un hilo por núcleo y trozos de
+     * {@link #DEFAULT_CHUNK} bytes.
+     *
+     * @see #load(Path, Graph, int, int, Consumer)
+     */
+    public static Stats load(Path file, Graph graph, Consumer<Stats> progress) throws IOException {
+        return load(file, graph, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK, progress);
+    }
+
+    /**
+     * Carga un volcado N-Triples o N-Quads en el grafo analizando sus trozos
+     * en paralelo.
+     *
+     * @param file Fichero sin comprimir (ver {@link #supports}).
+     * @param graph Grafo destino; sólo lo modifica el hilo llamador.
+     * @param threads Hilos de análisis (0 = número de núcleos).
+     * @param chunkSize Tamaño nominal de cada trozo en bytes.
+     * @param progress Recibe el progreso como mucho una vez por segundo, o null.
+     * @return Estadísticas de la carga completa.
+     * @throws IOException Si falla la lectura del fichero.
+     * @throws IllegalArgumentException Si la sintaxis no se puede partir por líneas.
+     */
+    public static Stats load(Path file, Graph graph, int threads, int chunkSize, Consumer<Stats> progress)
+            throws IOException {
+        if (!supports(file)) {
+            throw new IllegalArgumentException("Sólo se cargan en paralelo N-Triples/N-Quads sin comprimir: " + file);
+        }
+        Lang lang = lineLang(file);
+        NodeDictionary dictionary = NodeDictionary.attach(graph);
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        long t0 = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = split(channel, size, Math.max(1, chunkSize));
+            int chunks = bounds.length - 1;
+
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            ArrayDeque<ForkJoinTask<TripleBuffer>> inFlight = new ArrayDeque<>();
+            long bytes = 0, triples = 0, lastReport = t0;
+            int next = 0, merged = 0;
+            try {
+                while (merged < chunks) {
+                    while (next < chunks && inFlight.size() < 2 * workers) {
+                        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                            bounds[next], bounds[next + 1] - bounds[next]);
+                        inFlight.add(pool.submit(() -> parse(region, lang, dictionary)));
+                        next++;
+                    }
+                    TripleBuffer buffer = inFlight.poll().join();
+                    triples += buffer.mergeInto(graph);
+                    bytes += bounds[merged + 1] - bounds[merged];
+                    merged++;
+                    long now = System.nanoTime();
+                    if (progress != null && now - lastReport >= PROGRESS_NANOS && merged < chunks) {
+                        progress.accept(new Stats(bytes, size, merged, triples, workers, now - t0));
+                        lastReport = now;
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            return new Stats(bytes, size, chunks, triples, workers, System.nanoTime() - t0);
+        }
+    }
+
+    /** Sintaxis de líneas indicada por la extensión, o null si no lo es. */
+    private static Lang lineLang(Path file) {
+        Lang lang = RDFLanguages.filenameToLang(RdfSnapshot.baseName(file));
+        return Lang.NTRIPLES.equals(lang) || Lang.NQUADS.equals(lang) ? lang : null;
+    }
+
+    /**
+     * Calcula los límites de los trozos: cada uno empieza justo después de un
+     * '\n' (o en 0) y el último termina en el final del fichero.
+     */
+    static long[] split(FileChannel channel, long size, int chunkSize) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = chunkSize;
+        while (pos < size) {
+            long end = nextLineStart(channel, pos, size, probe);
+            if (end >= size) break;
+            bounds.add(end);
+            pos = end + chunkSize;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    /** Posición siguiente al primer '\n' a partir de pos (o size si no hay). */
+    private static long nextLineStart(FileChannel channel, long pos, long size, ByteBuffer probe) throws IOException {
+        while (pos < size) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /** Analiza un trozo en su propio buffer de triples (en un hilo del pool). */
+    private static TripleBuffer parse(ByteBuffer region, Lang lang, NodeDictionary dictionary) {
+        TripleBuffer buffer = new TripleBuffer(dictionary);
+        RDFParser.source(new ByteBufferInputStream(region))
+            .lang(lang)
+            .labelToNode(LabelToNode.createUseLabelAsGiven())
+            .parse(buffer);
+        return buffer;
+    }
+
+    /**
+     * Triples de un trozo en lotes de {@link CatalogBulkLoader#DEFAULT_BATCH},
+     * ya codificados con el diccionario de nodos.
+     */
+    private static final class TripleBuffer extends StreamRDFBase {
+        private final NodeDictionary dictionary;
+        private final List<Triple[]> batches = new ArrayList<>();
+        private Triple[] current = new Triple[CatalogBulkLoader.DEFAULT_BATCH];
+        private int size;
+
+        TripleBuffer(NodeDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            if (size == current.length) {
+                batches.add(current);
+                current = new Triple[current.length];
+                size = 0;
+            }
+            current[size++] = dictionary.intern(triple);
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            triple(quad.asTriple());
+        }
+
+        /** Inserta los lotes en el grafo y devuelve el número de triples. */
+        long mergeInto(Graph graph) {
+            long n = 0;
+            for (Triple[] batch : batches) {
+                GraphUtil.add(graph, batch);
+                n += batch.length;
+            }
+            if (size > 0) {
+                GraphUtil.add(graph, Arrays.copyOf(current, size));
+                n += size;
+            }
+            batches.clear();
+            current = null;
+            return n;
+        }
+    }
+
+    /** Flujo de lectura sobre una región proyectada, sin copias intermedias. */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.cine;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.shared.Lock;
+import org.apache.jena.system.Txn;
+
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Ejecuta en paralelo un lote de consultas independientes de un informe sobre
+ * una vista de sólo lectura del grafo.
+ *
+ * Cada consulta se evalúa en un hilo del pool y renderiza su tabla en un
+ * buffer propio; la salida se imprime en el orden original del lote a medida
+ * que cada consulta (y todas las anteriores) terminan. Sobre un modelo en
+ * memoria el hilo que lanza el lote mantiene el lock de lectura del modelo
+ * desde la primera consulta hasta la última (varios lectores concurrentes,
+ * ningún escritor), así que todo el lote ve el mismo estado del grafo; sobre
+ * un dataset transaccional cada consulta abre su propia transacción de
+ * lectura.
+ *
+ * Las consultas del lote pasan por {@link QueryGovernor} como
+ * {@link QueryGovernor.Priority#BATCH}: aunque el pool sea grande, sólo
+ * ocupan a la vez las plazas de lote y dejan el resto de núcleos a las
+ * consultas interactivas. En memoria las consultas encoladas esperan su
+ * plaza con el lock del lote tomado: los escritores esperan a que termine
+ * el lote completo, como exige una vista única de sólo lectura.
+ */
+public final class QueryBatchExecutor implements AutoCloseable {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final ExecutorService pool;
+    private final QueryRegistry registry;
+
+    /**
+     * @param registry Registro con las plantillas del lote.
+     * @param threads Tamaño del pool (&lt;= 0 usa el número de núcleos).
+     */
+    public QueryBatchExecutor(QueryRegistry registry, int threads) {
+        this(registry, Executors.newFixedThreadPool(
+            threads > 0 ? threads : Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param registry Registro con las plantillas del lote.
+     * @param pool Pool de ejecución; se cierra con {@link #close()}.
+     */
+    public QueryBatchExecutor(QueryRegistry registry, ExecutorService pool) {
+        this.registry = registry;
+        this.pool = pool;
+    }
+
+    /**
+     * Resultado de una consulta del lote: su tabla ya renderizada y sus tiempos.
+     */
+    public static final class Result {
+        public final ReportQuery query;
+        public final String output;
+        public final String error;
+        public final long rows;
+        public final long wallNanos;
+        public final long cpuNanos;
+
+        Result(ReportQuery query, String output, String error, long rows, long wallNanos, long cpuNanos) {
+            this.query = query;
+            this.output = output;
+            this.error = error;
+            this.rows = rows;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+        }
+    }
+
+    /**
+     * Resumen del lote: tiempo real total frente a la suma de CPU por consulta.
+     */
+    public static final class Summary {
+        public final List<Result> results;
+        public final long wallNanos;
+        public final long cpuNanos;
+
+        Summary(List<Result> results, long wallNanos, long cpuNanos) {
+            this.results = results;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d consultas: %.1f ms reales, %.1f ms de CPU sumados (paralelismo efectivo %.2fx)",
+                results.size(), wallNanos / 1e6, cpuNanos / 1e6, wallNanos == 0 ? 0 : (double) cpuNanos / wallNanos);
+        }
+    }
+
+    /**
+     * Ejecuta el lote sobre un modelo en memoria, con el lock de lectura del
+     * modelo durante todo el lote, e imprime las tablas en orden.
+     *
+     * @param model Modelo a consultar (no debe modificarse sin tomar su lock).
+     * @param batch Consultas en orden de presentación.
+     * @param out Salida donde se imprimen las tablas.
+     * @return Resumen de tiempos.
+     */
+    public Summary run(Model model, List<ReportQuery> batch, PrintStream out) {
+        // El lock es de este hilo: excluye a los escritores mientras los del pool leen
+        model.enterCriticalSection(Lock.READ);
+        try {
+            return run(batch, out, q -> evaluate(q, task -> task.accept(model)));
+        } finally {
+            model.leaveCriticalSection();
+        }
+    }
+
+    /**
+     * Ejecuta el lote sobre un dataset transaccional; cada consulta usa su
+     * propia transacción de lectura (una instantánea consistente del dataset).
+     *
+     * @param dataset Dataset transaccional (ej. TDB2).
+     * @param batch Consultas en orden de presentación.
+     * @param out Salida donde se imprimen las tablas.
+     * @return Resumen de tiempos.
+     */
+    public Summary run(Dataset dataset, List<ReportQuery> batch, PrintStream out) {
+        return run(batch, out, q -> evaluate(q,
+            task -> Txn.executeRead(dataset, () -> task.accept(dataset.getDefaultModel()))));
+    }
+
+    private Summary run(List<ReportQuery> batch, PrintStream out, Function<ReportQuery, Result> task) {
+        long t0 = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>(batch.size());
+        for (ReportQuery q : batch) {
+            futures.add(pool.submit(() -> task.apply(q)));
+        }
+
+        List<Result> results = new ArrayList<>(batch.size());
+        long cpu = 0;
+        for (Future<Result> f : futures) {
+            Result r = await(f);
+            results.add(r);
+            cpu += r.cpuNanos;
+            out.println("--- " + r.query.title + " ---");
+            if (r.error != null) {
+                System.err.println("Error en consulta SPARQL: " + r.error);
+            } else {
+                out.print(r.output);
+            }
+            out.println();
+        }
+        return new Summary(results, System.nanoTime() - t0, cpu);
+    }
+
+    /**
+     * Evalúa una consulta en el hilo actual y renderiza su tabla en memoria.
+     * La plaza del gobernador se obtiene antes de que {@code reader} abra la
+     * transacción, si la hay.
+     */
+    private Result evaluate(ReportQuery q, Consumer<Consumer<Model>> reader) {
+        long cpu0 = THREADS.getCurrentThreadCpuTime();
+        long t0 = System.nanoTime();
+        StringWriter buffer = new StringWriter();
+        String error = null;
+        long[] rows = {0};
+        try {
+            QueryRegistry.CompiledQuery compiled = registry.compile(q.name);
+            try (QueryGovernor.Admission admission = QueryGovernor.get().admit(QueryGovernor.Priority.BATCH)) {
+                reader.accept(model -> {
+                    ResultSet results = QueryGovernor.get().execute(admission, compiled, model, q.params);
+                    try {
+                        rows[0] = TableRenderer.sampled(buffer, TableRenderer.DEFAULT_SAMPLE)
+                            .render(results, compiled.resultVars);
+                    } finally {
+                        results.close();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            error = e.getMessage();
+        }
+        return new Result(q, buffer.toString(), error, rows[0],
+            System.nanoTime() - t0, THREADS.getCurrentThreadCpuTime() - cpu0);
+    }
+
+    private static Result await(Future<Result> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lote de consultas interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Fallo inesperado en el lote de consultas", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
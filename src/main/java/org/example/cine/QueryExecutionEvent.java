@@ -0,0 +1,58 @@
+package org.example.cine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR emitido por cada ejecución de consulta ({@link QueryTrace}).
+ * La duración del evento es el tiempo total de la consulta, desde la
+ * preparación del plan hasta que el resultado se agota o se cierra.
+ *
+ * Para grabarlo: {@code -XX:StartFlightRecording:filename=cine.jfr} y
+ * después {@code jfr print --events org.example.cine.QueryExecution cine.jfr}.
+ */
+@Name("org.example.cine.QueryExecution")
+@Label("Consulta SPARQL")
+@Category({"Cine Colombia", "SPARQL"})
+@Description("Ejecución de una consulta registrada o ad hoc")
+@StackTrace(false)
+final class QueryExecutionEvent extends Event {
+
+    @Label("Consulta")
+    String query;
+
+    @Label("Análisis")
+    @Timespan
+    long parseTime;
+
+    @Label("Optimización")
+    @Timespan
+    long optimizeTime;
+
+    @Label("Primera fila")
+    @Timespan
+    long firstRowTime;
+
+    @Label("Filas")
+    long rows;
+
+    @Label("Plan en caché")
+    boolean cachedPlan;
+
+    @Label("Vista materializada")
+    boolean materialized;
+
+    @Label("Resultado en caché")
+    boolean cachedResult;
+
+    @Label("Plan")
+    String plan;
+
+    @Label("Error")
+    String error;
+}
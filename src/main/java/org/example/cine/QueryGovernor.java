@@ -0,0 +1,617 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.core.ResultBinding;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Control de admisión y de recursos de las consultas.
+ *
+ * Hay dos clases de prioridad con plazas de ejecución separadas:
+ * {@link Priority#INTERACTIVE} (endpoint, consultas de la consola) y
+ * {@link Priority#BATCH} (informes por lotes). Los lotes sólo pueden ocupar
+ * sus propias plazas, pocas, de modo que un informe nocturno no deja sin
+ * núcleos a las consultas interactivas. Cada clase tiene una cola de espera
+ * acotada: si está llena, o si no hay plaza antes del tiempo máximo de
+ * espera, la consulta se rechaza con {@link Rejected} sin llegar a
+ * evaluarse.
+ *
+ * La admisión ({@link #admit}) puede separarse de la ejecución para esperar
+ * plaza antes de tomar el lock de lectura del modelo o abrir una transacción:
+ * así una consulta encolada no retiene el lock mientras espera. Los trabajos
+ * que no son una consulta en streaming (páginas de {@link QueryPager},
+ * consultas repartidas por sedes) usan la plaza como {@link Budget}.
+ *
+ * Una consulta admitida conserva su plaza hasta agotar o cerrar el
+ * resultado y se cancela con {@link Cancelled} si:
+ * <ul>
+ *   <li>supera su tiempo máximo: un temporizador cancela el iterador del plan
+ *       ({@link QueryIterator#cancel()}, el mismo mecanismo que usa
+ *       {@code QueryExecution.abort()}), lo que corta también las fases que
+ *       no entregan filas, como un ORDER BY sobre un producto cartesiano;</li>
+ *   <li>entrega más filas de las permitidas;</li>
+ *   <li>las filas entregadas superan la memoria estimada permitida (con el
+ *       mismo peso por fila que {@link ResultCache}).</li>
+ * </ul>
+ */
+public final class QueryGovernor {
+
+    /** Clase de prioridad de una consulta. */
+    public enum Priority { INTERACTIVE, BATCH }
+
+    /** Motivo de la cancelación de una consulta admitida. */
+    public enum Reason { TIMEOUT, ROWS, MEMORY }
+
+    /** La consulta no se admitió: cola llena o sin plaza a tiempo. */
+    public static final class Rejected extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Rejected(String message) {
+            super(message);
+        }
+    }
+
+    /** La consulta se canceló tras ser admitida. */
+    public static final class Cancelled extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public final Reason reason;
+
+        Cancelled(Reason reason, String message) {
+            super(message);
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Límites de una clase de prioridad.
+     */
+    public static final class Limits {
+        public final int concurrency;
+        public final int queue;
+        public final Duration maxWait;
+        public final Duration timeout;
+        public final long maxRows;
+        public final long maxBytes;
+
+        /**
+         * @param concurrency Consultas en ejecución a la vez.
+         * @param queue Consultas esperando plaza, como mucho.
+         * @param maxWait Espera máxima por una plaza.
+         * @param timeout Tiempo máximo desde la admisión hasta cerrar el resultado.
+         * @param maxRows Filas máximas entregadas.
+         * @param maxBytes Memoria estimada máxima de las filas entregadas.
+         */
+        public Limits(int concurrency, int queue, Duration maxWait, Duration timeout, long maxRows, long maxBytes) {
+            if (concurrency < 1 || queue < 0) {
+                throw new IllegalArgumentException("Límites de admisión no válidos: " + concurrency + " plazas, cola " + queue);
+            }
+            this.concurrency = concurrency;
+            this.queue = queue;
+            this.maxWait = maxWait;
+            this.timeout = timeout;
+            this.maxRows = maxRows;
+            this.maxBytes = maxBytes;
+        }
+
+        /** @return Copia con otro tiempo máximo. */
+        public Limits withTimeout(Duration timeout) {
+            return new Limits(concurrency, queue, maxWait, timeout, maxRows, maxBytes);
+        }
+
+        /** @return Copia con otro máximo de filas. */
+        public Limits withMaxRows(long maxRows) {
+            return new Limits(concurrency, queue, maxWait, timeout, maxRows, maxBytes);
+        }
+
+        /** @return Copia con otra memoria máxima. */
+        public Limits withMaxBytes(long maxBytes) {
+            return new Limits(concurrency, queue, maxWait, timeout, maxRows, maxBytes);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d plazas, cola %d, espera %d ms, límite %d ms, %,d filas, %,d KB",
+                concurrency, queue, maxWait.toMillis(), timeout.toMillis(), maxRows, maxBytes / 1024);
+        }
+    }
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    /** Interactivas: dos por núcleo, 30 s, un millón de filas, 256 MB. */
+    public static final Limits DEFAULT_INTERACTIVE =
+        new Limits(2 * CORES, 256, Duration.ofSeconds(2), Duration.ofSeconds(30), 1_000_000, 256L << 20);
+
+    /** Lotes: un cuarto de los núcleos, 10 min, sin límite de filas, 1 GB. */
+    public static final Limits DEFAULT_BATCH =
+        new Limits(Math.max(1, CORES / 4), 64, Duration.ofMinutes(10), Duration.ofMinutes(10), Long.MAX_VALUE, 1L << 30);
+
+    private static final QueryGovernor GLOBAL = new QueryGovernor(DEFAULT_INTERACTIVE, DEFAULT_BATCH);
+
+    /** Temporizador común de los tiempos máximos (hilo demonio). */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gobernador-consultas");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Estado y contadores de una clase de prioridad. */
+    private static final class Lane {
+        volatile Limits limits;
+        volatile Semaphore slots;
+        final AtomicInteger waiting = new AtomicInteger();
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final Map<Reason, LongAdder> cancelled = new EnumMap<>(Reason.class);
+
+        Lane(Limits limits) {
+            this.limits = limits;
+            this.slots = new Semaphore(limits.concurrency, true);
+            for (Reason r : Reason.values()) cancelled.put(r, new LongAdder());
+        }
+
+        long cancelled() {
+            return cancelled.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+    }
+
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+
+    /**
+     * @param interactive Límites de las consultas interactivas.
+     * @param batch Límites de las consultas por lotes.
+     */
+    public QueryGovernor(Limits interactive, Limits batch) {
+        lanes.put(Priority.INTERACTIVE, new Lane(interactive));
+        lanes.put(Priority.BATCH, new Lane(batch));
+    }
+
+    /** @return Gobernador común del proceso. */
+    public static QueryGovernor get() {
+        return GLOBAL;
+    }
+
+    /** @return Límites vigentes de una clase. */
+    public Limits limits(Priority priority) {
+        return lanes.get(priority).limits;
+    }
+
+    /**
+     * Cambia los límites de una clase. Las consultas ya admitidas conservan
+     * su plaza y sus límites.
+     */
+    public void configure(Priority priority, Limits limits) {
+        Lane lane = lanes.get(priority);
+        synchronized (lane) {
+            lane.limits = limits;
+            lane.slots = new Semaphore(limits.concurrency, true);
+        }
+    }
+
+    /**
+     * Plaza de ejecución ya concedida y aún sin usar. Pasa a la consulta al
+     * ejecutarla con {@link #execute(Admission, QueryRegistry.CompiledQuery, Model, Map)};
+     * si se cierra antes, la plaza se libera.
+     */
+    public static final class Admission implements AutoCloseable {
+        private final Lane lane;
+        private final Limits limits;
+        private final Semaphore slots;
+        private final long admittedAt = System.nanoTime();
+        private final AtomicBoolean used = new AtomicBoolean();
+
+        Admission(Lane lane, Limits limits, Semaphore slots) {
+            this.lane = lane;
+            this.limits = limits;
+            this.slots = slots;
+        }
+
+        /** Libera la plaza si no llegó a usarse; se puede llamar varias veces. */
+        @Override
+        public void close() {
+            if (used.compareAndSet(false, true)) slots.release();
+        }
+    }
+
+    /**
+     * Espera plaza en una clase de prioridad, como mucho su tiempo máximo de
+     * espera. El tiempo máximo de la consulta empieza a contar aquí.
+     *
+     * @param priority Clase de prioridad.
+     * @return Plaza concedida; se usa en {@link #execute(Admission, QueryRegistry.CompiledQuery, Model, Map)}
+     *         o se cierra.
+     * @throws Rejected si la consulta no se admite.
+     */
+    public Admission admit(Priority priority) {
+        Lane lane = lanes.get(priority);
+        Limits limits = lane.limits;
+        return new Admission(lane, limits, admit(lane, limits));
+    }
+
+    /**
+     * Ejecuta una consulta compilada bajo el control del gobernador. Puede
+     * esperar plaza hasta el tiempo máximo de espera de su clase; si el
+     * llamador tiene un lock o una transacción, mejor admitir antes con
+     * {@link #admit(Priority)}.
+     *
+     * @param compiled Consulta compilada.
+     * @param model Modelo a consultar.
+     * @param params Valores de los parámetros de la plantilla.
+     * @param priority Clase de prioridad.
+     * @return Resultado en streaming; el llamador debe cerrarlo para liberar la plaza.
+     * @throws Rejected si la consulta no se admite.
+     */
+    public GovernedResultSet execute(QueryRegistry.CompiledQuery compiled, Model model, Map<String, Node> params,
+                                     Priority priority) {
+        return execute(admit(priority), compiled, model, params);
+    }
+
+    /**
+     * Ejecuta una consulta compilada en una plaza ya concedida.
+     *
+     * @param admission Plaza obtenida con {@link #admit(Priority)}; pasa al resultado.
+     * @param compiled Consulta compilada.
+     * @param model Modelo a consultar.
+     * @param params Valores de los parámetros de la plantilla.
+     * @return Resultado en streaming; el llamador debe cerrarlo para liberar la plaza.
+     * @throws IllegalStateException si la plaza ya se usó o se cerró.
+     */
+    public GovernedResultSet execute(Admission admission, QueryRegistry.CompiledQuery compiled, Model model,
+                                     Map<String, Node> params) {
+        if (!admission.used.compareAndSet(false, true)) {
+            throw new IllegalStateException("Plaza de ejecución ya usada o liberada");
+        }
+        GovernedResultSet results = new GovernedResultSet(admission.lane, admission.limits, admission.slots,
+            admission.admittedAt);
+        try {
+            results.start(QueryRegistry.execute(compiled, model, params, results::started));
+        } catch (RuntimeException e) {
+            results.close();
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Convierte una plaza concedida en el presupuesto de un trabajo que no se
+     * entrega como un único resultado en streaming: una página de
+     * {@link QueryPager} o la consulta repartida de {@link ShardedCatalog}.
+     *
+     * @param admission Plaza obtenida con {@link #admit(Priority)}; pasa al presupuesto.
+     * @return Presupuesto; el llamador debe cerrarlo para liberar la plaza.
+     * @throws IllegalStateException si la plaza ya se usó o se cerró.
+     */
+    public Budget budget(Admission admission) {
+        if (!admission.used.compareAndSet(false, true)) {
+            throw new IllegalStateException("Plaza de ejecución ya usada o liberada");
+        }
+        return new Budget(admission.lane, admission.limits, admission.slots, admission.admittedAt);
+    }
+
+    private static Semaphore admit(Lane lane, Limits limits) {
+        Semaphore slots = lane.slots;
+        if (slots.tryAcquire()) {
+            lane.admitted.increment();
+            return slots;
+        }
+        if (lane.waiting.incrementAndGet() > limits.queue) {
+            lane.waiting.decrementAndGet();
+            lane.rejected.increment();
+            throw new Rejected("Consulta rechazada: cola de admisión llena (" + limits.queue + ")");
+        }
+        try {
+            if (!slots.tryAcquire(limits.maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                lane.rejected.increment();
+                throw new Rejected("Consulta rechazada: sin plaza tras " + limits.maxWait.toMillis() + " ms de espera");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lane.rejected.increment();
+            throw new Rejected("Consulta rechazada: espera interrumpida");
+        } finally {
+            lane.waiting.decrementAndGet();
+        }
+        lane.admitted.increment();
+        return slots;
+    }
+
+    private static Cancelled cancelled(Limits limits, Reason reason) {
+        switch (reason) {
+            case TIMEOUT:
+                return new Cancelled(reason, "Consulta cancelada: superó " + limits.timeout.toMillis() + " ms");
+            case ROWS:
+                return new Cancelled(reason, "Consulta cancelada: más de " + limits.maxRows + " filas");
+            default:
+                return new Cancelled(reason, "Consulta cancelada: más de " + limits.maxBytes / 1024 + " KB estimados");
+        }
+    }
+
+    /**
+     * Límites de un trabajo gobernado que recorre y retiene filas por su
+     * cuenta. El trabajo llama a {@link #check()} en cada paso de sus
+     * recorridos y a {@link #retain(Binding)} por cada fila que conserva
+     * para la respuesta; se aplican el mismo tiempo máximo, máximo de filas
+     * y memoria estimada que en {@link GovernedResultSet}. Puede usarse
+     * desde varios hilos a la vez.
+     */
+    public static final class Budget implements AutoCloseable {
+        private final Lane lane;
+        private final Limits limits;
+        private final Semaphore slots;
+        private final long deadline;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final AtomicBoolean counted = new AtomicBoolean();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        Budget(Lane lane, Limits limits, Semaphore slots, long admittedAt) {
+            this.lane = lane;
+            this.limits = limits;
+            this.slots = slots;
+            this.deadline = admittedAt + limits.timeout.toNanos();
+        }
+
+        /** @throws Cancelled si se superó el tiempo máximo. */
+        public void check() {
+            if (System.nanoTime() - deadline > 0) fail(Reason.TIMEOUT);
+        }
+
+        /**
+         * Cuenta una fila retenida para la respuesta.
+         *
+         * @throws Cancelled si se superó algún límite.
+         */
+        public void retain(Binding row) {
+            if (rows.incrementAndGet() > limits.maxRows) fail(Reason.ROWS);
+            if (bytes.addAndGet(ResultCache.rowWeight(row)) > limits.maxBytes) fail(Reason.MEMORY);
+            check();
+        }
+
+        private void fail(Reason reason) {
+            if (counted.compareAndSet(false, true)) lane.cancelled.get(reason).increment();
+            throw cancelled(limits, reason);
+        }
+
+        /** Libera la plaza; se puede llamar varias veces. */
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) slots.release();
+        }
+    }
+
+    /**
+     * Resultado de una consulta gobernada: comprueba los límites en cada fila
+     * y libera la plaza al agotarse o cerrarse.
+     */
+    public static final class GovernedResultSet implements ResultSet {
+        private final Lane lane;
+        private final Limits limits;
+        private final Semaphore slots;
+        private final long deadline;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final AtomicBoolean counted = new AtomicBoolean();
+        private volatile QueryIterator iterator;
+        private volatile Reason cancelled;
+        private ScheduledFuture<?> timer;
+        private TracedResultSet delegate;
+        private long rows;
+        private long bytes;
+
+        GovernedResultSet(Lane lane, Limits limits, Semaphore slots, long admittedAt) {
+            this.lane = lane;
+            this.limits = limits;
+            this.slots = slots;
+            this.deadline = admittedAt + limits.timeout.toNanos();
+        }
+
+        void started(QueryIterator iterator) {
+            this.iterator = iterator;
+            this.timer = TIMER.schedule(() -> cancel(Reason.TIMEOUT),
+                Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+
+        void start(TracedResultSet delegate) {
+            this.delegate = delegate;
+        }
+
+        /** @return Traza de la ejecución. */
+        public QueryTrace trace() {
+            return delegate.trace();
+        }
+
+        /** @return Filas entregadas hasta ahora. */
+        public long rows() {
+            return rows;
+        }
+
+        private void cancel(Reason reason) {
+            if (cancelled != null) return;
+            cancelled = reason;
+            QueryIterator it = iterator;
+            if (it != null) it.cancel();
+        }
+
+        /** Lanza {@link Cancelled} si la consulta se ha pasado de algún límite. */
+        private void check() {
+            if (cancelled == null && System.nanoTime() - deadline > 0) cancel(Reason.TIMEOUT);
+            Reason reason = cancelled;
+            if (reason == null) return;
+            if (counted.compareAndSet(false, true)) lane.cancelled.get(reason).increment();
+            close();
+            throw cancelled(limits, reason);
+        }
+
+        @Override
+        public boolean hasNext() {
+            check();
+            boolean more;
+            try {
+                more = delegate.hasNext();
+            } catch (QueryCancelledException e) {
+                check();
+                throw e;
+            }
+            if (!more) close();
+            return more;
+        }
+
+        @Override
+        public Binding nextBinding() {
+            check();
+            Binding b;
+            try {
+                b = delegate.nextBinding();
+            } catch (QueryCancelledException e) {
+                check();
+                throw e;
+            }
+            if (++rows > limits.maxRows) cancel(Reason.ROWS);
+            else if ((bytes += ResultCache.rowWeight(b)) > limits.maxBytes) cancel(Reason.MEMORY);
+            check();
+            return b;
+        }
+
+        @Override
+        public QuerySolution nextSolution() {
+            // Misma cuenta de filas y de peso que nextBinding
+            return new ResultBinding(delegate.getResourceModel(), nextBinding());
+        }
+
+        @Override
+        public QuerySolution next() {
+            return nextSolution();
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super QuerySolution> action) {
+            while (hasNext()) action.accept(nextSolution());
+        }
+
+        @Override
+        public int getRowNumber() {
+            return delegate.getRowNumber();
+        }
+
+        @Override
+        public List<String> getResultVars() {
+            return delegate.getResultVars();
+        }
+
+        @Override
+        public Model getResourceModel() {
+            return delegate.getResourceModel();
+        }
+
+        /** Cierra el resultado y libera la plaza; se puede llamar varias veces. */
+        @Override
+        public void close() {
+            if (!released.compareAndSet(false, true)) return;
+            try {
+                if (timer != null) timer.cancel(false);
+                if (delegate != null) delegate.close();
+            } finally {
+                slots.release();
+            }
+        }
+    }
+
+    /** @return Consultas admitidas de una clase. */
+    public long admitted(Priority priority) {
+        return lanes.get(priority).admitted.sum();
+    }
+
+    /** @return Consultas rechazadas de una clase. */
+    public long rejected(Priority priority) {
+        return lanes.get(priority).rejected.sum();
+    }
+
+    /** @return Consultas canceladas de una clase, por cualquier motivo. */
+    public long cancelled(Priority priority) {
+        return lanes.get(priority).cancelled();
+    }
+
+    /** @return Consultas canceladas de una clase por un motivo. */
+    public long cancelled(Priority priority, Reason reason) {
+        return lanes.get(priority).cancelled.get(reason).sum();
+    }
+
+    /**
+     * @return Contadores en formato de texto de Prometheus, con la clase y
+     *         el motivo como etiquetas.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP cine_query_admitted_total Consultas admitidas por el gobernador.\n");
+        sb.append("# TYPE cine_query_admitted_total counter\n");
+        lanes.forEach((p, lane) -> sb.append("cine_query_admitted_total{class=\"").append(label(p)).append("\"} ")
+            .append(lane.admitted.sum()).append('\n'));
+        sb.append("# HELP cine_query_rejected_total Consultas rechazadas en la admisión.\n");
+        sb.append("# TYPE cine_query_rejected_total counter\n");
+        lanes.forEach((p, lane) -> sb.append("cine_query_rejected_total{class=\"").append(label(p)).append("\"} ")
+            .append(lane.rejected.sum()).append('\n'));
+        sb.append("# HELP cine_query_cancelled_total Consultas canceladas por superar un límite.\n");
+        sb.append("# TYPE cine_query_cancelled_total counter\n");
+        lanes.forEach((p, lane) -> lane.cancelled.forEach((r, n) ->
+            sb.append("cine_query_cancelled_total{class=\"").append(label(p)).append("\",reason=\"")
+                .append(r.name().toLowerCase()).append("\"} ").append(n.sum()).append('\n')));
+        sb.append("# HELP cine_query_waiting Consultas esperando plaza.\n");
+        sb.append("# TYPE cine_query_waiting gauge\n");
+        lanes.forEach((p, lane) -> sb.append("cine_query_waiting{class=\"").append(label(p)).append("\"} ")
+            .append(lane.waiting.get()).append('\n'));
+        return sb.toString();
+    }
+
+    /**
+     * @return Contadores en JSON.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        String sep = "";
+        for (Map.Entry<Priority, Lane> e : lanes.entrySet()) {
+            Lane lane = e.getValue();
+            sb.append(sep).append('"').append(label(e.getKey())).append("\":{\"admitted\":").append(lane.admitted.sum())
+                .append(",\"rejected\":").append(lane.rejected.sum()).append(",\"cancelled\":{");
+            String sep2 = "";
+            for (Map.Entry<Reason, LongAdder> c : lane.cancelled.entrySet()) {
+                sb.append(sep2).append('"').append(c.getKey().name().toLowerCase()).append("\":").append(c.getValue().sum());
+                sep2 = ",";
+            }
+            sb.append("},\"waiting\":").append(lane.waiting.get()).append('}');
+            sep = ",";
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String label(Priority p) {
+        return p == Priority.INTERACTIVE ? "interactiva" : "lote";
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        lanes.forEach((p, lane) -> sb.append(sb.length() == 0 ? "" : "; ").append(label(p)).append(": ")
+            .append(String.format("%,d admitidas, %,d rechazadas, %,d canceladas", lane.admitted.sum(),
+                lane.rejected.sum(), lane.cancelled())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.cine;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Métricas acumuladas por consulta con nombre: histograma de latencia total
+ * (cubetas fijas, en segundos), suma del tiempo hasta la primera fila, filas
+ * devueltas y errores. Se alimenta de las {@link QueryTrace} cerradas y se
+ * exporta en formato de texto de Prometheus o en JSON, junto con las
+ * métricas de {@link ResultCache#get()} y de {@link QueryGovernor#get()}.
+ *
+ * Los contadores son {@link LongAdder}, así que registrar una ejecución no
+ * bloquea a otros hilos que estén ejecutando consultas.
+ */
+public final class QueryMetrics {
+
+    /** Límites superiores de las cubetas del histograma, en segundos. */
+    static final double[] BUCKETS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final QueryMetrics GLOBAL = new QueryMetrics();
+
+    /** Serie de una consulta. */
+    private static final class Series {
+        final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder firstRowNanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder materialized = new LongAdder();
+        final LongAdder cached = new LongAdder();
+
+        Series() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        /** Cuantil aproximado: límite superior de la cubeta que lo contiene. */
+        double quantile(double q) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long target = (long) Math.ceil(q * n), acc = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                acc += buckets[i].sum();
+                if (acc >= target) return BUCKETS[i];
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    /** @return Métricas globales del proceso. */
+    public static QueryMetrics get() {
+        return GLOBAL;
+    }
+
+    /**
+     * Acumula una ejecución terminada.
+     */
+    void record(QueryTrace trace) {
+        Series s = series.computeIfAbsent(trace.query, q -> new Series());
+        long total = trace.totalNanos();
+        double seconds = total / 1e9;
+        int i = 0;
+        while (i < BUCKETS.length && seconds > BUCKETS[i]) i++;
+        s.buckets[i].increment();
+        s.count.increment();
+        s.totalNanos.add(total);
+        if (trace.firstRowNanos() >= 0) s.firstRowNanos.add(trace.firstRowNanos());
+        s.rows.add(trace.rows());
+        if (trace.error() != null) s.errors.increment();
+        if (trace.isMaterialized()) s.materialized.increment();
+        if (trace.isCached()) s.cached.increment();
+    }
+
+    /** Descarta todas las series. */
+    public void reset() {
+        series.clear();
+    }
+
+    /**
+     * @return Métricas en formato de exposición de texto de Prometheus.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, Series> sorted = new TreeMap<>(series);
+
+        sb.append("# HELP cine_query_duration_seconds Tiempo total de ejecución de la consulta.\n");
+        sb.append("# TYPE cine_query_duration_seconds histogram\n");
+        sorted.forEach((name, s) -> {
+            String label = "query=\"" + escapeLabel(name) + "\"";
+            long acc = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                acc += s.buckets[i].sum();
+                sb.append("cine_query_duration_seconds_bucket{").append(label)
+                    .append(",le=\"").append(bound(i)).append("\"} ").append(acc).append('\n');
+            }
+            acc += s.buckets[BUCKETS.length].sum();
+            sb.append("cine_query_duration_seconds_bucket{").append(label).append(",le=\"+Inf\"} ").append(acc).append('\n');
+            sb.append("cine_query_duration_seconds_sum{").append(label).append("} ").append(s.totalNanos.sum() / 1e9).append('\n');
+            sb.append("cine_query_duration_seconds_count{").append(label).append("} ").append(s.count.sum()).append('\n');
+        });
+        counter(sb, sorted, "cine_query_first_row_seconds_total", "Suma del tiempo hasta la primera fila.",
+            s -> s.firstRowNanos.sum() / 1e9);
+        counter(sb, sorted, "cine_query_rows_total", "Filas devueltas.", s -> s.rows.sum());
+        counter(sb, sorted, "cine_query_errors_total", "Ejecuciones fallidas.", s -> s.errors.sum());
+        counter(sb, sorted, "cine_query_materialized_total",
+            "Ejecuciones respondidas desde una vista materializada.", s -> s.materialized.sum());
+        counter(sb, sorted, "cine_query_cached_total",
+            "Ejecuciones respondidas desde la caché de resultados.", s -> s.cached.sum());
+        sb.append(ResultCache.get().toPrometheus());
+        sb.append(QueryGovernor.get().toPrometheus());
+        return sb.toString();
+    }
+
+    private static void counter(StringBuilder sb, Map<String, Series> sorted, String metric, String help,
+                                Function<Series, Number> value) {
+        sb.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(metric).append(" counter\n");
+        sorted.forEach((name, s) -> sb.append(metric).append("{query=\"").append(escapeLabel(name)).append("\"} ")
+            .append(value.apply(s)).append('\n'));
+    }
+
+    /**
+     * @return Métricas en JSON: por consulta, conteos, tiempos medios,
+     *         cuantiles aproximados y cubetas del histograma; y el estado
+     *         de la caché de resultados.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\"queries\":[");
+        boolean first = true;
+        for (Map.Entry<String, Series> e : new TreeMap<>(series).entrySet()) {
+            Series s = e.getValue();
+            long n = s.count.sum();
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"name\":").append(jsonString(e.getKey()))
+                .append(",\"count\":").append(n)
+                .append(",\"errors\":").append(s.errors.sum())
+                .append(",\"materialized\":").append(s.materialized.sum())
+                .append(",\"cached\":").append(s.cached.sum())
+                .append(",\"rows\":").append(s.rows.sum())
+                .append(",\"meanSeconds\":").append(n == 0 ? 0 : s.totalNanos.sum() / 1e9 / n)
+                .append(",\"meanFirstRowSeconds\":").append(n == 0 ? 0 : s.firstRowNanos.sum() / 1e9 / n)
+                .append(",\"p50Seconds\":").append(jsonNumber(s.quantile(0.50)))
+                .append(",\"p95Seconds\":").append(jsonNumber(s.quantile(0.95)))
+                .append(",\"p99Seconds\":").append(jsonNumber(s.quantile(0.99)))
+                .append(",\"buckets\":{");
+            for (int i = 0; i <= BUCKETS.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append('"').append(bound(i)).append("\":")
+                    .append(s.buckets[i].sum());
+            }
+            sb.append("}}");
+        }
+        return sb.append("],\"resultCache\":").append(ResultCache.get().toJson())
+            .append(",\"governor\":").append(QueryGovernor.get().toJson()).append('}').toString();
+    }
+
+    /**
+     * Escribe las métricas en un fichero: JSON si la extensión es .json,
+     * formato de Prometheus en otro caso.
+     */
+    public void write(Path file) throws IOException {
+        String text = file.getFileName().toString().toLowerCase().endsWith(".json") ? toJson() : toPrometheus();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Límite de la cubeta en notación decimal ("0.0005", no "5.0E-4"), o "+Inf". */
+    private static String bound(int i) {
+        return i < BUCKETS.length ? BigDecimal.valueOf(BUCKETS[i]).stripTrailingZeros().toPlainString() : "+Inf";
+    }
+
+    private static String escapeLabel(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String jsonNumber(double d) {
+        return Double.isInfinite(d) ? "null" : Double.toString(d);
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
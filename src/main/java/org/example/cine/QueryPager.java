@@ -0,0 +1,386 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Substitute;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.util.NodeFactoryExtra;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Paginación por cursor ("keyset") de consultas registradas ordenadas por
+ * estreno o duración, como {@code ORDER BY ?estreno} o
+ * {@code ORDER BY DESC(?duracion)}.
+ *
+ * Una página son las primeras películas, en el orden de la consulta, que
+ * siguen al cursor, hasta reunir al menos el tamaño pedido de filas (las
+ * filas de una película nunca se parten entre páginas). El cursor es el par
+ * (valor de la clave, película) de la última película devuelta; a igualdad
+ * de clave las películas se ordenan por URI. Así la página N no cuesta más
+ * que la primera: no hay OFFSET que saltar.
+ *
+ * <ul>
+ *   <li>Con {@link CatalogIndexes} en el grafo se recorre el índice ordenado
+ *       de la clave desde el cursor y se evalúa el resto del patrón película
+ *       a película, con la película ya enlazada, hasta llenar la página. Ni
+ *       el tiempo ni la memoria dependen del tamaño del catálogo (salvo si el
+ *       patrón descarta casi todas las películas).</li>
+ *   <li>Sin índices (por ejemplo, un dataset TDB2) se recorre el patrón una
+ *       vez y se guardan sólo las k mejores películas posteriores al cursor
+ *       en un montículo acotado: memoria O(k) en lugar de ordenar todo.</li>
+ * </ul>
+ *
+ * Sólo se paginan SELECT sin agregados con un único criterio de orden sobre
+ * una variable ligada por un patrón {@code ?pelicula cine:estreno ?v} o
+ * {@code ?pelicula cine:duracion ?v} del grupo principal. LIMIT y OFFSET de
+ * la plantilla se ignoran; DISTINCT se aplica dentro de cada película.
+ *
+ * Con un {@link QueryGovernor.Budget} el tiempo máximo se comprueba en cada
+ * paso del recorrido (también en el recorrido completo sin índices) y las
+ * filas de la página cuentan para los máximos de filas y memoria.
+ */
+public final class QueryPager {
+
+    /** Tamaño máximo de página. */
+    public static final int MAX_PAGE = 1000;
+
+    /** Análisis de cada plantilla, por su texto normalizado. */
+    private static final Map<String, Shape> SHAPES = new ConcurrentHashMap<>();
+
+    private QueryPager() {
+    }
+
+    /**
+     * Posición tras la última película de una página.
+     */
+    public static final class Cursor {
+        public final Node key;
+        public final Node movie;
+
+        public Cursor(Node key, Node movie) {
+            this.key = key;
+            this.movie = movie;
+        }
+
+        /** @return Representación opaca, apta para una URL. */
+        public String token() {
+            String text = NodeFmtLib.strNT(key) + " " + NodeFmtLib.strNT(movie);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param token Valor devuelto por {@link #token()}.
+         * @return Cursor decodificado.
+         * @throws IllegalArgumentException Si el token no es válido.
+         */
+        public static Cursor parse(String token) {
+            String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int split = text.lastIndexOf(" <");
+            if (split < 0) {
+                throw new IllegalArgumentException("Cursor inválido: " + token);
+            }
+            try {
+                return new Cursor(NodeFactoryExtra.parseNode(text.substring(0, split)),
+                    NodeFactoryExtra.parseNode(text.substring(split + 1)));
+            } catch (RiotException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + token, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return NodeFmtLib.strNT(key) + " " + NodeFmtLib.strNT(movie);
+        }
+    }
+
+    /**
+     * Filas de una página y cursor para pedir la siguiente.
+     */
+    public static final class Page {
+        public final List<String> vars;
+        public final List<Binding> rows;
+        /** Cursor de la página siguiente, o null si no quedan películas. */
+        public final Cursor next;
+        /** Películas evaluadas (índice) o filas recorridas (sin índice). */
+        public final long scanned;
+        public final boolean indexed;
+        public final long nanos;
+
+        Page(List<String> vars, List<Binding> rows, Cursor next, long scanned, boolean indexed, long nanos) {
+            this.vars = vars;
+            this.rows = rows;
+            this.next = next;
+            this.scanned = scanned;
+            this.indexed = indexed;
+            this.nanos = nanos;
+        }
+
+        /** @return Las filas de la página como ResultSet con las variables de la consulta. */
+        public ResultSet asResultSet(Model model) {
+            return ResultSetStream.create(vars, model, QueryIterPlainWrapper.create(rows.iterator()));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d filas, %,d %s en %.2f ms%s", rows.size(), scanned,
+                indexed ? "películas evaluadas con índice" : "filas recorridas", nanos / 1e6,
+                next == null ? ", última página" : "");
+        }
+    }
+
+    /** Forma paginable de una consulta: variable de película, clave y patrón sin orden. */
+    private static final class Shape {
+        final Var movie;
+        final Var key;
+        final Node predicate;
+        final boolean descending;
+        final boolean distinct;
+        final List<Var> projected;
+        final Op pattern;
+
+        Shape(Var movie, Var key, Node predicate, boolean descending, Query query) {
+            this.movie = movie;
+            this.key = key;
+            this.predicate = predicate;
+            this.descending = descending;
+            this.distinct = query.isDistinct() || query.isReduced();
+            this.projected = query.getProjectVars();
+            this.pattern = Algebra.optimize(Algebra.compile(query.getQueryPattern()));
+        }
+    }
+
+    /**
+     * Página de una consulta compilada, sin límites de {@link QueryGovernor}.
+     *
+     * @see #page(QueryRegistry.CompiledQuery, Model, Map, Cursor, int, QueryGovernor.Budget)
+     */
+    public static Page page(QueryRegistry.CompiledQuery compiled, Model model, Map<String, Node> params,
+                            Cursor after, int size) {
+        return page(compiled, model, params, after, size, null);
+    }
+
+    /**
+     * Página de una consulta compilada.
+     *
+     * @param compiled Consulta compilada (ver {@link QueryRegistry#compile}).
+     * @param model Modelo a consultar; el llamador mantiene su lock de lectura.
+     * @param params Valores de los parámetros de la plantilla.
+     * @param after Cursor de la página anterior, o null para la primera.
+     * @param size Filas por página (1..{@link #MAX_PAGE}).
+     * @param budget Presupuesto del gobernador, comprobado en cada paso del
+     *        recorrido y por cada fila de la página, o null para no limitar.
+     * @return Página con sus filas y el cursor siguiente.
+     * @throws IllegalArgumentException Si la consulta no es paginable o el cursor no encaja.
+     * @throws QueryGovernor.Cancelled Si se supera algún límite del presupuesto.
+     */
+    public static Page page(QueryRegistry.CompiledQuery compiled, Model model, Map<String, Node> params,
+                            Cursor after, int size, QueryGovernor.Budget budget) {
+        if (size < 1 || size > MAX_PAGE) {
+            throw new IllegalArgumentException("Tamaño de página fuera de rango (1-" + MAX_PAGE + "): " + size);
+        }
+        Shape shape = SHAPES.computeIfAbsent(compiled.normalized, k -> analyze(compiled.query));
+        long t0 = System.nanoTime();
+        DatasetGraph dsg = DatasetGraphFactory.wrap(model.getGraph());
+        CatalogIndexes indexes = CatalogIndexes.forGraph(model.getGraph());
+        Page page = indexes != null
+            ? indexed(shape, indexes, dsg, params, after, size, budget)
+            : scanned(shape, dsg, params, after, size, budget);
+        return new Page(compiled.resultVars, page.rows, page.next, page.scanned, page.indexed, System.nanoTime() - t0);
+    }
+
+    /** Recorre el índice ordenado de la clave desde el cursor. */
+    private static Page indexed(Shape shape, CatalogIndexes indexes, DatasetGraph dsg, Map<String, Node> params,
+                                Cursor after, int size, QueryGovernor.Budget budget) {
+        Long afterValue = null;
+        String afterMovie = null;
+        if (after != null) {
+            afterValue = CatalogIndexes.indexValue(shape.predicate, after.key);
+            if (afterValue == null || !after.movie.isURI()) {
+                throw new IllegalArgumentException("El cursor no corresponde a esta consulta: " + after);
+            }
+            afterMovie = after.movie.getURI();
+        }
+
+        // Grupo de valores del cursor (o extremo del índice) y, tras él, el siguiente valor presente
+        Integer next = afterValue != null ? Integer.valueOf(afterValue.intValue())
+            : indexes.nextValue(shape.predicate, null, shape.descending);
+        List<Binding> rows = new ArrayList<>();
+        long scanned = 0;
+        for (; next != null; next = indexes.nextValue(shape.predicate, next, shape.descending)) {
+            int value = next;
+            List<Node> group = new ArrayList<>();
+            for (int id : indexes.withValue(shape.predicate, value)) {
+                group.add(indexes.movie(id));
+            }
+            group.sort(Comparator.comparing(Node::getURI));
+            for (Node movie : group) {
+                if (afterValue != null && value == afterValue && movie.getURI().compareTo(afterMovie) <= 0) continue;
+                scanned++;
+                List<Binding> movieRows = evaluate(shape, dsg, params, movie, value, budget);
+                if (movieRows.isEmpty()) continue;
+                if (budget != null) movieRows.forEach(budget::retain);
+                rows.addAll(movieRows);
+                if (rows.size() >= size) {
+                    Cursor cursor = new Cursor(movieRows.get(0).get(shape.key), movie);
+                    return new Page(null, rows, cursor, scanned, true, 0);
+                }
+            }
+        }
+        return new Page(null, rows, null, scanned, true, 0);
+    }
+
+    /** Filas de una película cuya clave tiene el valor indexado dado. */
+    private static List<Binding> evaluate(Shape shape, DatasetGraph dsg, Map<String, Node> params,
+                                          Node movie, int value, QueryGovernor.Budget budget) {
+        BindingBuilder builder = BindingBuilder.create();
+        params.forEach((k, v) -> builder.add(Var.alloc(k), v));
+        builder.add(shape.movie, movie);
+        Op op = Substitute.substitute(shape.pattern, builder.build());
+        List<Binding> rows = new ArrayList<>();
+        Set<List<Node>> seen = shape.distinct ? new HashSet<>() : null;
+        QueryIterator it = QueryRegistry.plan(op, dsg).iterator();
+        try {
+            while (it.hasNext()) {
+                if (budget != null) budget.check();
+                Binding row = it.nextBinding();
+                // La sustitución quita la película de la fila: se vuelve a añadir
+                BindingBuilder full = BindingBuilder.create(row);
+                if (!row.contains(shape.movie)) full.add(shape.movie, movie);
+                row = full.build();
+                Long rowValue = CatalogIndexes.indexValue(shape.predicate, row.get(shape.key));
+                if (rowValue == null || rowValue != value) continue;
+                if (seen != null && !seen.add(projection(shape, row))) continue;
+                rows.add(row);
+            }
+        } finally {
+            it.close();
+        }
+        return rows;
+    }
+
+    /** Recorre el patrón completo y conserva las k mejores películas tras el cursor. */
+    private static Page scanned(Shape shape, DatasetGraph dsg, Map<String, Node> params, Cursor after, int size,
+                                QueryGovernor.Budget budget) {
+        Comparator<Cursor> order = (a, b) -> {
+            int c = NodeValue.compareAlways(NodeValue.makeNode(a.key), NodeValue.makeNode(b.key));
+            if (shape.descending) c = -c;
+            return c != 0 ? c : sortKey(a.movie).compareTo(sortKey(b.movie));
+        };
+        // Como mucho 'size' películas: con al menos una fila cada una llenan la página
+        TreeMap<Cursor, List<Binding>> best = new TreeMap<>(order);
+        boolean more = false;
+        long scanned = 0;
+        Op op = params.isEmpty() ? shape.pattern : Substitute.substitute(shape.pattern, QueryRegistry.binding(params));
+        QueryIterator it = QueryRegistry.plan(op, dsg).iterator();
+        try {
+            while (it.hasNext()) {
+                if (budget != null) budget.check();
+                Binding row = it.nextBinding();
+                scanned++;
+                Node key = row.get(shape.key), movie = row.get(shape.movie);
+                if (key == null || movie == null) continue;
+                Cursor position = new Cursor(key, movie);
+                if (after != null && order.compare(position, after) <= 0) continue;
+                List<Binding> movieRows = best.get(position);
+                if (movieRows == null) {
+                    if (best.size() == size) {
+                        more = true;
+                        if (order.compare(position, best.lastKey()) > 0) continue;
+                        best.pollLastEntry();
+                    }
+                    best.put(position, movieRows = new ArrayList<>());
+                }
+                if (shape.distinct) {
+                    List<Node> projected = projection(shape, row);
+                    boolean duplicate = false;
+                    for (Binding r : movieRows) duplicate |= projection(shape, r).equals(projected);
+                    if (duplicate) continue;
+                }
+                movieRows.add(row);
+            }
+        } finally {
+            it.close();
+        }
+
+        List<Binding> rows = new ArrayList<>();
+        Cursor next = null;
+        for (Map.Entry<Cursor, List<Binding>> e : best.entrySet()) {
+            if (budget != null) e.getValue().forEach(budget::retain);
+            rows.addAll(e.getValue());
+            if (rows.size() >= size) {
+                next = more || e.getKey() != best.lastKey() ? e.getKey() : null;
+                break;
+            }
+        }
+        return new Page(null, rows, next, scanned, false, 0);
+    }
+
+    /** Orden de desempate entre películas: su URI, como en el recorrido con índice. */
+    private static String sortKey(Node movie) {
+        return movie.isURI() ? movie.getURI() : NodeFmtLib.strNT(movie);
+    }
+
+    private static List<Node> projection(Shape shape, Binding row) {
+        List<Node> values = new ArrayList<>(shape.projected.size());
+        for (Var v : shape.projected) values.add(row.get(v));
+        return values;
+    }
+
+    /** Comprueba que la consulta es paginable y localiza película, clave y predicado. */
+    private static Shape analyze(Query query) {
+        if (!query.isSelectType() || query.hasAggregators() || query.hasGroupBy()) {
+            throw new IllegalArgumentException("Sólo se paginan SELECT sin agregados");
+        }
+        List<SortCondition> orderBy = query.getOrderBy();
+        if (orderBy == null || orderBy.size() != 1 || !orderBy.get(0).getExpression().isVariable()) {
+            throw new IllegalArgumentException("La consulta debe ordenarse por una única variable");
+        }
+        SortCondition condition = orderBy.get(0);
+        Var key = condition.getExpression().asVar();
+        Element pattern = query.getQueryPattern();
+        if (pattern instanceof ElementGroup) {
+            for (Element e : ((ElementGroup) pattern).getElements()) {
+                if (!(e instanceof ElementPathBlock)) continue;
+                for (TriplePath tp : ((ElementPathBlock) e).getPattern()) {
+                    if (!tp.isTriple() || !key.equals(tp.getObject()) || !Var.isVar(tp.getSubject())) continue;
+                    Node p = tp.getPredicate();
+                    if (p.equals(CineVocab.ESTRENO) || p.equals(CineVocab.DURACION)) {
+                        return new Shape(Var.alloc(tp.getSubject()), key, p,
+                            condition.getDirection() == Query.ORDER_DESCENDING, query);
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("?" + key.getVarName()
+            + " no está ligada por cine:estreno ni cine:duracion en el grupo principal");
+    }
+}
@@ -0,0 +1,314 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.Substitute;
+import org.apache.jena.sparql.engine.Plan;
+import org.apache.jena.sparql.engine.QueryEngineFactory;
+import org.apache.jena.sparql.engine.QueryEngineRegistry;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingRoot;
+import org.apache.jena.sparql.util.Context;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Registro de consultas SPARQL con nombre y parámetros.
+ *
+ * Cada plantilla se analiza ({@link QueryFactory#create}) y se optimiza
+ * ({@link Algebra#optimize}) una sola vez; el plan resultante se guarda en
+ * una caché LRU acotada indexada por el texto de la plantilla. En cada
+ * ejecución sólo se sustituyen los parámetros (variables de la plantilla)
+ * por sus valores y se evalúa el plan con la optimización de ARQ
+ * desactivada, de modo que no se repite el trabajo de análisis ni de
+ * optimización.
+ *
+ * Los parámetros son variables SPARQL normales (ej. {@code ?minDuracion}).
+ * Un parámetro sin valor se comporta como una variable no enlazada: en un
+ * FILTER produce error y no coincide con nada.
+ *
+ * Una consulta con nombre puede tener además una vista materializada
+ * ({@link #registerView}): si la vista puede responder sobre el modelo dado,
+ * se usa su resultado en lugar de evaluar el plan.
+ *
+ * Si el grafo consultado tiene {@link GraphGeneration}, los resultados se
+ * guardan en {@link ResultCache#get()} y las ejecuciones repetidas con los
+ * mismos parámetros sobre la misma generación no se vuelven a evaluar.
+ */
+public final class QueryRegistry {
+
+    /** Capacidad por defecto de la caché de planes. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** Funciones cuyo resultado cambia en cada evaluación: la consulta no se cachea. */
+    private static final Pattern VOLATILE = Pattern.compile("\\b(NOW|RAND|UUID|STRUUID|BNODE)\\s*\\(",
+        Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Respuesta precalculada a una consulta con nombre (por ejemplo, desde
+     * agregados mantenidos de forma incremental).
+     */
+    @FunctionalInterface
+    public interface MaterializedView {
+        /**
+         * @return Resultado equivalente al de la consulta con esos parámetros,
+         *         o null si la vista no puede responder sobre este modelo.
+         */
+        ResultSet answer(Model model, Map<String, Node> params);
+    }
+
+    /**
+     * Consulta compilada: la consulta analizada, su plan algebraico optimizado,
+     * lo que costó obtenerlo y, si es una consulta con nombre, su nombre y la
+     * vista materializada que la responde. {@link #normalized} es el texto
+     * serializado por ARQ, clave de {@link ResultCache}.
+     */
+    public static final class CompiledQuery {
+        public final String name;
+        public final Query query;
+        public final Op plan;
+        public final List<String> resultVars;
+        public final MaterializedView view;
+        public final long parseNanos;
+        public final long optimizeNanos;
+        public final String normalized;
+        /** false si la consulta usa funciones no deterministas (NOW, RAND...). */
+        public final boolean cacheable;
+        /** Compartido entre las copias con nombre: false tras la primera ejecución. */
+        private final AtomicBoolean fresh;
+
+        CompiledQuery(Query query, Op plan, long parseNanos, long optimizeNanos) {
+            this(null, query, plan, null, parseNanos, optimizeNanos, new AtomicBoolean(true));
+        }
+
+        private CompiledQuery(String name, Query query, Op plan, MaterializedView view,
+                              long parseNanos, long optimizeNanos, AtomicBoolean fresh) {
+            this.name = name;
+            this.query = query;
+            this.plan = plan;
+            this.resultVars = Collections.unmodifiableList(query.getResultVars());
+            this.view = view;
+            this.parseNanos = parseNanos;
+            this.optimizeNanos = optimizeNanos;
+            this.normalized = query.serialize();
+            this.cacheable = !VOLATILE.matcher(normalized).find();
+            this.fresh = fresh;
+        }
+
+        CompiledQuery named(String name, MaterializedView view) {
+            return new CompiledQuery(name, query, plan, view, parseNanos, optimizeNanos, fresh);
+        }
+
+        /** Abre la traza de una ejecución; sólo la primera incluye el coste de compilar. */
+        QueryTrace trace() {
+            boolean first = fresh.getAndSet(false);
+            return new QueryTrace(name, plan, first ? parseNanos : 0, first ? optimizeNanos : 0, !first);
+        }
+    }
+
+    private final Map<String, String> templates = new ConcurrentHashMap<>();
+    private final Map<String, MaterializedView> views = new ConcurrentHashMap<>();
+    private final Map<String, CompiledQuery> plans;
+    private long hits;
+    private long misses;
+
+    /** Crea un registro con la capacidad de caché por defecto. */
+    public QueryRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Número máximo de planes compilados en caché.
+     */
+    public QueryRegistry(int capacity) {
+        this.plans = new LinkedHashMap<String, CompiledQuery>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledQuery> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Registra (o reemplaza) una plantilla con nombre. No se compila hasta su
+     * primer uso.
+     *
+     * @param name Nombre lógico de la consulta.
+     * @param template Texto SPARQL con los parámetros como variables.
+     */
+    public void register(String name, String template) {
+        templates.put(name, template);
+    }
+
+    /**
+     * Asocia una vista materializada a una consulta registrada. La vista debe
+     * devolver las mismas variables y filas que la plantilla.
+     *
+     * @param name Nombre lógico de la consulta.
+     * @param view Vista que la responde cuando puede.
+     */
+    public void registerView(String name, MaterializedView view) {
+        views.put(name, view);
+    }
+
+    /** @return Texto de la plantilla registrada con ese nombre. */
+    public String template(String name) {
+        String template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Consulta no registrada: " + name);
+        }
+        return template;
+    }
+
+    /**
+     * Devuelve el plan compilado de una consulta registrada, compilándolo si no
+     * está en caché.
+     *
+     * @param name Nombre de la consulta.
+     * @return Consulta compilada.
+     */
+    public CompiledQuery compile(String name) {
+        return compileTemplate(template(name)).named(name, views.get(name));
+    }
+
+    /**
+     * Devuelve el plan compilado de un texto SPARQL arbitrario, usando la misma
+     * caché que las consultas con nombre.
+     */
+    public synchronized CompiledQuery compileTemplate(String template) {
+        CompiledQuery compiled = plans.get(template);
+        if (compiled != null) {
+            hits++;
+            return compiled;
+        }
+        misses++;
+        long t0 = System.nanoTime();
+        Query query = QueryFactory.create(template);
+        long t1 = System.nanoTime();
+        Op plan = Algebra.optimize(Algebra.compile(query));
+        compiled = new CompiledQuery(query, plan, t1 - t0, System.nanoTime() - t1);
+        plans.put(template, compiled);
+        return compiled;
+    }
+
+    /**
+     * Ejecuta una consulta registrada sobre un modelo.
+     *
+     * @param name Nombre de la consulta.
+     * @param model Modelo sobre el que evaluar.
+     * @param params Valores de los parámetros (nombre de variable sin '?').
+     * @return ResultSet en streaming; el llamador debe cerrarlo.
+     */
+    public TracedResultSet execute(String name, Model model, Map<String, Node> params) {
+        return execute(compile(name), model, params);
+    }
+
+    /**
+     * Ejecuta un plan compilado sobre un modelo con los parámetros dados. Si el
+     * resultado está en {@link ResultCache} para la generación actual del
+     * grafo, se sirve desde allí; si no, y la consulta tiene vista
+     * materializada que responde, no se evalúa el plan. La ejecución queda
+     * registrada en {@link QueryMetrics} al agotar o cerrar el resultado (ver
+     * {@link TracedResultSet#trace()}).
+     */
+    public static TracedResultSet execute(CompiledQuery compiled, Model model, Map<String, Node> params) {
+        return execute(compiled, model, params, null);
+    }
+
+    /**
+     * Como {@link #execute(CompiledQuery, Model, Map)}, pero entrega a
+     * {@code started} el iterador del plan cuando se evalúa (no si se
+     * responde desde la caché o desde una vista), para poder cancelarlo
+     * desde otro hilo con {@link QueryIterator#cancel()}.
+     */
+    static TracedResultSet execute(CompiledQuery compiled, Model model, Map<String, Node> params,
+                                   Consumer<QueryIterator> started) {
+        QueryTrace trace = compiled.trace();
+        try {
+            ResultCache cache = ResultCache.get();
+            GraphGeneration graph = compiled.cacheable && cache.enabled()
+                ? GraphGeneration.forGraph(model.getGraph()) : null;
+            ResultCache.Key key = null;
+            long generation = 0;
+            if (graph != null) {
+                // La generación se lee antes de evaluar: si el grafo cambia
+                // durante la evaluación, la entrada nace ya obsoleta.
+                key = new ResultCache.Key(graph, compiled.normalized, params);
+                generation = graph.current();
+                ResultSet cached = cache.lookup(key, generation, model);
+                if (cached != null) {
+                    trace.cached();
+                    return new TracedResultSet(cached, trace);
+                }
+            }
+
+            ResultSet results = null;
+            if (compiled.view != null) {
+                results = compiled.view.answer(model, params);
+                if (results != null) trace.materialized();
+            }
+            if (results == null) {
+                DatasetGraph dsg = DatasetGraphFactory.wrap(model.getGraph());
+                QueryIterator iter = plan(compiled, dsg, params).iterator();
+                if (started != null) started.accept(iter);
+                results = ResultSetStream.create(compiled.resultVars, model, iter);
+            }
+            if (key != null) results = cache.record(key, generation, results);
+            return new TracedResultSet(results, trace);
+        } catch (RuntimeException e) {
+            trace.finish(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Prepara la evaluación de un plan: sustituye parámetros y crea el plan de
+     * ejecución sin volver a optimizar.
+     */
+    static Plan plan(CompiledQuery compiled, DatasetGraph dsg, Map<String, Node> params) {
+        return plan(params.isEmpty() ? compiled.plan : Substitute.substitute(compiled.plan, binding(params)), dsg);
+    }
+
+    /** Plan de ejecución de un algebra ya optimizado y con los parámetros sustituidos. */
+    static Plan plan(Op op, DatasetGraph dsg) {
+        Context cxt = Context.setupContextForDataset(ARQ.getContext(), dsg);
+        cxt.set(ARQ.optimization, false);
+        QueryEngineFactory factory = QueryEngineRegistry.findFactory(op, dsg, cxt);
+        return factory.create(op, dsg, BindingRoot.create(), cxt);
+    }
+
+    static Binding binding(Map<String, Node> params) {
+        BindingBuilder builder = BindingBuilder.create();
+        params.forEach((k, v) -> builder.add(Var.alloc(k), v));
+        return builder.build();
+    }
+
+    /** @return Aciertos de la caché de planes desde la creación del registro. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** @return Fallos (compilaciones) de la caché de planes. */
+    public synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.cine;
+
+import org.apache.jena.sparql.algebra.Op;
+
+/**
+ * Traza de una ejecución de consulta: tiempos de análisis y optimización
+ * (sólo en la ejecución que compiló el plan; después el plan sale de la
+ * caché), tiempo hasta la primera fila, tiempo total, filas devueltas y
+ * plan algebraico optimizado.
+ *
+ * La traza se cierra cuando el resultado se agota, se cierra o falla. En ese
+ * momento se registra en {@link QueryMetrics#get()} y se emite un evento JFR
+ * {@link QueryExecutionEvent}.
+ */
+public final class QueryTrace {
+
+    /** Nombre con el que se registran las consultas sin nombre. */
+    public static final String ADHOC = "adhoc";
+
+    public final String query;
+    public final Op plan;
+    public final long parseNanos;
+    public final long optimizeNanos;
+    public final boolean cachedPlan;
+
+    // El evento se crea antes de tomar el instante inicial: la primera vez
+    // carga la clase del evento y ese coste no es de la consulta.
+    private final QueryExecutionEvent event = new QueryExecutionEvent();
+    private final long start = System.nanoTime();
+    private boolean materialized;
+    private boolean cached;
+    private long firstRow = -1;
+    private long end = -1;
+    private long rows;
+    private String error;
+
+    QueryTrace(String query, Op plan, long parseNanos, long optimizeNanos, boolean cachedPlan) {
+        this.query = query == null ? ADHOC : query;
+        this.plan = plan;
+        this.parseNanos = parseNanos;
+        this.optimizeNanos = optimizeNanos;
+        this.cachedPlan = cachedPlan;
+        event.begin();
+    }
+
+    /** Marca que la respuesta sale de una vista materializada y no del plan. */
+    void materialized() {
+        materialized = true;
+    }
+
+    /** Marca que la respuesta sale de {@link ResultCache}. */
+    void cached() {
+        cached = true;
+    }
+
+    /** Cuenta una fila entregada al llamador. */
+    void row() {
+        if (rows++ == 0) firstRow = System.nanoTime();
+    }
+
+    /**
+     * Cierra la traza (sólo la primera llamada tiene efecto).
+     *
+     * @param failure Excepción que ha interrumpido la consulta, o null.
+     */
+    synchronized void finish(Throwable failure) {
+        if (end >= 0) return;
+        end = System.nanoTime();
+        if (failure != null) {
+            error = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+        }
+        QueryMetrics.get().record(this);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.query = query;
+            event.parseTime = parseNanos;
+            event.optimizeTime = optimizeNanos;
+            event.firstRowTime = firstRowNanos();
+            event.rows = rows;
+            event.cachedPlan = cachedPlan;
+            event.materialized = materialized;
+            event.cachedResult = cached;
+            event.plan = plan == null ? null : plan.toString();
+            event.error = error;
+            event.commit();
+        }
+    }
+
+    /** @return true si la respuesta salió de una vista materializada. */
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    /** @return true si la respuesta salió de la caché de resultados. */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /** @return Nanosegundos hasta la primera fila, o -1 si no hubo filas. */
+    public long firstRowNanos() {
+        return firstRow < 0 ? -1 : firstRow - start;
+    }
+
+    /** @return Nanosegundos desde el inicio hasta el cierre (o hasta ahora si sigue abierta). */
+    public synchronized long totalNanos() {
+        return (end < 0 ? System.nanoTime() : end) - start;
+    }
+
+    /** @return Filas entregadas. */
+    public long rows() {
+        return rows;
+    }
+
+    /** @return Mensaje de error, o null si la consulta terminó bien. */
+    public synchronized String error() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(query).append(": ");
+        if (cachedPlan) {
+            sb.append("plan en caché");
+        } else {
+            sb.append(String.format("análisis %.2f ms, optimización %.2f ms", parseNanos / 1e6, optimizeNanos / 1e6));
+        }
+        if (materialized) sb.append(", vista materializada");
+        if (cached) sb.append(", caché de resultados");
+        long first = firstRowNanos();
+        sb.append(String.format(", primera fila %s, total %.2f ms, %d filas",
+            first < 0 ? "-" : String.format("%.2f ms", first / 1e6), totalNanos() / 1e6, rows));
+        String err = error();
+        if (err != null) sb.append(", error: ").append(err);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,274 @@
+package org.example.cine;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistencia del grafo en formatos binarios de RDF (Thrift o Protobuf) o
+ * en N-Triples, con compresión opcional gzip o zstd.
+ *
+ * La escritura es en streaming (triple a triple, sin analizar el grafo
+ * completo como hace RDF/XML-ABBREV). La lectura detecta la compresión por
+ * los bytes mágicos de la cabecera y la sintaxis por la extensión del fichero;
+ * si la extensión no es concluyente, por los primeros bytes del contenido
+ * (ver {@link #sniffLang}), y si tampoco éstos encajan con ninguna sintaxis
+ * conocida la lectura falla con un error claro. RDF/XML queda sólo como
+ * formato de exportación ({@link #exportRDFXML}), aunque se sigue pudiendo
+ * leer.
+ */
+public final class RdfSnapshot {
+
+    /** Sintaxis de la instantánea en disco. */
+    public enum Format {
+        THRIFT(".rt", Lang.RDFTHRIFT, RDFFormat.RDF_THRIFT),
+        PROTOBUF(".rpb", Lang.RDFPROTO, RDFFormat.RDF_PROTO),
+        /** Texto línea a línea: más grande, pero sin comprimir se carga en paralelo ({@link ParallelRdfLoader}). */
+        NTRIPLES(".nt", Lang.NTRIPLES, RDFFormat.NTRIPLES);
+
+        final String extension;
+        final Lang lang;
+        final RDFFormat rdfFormat;
+
+        Format(String extension, Lang lang, RDFFormat rdfFormat) {
+            this.extension = extension;
+            this.lang = lang;
+            this.rdfFormat = rdfFormat;
+        }
+    }
+
+    /** Compresión aplicada sobre la sintaxis elegida. */
+    public enum Compression {
+        NONE(""), GZIP(".gz"), ZSTD(".zst");
+
+        final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final int BUFFER = 1 << 16;
+
+    /** Bytes del comienzo del contenido que se examinan para reconocer la sintaxis. */
+    private static final int SNIFF = 512;
+
+    /** Comienzo de un triple de N-Triples: sujeto IRI o nodo en blanco y predicado IRI. */
+    private static final Pattern NT_TRIPLE = Pattern.compile("(<[^<>\\s]*>|_:\\S+)\\s*<[^<>\\s]*>.*");
+
+    /** Comienzo de un documento XML: declaración, comentario o etiqueta (no un IRI como {@code <http://...>}). */
+    private static final Pattern XML_START = Pattern.compile("<(\\?xml|!|[A-Za-z_][\\w.-]*(:[A-Za-z_][\\w.-]*)?[\\s/>]).*");
+
+    private RdfSnapshot() {
+    }
+
+    /**
+     * Nombre de fichero de una instantánea: base + extensión de sintaxis +
+     * extensión de compresión (ej. "cine_colombia_actual.rt.zst").
+     */
+    public static String fileName(String base, Format format, Compression compression) {
+        return base + format.extension + compression.extension;
+    }
+
+    /**
+     * Escribe el grafo en streaming con la sintaxis y compresión indicadas.
+     *
+     * @param graph Grafo a persistir.
+     * @param file Fichero destino (se sobrescribe).
+     * @param format Sintaxis binaria.
+     * @param compression Compresión a aplicar.
+     * @throws IOException Si falla la escritura.
+     */
+    public static void save(Graph graph, Path file, Format format, Compression compression) throws IOException {
+        try (OutputStream out = openOutput(file, compression)) {
+            StreamRDF writer = StreamRDFWriter.getWriterStream(out, format.rdfFormat);
+            writer.start();
+            StreamRDFOps.sendGraphToStream(graph, writer);
+            writer.finish();
+        }
+    }
+
+    /**
+     * Lee una instantánea en el grafo destino detectando compresión y sintaxis.
+     * Los literales repetidos se comparten con el diccionario de nodos del grafo.
+     *
+     * @param file Fichero a leer.
+     * @param graph Grafo destino.
+     * @throws IOException Si falla la lectura.
+     */
+    public static void load(Path file, Graph graph) throws IOException {
+        load(file, NodeDictionary.attach(graph).wrap(StreamRDFLib.graph(graph)));
+    }
+
+    /**
+     * Lee una instantánea y emite sus triples al destino indicado.
+     *
+     * @param file Fichero a leer.
+     * @param out Destino de los triples.
+     * @throws IOException Si falla la lectura.
+     */
+    public static void load(Path file, StreamRDF out) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), BUFFER);
+             InputStream in = new BufferedInputStream(decompress(raw), BUFFER)) {
+            Lang lang = detectLang(file, in);
+            RDFParser.source(in).lang(lang).parse(out);
+        }
+    }
+
+    /**
+     * Exporta el grafo en RDF/XML abreviado (formato de intercambio, no de
+     * instantánea: requiere analizar todo el grafo antes de escribir).
+     */
+    public static void exportRDFXML(Graph graph, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER)) {
+            RDFDataMgr.write(out, graph, RDFFormat.RDFXML_ABBREV);
+        }
+    }
+
+    /**
+     * Abre un fichero para escritura con buffer y la compresión indicada.
+     *
+     * @param file Fichero destino (se sobrescribe).
+     * @param compression Compresión a aplicar.
+     * @return Flujo de salida; el llamador debe cerrarlo.
+     */
+    static OutputStream openOutput(Path file, Compression compression) throws IOException {
+        return compress(new BufferedOutputStream(Files.newOutputStream(file), BUFFER), compression);
+    }
+
+    /** Compresión indicada por la extensión del fichero (ej. ".zst"). */
+    static Compression compressionOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        for (Compression c : Compression.values()) {
+            if (!c.extension.isEmpty() && name.endsWith(c.extension)) return c;
+        }
+        return Compression.NONE;
+    }
+
+    /** Nombre del fichero en minúsculas sin la extensión de compresión. */
+    static String baseName(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        String ext = compressionOf(file).extension;
+        return name.substring(0, name.length() - ext.length());
+    }
+
+    /**
+     * Sintaxis a partir de la extensión (ignorando la de compresión) o, si no
+     * se reconoce, de los primeros bytes del contenido (ver {@link #sniffLang}).
+     *
+     * @throws IOException si ninguna de las dos permite reconocer la sintaxis.
+     */
+    static Lang detectLang(Path file, InputStream in) throws IOException {
+        String name = baseName(file);
+        for (Format f : Format.values()) {
+            for (String ext : f.lang.getFileExtensions()) {
+                if (name.endsWith("." + ext)) return f.lang;
+            }
+        }
+        if (name.endsWith(".rdf") || name.endsWith(".xml") || name.endsWith(".owl")) {
+            return Lang.RDFXML;
+        }
+        in.mark(SNIFF);
+        byte[] head = in.readNBytes(SNIFF);
+        in.reset();
+        Lang lang = sniffLang(head);
+        if (lang == null) {
+            throw new IOException("Sintaxis de instantánea desconocida en " + file.getFileName()
+                + ": no es RDF Thrift, RDF Protobuf, N-Triples ni RDF/XML");
+        }
+        return lang;
+    }
+
+    /**
+     * Reconoce la sintaxis por el contenido:
+     * <ul>
+     *   <li>texto que empieza por una declaración o etiqueta XML
+     *       ({@code <?xml}, {@code <rdf:RDF}...): RDF/XML;</li>
+     *   <li>texto cuya primera línea no vacía ni comentario empieza por un
+     *       sujeto y un predicado de triple: N-Triples;</li>
+     *   <li>RDF Protobuf: filas delimitadas, una longitud varint seguida de la
+     *       etiqueta de un campo de {@code RDF_StreamRow} (tipo de cable 2);</li>
+     *   <li>RDF Thrift: filas en protocolo compacto, cuya primera cabecera es
+     *       un campo 1 a 4 de {@code RDF_StreamRow} de tipo estructura.</li>
+     * </ul>
+     *
+     * @return Sintaxis reconocida, o null si el contenido no encaja con ninguna.
+     */
+    static Lang sniffLang(byte[] head) {
+        if (head.length == 0) return Lang.NTRIPLES;
+        String text = firstLine(head);
+        if (text != null) {
+            if (XML_START.matcher(text).matches()) return Lang.RDFXML;
+            if (NT_TRIPLE.matcher(text).matches()) return Lang.NTRIPLES;
+        }
+        // Protobuf: longitud varint y etiqueta (campo 1-5, tipo de cable 2)
+        int i = 0;
+        while (i < head.length && i < 5 && (head[i] & 0x80) != 0) i++;
+        if (i + 1 < head.length && head[0] != 0) {
+            int tag = head[i + 1] & 0xFF;
+            if ((tag & 0x07) == 2 && (tag >>> 3) >= 1 && (tag >>> 3) <= 5) return Lang.RDFPROTO;
+        }
+        // Thrift compacto: delta de campo 1-4 y tipo estructura (0xC)
+        int b0 = head[0] & 0xFF;
+        if ((b0 & 0x0F) == 0x0C && (b0 >>> 4) >= 1 && (b0 >>> 4) <= 4) return Lang.RDFTHRIFT;
+        return null;
+    }
+
+    /**
+     * Primera línea significativa si el comienzo es texto (sin bytes de
+     * control), sin espacios iniciales ni líneas vacías o de comentario; null
+     * si parece binario.
+     */
+    private static String firstLine(byte[] head) {
+        for (byte b : head) {
+            if (b >= 0 && b < 0x20 && b != '\n' && b != '\r' && b != '\t') return null;
+        }
+        for (String line : new String(head, StandardCharsets.UTF_8).split("\\R")) {
+            String trimmed = line.strip();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) return trimmed;
+        }
+        return null;
+    }
+
+    static OutputStream compress(OutputStream out, Compression compression) throws IOException {
+        switch (compression) {
+            case GZIP: return new GZIPOutputStream(out, BUFFER);
+            case ZSTD: return new ZstdOutputStream(out, 3);
+            default: return out;
+        }
+    }
+
+    /** Envuelve el flujo con el descompresor que indiquen sus bytes mágicos. */
+    static InputStream decompress(InputStream in) throws IOException {
+        in.mark(4);
+        int b0 = in.read(), b1 = in.read(), b2 = in.read(), b3 = in.read();
+        in.reset();
+        if (b0 == 0x1F && b1 == 0x8B) {
+            return new GZIPInputStream(in, BUFFER);
+        }
+        if (b0 == 0x28 && b1 == 0xB5 && b2 == 0x2F && b3 == 0xFD) {
+            return new ZstdInputStream(in);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+
+import java.util.Map;
+
+/**
+ * Consulta de un informe: título a mostrar, nombre de la plantilla
+ * registrada en un {@link QueryRegistry} y valores de sus parámetros.
+ */
+public final class ReportQuery {
+
+    public final String title;
+    public final String name;
+    public final Map<String, Node> params;
+
+    public ReportQuery(String title, String name, Map<String, Node> params) {
+        this.title = title;
+        this.name = name;
+        this.params = params;
+    }
+}
@@ -0,0 +1,295 @@
+package org.example.cine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.core.ResultBinding;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Caché de resultados de consultas, indexada por la consulta normalizada
+ * (texto serializado por ARQ, igual para dos plantillas que sólo difieren en
+ * espacios o formato), los valores de sus parámetros y el grafo consultado.
+ *
+ * Cada entrada lleva la {@link GraphGeneration} del grafo en el momento en
+ * que empezó la evaluación; si el grafo ha cambiado desde entonces la
+ * entrada está obsoleta, se descarta y la consulta se vuelve a evaluar. Así
+ * nunca se sirve un resultado anterior a una mutación, aunque ésta ocurra
+ * mientras se estaba calculando.
+ *
+ * La caché está acotada por memoria (peso estimado de las filas) y la
+ * política de desalojo es la W-TinyLFU de Caffeine: las consultas repetidas
+ * del quiosco se quedan, las de una sola vez no desplazan a las frecuentes.
+ * Sólo se guardan resultados leídos completos y de tamaño menor que
+ * {@link #MAX_ENTRY_FRACTION} de la capacidad.
+ */
+public final class ResultCache {
+
+    /** Capacidad por defecto, en bytes estimados. */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /** Una entrada no puede ocupar más de esta fracción de la capacidad. */
+    static final int MAX_ENTRY_FRACTION = 16;
+
+    private static final ResultCache GLOBAL = new ResultCache(DEFAULT_MAX_BYTES);
+
+    /** Clave: grafo (por su contador de generación), consulta normalizada y parámetros. */
+    record Key(GraphGeneration graph, String query, Map<String, Node> params) {
+        Key {
+            params = Map.copyOf(params);
+        }
+    }
+
+    /** Resultado completo de una ejecución, sellado con la generación en que se calculó. */
+    private record Entry(long generation, List<String> vars, List<Binding> rows, int weight) {
+    }
+
+    private final Cache<Key, Entry> cache;
+    private volatile long maxBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    /**
+     * @param maxBytes Memoria máxima estimada de los resultados guardados; 0 desactiva la caché.
+     */
+    public ResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Key k, Entry e) -> e.weight)
+            .recordStats()
+            .build();
+    }
+
+    /** @return Caché común del proceso. */
+    public static ResultCache get() {
+        return GLOBAL;
+    }
+
+    /**
+     * Cambia la capacidad; 0 desactiva la caché y descarta lo guardado.
+     *
+     * @param maxBytes Memoria máxima estimada, en bytes.
+     */
+    public void resize(long maxBytes) {
+        this.maxBytes = maxBytes;
+        cache.policy().eviction().ifPresent(e -> e.setMaximum(maxBytes));
+        if (maxBytes == 0) cache.invalidateAll();
+    }
+
+    /** @return true si la caché admite resultados. */
+    public boolean enabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Busca un resultado válido para la generación dada. Una entrada de otra
+     * generación se descarta y cuenta como obsoleta (y como fallo).
+     *
+     * @param key Consulta, parámetros y grafo.
+     * @param generation Generación actual del grafo, leída antes de llamar.
+     * @param model Modelo al que asociar las soluciones devueltas.
+     * @return ResultSet sobre las filas guardadas, o null si no hay entrada válida.
+     */
+    ResultSet lookup(Key key, long generation, Model model) {
+        Entry entry = cache.asMap().get(key);
+        if (entry != null && entry.generation != generation) {
+            cache.asMap().remove(key, entry);
+            stale.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return ResultSetStream.create(entry.vars, model, QueryIterPlainWrapper.create(entry.rows.iterator()));
+    }
+
+    /**
+     * Envuelve un resultado recién calculado para guardarlo cuando el
+     * llamador lo lea completo. Si se cierra antes, o crece por encima del
+     * límite por entrada, no se guarda.
+     *
+     * @param generation Generación del grafo leída antes de empezar la evaluación.
+     */
+    ResultSet record(Key key, long generation, ResultSet results) {
+        return new Recorder(key, generation, results);
+    }
+
+    /** Descarta todas las entradas y los contadores. */
+    public void clear() {
+        cache.invalidateAll();
+        hits.reset();
+        misses.reset();
+        stale.reset();
+    }
+
+    /** @return Consultas servidas desde la caché. */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** @return Consultas que hubo que evaluar (incluidas las obsoletas). */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** @return Entradas descartadas por haber cambiado el grafo. */
+    public long stale() {
+        return stale.sum();
+    }
+
+    /** @return Entradas desalojadas por falta de espacio. */
+    public long evictions() {
+        return cache.stats().evictionCount();
+    }
+
+    /** @return Fracción de consultas servidas desde la caché (0 si no hubo ninguna). */
+    public double hitRatio() {
+        long h = hits(), total = h + misses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /** @return Bytes estimados ocupados por las entradas. */
+    public long weightedSize() {
+        return cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    /** @return Número de entradas guardadas. */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * @return Métricas en formato de texto de Prometheus.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        metric(sb, "cine_result_cache_hits_total", "counter", "Consultas servidas desde la caché de resultados.", hits());
+        metric(sb, "cine_result_cache_misses_total", "counter", "Consultas evaluadas por no estar en la caché.", misses());
+        metric(sb, "cine_result_cache_stale_total", "counter", "Entradas descartadas por cambios en el grafo.", stale());
+        metric(sb, "cine_result_cache_evictions_total", "counter", "Entradas desalojadas por capacidad.", evictions());
+        metric(sb, "cine_result_cache_entries", "gauge", "Entradas en la caché.", size());
+        metric(sb, "cine_result_cache_bytes", "gauge", "Memoria estimada de las entradas.", weightedSize());
+        metric(sb, "cine_result_cache_max_bytes", "gauge", "Capacidad de la caché.", maxBytes);
+        return sb.toString();
+    }
+
+    /**
+     * @return Métricas en JSON.
+     */
+    public String toJson() {
+        return "{\"hits\":" + hits() + ",\"misses\":" + misses() + ",\"hitRatio\":" + hitRatio()
+            + ",\"stale\":" + stale() + ",\"evictions\":" + evictions() + ",\"entries\":" + size()
+            + ",\"bytes\":" + weightedSize() + ",\"maxBytes\":" + maxBytes + "}";
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Peso estimado de una fila: el objeto Binding con sus arrays de
+     * variables y valores más la referencia en la lista. Los nodos suelen ser
+     * los del propio grafo y no se cuentan.
+     */
+    static long rowWeight(Binding b) {
+        return 64 + 16L * b.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("aciertos %,d, fallos %,d (tasa %.1f%%), obsoletas %,d, desalojos %,d, %,d entradas, %,d KB de %,d KB",
+            hits(), misses(), hitRatio() * 100, stale(), evictions(), size(), weightedSize() / 1024, maxBytes / 1024);
+    }
+
+    /** ResultSet que copia las filas que entrega y las guarda al agotarse. */
+    private final class Recorder implements ResultSet {
+        private final Key key;
+        private final long generation;
+        private final ResultSet delegate;
+        private List<Binding> rows = new ArrayList<>();
+        private long weight = 128;
+
+        Recorder(Key key, long generation, ResultSet delegate) {
+            this.key = key;
+            this.generation = generation;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean more = delegate.hasNext();
+            if (!more && rows != null) {
+                cache.put(key, new Entry(generation, delegate.getResultVars(), List.copyOf(rows), (int) weight));
+                rows = null;
+            }
+            return more;
+        }
+
+        @Override
+        public Binding nextBinding() {
+            Binding b = delegate.nextBinding();
+            if (rows != null) {
+                weight += rowWeight(b);
+                if (weight > maxBytes / MAX_ENTRY_FRACTION) {
+                    rows = null;
+                } else {
+                    rows.add(b);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public QuerySolution nextSolution() {
+            return new ResultBinding(getResourceModel(), nextBinding());
+        }
+
+        @Override
+        public QuerySolution next() {
+            return nextSolution();
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super QuerySolution> action) {
+            while (hasNext()) action.accept(nextSolution());
+        }
+
+        @Override
+        public int getRowNumber() {
+            return delegate.getRowNumber();
+        }
+
+        @Override
+        public List<String> getResultVars() {
+            return delegate.getResultVars();
+        }
+
+        @Override
+        public Model getResourceModel() {
+            return delegate.getResourceModel();
+        }
+
+        @Override
+        public void close() {
+            rows = null;
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,609 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporta resultados SELECT a fichero directamente desde el {@link ResultSet},
+ * sin pasar por la tabla de consola: CSV y TSV de resultados SPARQL 1.1,
+ * JSON de resultados SPARQL, o un formato columnar propio al estilo de
+ * Parquet ({@link Format#COLUMNAR}).
+ *
+ * La escritura es un productor/consumidor: el hilo de la consulta codifica
+ * las filas en bloques de {@value #CHUNK} bytes y los entrega a una cola
+ * acotada; un hilo escritor los comprime (gzip o zstd, opcional) y los
+ * escribe en el {@link FileChannel} del fichero en escrituras grandes. Así
+ * ni la compresión ni la E/S frenan la evaluación, y si el disco va más
+ * lento que la consulta la cola llena frena al productor en lugar de
+ * acumular memoria. Los bloques se reciclan entre ambos hilos.
+ *
+ * Todo lo que depende sólo de las columnas (variables, cabeceras, nombres
+ * escapados para JSON) se calcula una vez por exportación; por fila sólo se
+ * escriben los valores.
+ */
+public final class ResultExporter {
+
+    /** Formato del fichero exportado. */
+    public enum Format {
+        CSV(".csv"), TSV(".tsv"), JSON(".srj"),
+        /**
+         * Columnar por grupos de filas, con diccionario por columna y grupo:
+         * <pre>
+         * "CINECOL1" | nº columnas (int) | nombre de cada columna (texto)
+         * grupo*:  filas (int) | por columna: tamaño del diccionario (varint),
+         *          términos (tipo, forma léxica, tipo de dato o idioma),
+         *          un código por fila (varint; 0 = sin valor)
+         * pie:     nº grupos (int) | por grupo: desplazamiento (long), filas (int)
+         *          | filas totales (long) | desplazamiento del pie (long) | "CINECOL1"
+         * </pre>
+         * Cada texto es su longitud en bytes (varint) seguida de los bytes
+         * UTF-8, sin límite de tamaño. Los desplazamientos son del flujo sin
+         * comprimir. Las columnas de
+         * pocos valores distintos (género, clasificación, estado) ocupan un
+         * código de uno o dos bytes por fila.
+         */
+        COLUMNAR(".cols");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /** Resumen de una exportación. */
+    public static final class Summary {
+        public final Path file;
+        public final long rows;
+        /** Bytes antes de comprimir. */
+        public final long bytes;
+        public final long nanos;
+
+        Summary(Path file, long rows, long bytes, long nanos) {
+            this.file = file;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %,d filas, %,d KB sin comprimir (%.1f ms)",
+                file.getFileName(), rows, bytes / 1024, nanos / 1e6);
+        }
+    }
+
+    /** Tamaño de cada bloque entre el hilo de la consulta y el escritor. */
+    static final int CHUNK = 1 << 20;
+
+    /** Bloques en vuelo como mucho (memoria acotada a DEPTH × CHUNK). */
+    private static final int DEPTH = 8;
+
+    /** Filas por grupo en {@link Format#COLUMNAR}. */
+    static final int ROW_GROUP = 1 << 16;
+
+    private static final byte[] MAGIC = "CINECOL1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String XSD_STRING = XSDDatatype.XSDstring.getURI();
+
+    private ResultExporter() {
+    }
+
+    /**
+     * Nombre de fichero de una exportación: base + extensión del formato +
+     * extensión de la compresión (ej. "preventas.csv.zst").
+     */
+    public static String fileName(String base, Format format, RdfSnapshot.Compression compression) {
+        return base + format.extension + compression.extension;
+    }
+
+    /**
+     * Exporta todas las filas de un resultado y lo cierra.
+     *
+     * @param results Resultados a exportar (se consumen).
+     * @param vars Variables (columnas) en orden.
+     * @param file Fichero destino (se sobrescribe).
+     * @param format Formato del fichero.
+     * @param compression Compresión aplicada por el hilo escritor.
+     * @return Resumen de la exportación.
+     * @throws IOException si falla la escritura; el fichero puede quedar incompleto.
+     */
+    public static Summary export(ResultSet results, List<String> vars, Path file, Format format,
+                                 RdfSnapshot.Compression compression) throws IOException {
+        long t0 = System.nanoTime();
+        Columns columns = new Columns(vars);
+        long rows;
+        try (ChunkPipe pipe = new ChunkPipe(file, compression)) {
+            switch (format) {
+                case CSV: rows = writeCsv(results, columns, pipe); break;
+                case TSV: rows = writeTsv(results, columns, pipe); break;
+                case JSON: rows = writeJson(results, columns, pipe); break;
+                default: rows = writeColumnar(results, columns, pipe); break;
+            }
+            pipe.finish();
+            return new Summary(file, rows, pipe.position(), System.nanoTime() - t0);
+        } finally {
+            results.close();
+        }
+    }
+
+    /** Metadatos por columna, calculados una vez por exportación. */
+    private static final class Columns {
+        final Var[] vars;
+        final String csvHeader;
+        final String tsvHeader;
+        /** Prefijo JSON de cada columna dentro de una fila: {@code "nombre":}. */
+        final String[] jsonKeys;
+        final String jsonHead;
+
+        Columns(List<String> names) {
+            vars = new Var[names.size()];
+            jsonKeys = new String[names.size()];
+            StringBuilder csv = new StringBuilder();
+            StringBuilder tsv = new StringBuilder();
+            StringBuilder head = new StringBuilder("{\"head\":{\"vars\":[");
+            for (int i = 0; i < vars.length; i++) {
+                String name = names.get(i);
+                vars[i] = Var.alloc(name);
+                String sep = i == 0 ? "" : ",";
+                csv.append(sep);
+                appendCsv(csv, name);
+                tsv.append(i == 0 ? "" : "\t").append('?').append(name);
+                head.append(sep);
+                appendJsonString(head, name);
+                StringBuilder key = new StringBuilder();
+                appendJsonString(key, name);
+                jsonKeys[i] = key.append(':').toString();
+            }
+            csvHeader = csv.append("\r\n").toString();
+            tsvHeader = tsv.append('\n').toString();
+            jsonHead = head.append("]},\"results\":{\"bindings\":[").toString();
+        }
+    }
+
+    private static Writer text(OutputStream out) {
+        // El pipe ya agrupa en bloques grandes: el writer sólo necesita el buffer del codificador
+        return new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    private static long writeCsv(ResultSet results, Columns columns, OutputStream out) throws IOException {
+        Writer w = text(out);
+        StringBuilder sb = new StringBuilder(256);
+        w.write(columns.csvHeader);
+        long rows = 0;
+        while (results.hasNext()) {
+            Binding b = results.nextBinding();
+            sb.setLength(0);
+            for (int i = 0; i < columns.vars.length; i++) {
+                if (i > 0) sb.append(',');
+                Node n = b.get(columns.vars[i]);
+                if (n == null) continue;
+                if (n.isBlank()) sb.append("_:").append(n.getBlankNodeLabel());
+                else appendCsv(sb, n.isURI() ? n.getURI() : n.getLiteralLexicalForm());
+            }
+            w.append(sb).write("\r\n");
+            rows++;
+        }
+        w.flush();
+        return rows;
+    }
+
+    private static long writeTsv(ResultSet results, Columns columns, OutputStream out) throws IOException {
+        Writer w = text(out);
+        StringBuilder sb = new StringBuilder(256);
+        w.write(columns.tsvHeader);
+        long rows = 0;
+        while (results.hasNext()) {
+            Binding b = results.nextBinding();
+            sb.setLength(0);
+            for (int i = 0; i < columns.vars.length; i++) {
+                if (i > 0) sb.append('\t');
+                Node n = b.get(columns.vars[i]);
+                if (n != null) appendTerm(sb, n);
+            }
+            w.append(sb).write('\n');
+            rows++;
+        }
+        w.flush();
+        return rows;
+    }
+
+    private static long writeJson(ResultSet results, Columns columns, OutputStream out) throws IOException {
+        Writer w = text(out);
+        StringBuilder sb = new StringBuilder(512);
+        w.write(columns.jsonHead);
+        long rows = 0;
+        while (results.hasNext()) {
+            Binding b = results.nextBinding();
+            sb.setLength(0);
+            sb.append(rows == 0 ? "\n{" : ",\n{");
+            boolean first = true;
+            for (int i = 0; i < columns.vars.length; i++) {
+                Node n = b.get(columns.vars[i]);
+                if (n == null) continue;
+                if (!first) sb.append(',');
+                first = false;
+                sb.append(columns.jsonKeys[i]);
+                appendJsonTerm(sb, n);
+            }
+            w.append(sb.append('}'));
+            rows++;
+        }
+        w.write("\n]}}\n");
+        w.flush();
+        return rows;
+    }
+
+    private static long writeColumnar(ResultSet results, Columns columns, ChunkPipe pipe) throws IOException {
+        DataOutputStream out = new DataOutputStream(pipe);
+        int cols = columns.vars.length;
+        out.write(MAGIC);
+        out.writeInt(cols);
+        for (Var v : columns.vars) writeString(out, v.getVarName());
+
+        Node[][] group = new Node[cols][ROW_GROUP];
+        List<long[]> groups = new ArrayList<>();
+        long rows = 0;
+        int n = 0;
+        while (results.hasNext()) {
+            Binding b = results.nextBinding();
+            for (int i = 0; i < cols; i++) group[i][n] = b.get(columns.vars[i]);
+            rows++;
+            if (++n == ROW_GROUP) {
+                out.flush();
+                groups.add(new long[] {pipe.position(), n});
+                writeGroup(out, group, n);
+                n = 0;
+            }
+        }
+        if (n > 0) {
+            out.flush();
+            groups.add(new long[] {pipe.position(), n});
+            writeGroup(out, group, n);
+        }
+
+        out.flush();
+        long footer = pipe.position();
+        out.writeInt(groups.size());
+        for (long[] g : groups) {
+            out.writeLong(g[0]);
+            out.writeInt((int) g[1]);
+        }
+        out.writeLong(rows);
+        out.writeLong(footer);
+        out.write(MAGIC);
+        out.flush();
+        return rows;
+    }
+
+    /** Escribe un grupo de filas columna a columna, con diccionario por columna. */
+    private static void writeGroup(DataOutputStream out, Node[][] group, int rows) throws IOException {
+        out.writeInt(rows);
+        int[] codes = new int[rows];
+        for (Node[] column : group) {
+            Map<Node, Integer> dictionary = new HashMap<>();
+            List<Node> terms = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                Node node = column[r];
+                column[r] = null;
+                if (node == null) {
+                    codes[r] = 0;
+                    continue;
+                }
+                Integer code = dictionary.get(node);
+                if (code == null) {
+                    terms.add(node);
+                    code = terms.size();
+                    dictionary.put(node, code);
+                }
+                codes[r] = code;
+            }
+            writeVarint(out, terms.size());
+            for (Node t : terms) writeTerm(out, t);
+            for (int r = 0; r < rows; r++) writeVarint(out, codes[r]);
+        }
+    }
+
+    /** Término del diccionario: 1 URI, 2 nodo en blanco, 3 literal con tipo, 4 literal con idioma. */
+    private static void writeTerm(DataOutputStream out, Node n) throws IOException {
+        if (n.isURI()) {
+            out.writeByte(1);
+            writeString(out, n.getURI());
+        } else if (n.isBlank()) {
+            out.writeByte(2);
+            writeString(out, n.getBlankNodeLabel());
+        } else if (n.getLiteralLanguage().isEmpty()) {
+            out.writeByte(3);
+            writeString(out, n.getLiteralLexicalForm());
+            writeString(out, n.getLiteralDatatypeURI());
+        } else {
+            out.writeByte(4);
+            writeString(out, n.getLiteralLexicalForm());
+            writeString(out, n.getLiteralLanguage());
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /** Texto como longitud en bytes (varint) y UTF-8; a diferencia de writeUTF, sin límite de 64 KB. */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /** Valor CSV: entre comillas sólo si contiene comas, comillas o saltos de línea. */
+    private static void appendCsv(StringBuilder sb, String s) {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /** Término en sintaxis Turtle, como pide el TSV de resultados SPARQL. */
+    private static void appendTerm(StringBuilder sb, Node n) {
+        if (n.isURI()) {
+            sb.append('<').append(n.getURI()).append('>');
+            return;
+        }
+        if (n.isBlank()) {
+            sb.append("_:").append(n.getBlankNodeLabel());
+            return;
+        }
+        String lex = n.getLiteralLexicalForm();
+        String dt = n.getLiteralDatatypeURI();
+        if (XSDDatatype.XSDinteger.getURI().equals(dt) && isInteger(lex)) {
+            sb.append(lex);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < lex.length(); i++) {
+            char c = lex.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default: sb.append(c);
+            }
+        }
+        sb.append('"');
+        String lang = n.getLiteralLanguage();
+        if (!lang.isEmpty()) sb.append('@').append(lang);
+        else if (dt != null && !XSD_STRING.equals(dt)) sb.append("^^<").append(dt).append('>');
+    }
+
+    private static boolean isInteger(String s) {
+        int start = !s.isEmpty() && (s.charAt(0) == '-' || s.charAt(0) == '+') ? 1 : 0;
+        if (start == s.length()) return false;
+        for (int i = start; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+
+    private static void appendJsonTerm(StringBuilder sb, Node n) {
+        if (n.isURI()) {
+            sb.append("{\"type\":\"uri\",\"value\":");
+            appendJsonString(sb, n.getURI());
+        } else if (n.isBlank()) {
+            sb.append("{\"type\":\"bnode\",\"value\":");
+            appendJsonString(sb, n.getBlankNodeLabel());
+        } else {
+            sb.append("{\"type\":\"literal\",\"value\":");
+            appendJsonString(sb, n.getLiteralLexicalForm());
+            String lang = n.getLiteralLanguage();
+            String dt = n.getLiteralDatatypeURI();
+            if (!lang.isEmpty()) {
+                sb.append(",\"xml:lang\":");
+                appendJsonString(sb, lang);
+            } else if (dt != null && !XSD_STRING.equals(dt)) {
+                sb.append(",\"datatype\":");
+                appendJsonString(sb, dt);
+            }
+        }
+        sb.append('}');
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Flujo de salida que agrupa los bytes en bloques y los entrega a un hilo
+     * escritor, que los comprime si se pidió y los escribe en el canal del
+     * fichero. Los errores del escritor se propagan al productor en la
+     * siguiente entrega o al cerrar.
+     */
+    private static final class ChunkPipe extends OutputStream {
+        /** Bloque lleno y los bytes que ocupa; el bloque vacío marca el final. */
+        private static final class Chunk {
+            final byte[] data;
+            final int length;
+
+            Chunk(byte[] data, int length) {
+                this.data = data;
+                this.length = length;
+            }
+        }
+
+        private static final Chunk END = new Chunk(new byte[0], 0);
+
+        private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(DEPTH);
+        private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(DEPTH + 2);
+        private final FileChannel channel;
+        private final Thread writer;
+        private volatile IOException failure;
+        private byte[] chunk = new byte[CHUNK];
+        private int pos;
+        private long position;
+        private boolean finished;
+
+        ChunkPipe(Path file, RdfSnapshot.Compression compression) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            writer = new Thread(() -> drain(compression), "exportador-" + file.getFileName());
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        /** @return Bytes escritos en el flujo, antes de comprimir. */
+        long position() {
+            return position + pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (pos == chunk.length) handOff();
+            chunk[pos++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (pos == chunk.length) handOff();
+                int n = Math.min(len, chunk.length - pos);
+                System.arraycopy(b, off, chunk, pos, n);
+                pos += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /** Entrega el bloque actual al escritor y toma otro libre (o uno nuevo). */
+        private void handOff() throws IOException {
+            if (pos == 0) return;
+            put(new Chunk(chunk, pos));
+            position += pos;
+            byte[] next = free.poll();
+            chunk = next != null ? next : new byte[CHUNK];
+            pos = 0;
+        }
+
+        private void put(Chunk c) throws IOException {
+            try {
+                while (!full.offer(c, 100, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) throw failure;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Exportación interrumpida");
+            }
+        }
+
+        /** Entrega lo pendiente y espera a que el escritor termine. */
+        void finish() throws IOException {
+            handOff();
+            finished = true;
+            put(END);
+            join();
+            if (failure != null) throw failure;
+        }
+
+        private void join() throws IOException {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Exportación interrumpida");
+            }
+        }
+
+        /** Bucle del hilo escritor. */
+        private void drain(RdfSnapshot.Compression compression) {
+            try (FileChannel ch = channel) {
+                OutputStream target = compression == RdfSnapshot.Compression.NONE ? null
+                    : RdfSnapshot.compress(new BufferedOutputStream(Channels.newOutputStream(ch), CHUNK), compression);
+                while (true) {
+                    Chunk c = full.take();
+                    if (c == END) break;
+                    if (target != null) {
+                        target.write(c.data, 0, c.length);
+                    } else {
+                        ByteBuffer buffer = ByteBuffer.wrap(c.data, 0, c.length);
+                        while (buffer.hasRemaining()) ch.write(buffer);
+                    }
+                    free.offer(c.data);
+                }
+                if (target != null) target.close();
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                failure = new InterruptedIOException("Exportación interrumpida");
+            } catch (Throwable t) {
+                // Un fallo no previsto (compresor, memoria) también debe llegar
+                // al productor; si no, se quedaría esperando con la cola llena
+                failure = new IOException("Fallo del escritor de exportación", t);
+            }
+        }
+
+        /**
+         * Si no se llegó a {@link #finish()} (error en la consulta), detiene
+         * al escritor sin esperar a que vacíe la cola.
+         */
+        @Override
+        public void close() throws IOException {
+            if (finished) return;
+            finished = true;
+            writer.interrupt();
+            join();
+        }
+    }
+}
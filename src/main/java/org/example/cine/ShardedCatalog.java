@@ -0,0 +1,653 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingComparator;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.ExprLib;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.aggregate.AggAvg;
+import org.apache.jena.sparql.expr.aggregate.AggCount;
+import org.apache.jena.sparql.expr.aggregate.AggCountVar;
+import org.apache.jena.sparql.expr.aggregate.AggMax;
+import org.apache.jena.sparql.expr.aggregate.AggMin;
+import org.apache.jena.sparql.expr.aggregate.AggSum;
+import org.apache.jena.sparql.expr.aggregate.Aggregator;
+import org.apache.jena.sparql.expr.nodevalue.XSDFuncOp;
+import org.apache.jena.sparql.function.FunctionEnv;
+import org.apache.jena.sparql.function.FunctionEnvBase;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.ElementWalker;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Catálogo repartido en particiones ("sedes") por ciudad o teatro, con un
+ * enrutador que envía cada consulta sólo a las sedes pedidas y combina sus
+ * resultados.
+ *
+ * La unidad de reparto es la película: todos los triples de un sujeto van a
+ * la misma sede, de modo que cualquier patrón que sólo relacione triples de
+ * una película (todas las consultas del catálogo) se evalúa sin pérdida por
+ * separado en cada sede. Cada sede es un modelo en memoria con sus propios
+ * índices, agregados y contador de generación, así que las funciones idx:,
+ * las vistas materializadas y {@link ResultCache} funcionan igual que sobre
+ * el catálogo completo.
+ *
+ * Según la forma de la consulta, el enrutador:
+ * <ul>
+ *   <li>con una sola sede, ejecuta la consulta registrada tal cual;</li>
+ *   <li>sin agregados, la ejecuta en paralelo en cada sede (con LIMIT
+ *       ampliado a LIMIT+OFFSET) y mezcla los resultados respetando el
+ *       ORDER BY, el DISTINCT y el LIMIT/OFFSET originales;</li>
+ *   <li>con GROUP BY y agregados descomponibles (COUNT, SUM, MIN, MAX, AVG
+ *       como SUM y COUNT), ejecuta en cada sede una consulta de agregados
+ *       parciales y los reagrupa, aplicando después las expresiones del
+ *       SELECT, el HAVING, el ORDER BY y el LIMIT;</li>
+ *   <li>en cualquier otro caso (DISTINCT dentro de un agregado, GROUP_CONCAT,
+ *       subconsultas, ORDER BY por variables no proyectadas), evalúa la
+ *       consulta sobre la unión de las sedes elegidas.</li>
+ * </ul>
+ *
+ * El reparto es una instantánea: los cambios posteriores en el grafo de
+ * origen no se propagan a las sedes.
+ */
+public final class ShardedCatalog implements AutoCloseable {
+
+    /**
+     * Parámetro de plantilla que, si está presente, restringe la consulta a
+     * la sede indicada (ver {@link #execute(QueryRegistry.CompiledQuery, Map)}).
+     */
+    public static final String SHARD_PARAM = "sede";
+
+    /** Ciudades a las que se asignan las películas sin {@link CineVocab#SEDE}. */
+    public static final List<String> CITIES = List.of(
+        "Bogotá", "Medellín", "Cali", "Barranquilla", "Bucaramanga", "Cartagena", "Pereira", "Manizales");
+
+    private enum Kind { ROWS, AGGREGATE, UNION }
+
+    private enum Merge { COUNT, SUM, MIN, MAX, AVG }
+
+    /** Agregado del SELECT original y las columnas parciales que lo reconstruyen. */
+    private static final class Partial {
+        final Var target;
+        final Merge merge;
+        final Var value;
+        final Var count;
+
+        Partial(Var target, Merge merge, Var value, Var count) {
+            this.target = target;
+            this.merge = merge;
+            this.value = value;
+            this.count = count;
+        }
+    }
+
+    /** Cómo se reparte una consulta; se calcula una vez por texto normalizado. */
+    private static final class Route {
+        final Kind kind;
+        final QueryRegistry.CompiledQuery shardQuery;
+        final List<Var> groupVars;
+        final List<Partial> partials;
+
+        Route(Kind kind, QueryRegistry.CompiledQuery shardQuery, List<Var> groupVars, List<Partial> partials) {
+            this.kind = kind;
+            this.shardQuery = shardQuery;
+            this.groupVars = groupVars;
+            this.partials = partials;
+        }
+    }
+
+    private final Map<String, Model> shards;
+    private final QueryRegistry registry;
+    private final ExecutorService pool;
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    private ShardedCatalog(Map<String, Model> shards, QueryRegistry registry, ExecutorService pool) {
+        this.shards = shards;
+        this.registry = registry;
+        this.pool = pool;
+    }
+
+    /**
+     * Reparte un grafo en sedes y construye en paralelo las estructuras
+     * derivadas de cada una.
+     *
+     * @param source Grafo completo del catálogo (sólo se lee).
+     * @param shardOf Sede de cada sujeto (ver {@link #byCity(Graph)}).
+     * @param registry Registro donde se compilan las consultas parciales.
+     * @param threads Hilos para consultar las sedes (&lt;= 0 usa el número de núcleos).
+     * @return Catálogo repartido; debe cerrarse para liberar su pool.
+     */
+    public static ShardedCatalog split(Graph source, Function<Node, String> shardOf, QueryRegistry registry, int threads) {
+        Map<String, Graph> graphs = new TreeMap<>();
+        ExtendedIterator<Node> subjects = GraphUtil.listSubjects(source, Node.ANY, Node.ANY);
+        try {
+            while (subjects.hasNext()) {
+                Node subject = subjects.next();
+                Graph target = graphs.computeIfAbsent(shardOf.apply(subject), k -> GraphFactory.createDefaultGraph());
+                GraphUtil.add(target, source.find(subject, Node.ANY, Node.ANY));
+            }
+        } finally {
+            subjects.close();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+            threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        Map<String, Model> shards = new LinkedHashMap<>();
+        List<Callable<Void>> derived = new ArrayList<>();
+        graphs.forEach((key, graph) -> {
+            Model model = ModelFactory.createModelForGraph(graph);
+            model.setNsPrefixes(source.getPrefixMapping());
+            shards.put(key, model);
+            derived.add(() -> {
+                CatalogIndexes.attach(graph);
+                TitleSearchIndex.attach(graph);
+                CatalogAggregates.attach(graph);
+                GraphGeneration.attach(graph);
+                return null;
+            });
+        });
+        ShardedCatalog catalog = new ShardedCatalog(Collections.unmodifiableMap(shards), registry, pool);
+        catalog.invokeAll(derived);
+        return catalog;
+    }
+
+    /**
+     * Asignación por ciudad: el valor de {@link CineVocab#SEDE} si la película
+     * lo tiene; si no, una de {@link #CITIES} elegida de forma estable a partir
+     * de su URI (mientras el catálogo no traiga la sede de cada película).
+     * Las funciones ({@link CineVocab#PELICULA}) van a la sede de su película.
+     *
+     * @param source Grafo del que leer {@code cine:sede}.
+     */
+    public static Function<Node, String> byCity(Graph source) {
+        return subject -> cityOf(source, subject);
+    }
+
+    private static String cityOf(Graph source, Node subject) {
+        // Las funciones van con su película, para poder unirlas en cada sede
+        ExtendedIterator<Triple> movie = source.find(subject, CineVocab.PELICULA, Node.ANY);
+        try {
+            if (movie.hasNext()) return cityOf(source, movie.next().getObject());
+        } finally {
+            movie.close();
+        }
+        ExtendedIterator<Triple> it = source.find(subject, CineVocab.SEDE, Node.ANY);
+        try {
+            if (it.hasNext()) {
+                Node sede = it.next().getObject();
+                if (sede.isLiteral()) return sede.getLiteralLexicalForm();
+            }
+        } finally {
+            it.close();
+        }
+        String key = subject.isURI() ? subject.getURI() : subject.toString();
+        return CITIES.get(Math.floorMod(key.hashCode(), CITIES.size()));
+    }
+
+    /** @return Claves de las sedes, en orden alfabético. */
+    public Set<String> shards() {
+        return shards.keySet();
+    }
+
+    /**
+     * @param key Clave de la sede.
+     * @return Modelo de la sede (no debe modificarse).
+     * @throws IllegalArgumentException si la sede no existe.
+     */
+    public Model shard(String key) {
+        Model model = shards.get(key);
+        if (model == null) {
+            throw new IllegalArgumentException("Sede desconocida: " + key + " (sedes: " + shards.keySet() + ")");
+        }
+        return model;
+    }
+
+    /**
+     * Ejecuta una consulta en la sede del parámetro {@value #SHARD_PARAM} si
+     * viene entre los parámetros, o en todas las sedes si no.
+     */
+    public ResultSet execute(QueryRegistry.CompiledQuery compiled, Map<String, Node> params) {
+        Node sede = params.get(SHARD_PARAM);
+        return execute(compiled, params,
+            sede != null && sede.isLiteral() ? List.of(sede.getLiteralLexicalForm()) : shards.keySet());
+    }
+
+    /**
+     * Ejecuta una consulta interactiva en las sedes indicadas y combina sus resultados.
+     *
+     * @see #execute(QueryRegistry.CompiledQuery, Map, Collection, QueryGovernor.Priority)
+     */
+    public ResultSet execute(QueryRegistry.CompiledQuery compiled, Map<String, Node> params, Collection<String> keys) {
+        return execute(compiled, params, keys, QueryGovernor.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Ejecuta una consulta en las sedes indicadas y combina sus resultados.
+     *
+     * La consulta ocupa una sola plaza de {@link QueryGovernor}, también
+     * cuando se reparte: las consultas de cada sede comparten su tiempo
+     * máximo, y las filas parciales que se retienen para combinarlas cuentan
+     * para sus máximos de filas y memoria. Al combinar, la plaza se libera y
+     * el resultado queda en memoria.
+     *
+     * @param compiled Consulta compilada del registro.
+     * @param params Valores de los parámetros de la plantilla.
+     * @param keys Sedes a consultar.
+     * @param priority Clase de prioridad en el gobernador.
+     * @return Resultado combinado; el llamador debe cerrarlo.
+     * @throws IllegalArgumentException si alguna sede no existe.
+     * @throws QueryGovernor.Rejected si la consulta no se admite.
+     * @throws QueryGovernor.Cancelled si se supera algún límite al consultar las sedes.
+     */
+    public ResultSet execute(QueryRegistry.CompiledQuery compiled, Map<String, Node> params, Collection<String> keys,
+                             QueryGovernor.Priority priority) {
+        List<Model> targets = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            targets.add(shard(key));
+        }
+        QueryGovernor governor = QueryGovernor.get();
+        if (targets.size() == 1) {
+            return governor.execute(compiled, targets.get(0), params, priority);
+        }
+        Route route = routes.computeIfAbsent(compiled.normalized, n -> route(compiled));
+        if (route.kind == Kind.UNION) {
+            return governor.execute(compiled, union(targets), params, priority);
+        }
+        try (QueryGovernor.Budget budget = governor.budget(governor.admit(priority))) {
+            List<List<Binding>> perShard = fanOut(route.shardQuery, targets, params, budget);
+            return route.kind == Kind.ROWS
+                ? mergeRows(compiled, perShard, union(targets))
+                : mergeGroups(compiled, route, perShard, union(targets));
+        }
+    }
+
+    /** Ejecuta la consulta en paralelo en cada sede y materializa sus filas dentro del presupuesto. */
+    private List<List<Binding>> fanOut(QueryRegistry.CompiledQuery query, List<Model> targets, Map<String, Node> params,
+                                       QueryGovernor.Budget budget) {
+        List<Callable<List<Binding>>> tasks = new ArrayList<>(targets.size());
+        for (Model target : targets) {
+            tasks.add(() -> {
+                List<Binding> rows = new ArrayList<>();
+                ResultSet results = QueryRegistry.execute(query, target, params);
+                try {
+                    while (results.hasNext()) {
+                        Binding row = results.nextBinding();
+                        budget.retain(row);
+                        rows.add(row);
+                    }
+                } finally {
+                    results.close();
+                }
+                return rows;
+            });
+        }
+        return invokeAll(tasks);
+    }
+
+    /**
+     * Mezcla k-aria de resultados ya ordenados en cada sede, con DISTINCT y
+     * LIMIT/OFFSET aplicados sobre la secuencia combinada.
+     */
+    private static ResultSet mergeRows(QueryRegistry.CompiledQuery compiled, List<List<Binding>> perShard, Model model) {
+        Query query = compiled.query;
+        List<Binding> merged = new ArrayList<>();
+        if (query.hasOrderBy()) {
+            Comparator<Binding> order = new BindingComparator(query.getOrderBy());
+            PriorityQueue<PeekingShard> heads = new PriorityQueue<>(
+                Comparator.<PeekingShard, Binding>comparing(s -> s.head, order).thenComparingInt(s -> s.index));
+            for (int i = 0; i < perShard.size(); i++) {
+                PeekingShard shard = new PeekingShard(i, perShard.get(i).iterator());
+                if (shard.head != null) heads.add(shard);
+            }
+            while (!heads.isEmpty()) {
+                PeekingShard shard = heads.poll();
+                merged.add(shard.head);
+                if (shard.advance()) heads.add(shard);
+            }
+        } else {
+            perShard.forEach(merged::addAll);
+        }
+        return finish(compiled, merged, model);
+    }
+
+    /** Reagrupa los agregados parciales de cada sede y evalúa el SELECT original. */
+    private static ResultSet mergeGroups(QueryRegistry.CompiledQuery compiled, Route route,
+                                         List<List<Binding>> perShard, Model model) {
+        Map<List<Node>, Accumulator[]> groups = new LinkedHashMap<>();
+        for (List<Binding> rows : perShard) {
+            for (Binding row : rows) {
+                List<Node> key = new ArrayList<>(route.groupVars.size());
+                for (Var v : route.groupVars) {
+                    key.add(row.get(v));
+                }
+                Accumulator[] acc = groups.computeIfAbsent(key, k -> {
+                    Accumulator[] fresh = new Accumulator[route.partials.size()];
+                    for (int i = 0; i < fresh.length; i++) fresh[i] = new Accumulator(route.partials.get(i));
+                    return fresh;
+                });
+                for (Accumulator a : acc) {
+                    a.add(row);
+                }
+            }
+        }
+
+        Query query = compiled.query;
+        FunctionEnv env = new FunctionEnvBase();
+        VarExprList project = query.getProject();
+        List<Binding> rows = new ArrayList<>(groups.size());
+        groups.forEach((key, acc) -> {
+            BindingBuilder builder = BindingBuilder.create();
+            for (int i = 0; i < key.size(); i++) {
+                if (key.get(i) != null) builder.add(route.groupVars.get(i), key.get(i));
+            }
+            for (Accumulator a : acc) {
+                NodeValue value = a.result();
+                if (value != null) builder.add(a.partial.target, value.asNode());
+            }
+            for (Var v : project.getVars()) {
+                Expr expr = project.getExpr(v);
+                if (expr == null || builder.contains(v)) continue;
+                NodeValue value = eval(expr, builder.snapshot(), env);
+                if (value != null) builder.add(v, value.asNode());
+            }
+            Binding row = builder.build();
+            if (query.hasHaving()) {
+                for (Expr having : query.getHavingExprs()) {
+                    NodeValue test = eval(having, row, env);
+                    if (test == null || !XSDFuncOp.booleanEffectiveValue(test)) return;
+                }
+            }
+            rows.add(row);
+        });
+
+        if (query.hasOrderBy()) {
+            List<SortCondition> order = new ArrayList<>();
+            for (SortCondition sc : query.getOrderBy()) {
+                order.add(new SortCondition(ExprLib.replaceAggregateByVariable(sc.getExpression()), sc.getDirection()));
+            }
+            rows.sort(new BindingComparator(order));
+        }
+        return finish(compiled, rows, model);
+    }
+
+    /** Proyección, DISTINCT y LIMIT/OFFSET sobre las filas ya ordenadas. */
+    private static ResultSet finish(QueryRegistry.CompiledQuery compiled, List<Binding> rows, Model model) {
+        Query query = compiled.query;
+        List<Var> vars = query.getProjectVars();
+        Collection<Binding> out = query.isDistinct() ? new LinkedHashSet<>() : new ArrayList<>(rows.size());
+        long skip = query.hasOffset() ? query.getOffset() : 0;
+        long limit = query.hasLimit() ? query.getLimit() : Long.MAX_VALUE;
+        long end = saturatedAdd(limit, skip);
+        for (Binding row : rows) {
+            if (out.size() >= end) break;
+            BindingBuilder builder = BindingBuilder.create();
+            for (Var v : vars) {
+                Node value = row.get(v);
+                if (value != null) builder.add(v, value);
+            }
+            out.add(builder.build());
+        }
+        List<Binding> page = new ArrayList<>(out);
+        page = page.subList((int) Math.min(skip, page.size()), page.size());
+        return ResultSetStream.create(compiled.resultVars, model, page.iterator());
+    }
+
+    /** Suma de LIMIT y OFFSET (no negativos) que se queda en Long.MAX_VALUE en lugar de desbordar. */
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static NodeValue eval(Expr expr, Binding binding, FunctionEnv env) {
+        try {
+            return ExprLib.replaceAggregateByVariable(expr).eval(binding, env);
+        } catch (ExprEvalException e) {
+            return null;
+        }
+    }
+
+    /** Decide cómo repartir una consulta y compila la consulta de cada sede. */
+    private Route route(QueryRegistry.CompiledQuery compiled) {
+        Query query = compiled.query;
+        if (!query.isSelectType() || hasSubQuery(query)) {
+            return new Route(Kind.UNION, null, null, null);
+        }
+        if (query.hasGroupBy() || query.hasAggregators()) {
+            return aggregateRoute(query);
+        }
+        if (query.hasOrderBy()) {
+            Set<Var> projected = new HashSet<>(query.getProjectVars());
+            for (SortCondition sc : query.getOrderBy()) {
+                if (!projected.containsAll(sc.getExpression().getVarsMentioned())) {
+                    return new Route(Kind.UNION, null, null, null);
+                }
+            }
+        }
+        if (!query.hasLimit() && !query.hasOffset()) {
+            return new Route(Kind.ROWS, compiled, null, null);
+        }
+        // Cada sede debe devolver todo lo que podría quedar dentro de la página global
+        Query perShard = query.cloneQuery();
+        perShard.setOffset(Query.NOLIMIT);
+        if (query.hasLimit()) {
+            perShard.setLimit(saturatedAdd(query.getLimit(), query.hasOffset() ? query.getOffset() : 0));
+        }
+        return new Route(Kind.ROWS, registry.compileTemplate(perShard.serialize()), null, null);
+    }
+
+    /**
+     * Consulta de agregados parciales: mismo patrón y GROUP BY, proyectando
+     * las claves de grupo y una o dos columnas parciales por agregado.
+     */
+    private Route aggregateRoute(Query query) {
+        Query partial = new Query();
+        partial.setQuerySelectType();
+        partial.setPrefixMapping(query.getPrefixMapping());
+        partial.setQueryPattern(query.getQueryPattern());
+
+        VarExprList groupBy = query.getGroupBy();
+        List<Var> groupVars = new ArrayList<>(groupBy.getVars());
+        for (Var v : groupVars) {
+            Expr expr = groupBy.getExpr(v);
+            if (expr == null) partial.addGroupBy(v);
+            else partial.addGroupBy(v, expr);
+            partial.addResultVar(v);
+        }
+
+        List<Partial> partials = new ArrayList<>();
+        int n = 0;
+        for (ExprAggregator ea : query.getAggregators()) {
+            Aggregator agg = ea.getAggregator();
+            Expr arg = agg.getExprList() == null || agg.getExprList().isEmpty() ? null : agg.getExprList().get(0);
+            Var value = Var.alloc("parcial" + n++);
+            Merge merge;
+            if (agg instanceof AggCount) {
+                partial.addResultVar(value, partial.allocAggregate(new AggCount()));
+                merge = Merge.COUNT;
+            } else if (agg instanceof AggCountVar) {
+                partial.addResultVar(value, partial.allocAggregate(new AggCountVar(arg)));
+                merge = Merge.COUNT;
+            } else if (agg instanceof AggSum) {
+                partial.addResultVar(value, partial.allocAggregate(new AggSum(arg)));
+                merge = Merge.SUM;
+            } else if (agg instanceof AggMin) {
+                partial.addResultVar(value, partial.allocAggregate(new AggMin(arg)));
+                merge = Merge.MIN;
+            } else if (agg instanceof AggMax) {
+                partial.addResultVar(value, partial.allocAggregate(new AggMax(arg)));
+                merge = Merge.MAX;
+            } else if (agg instanceof AggAvg) {
+                Var count = Var.alloc("parcial" + n++);
+                partial.addResultVar(value, partial.allocAggregate(new AggSum(arg)));
+                partial.addResultVar(count, partial.allocAggregate(new AggCountVar(arg)));
+                partials.add(new Partial(ea.getVar(), Merge.AVG, value, count));
+                continue;
+            } else {
+                // DISTINCT, GROUP_CONCAT, SAMPLE...: no se pueden combinar por sede
+                return new Route(Kind.UNION, null, null, null);
+            }
+            partials.add(new Partial(ea.getVar(), merge, value, null));
+        }
+        return new Route(Kind.AGGREGATE, registry.compileTemplate(partial.serialize()), groupVars, partials);
+    }
+
+    private static boolean hasSubQuery(Query query) {
+        boolean[] found = {false};
+        ElementWalker.walk(query.getQueryPattern(), new ElementVisitorBase() {
+            @Override
+            public void visit(ElementSubQuery el) {
+                found[0] = true;
+            }
+        });
+        return found[0];
+    }
+
+    /** Combina, grupo a grupo, las columnas parciales de un agregado. */
+    private static final class Accumulator {
+        final Partial partial;
+        NodeValue value;
+        NodeValue count;
+        boolean error;
+
+        Accumulator(Partial partial) {
+            this.partial = partial;
+        }
+
+        void add(Binding row) {
+            Node v = row.get(partial.value);
+            switch (partial.merge) {
+                case MIN:
+                case MAX:
+                    if (v == null) return;
+                    NodeValue nv = NodeValue.makeNode(v);
+                    int cmp = value == null ? 0 : NodeValue.compareAlways(nv, value);
+                    if (value == null || (partial.merge == Merge.MIN ? cmp < 0 : cmp > 0)) value = nv;
+                    return;
+                case AVG:
+                    Node c = row.get(partial.count);
+                    if (v == null || c == null) {
+                        error = true;
+                        return;
+                    }
+                    count = sum(count, NodeValue.makeNode(c));
+                    value = sum(value, NodeValue.makeNode(v));
+                    return;
+                default:
+                    if (v == null) {
+                        error = true;
+                        return;
+                    }
+                    value = sum(value, NodeValue.makeNode(v));
+            }
+        }
+
+        NodeValue result() {
+            if (error) return null;
+            if (partial.merge != Merge.AVG) return value;
+            if (count == null || count.getInteger().signum() == 0) return NodeValue.makeInteger(0);
+            return XSDFuncOp.numDivide(value, count);
+        }
+
+        private static NodeValue sum(NodeValue total, NodeValue x) {
+            return total == null ? x : XSDFuncOp.numAdd(total, x);
+        }
+    }
+
+    /** Iterador de una sede con su siguiente fila a la vista, para la mezcla k-aria. */
+    private static final class PeekingShard {
+        final int index;
+        final Iterator<Binding> rows;
+        Binding head;
+
+        PeekingShard(int index, Iterator<Binding> rows) {
+            this.index = index;
+            this.rows = rows;
+            advance();
+        }
+
+        boolean advance() {
+            head = rows.hasNext() ? rows.next() : null;
+            return head != null;
+        }
+    }
+
+    /** Unión de sólo lectura de las sedes, para combinar nodos y para las consultas no repartibles. */
+    private static Model union(List<Model> targets) {
+        MultiUnion union = new MultiUnion();
+        for (Model m : targets) {
+            union.addGraph(m.getGraph());
+        }
+        return ModelFactory.createModelForGraph(union);
+    }
+
+    private <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> f : pool.invokeAll(tasks)) {
+                results.add(f.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta por sedes interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Fallo consultando una sede", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append(shards.size()).append(" sedes (");
+        String sep = "";
+        for (Map.Entry<String, Model> e : shards.entrySet()) {
+            sb.append(sep).append(e.getKey()).append('=').append(String.format("%,d", e.getValue().size()));
+            sep = ", ";
+        }
+        return sb.append(" triples)").toString();
+    }
+}
@@ -0,0 +1,344 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.shared.Lock;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Funciones (proyecciones de una película en una sala y hora) con su
+ * inventario de asientos, mantenido fuera del grafo.
+ *
+ * Las reservas y anulaciones actualizan un contador atómico por función con
+ * compare-and-set: nunca bloquean, no compiten entre funciones distintas y
+ * una reserva sólo se acepta si caben todos sus asientos, de modo que el
+ * vendido no puede superar la capacidad aunque haya muchos escritores a la
+ * vez. Ninguna de estas operaciones toca el modelo.
+ *
+ * Cada función modificada se marca como pendiente una sola vez hasta la
+ * siguiente publicación; {@link #publish(Model)} recoge las pendientes y las
+ * vuelca al grafo en un único lote bajo el lock de escritura del modelo
+ * ({@code cine:disponibles} y, la primera vez, la descripción de la función).
+ * Así los lectores de las consultas sólo esperan a la publicación, cuya
+ * frecuencia fija {@link #startPublishing}, y la caché de resultados se
+ * invalida una vez por lote y no una vez por reserva. El grafo refleja el
+ * inventario con ese retraso; la fuente de verdad es este objeto.
+ *
+ * Una función se publica como:
+ * <pre>
+ * &lt;http://example.org/funcion/{id}&gt; cine:pelicula &lt;http://example.org/pelicula/{id}&gt; ;
+ *     cine:sala "..." ; cine:inicio "..."^^xsd:dateTime ;
+ *     cine:capacidad n ; cine:disponibles m .
+ * </pre>
+ */
+public final class ShowtimeInventory implements AutoCloseable {
+
+    /** Una función y su contador de asientos vendidos. */
+    public static final class Screening {
+        public final String id;
+        public final Node node;
+        public final Node movie;
+        public final String room;
+        public final LocalDateTime start;
+        public final int capacity;
+
+        private final AtomicInteger sold = new AtomicInteger();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private volatile boolean published;
+
+        Screening(String id, Node movie, String room, LocalDateTime start, int capacity) {
+            this.id = id;
+            this.node = CineVocab.screening(id);
+            this.movie = movie;
+            this.room = room;
+            this.start = start;
+            this.capacity = capacity;
+        }
+
+        /** @return Asientos vendidos en este momento. */
+        public int sold() {
+            return sold.get();
+        }
+
+        /** @return Asientos libres en este momento. */
+        public int available() {
+            return capacity - sold.get();
+        }
+
+        @Override
+        public String toString() {
+            return id + " (" + room + ", " + start + "): " + available() + "/" + capacity + " libres";
+        }
+    }
+
+    private final Map<String, Screening> screenings = new ConcurrentHashMap<>();
+    private final Map<Node, List<Screening>> byMovie = new ConcurrentHashMap<>();
+    private final Queue<Screening> pending = new ConcurrentLinkedQueue<>();
+    private final Object publishLock = new Object();
+    private ScheduledExecutorService publisher;
+    private Model model;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder seats = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private volatile long publishes;
+    private volatile long publishedScreenings;
+    private volatile long lastPublishNanos;
+
+    /**
+     * Da de alta una función; se publicará en el siguiente lote.
+     *
+     * @param id Identificador simple de la función.
+     * @param movie Película ({@code http://example.org/pelicula/{id}}).
+     * @param room Sala (ej. "Andino 3").
+     * @param start Fecha y hora de inicio.
+     * @param capacity Asientos de la sala.
+     * @return La función creada.
+     * @throws IllegalArgumentException si la capacidad no es positiva o el id ya existe.
+     */
+    public Screening add(String id, Node movie, String room, LocalDateTime start, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacidad no válida para la función " + id + ": " + capacity);
+        }
+        Screening s = new Screening(id, movie, room, start, capacity);
+        if (screenings.putIfAbsent(id, s) != null) {
+            throw new IllegalArgumentException("Función duplicada: " + id);
+        }
+        byMovie.computeIfAbsent(movie, m -> new CopyOnWriteArrayList<>()).add(s);
+        markDirty(s);
+        return s;
+    }
+
+    /**
+     * Reserva asientos en una función si caben todos.
+     *
+     * @param id Identificador de la función.
+     * @param count Asientos a reservar (&gt; 0).
+     * @return true si se reservaron; false si no quedan suficientes libres.
+     * @throws IllegalArgumentException si la función no existe o count no es positivo.
+     */
+    public boolean reserve(String id, int count) {
+        Screening s = screening(id);
+        if (count <= 0) {
+            throw new IllegalArgumentException("Número de asientos no válido: " + count);
+        }
+        int current;
+        do {
+            current = s.sold.get();
+            if (count > s.capacity - current) {
+                rejected.increment();
+                return false;
+            }
+        } while (!s.sold.compareAndSet(current, current + count));
+        accepted.increment();
+        seats.add(count);
+        markDirty(s);
+        return true;
+    }
+
+    /**
+     * Anula asientos reservados de una función.
+     *
+     * @param id Identificador de la función.
+     * @param count Asientos a liberar (&gt; 0).
+     * @throws IllegalArgumentException si la función no existe, count no es
+     *         positivo o supera los asientos vendidos.
+     */
+    public void release(String id, int count) {
+        Screening s = screening(id);
+        if (count <= 0) {
+            throw new IllegalArgumentException("Número de asientos no válido: " + count);
+        }
+        int current;
+        do {
+            current = s.sold.get();
+            if (current < count) {
+                throw new IllegalArgumentException("La función " + id + " sólo tiene " + current + " asientos vendidos");
+            }
+        } while (!s.sold.compareAndSet(current, current - count));
+        released.add(count);
+        markDirty(s);
+    }
+
+    /**
+     * @param id Identificador de la función.
+     * @return La función.
+     * @throws IllegalArgumentException si no existe.
+     */
+    public Screening screening(String id) {
+        Screening s = screenings.get(id);
+        if (s == null) {
+            throw new IllegalArgumentException("Función desconocida: " + id);
+        }
+        return s;
+    }
+
+    /** @return Funciones de una película, en orden de alta. */
+    public List<Screening> screenings(Node movie) {
+        return byMovie.getOrDefault(movie, List.of());
+    }
+
+    /** @return Número de funciones dadas de alta. */
+    public int size() {
+        return screenings.size();
+    }
+
+    /** Encola la función para la siguiente publicación si no lo estaba ya. */
+    private void markDirty(Screening s) {
+        if (s.dirty.compareAndSet(false, true)) {
+            pending.add(s);
+        }
+    }
+
+    /**
+     * Vuelca al grafo, en un lote y bajo el lock de escritura del modelo, el
+     * estado de las funciones modificadas desde la publicación anterior.
+     *
+     * @param model Modelo del catálogo.
+     * @return Funciones publicadas en este lote.
+     */
+    public int publish(Model model) {
+        synchronized (publishLock) {
+            long t0 = System.nanoTime();
+            List<Screening> batch = new ArrayList<>();
+            for (Screening s; (s = pending.poll()) != null; ) {
+                // Se desmarca antes de leer el contador: una reserva posterior
+                // vuelve a encolar la función para el siguiente lote
+                s.dirty.set(false);
+                batch.add(s);
+            }
+            if (batch.isEmpty()) return 0;
+
+            List<Triple> additions = new ArrayList<>(batch.size() * 5);
+            for (Screening s : batch) {
+                if (!s.published) {
+                    additions.add(Triple.create(s.node, CineVocab.PELICULA, s.movie));
+                    additions.add(Triple.create(s.node, CineVocab.SALA, NodeFactory.createLiteral(s.room)));
+                    additions.add(Triple.create(s.node, CineVocab.INICIO,
+                        NodeFactory.createLiteral(s.start.toString(), XSDDatatype.XSDdateTime)));
+                    additions.add(Triple.create(s.node, CineVocab.CAPACIDAD, integer(s.capacity)));
+                }
+                additions.add(Triple.create(s.node, CineVocab.DISPONIBLES, integer(s.available())));
+            }
+
+            model.enterCriticalSection(Lock.WRITE);
+            try {
+                Graph graph = model.getGraph();
+                for (Screening s : batch) {
+                    graph.remove(s.node, CineVocab.DISPONIBLES, Node.ANY);
+                }
+                for (Triple t : additions) {
+                    graph.add(t);
+                }
+            } finally {
+                model.leaveCriticalSection();
+            }
+            for (Screening s : batch) {
+                s.published = true;
+            }
+            publishes++;
+            publishedScreenings += batch.size();
+            lastPublishNanos = System.nanoTime() - t0;
+            return batch.size();
+        }
+    }
+
+    private static Node integer(int value) {
+        return NodeFactory.createLiteral(Integer.toString(value), XSDDatatype.XSDinteger);
+    }
+
+    /**
+     * Publica periódicamente en un hilo propio hasta {@link #close()}.
+     *
+     * @param model Modelo del catálogo.
+     * @param interval Intervalo entre lotes.
+     */
+    public synchronized void startPublishing(Model model, Duration interval) {
+        if (publisher != null) {
+            throw new IllegalStateException("La publicación periódica ya está en marcha");
+        }
+        publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "publicador-funciones");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        publisher.scheduleWithFixedDelay(() -> {
+            try {
+                publish(model);
+            } catch (RuntimeException e) {
+                System.err.println("Error publicando funciones: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+        this.model = model;
+    }
+
+    /** @return Reservas aceptadas. */
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    /** @return Reservas rechazadas por falta de asientos. */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /** @return Asientos reservados (sin descontar anulaciones). */
+    public long seatsReserved() {
+        return seats.sum();
+    }
+
+    /** @return Asientos liberados por anulaciones. */
+    public long seatsReleased() {
+        return released.sum();
+    }
+
+    /** @return Lotes publicados en el grafo. */
+    public long publishes() {
+        return publishes;
+    }
+
+    /**
+     * Detiene la publicación periódica y publica lo que quede pendiente.
+     */
+    @Override
+    public synchronized void close() {
+        if (publisher == null) return;
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publish(model);
+        publisher = null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d funciones, %,d reservas aceptadas (%,d asientos), %,d rechazadas, "
+                + "%,d asientos liberados; %,d lotes publicados (%,d funciones, último %.1f ms)",
+            size(), accepted(), seatsReserved(), rejected(), seatsReleased(),
+            publishes, publishedScreenings, lastPublishNanos / 1e6);
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.cine;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Índice ordenado de pares (valor, id de película) sobre un {@code long[]}.
+ *
+ * Cada entrada se codifica como {@code (valor << 32) | id}, de modo que el
+ * orden natural de los long ordena por valor y, a igualdad, por id. Las
+ * altas y bajas se acumulan en dos conjuntos ordenados de cambios pendientes
+ * (la última operación sobre una clave gana) que las búsquedas combinan al
+ * vuelo con el array ordenado; sólo cuando los pendientes crecen demasiado
+ * se funden con el array en una sola pasada. Así una escritura suelta no
+ * hace que la siguiente búsqueda pague O(n): las búsquedas por rango son
+ * binarias, O(log n + resultados + pendientes dentro del rango).
+ */
+final class SortedLongIndex {
+
+    private static final int MIN_PENDING_COMPACT = 65_536;
+
+    private long[] keys = new long[0];
+    /** Altas pendientes (pueden estar ya en {@link #keys}). */
+    private TreeSet<Long> added = new TreeSet<>();
+    /** Bajas pendientes de claves de {@link #keys}; disjuntas de {@link #added}. */
+    private Set<Long> removed = new HashSet<>();
+
+    static long key(int value, int id) {
+        return ((long) value << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    static int id(long key) {
+        return (int) key;
+    }
+
+    static int value(long key) {
+        return (int) (key >> 32);
+    }
+
+    synchronized void add(int value, int id) {
+        long k = key(value, id);
+        removed.remove(k);
+        added.add(k);
+        compactIfLarge();
+    }
+
+    synchronized void remove(int value, int id) {
+        long k = key(value, id);
+        added.remove(k);
+        int i = lowerBound(k);
+        if (i < keys.length && keys[i] == k) removed.add(k);
+        compactIfLarge();
+    }
+
+    synchronized void clear() {
+        keys = new long[0];
+        added = new TreeSet<>();
+        removed = new HashSet<>();
+    }
+
+    /**
+     * Reemplaza el contenido por las claves dadas (carga inicial).
+     */
+    synchronized void load(long[] unsorted, int count) {
+        long[] sorted = Arrays.copyOf(unsorted, count);
+        Arrays.sort(sorted);
+        int n = dedupe(sorted, sorted.length);
+        keys = n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+        added = new TreeSet<>();
+        removed = new HashSet<>();
+    }
+
+    /**
+     * Ids cuyo valor está en [min, max] (ambos inclusive), en orden de valor.
+     */
+    synchronized int[] range(int min, int max) {
+        if (min > max) return new int[0];
+        long from = key(min, 0);
+        int i = lowerBound(from);
+        int to = max == Integer.MAX_VALUE ? keys.length : lowerBound(key(max + 1, 0));
+        Iterator<Long> adds = (max == Integer.MAX_VALUE ? added.tailSet(from) : added.subSet(from, key(max + 1, 0)))
+            .iterator();
+        int[] ids = new int[to - i + 8];
+        int n = 0;
+        Long a = adds.hasNext() ? adds.next() : null;
+        while (i < to || a != null) {
+            long next;
+            if (a == null || (i < to && keys[i] <= a)) {
+                next = keys[i++];
+                if (a != null && a == next) a = adds.hasNext() ? adds.next() : null;
+                if (removed.contains(next)) continue;
+            } else {
+                next = a;
+                a = adds.hasNext() ? adds.next() : null;
+            }
+            if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+            ids[n++] = id(next);
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * Siguiente valor con alguna entrada en el orden pedido: el primero (o el
+     * último, en orden descendente) si {@code value} es null.
+     *
+     * @return Valor siguiente, o null si no quedan más.
+     */
+    synchronized Integer nextValue(Integer value, boolean descending) {
+        Long k;
+        if (descending) {
+            k = lower(value == null ? Long.MAX_VALUE : key(value, 0));
+        } else if (value != null && value == Integer.MAX_VALUE) {
+            k = null;
+        } else {
+            k = ceiling(value == null ? Long.MIN_VALUE : key(value + 1, 0));
+        }
+        return k == null ? null : value(k);
+    }
+
+    synchronized int size() {
+        int n = keys.length - removed.size();
+        for (long k : added) {
+            int i = lowerBound(k);
+            if (i == keys.length || keys[i] != k) n++;
+        }
+        return n;
+    }
+
+    /** Primera clave presente &gt;= k, o null. */
+    private Long ceiling(long k) {
+        int i = lowerBound(k);
+        while (i < keys.length && removed.contains(keys[i])) i++;
+        Long a = added.ceiling(k);
+        if (i == keys.length) return a;
+        return a == null || keys[i] <= a ? Long.valueOf(keys[i]) : a;
+    }
+
+    /** Última clave presente &lt; k, o null. */
+    private Long lower(long k) {
+        int i = lowerBound(k) - 1;
+        while (i >= 0 && removed.contains(keys[i])) i--;
+        Long a = added.lower(k);
+        if (i < 0) return a;
+        return a == null || keys[i] >= a ? Long.valueOf(keys[i]) : a;
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void compactIfLarge() {
+        if (added.size() + removed.size() >= Math.max(MIN_PENDING_COMPACT, keys.length / 8)) compact();
+    }
+
+    /** Funde los cambios pendientes con el array ordenado en una pasada. */
+    private void compact() {
+        long[] merged = new long[keys.length + added.size()];
+        Iterator<Long> adds = added.iterator();
+        Long a = adds.hasNext() ? adds.next() : null;
+        int i = 0, n = 0;
+        while (i < keys.length || a != null) {
+            long next;
+            if (a == null || (i < keys.length && keys[i] <= a)) {
+                next = keys[i++];
+                if (removed.contains(next)) continue;
+            } else {
+                next = a;
+                a = adds.hasNext() ? adds.next() : null;
+            }
+            if (n > 0 && merged[n - 1] == next) continue;
+            merged[n++] = next;
+        }
+        keys = n == merged.length ? merged : Arrays.copyOf(merged, n);
+        added = new TreeSet<>();
+        removed = new HashSet<>();
+    }
+
+    private static int dedupe(long[] sorted, int len) {
+        int n = 0;
+        for (int i = 0; i < len; i++) {
+            if (n == 0 || sorted[n - 1] != sorted[i]) sorted[n++] = sorted[i];
+        }
+        return n;
+    }
+}
@@ -0,0 +1,441 @@
+package org.example.cine;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.shared.Lock;
+import org.apache.jena.system.Txn;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Endpoint HTTP de consulta SPARQL sobre el catálogo cargado, embebido con
+ * el {@link HttpServer} del JDK. Cada petición se atiende en su propio hilo
+ * virtual, así que miles de conexiones concurrentes no necesitan miles de
+ * hilos del sistema; las conexiones HTTP/1.1 se mantienen abiertas entre
+ * peticiones (keep-alive).
+ *
+ * Rutas:
+ * <ul>
+ *   <li>{@code GET|POST /sparql}: protocolo SPARQL. La consulta llega en el
+ *       parámetro {@code query} (URL o formulario) o como cuerpo
+ *       {@code application/sparql-query}. Sólo SELECT.</li>
+ *   <li>{@code GET /consultas/<nombre>?param=valor...}: consulta registrada en
+ *       el {@link QueryRegistry}; cada parámetro se convierte en literal
+ *       (entero, decimal, booleano, xsd:date si es YYYY-MM-DD, texto en otro caso).
+ *       Con {@code tam=n} (y {@code despues=<cursor>}) devuelve sólo una página
+ *       de {@link QueryPager}; el cursor de la siguiente va en la cabecera
+ *       {@code X-Cursor-Siguiente}.</li>
+ *   <li>{@code GET /metricas}: métricas de {@link QueryMetrics} en formato Prometheus.</li>
+ * </ul>
+ * El formato de la respuesta se elige con {@code format=json|csv|tsv} o con la
+ * cabecera Accept (JSON de resultados SPARQL por defecto). Los resultados se
+ * escriben en streaming con codificación chunked, sin materializar la tabla.
+ *
+ * Durante cada consulta se mantiene el lock de lectura del modelo (o una
+ * transacción de lectura si se sirve un dataset TDB2), también mientras se
+ * escribe la respuesta: un cliente lento retrasa a los escritores del
+ * modelo. Para acotarlo, si no se ha configurado otro valor, el servidor
+ * cierra las conexiones cuya respuesta tarda más de
+ * {@link #MAX_RESPONSE_MILLIS} ({@code sun.net.httpserver.maxRspTime}); la
+ * escritura falla y el lock se libera.
+ *
+ * El texto de {@code /sparql} es arbitrario, así que sus planes se guardan en
+ * una caché propia de {@link #AD_HOC_PLANS} entradas y no desplazan a los de
+ * las consultas con nombre del registro.
+ *
+ * Las consultas, completas o paginadas, pasan por {@link QueryGovernor} como
+ * interactivas: si no se admiten, o si se cancelan antes de la primera fila,
+ * la respuesta es 503; una cancelación a mitad corta la respuesta como
+ * cualquier otro error de evaluación.
+ */
+public final class SparqlEndpoint implements AutoCloseable {
+
+    /** Tamaño máximo del cuerpo de una petición POST. */
+    private static final int MAX_BODY = 1 << 20;
+
+    /** Tiempo máximo para escribir una respuesta, salvo que se configure otro. */
+    static final long MAX_RESPONSE_MILLIS = 120_000;
+
+    /** Planes en caché para las consultas ad hoc de {@code /sparql}. */
+    static final int AD_HOC_PLANS = 256;
+
+    private static final Pattern INTEGER = Pattern.compile("-?\\d{1,18}");
+    private static final Pattern DECIMAL = Pattern.compile("-?\\d+\\.\\d+");
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final QueryRegistry registry;
+    private final QueryRegistry adHoc = new QueryRegistry(AD_HOC_PLANS);
+    private final Consumer<Consumer<Model>> reader;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private SparqlEndpoint(int port, QueryRegistry registry, Consumer<Consumer<Model>> reader) throws IOException {
+        // Sin Nagle: las respuestas pequeñas salen sin esperar al ACK del cliente
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        // Acota cuánto retiene el lock de lectura una respuesta a un cliente lento
+        if (System.getProperty("sun.net.httpserver.maxRspTime") == null) {
+            System.setProperty("sun.net.httpserver.maxRspTime", Long.toString(MAX_RESPONSE_MILLIS));
+        }
+        this.registry = registry;
+        this.reader = reader;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/sparql", this::sparql);
+        server.createContext("/consultas/", this::named);
+        server.createContext("/metricas", this::metrics);
+    }
+
+    /**
+     * Sirve un modelo en memoria. Las consultas toman su lock de lectura.
+     *
+     * @param model Modelo a consultar.
+     * @param registry Registro de consultas (plantillas con nombre y caché de planes).
+     * @param port Puerto TCP (0 = cualquiera libre).
+     * @return Endpoint ya arrancado.
+     */
+    public static SparqlEndpoint start(Model model, QueryRegistry registry, int port) throws IOException {
+        SparqlEndpoint endpoint = new SparqlEndpoint(port, registry, task -> {
+            model.enterCriticalSection(Lock.READ);
+            try {
+                task.accept(model);
+            } finally {
+                model.leaveCriticalSection();
+            }
+        });
+        endpoint.server.start();
+        return endpoint;
+    }
+
+    /**
+     * Sirve un dataset transaccional: cada consulta usa su propia
+     * transacción de lectura.
+     */
+    public static SparqlEndpoint start(Dataset dataset, QueryRegistry registry, int port) throws IOException {
+        SparqlEndpoint endpoint = new SparqlEndpoint(port, registry,
+            task -> Txn.executeRead(dataset, () -> task.accept(dataset.getDefaultModel())));
+        endpoint.server.start();
+        return endpoint;
+    }
+
+    /** @return Puerto en el que escucha el servidor. */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Bloquea el hilo actual hasta que se cierre el endpoint. */
+    public void awaitClose() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public void close() {
+        // Puede llamarse desde el hook de parada y desde try-with-resources
+        if (stopped.getCount() == 0) return;
+        synchronized (this) {
+            if (stopped.getCount() == 0) return;
+            server.stop(1);
+            executor.close();
+            stopped.countDown();
+        }
+    }
+
+    private void sparql(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String query;
+            Map<String, String> params = queryParams(exchange.getRequestURI().getRawQuery());
+            if ("POST".equals(exchange.getRequestMethod())) {
+                String type = contentType(exchange);
+                String body = readBody(exchange.getRequestBody());
+                if (body == null) {
+                    sendError(exchange, 413, "Cuerpo de la petición demasiado grande (máximo " + MAX_BODY + " bytes)");
+                    return;
+                }
+                if (type.startsWith("application/x-www-form-urlencoded")) {
+                    params.putAll(queryParams(body));
+                    query = params.get("query");
+                } else if (type.startsWith("application/sparql-query")) {
+                    query = body;
+                } else {
+                    sendError(exchange, 415, "Tipo de contenido no soportado: " + type);
+                    return;
+                }
+            } else if ("GET".equals(exchange.getRequestMethod())) {
+                query = params.get("query");
+            } else {
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                sendError(exchange, 405, "Método no permitido");
+                return;
+            }
+            if (query == null || query.isBlank()) {
+                sendError(exchange, 400, "Falta el parámetro 'query'");
+                return;
+            }
+
+            QueryRegistry.CompiledQuery compiled;
+            try {
+                compiled = adHoc.compileTemplate(query);
+            } catch (QueryParseException e) {
+                sendError(exchange, 400, "Consulta SPARQL inválida: " + e.getMessage());
+                return;
+            }
+            if (!compiled.query.isSelectType()) {
+                sendError(exchange, 400, "Sólo se admiten consultas SELECT");
+                return;
+            }
+            respond(exchange, compiled, Map.of(), params);
+        }
+    }
+
+    private void named(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Método no permitido");
+                return;
+            }
+            String name = exchange.getRequestURI().getPath().substring("/consultas/".length());
+            QueryRegistry.CompiledQuery compiled;
+            try {
+                compiled = registry.compile(name);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 404, e.getMessage());
+                return;
+            }
+            Map<String, String> params = queryParams(exchange.getRequestURI().getRawQuery());
+            Map<String, Node> values = new HashMap<>();
+            params.forEach((k, v) -> {
+                if (!k.equals("format") && !k.equals("tam") && !k.equals("despues")) values.put(k, literal(v));
+            });
+            if (params.containsKey("tam")) {
+                respondPage(exchange, compiled, values, params);
+            } else {
+                respond(exchange, compiled, values, params);
+            }
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = QueryMetrics.get().toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * Ejecuta la consulta y escribe el resultado en streaming. Los errores
+     * anteriores a la primera escritura se devuelven como 500; si fallan a
+     * mitad, se propagan como IOException para que el servidor aborte la
+     * conexión (el cliente ve un chunked incompleto) y queden registrados.
+     */
+    private void respond(HttpExchange exchange, QueryRegistry.CompiledQuery compiled,
+                         Map<String, Node> values, Map<String, String> params) throws IOException {
+        Lang lang = negotiate(params.get("format"), exchange.getRequestHeaders().getFirst("Accept"));
+        // La plaza se espera antes de tomar el lock: una consulta encolada no bloquea a los escritores
+        QueryGovernor.Admission admission;
+        try {
+            admission = QueryGovernor.get().admit(QueryGovernor.Priority.INTERACTIVE);
+        } catch (QueryGovernor.Rejected e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, e.getMessage());
+            return;
+        }
+        IOException[] failure = new IOException[1];
+        try (admission) {
+            reader.accept(model -> stream(exchange, lang, admission, compiled, model, values, failure));
+        }
+        if (failure[0] != null) throw failure[0];
+    }
+
+    /** Evalúa la consulta en la plaza concedida y escribe la respuesta, ya bajo el lock de lectura. */
+    private static void stream(HttpExchange exchange, Lang lang, QueryGovernor.Admission admission,
+                               QueryRegistry.CompiledQuery compiled, Model model, Map<String, Node> values,
+                               IOException[] failure) {
+        ResultSet results;
+        try {
+            results = QueryGovernor.get().execute(admission, compiled, model, values);
+        } catch (RuntimeException e) {
+            failure[0] = sendErrorQuietly(exchange, 500, "Error en consulta SPARQL: " + e.getMessage());
+            return;
+        }
+        try {
+            // Se espera a la primera fila antes de enviar las cabeceras: una
+            // cancelación durante la fase ciega (ORDER BY, agregados) aún
+            // puede devolverse como 503
+            results.hasNext();
+        } catch (QueryGovernor.Cancelled e) {
+            results.close();
+            failure[0] = sendErrorQuietly(exchange, 503, e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            results.close();
+            failure[0] = sendErrorQuietly(exchange, 500, "Error en consulta SPARQL: " + e.getMessage());
+            return;
+        }
+        try {
+            exchange.getResponseHeaders().set("Content-Type", lang.getContentType().getContentTypeStr() + "; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 1 << 14)) {
+                ResultSetMgr.write(out, results, lang);
+            }
+        } catch (IOException e) {
+            failure[0] = e;
+        } catch (RuntimeException e) {
+            failure[0] = new IOException("Error en consulta SPARQL a mitad de respuesta: " + e.getMessage(), e);
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Como {@link #respond}, pero con una página de {@link QueryPager}: la
+     * página se calcula entera antes de responder, así que los errores
+     * (consulta no paginable, cursor inválido) se devuelven como 400 y una
+     * cancelación del gobernador como 503.
+     */
+    private void respondPage(HttpExchange exchange, QueryRegistry.CompiledQuery compiled,
+                             Map<String, Node> values, Map<String, String> params) throws IOException {
+        Lang lang = negotiate(params.get("format"), exchange.getRequestHeaders().getFirst("Accept"));
+        QueryGovernor.Admission admission;
+        try {
+            admission = QueryGovernor.get().admit(QueryGovernor.Priority.INTERACTIVE);
+        } catch (QueryGovernor.Rejected e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, e.getMessage());
+            return;
+        }
+        IOException[] failure = new IOException[1];
+        try (QueryGovernor.Budget budget = QueryGovernor.get().budget(admission)) {
+            reader.accept(model -> page(exchange, lang, budget, compiled, model, values, params, failure));
+        }
+        if (failure[0] != null) throw failure[0];
+    }
+
+    /** Calcula la página con el presupuesto concedido y la escribe, ya bajo el lock de lectura. */
+    private static void page(HttpExchange exchange, Lang lang, QueryGovernor.Budget budget,
+                             QueryRegistry.CompiledQuery compiled, Model model, Map<String, Node> values,
+                             Map<String, String> params, IOException[] failure) {
+        QueryPager.Page page;
+        try {
+            String after = params.get("despues");
+            page = QueryPager.page(compiled, model, values,
+                after == null || after.isEmpty() ? null : QueryPager.Cursor.parse(after),
+                Integer.parseInt(params.get("tam")), budget);
+        } catch (QueryGovernor.Cancelled e) {
+            failure[0] = sendErrorQuietly(exchange, 503, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            failure[0] = sendErrorQuietly(exchange, 400, "Paginación no válida: " + e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            failure[0] = sendErrorQuietly(exchange, 500, "Error en consulta SPARQL: " + e.getMessage());
+            return;
+        }
+        try {
+            exchange.getResponseHeaders().set("Content-Type", lang.getContentType().getContentTypeStr() + "; charset=utf-8");
+            if (page.next != null) exchange.getResponseHeaders().set("X-Cursor-Siguiente", page.next.token());
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 1 << 14)) {
+                ResultSetMgr.write(out, page.asResultSet(model), lang);
+            }
+        } catch (IOException e) {
+            failure[0] = e;
+        }
+    }
+
+    private static Lang negotiate(String format, String accept) {
+        if (format != null) {
+            switch (format.toLowerCase()) {
+                case "csv": return ResultSetLang.RS_CSV;
+                case "tsv": return ResultSetLang.RS_TSV;
+                default: return ResultSetLang.RS_JSON;
+            }
+        }
+        if (accept != null) {
+            if (accept.contains("text/csv")) return ResultSetLang.RS_CSV;
+            if (accept.contains("text/tab-separated-values")) return ResultSetLang.RS_TSV;
+        }
+        return ResultSetLang.RS_JSON;
+    }
+
+    /**
+     * Convierte el valor textual de un parámetro en literal RDF.
+     */
+    static Node literal(String value) {
+        if (INTEGER.matcher(value).matches()) return NodeFactory.createLiteral(value, XSDDatatype.XSDinteger);
+        if (DECIMAL.matcher(value).matches()) return NodeFactory.createLiteral(value, XSDDatatype.XSDdecimal);
+        if (DATE.matcher(value).matches()) return NodeFactory.createLiteral(value, XSDDatatype.XSDdate);
+        if (value.equals("true")) return MovieTriples.TRUE;
+        if (value.equals("false")) return MovieTriples.FALSE;
+        return NodeFactory.createLiteral(value);
+    }
+
+    private static Map<String, String> queryParams(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String contentType(HttpExchange exchange) {
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        return type == null ? "" : type.toLowerCase();
+    }
+
+    /** @return Cuerpo de la petición, o null si supera {@link #MAX_BODY}. */
+    private static String readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY + 1);
+        if (body.length > MAX_BODY) return null;
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static IOException sendErrorQuietly(HttpExchange exchange, int status, String message) {
+        try {
+            sendError(exchange, status, message);
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+}
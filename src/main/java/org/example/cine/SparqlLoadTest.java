@@ -0,0 +1,114 @@
+package org.example.cine;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cliente de carga para {@link SparqlEndpoint}: lanza peticiones GET a una URL
+ * desde N hilos virtuales concurrentes (cada uno con su conexión keep-alive)
+ * y muestra la latencia por percentiles.
+ *
+ * {@code SparqlLoadTest <url> [concurrencia] [peticiones] [calentamiento]}
+ *
+ * Ejemplo:
+ * {@code SparqlLoadTest "http://localhost:8080/consultas/porEstado?estado=En+cartelera" 500 100000}
+ *
+ * Las peticiones de calentamiento no se miden. La latencia incluye leer el
+ * cuerpo completo de la respuesta.
+ */
+public final class SparqlLoadTest {
+
+    private SparqlLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: SparqlLoadTest <url> [concurrencia] [peticiones] [calentamiento]");
+            return;
+        }
+        URI uri = URI.create(args[0]);
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : Math.min(requests, 1_000);
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(threads)
+                .build();
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Accept", "application/sparql-results+json")
+                .GET()
+                .build();
+
+            System.out.printf("Calentamiento: %,d peticiones...%n", warmup);
+            run(client, request, concurrency, warmup, null);
+
+            System.out.printf("Medición: %,d peticiones con %,d clientes concurrentes contra %s%n",
+                requests, concurrency, uri);
+            long[] latencies = new long[requests];
+            long t0 = System.nanoTime();
+            long errors = run(client, request, concurrency, requests, latencies);
+            double secs = (System.nanoTime() - t0) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("✓ %,d peticiones en %.2f s (%,.0f peticiones/s), %,d errores%n",
+                requests, secs, requests / secs, errors);
+            System.out.printf("  p50 %.2f ms · p90 %.2f ms · p99 %.2f ms · p999 %.2f ms · máx %.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    /**
+     * Reparte {@code total} peticiones entre {@code concurrency} hilos y espera
+     * a que terminen.
+     *
+     * @param latencies Array donde guardar la latencia de cada petición (nanosegundos), o null.
+     * @return Número de peticiones fallidas (excepción o estado distinto de 200).
+     */
+    private static long run(HttpClient client, HttpRequest request, int concurrency, int total,
+                            long[] latencies) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        Thread[] workers = new Thread[Math.min(concurrency, Math.max(total, 1))];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = Thread.ofVirtual().start(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                        try (InputStream body = response.body()) {
+                            body.transferTo(OutputStream.nullOutputStream());
+                        }
+                        if (response.statusCode() != 200) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (latencies != null) latencies[i] = System.nanoTime() - t0;
+                }
+            });
+        }
+        for (Thread w : workers) w.join();
+        return errors.get();
+    }
+
+    /** Percentil por rango más cercano sobre latencias ordenadas, en milisegundos. */
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))] / 1e6;
+    }
+}
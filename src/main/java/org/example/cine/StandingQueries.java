@@ -0,0 +1,568 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.shared.Lock;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.walker.Walker;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Substitute;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.ResultSetStream;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprFunctionOp;
+import org.apache.jena.sparql.expr.ExprVisitorBase;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementNamedGraph;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.syntax.ElementService;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementTriplesBlock;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.ElementWalker;
+import org.apache.jena.vocabulary.RDF;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Consultas continuas: se evalúan una vez al suscribirse y después se
+ * mantienen con los eventos del grafo, entregando a cada suscriptor sólo las
+ * filas que entran y salen del resultado.
+ *
+ * Admite consultas SELECT en estrella: todos sus patrones de triple (y las
+ * funciones idx: de {@link IndexFunctions}) tienen como sujeto la misma
+ * variable de película, con FILTER, OPTIONAL o BIND sobre ella; los patrones
+ * de FILTER [NOT] EXISTS cuentan como patrones de la consulta y deben tener
+ * el mismo sujeto. Es la forma
+ * de las consultas del catálogo, y con ella cada fila depende sólo de los
+ * triples de su película: un cambio en la película p sólo puede alterar las
+ * filas de p. El listener anota qué películas han cambiado en algún
+ * predicado que la consulta lee; {@link #flush()} vuelve a evaluar el patrón
+ * sólo para esas películas (sustituyendo la variable, como
+ * {@link QueryPager}) y compara con las filas que tenían. El coste es
+ * proporcional a las películas modificadas, no al catálogo.
+ *
+ * Las notificaciones se calculan en {@link #flush()}, bajo el lock de
+ * lectura del modelo, y se entregan fuera del lock. Varios cambios de una
+ * película entre dos llamadas se entregan como su efecto neto. Las filas de
+ * un {@link Delta} no siguen el ORDER BY de la consulta; con DISTINCT se
+ * notifica una fila al aparecer su primera copia y al desaparecer la última.
+ * No se admiten agregados, LIMIT/OFFSET, subconsultas ni expresiones en el
+ * SELECT.
+ */
+public final class StandingQueries extends TripleListener implements AutoCloseable {
+
+    /**
+     * Consultas continuas registradas por grafo. Cada instancia retiene su
+     * modelo y, con él, el grafo clave, así que la entrada no se libera sola
+     * al dejar de usar el grafo: hay que llamar a {@link #detach} o
+     * {@link #close()}.
+     */
+    private static final Map<Graph, StandingQueries> ATTACHED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Filas que entran y salen del resultado de una consulta continua. La
+     * primera notificación de cada suscripción trae el resultado inicial
+     * completo como filas añadidas.
+     */
+    public static final class Delta {
+        public final List<String> vars;
+        public final List<Binding> added;
+        public final List<Binding> removed;
+        /** Películas reevaluadas para calcular el cambio. */
+        public final int movies;
+        public final long nanos;
+
+        Delta(List<String> vars, List<Binding> added, List<Binding> removed, int movies, long nanos) {
+            this.vars = vars;
+            this.added = added;
+            this.removed = removed;
+            this.movies = movies;
+            this.nanos = nanos;
+        }
+
+        /** @return Las filas añadidas como ResultSet con las variables de la consulta. */
+        public ResultSet addedAsResultSet(Model model) {
+            return ResultSetStream.create(vars, model, QueryIterPlainWrapper.create(added.iterator()));
+        }
+
+        /** @return Las filas eliminadas como ResultSet con las variables de la consulta. */
+        public ResultSet removedAsResultSet(Model model) {
+            return ResultSetStream.create(vars, model, QueryIterPlainWrapper.create(removed.iterator()));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("+%d -%d filas (%d películas reevaluadas, %.2f ms)",
+                added.size(), removed.size(), movies, nanos / 1e6);
+        }
+    }
+
+    /** Forma incremental de una consulta: variable de película, predicados leídos y patrón. */
+    private static final class Shape {
+        final Var movie;
+        /** Predicados que pueden cambiar el resultado; null si cualquiera. */
+        final Set<Node> predicates;
+        final boolean distinct;
+        final List<Var> projected;
+        final List<String> vars;
+        final Op pattern;
+
+        Shape(Var movie, Set<Node> predicates, Query query) {
+            this.movie = movie;
+            this.predicates = predicates;
+            this.distinct = query.isDistinct() || query.isReduced();
+            this.projected = query.getProjectVars();
+            this.vars = query.getResultVars();
+            this.pattern = Algebra.optimize(Algebra.compile(query.getQueryPattern()));
+        }
+
+        boolean reads(Node predicate) {
+            return predicates == null || predicates.contains(predicate);
+        }
+    }
+
+    /**
+     * Suscripción a una consulta continua. Sus filas por película sólo se
+     * leen y escriben con el monitor de {@link StandingQueries}.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final Shape shape;
+        private final Map<String, Node> params;
+        private final Consumer<Delta> subscriber;
+        private final Set<Node> dirty = ConcurrentHashMap.newKeySet();
+        private final Map<Node, List<List<Node>>> rows = new HashMap<>();
+        private final Map<List<Node>, Integer> copies = new HashMap<>();
+        private long size;
+        private long notifications;
+
+        private Subscription(String name, Shape shape, Map<String, Node> params, Consumer<Delta> subscriber) {
+            this.name = name;
+            this.shape = shape;
+            this.params = params;
+            this.subscriber = subscriber;
+        }
+
+        /** @return Filas del resultado en este momento (según la última actualización). */
+        public long size() {
+            synchronized (StandingQueries.this) {
+                return size;
+            }
+        }
+
+        /** Deja de recibir notificaciones. */
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+
+        @Override
+        public String toString() {
+            synchronized (StandingQueries.this) {
+                return String.format("%s: %,d filas, %,d notificaciones", name, size, notifications);
+            }
+        }
+    }
+
+    private final Model model;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService flusher;
+    private long flushes;
+    private long reevaluated;
+
+    private StandingQueries(Model model) {
+        this.model = model;
+    }
+
+    /**
+     * Empieza a seguir los cambios del grafo del modelo. Si ya se seguían,
+     * devuelve la instancia existente.
+     *
+     * @param model Modelo del catálogo.
+     * @return Consultas continuas del modelo.
+     */
+    public static StandingQueries attach(Model model) {
+        Graph graph = model.getGraph();
+        synchronized (ATTACHED) {
+            StandingQueries existing = ATTACHED.get(graph);
+            if (existing != null) return existing;
+            StandingQueries standing = new StandingQueries(model);
+            graph.getEventManager().register(standing);
+            ATTACHED.put(graph, standing);
+            return standing;
+        }
+    }
+
+    /** @return Consultas continuas asociadas al grafo, o null si no tiene. */
+    public static StandingQueries forGraph(Graph graph) {
+        return ATTACHED.get(graph);
+    }
+
+    /** Deja de seguir los cambios del grafo y cancela sus suscripciones. */
+    public static void detach(Graph graph) {
+        StandingQueries standing = ATTACHED.remove(graph);
+        if (standing != null) {
+            graph.getEventManager().unregister(standing);
+            standing.stopFlushing();
+            standing.subscriptions.clear();
+        }
+    }
+
+    /**
+     * Suscribe una consulta compilada. El resultado inicial se calcula y se
+     * entrega en el hilo actual antes de volver.
+     *
+     * @param compiled Consulta compilada (ver {@link QueryRegistry#compile}).
+     * @param params Valores de los parámetros de la plantilla.
+     * @param subscriber Recibe el resultado inicial y después cada cambio.
+     * @return La suscripción; cerrarla deja de notificar.
+     * @throws IllegalArgumentException si la consulta no admite mantenimiento incremental.
+     */
+    public Subscription subscribe(QueryRegistry.CompiledQuery compiled, Map<String, Node> params,
+                                  Consumer<Delta> subscriber) {
+        Shape shape = analyze(compiled.query);
+        if (params.containsKey(shape.movie.getVarName())) {
+            throw new IllegalArgumentException("La variable de película ?" + shape.movie.getVarName()
+                + " no puede ser un parámetro de una consulta continua");
+        }
+        String name = compiled.name != null ? compiled.name : "consulta";
+        Subscription sub = new Subscription(name, shape, Map.copyOf(params), subscriber);
+        Delta initial;
+        model.enterCriticalSection(Lock.READ);
+        try {
+            synchronized (this) {
+                long t0 = System.nanoTime();
+                // Se registra antes de evaluar: los cambios posteriores quedan anotados
+                subscriptions.add(sub);
+                Map<Node, List<List<Node>>> all = evaluateAll(shape, sub.params);
+                List<Binding> added = new ArrayList<>();
+                all.forEach((movie, movieRows) -> apply(sub, movie, movieRows, added, new ArrayList<>()));
+                initial = new Delta(shape.vars, added, List.of(), all.size(), System.nanoTime() - t0);
+                sub.notifications++;
+            }
+        } finally {
+            model.leaveCriticalSection();
+        }
+        deliver(sub, initial);
+        return sub;
+    }
+
+    /**
+     * Reevalúa, para cada suscripción, las películas modificadas desde la
+     * llamada anterior y notifica los cambios.
+     *
+     * @return Notificaciones entregadas (suscripciones con algún cambio).
+     */
+    public int flush() {
+        Map<Subscription, Delta> deltas = new HashMap<>();
+        model.enterCriticalSection(Lock.READ);
+        try {
+            synchronized (this) {
+                flushes++;
+                for (Subscription sub : subscriptions) {
+                    if (sub.dirty.isEmpty()) continue;
+                    long t0 = System.nanoTime();
+                    List<Binding> added = new ArrayList<>(), removed = new ArrayList<>();
+                    int movies = 0;
+                    for (Iterator<Node> it = sub.dirty.iterator(); it.hasNext(); ) {
+                        // Se quita antes de evaluar: un cambio posterior lo vuelve a anotar
+                        Node movie = it.next();
+                        it.remove();
+                        apply(sub, movie, evaluate(sub.shape, sub.params, movie), added, removed);
+                        movies++;
+                    }
+                    reevaluated += movies;
+                    if (!added.isEmpty() || !removed.isEmpty()) {
+                        deltas.put(sub, new Delta(sub.shape.vars, added, removed, movies, System.nanoTime() - t0));
+                        sub.notifications++;
+                    }
+                }
+            }
+        } finally {
+            model.leaveCriticalSection();
+        }
+        deltas.forEach(this::deliver);
+        return deltas.size();
+    }
+
+    /**
+     * Llama a {@link #flush()} periódicamente en un hilo propio hasta
+     * {@link #close()}.
+     *
+     * @param interval Intervalo entre actualizaciones.
+     */
+    public synchronized void startFlushing(Duration interval) {
+        if (flusher != null) {
+            throw new IllegalStateException("La actualización periódica ya está en marcha");
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "consultas-continuas");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                System.err.println("Error actualizando consultas continuas: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopFlushing() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = flusher;
+            flusher = null;
+        }
+        if (stopping == null) return;
+        stopping.shutdown();
+        try {
+            stopping.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Detiene la actualización periódica, entrega los cambios pendientes y deja de seguir el grafo. */
+    @Override
+    public void close() {
+        stopFlushing();
+        flush();
+        detach(model.getGraph());
+    }
+
+    private void deliver(Subscription sub, Delta delta) {
+        try {
+            sub.subscriber.accept(delta);
+        } catch (RuntimeException e) {
+            System.err.println("Error notificando la consulta continua '" + sub.name + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sustituye las filas de una película y acumula la diferencia. Con
+     * DISTINCT se cuentan las copias de cada fila entre todas las películas y
+     * sólo se notifican la primera y la última.
+     */
+    private static void apply(Subscription sub, Node movie, List<List<Node>> after,
+                              List<Binding> added, List<Binding> removed) {
+        List<List<Node>> before = after.isEmpty() ? sub.rows.remove(movie) : sub.rows.put(movie, after);
+        Map<List<Node>, Integer> diff = new HashMap<>();
+        if (before != null) {
+            for (List<Node> row : before) diff.merge(row, -1, Integer::sum);
+        }
+        for (List<Node> row : after) diff.merge(row, 1, Integer::sum);
+        diff.forEach((row, change) -> {
+            for (int i = 0; i < Math.abs(change); i++) {
+                if (sub.shape.distinct) {
+                    int copies = sub.copies.merge(row, change > 0 ? 1 : -1, Integer::sum);
+                    if (copies == 0) sub.copies.remove(row);
+                    if (copies > (change > 0 ? 1 : 0)) continue;
+                }
+                (change > 0 ? added : removed).add(binding(sub.shape, row));
+                sub.size += change > 0 ? 1 : -1;
+            }
+        });
+    }
+
+    /** Evaluación inicial: todas las filas del patrón, agrupadas por película. */
+    private Map<Node, List<List<Node>>> evaluateAll(Shape shape, Map<String, Node> params) {
+        DatasetGraph dsg = DatasetGraphFactory.wrap(model.getGraph());
+        Op op = params.isEmpty() ? shape.pattern : Substitute.substitute(shape.pattern, QueryRegistry.binding(params));
+        Map<Node, List<List<Node>>> byMovie = new HashMap<>();
+        QueryIterator it = QueryRegistry.plan(op, dsg).iterator();
+        try {
+            while (it.hasNext()) {
+                Binding row = it.nextBinding();
+                Node movie = row.get(shape.movie);
+                if (movie == null) continue;
+                byMovie.computeIfAbsent(movie, m -> new ArrayList<>()).add(projection(shape, row, movie));
+            }
+        } finally {
+            it.close();
+        }
+        return byMovie;
+    }
+
+    /** Filas de una sola película: el patrón con la variable de película sustituida. */
+    private List<List<Node>> evaluate(Shape shape, Map<String, Node> params, Node movie) {
+        BindingBuilder builder = BindingBuilder.create();
+        params.forEach((k, v) -> builder.add(Var.alloc(k), v));
+        builder.add(shape.movie, movie);
+        Op op = Substitute.substitute(shape.pattern, builder.build());
+        List<List<Node>> out = new ArrayList<>();
+        QueryIterator it = QueryRegistry.plan(op, DatasetGraphFactory.wrap(model.getGraph())).iterator();
+        try {
+            while (it.hasNext()) {
+                out.add(projection(shape, it.nextBinding(), movie));
+            }
+        } finally {
+            it.close();
+        }
+        return out;
+    }
+
+    private static List<Node> projection(Shape shape, Binding row, Node movie) {
+        List<Node> values = new ArrayList<>(shape.projected.size());
+        for (Var v : shape.projected) {
+            // La sustitución quita la película de la fila: se vuelve a añadir
+            values.add(v.equals(shape.movie) ? movie : row.get(v));
+        }
+        return values;
+    }
+
+    private static Binding binding(Shape shape, List<Node> row) {
+        BindingBuilder builder = BindingBuilder.create();
+        for (int i = 0; i < row.size(); i++) {
+            if (row.get(i) != null) builder.add(shape.projected.get(i), row.get(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Comprueba que la consulta es una estrella sobre una variable y calcula
+     * los predicados que lee.
+     */
+    private static Shape analyze(Query query) {
+        if (!query.isSelectType() || query.hasAggregators() || query.hasGroupBy() || query.hasHaving()
+                || query.hasLimit() || query.hasOffset() || query.hasValues()
+                || !query.getProject().getExprs().isEmpty()) {
+            throw new IllegalArgumentException(
+                "Consulta continua no admitida: sólo SELECT sin agregados, LIMIT/OFFSET, VALUES ni expresiones en el SELECT");
+        }
+        Set<Node> subjects = new HashSet<>();
+        Set<Node> predicates = new HashSet<>();
+        boolean[] anyPredicate = {false};
+        boolean[] unsupported = {false};
+        class Collector extends ElementVisitorBase {
+            @Override
+            public void visit(ElementPathBlock el) {
+                for (TriplePath tp : el.getPattern()) {
+                    if (!tp.isTriple()) {
+                        subjects.add(tp.getSubject());
+                        anyPredicate[0] = true;
+                    } else {
+                        add(tp.asTriple());
+                    }
+                }
+            }
+
+            @Override
+            public void visit(ElementTriplesBlock el) {
+                for (Triple t : el.getPattern()) add(t);
+            }
+
+            @Override
+            public void visit(ElementFilter el) {
+                exists(el.getExpr());
+            }
+
+            @Override
+            public void visit(ElementBind el) {
+                exists(el.getExpr());
+            }
+
+            @Override
+            public void visit(ElementSubQuery el) {
+                unsupported[0] = true;
+            }
+
+            @Override
+            public void visit(ElementNamedGraph el) {
+                unsupported[0] = true;
+            }
+
+            @Override
+            public void visit(ElementService el) {
+                unsupported[0] = true;
+            }
+
+            /** ElementWalker no entra en [NOT] EXISTS: sus patrones se recorren aquí. */
+            private void exists(Expr expr) {
+                Walker.walk(expr, new ExprVisitorBase() {
+                    @Override
+                    public void visit(ExprFunctionOp op) {
+                        if (op.getElement() != null) ElementWalker.walk(op.getElement(), Collector.this);
+                        else unsupported[0] = true;
+                    }
+                });
+            }
+
+            private void add(Triple t) {
+                Node p = t.getPredicate();
+                // Listas de argumentos de las funciones idx: (rdf:first/rdf:rest)
+                if (p.equals(RDF.first.asNode()) || p.equals(RDF.rest.asNode())) return;
+                subjects.add(t.getSubject());
+                Node read = p.isURI() && p.getURI().startsWith(IndexFunctions.NS) ? IndexFunctions.property(p) : p;
+                if (read == null || read.isVariable()) anyPredicate[0] = true;
+                else predicates.add(read);
+            }
+        }
+        ElementWalker.walk(query.getQueryPattern(), new Collector());
+        if (unsupported[0] || subjects.size() != 1 || !subjects.iterator().next().isVariable()) {
+            throw new IllegalArgumentException(
+                "Consulta continua no admitida: todos los patrones deben tener como sujeto la misma variable");
+        }
+        Var movie = Var.alloc(subjects.iterator().next());
+        return new Shape(movie, anyPredicate[0] ? null : predicates, query);
+    }
+
+    @Override
+    protected void added(Triple t) {
+        changed(t);
+    }
+
+    @Override
+    protected void removed(Triple t) {
+        changed(t);
+    }
+
+    private void changed(Triple t) {
+        for (Subscription sub : subscriptions) {
+            if (sub.shape.reads(t.getPredicate())) sub.dirty.add(t.getSubject());
+        }
+    }
+
+    @Override
+    protected synchronized void cleared() {
+        for (Subscription sub : subscriptions) {
+            sub.dirty.addAll(sub.rows.keySet());
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d consultas continuas, %,d actualizaciones, %,d películas reevaluadas",
+            subscriptions.size(), flushes, reevaluated);
+    }
+}
@@ -0,0 +1,282 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.expr.nodevalue.XSDFuncOp;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Presenta resultados SPARQL como tabla ASCII compacta, en streaming.
+ *
+ * Estrategia de presentación:
+ * - Trunca valores largos (>MAX_COL_WIDTH) con "..." para mantener filas
+ *   en una sola línea y mejorar la legibilidad.
+ * - Centra las cabeceras de columna y alinea valores numéricos a la derecha;
+ *   una celda es numérica si su literal tiene un tipo numérico XSD.
+ * - Los anchos de columna se toman de una muestra acotada de las primeras
+ *   filas o de anchos declarados; el resto de filas se escribe directamente
+ *   desde el ResultSet, por lo que la memoria usada no depende del número de
+ *   filas. Los valores de filas posteriores a la muestra que no caben en el
+ *   ancho calculado se truncan con "...".
+ */
+public final class TableRenderer {
+
+    /** Ancho máximo para cualquier columna visualizada. */
+    public static final int MAX_COL_WIDTH = 40;
+
+    /** Número de filas que se leen por adelantado para calcular anchos. */
+    public static final int DEFAULT_SAMPLE = 256;
+
+    private final PrintWriter out;
+    private final int sampleSize;
+    private final int[] declaredWidths;
+
+    private TableRenderer(Writer out, int sampleSize, int[] declaredWidths) {
+        this.out = out instanceof PrintWriter ? (PrintWriter) out : new PrintWriter(out);
+        this.sampleSize = sampleSize;
+        this.declaredWidths = declaredWidths;
+    }
+
+    /**
+     * Renderer que calcula los anchos con las primeras filas.
+     *
+     * @param out Destino (se recomienda un writer con buffer).
+     * @param sampleSize Filas de muestra (al menos 1).
+     */
+    public static TableRenderer sampled(Writer out, int sampleSize) {
+        return new TableRenderer(out, Math.max(1, sampleSize), null);
+    }
+
+    /**
+     * Renderer con anchos fijos por columna; no retiene ninguna fila.
+     *
+     * @param out Destino (se recomienda un writer con buffer).
+     * @param widths Ancho de cada columna, en el orden de las variables.
+     */
+    public static TableRenderer declared(Writer out, int... widths) {
+        return new TableRenderer(out, 0, widths.clone());
+    }
+
+    /**
+     * Escribe la tabla completa y vacía el buffer del destino al terminar.
+     *
+     * @param results Resultados a mostrar (se consumen).
+     * @param vars Variables (columnas) en orden de presentación.
+     * @return Número de filas escritas.
+     */
+    public long render(ResultSet results, List<String> vars) {
+        int cols = vars.size();
+        Var[] columns = new Var[cols];
+        for (int i = 0; i < cols; i++) columns[i] = Var.alloc(vars.get(i));
+
+        // Muestra acotada de filas para calcular anchos (vacía si hay anchos declarados)
+        List<String[]> sample = new ArrayList<>();
+        List<boolean[]> sampleNumeric = new ArrayList<>();
+        while (sample.size() < sampleSize && results.hasNext()) {
+            Binding b = results.nextBinding();
+            String[] row = new String[cols];
+            boolean[] numeric = new boolean[cols];
+            for (int i = 0; i < cols; i++) {
+                Node node = b.get(columns[i]);
+                row[i] = truncate(text(node), MAX_COL_WIDTH);
+                numeric[i] = isNumeric(node);
+            }
+            sample.add(row);
+            sampleNumeric.add(numeric);
+        }
+
+        // Caso especial: si no hay resultados, informar y retornar temprano
+        if (sample.isEmpty() && !results.hasNext()) {
+            out.println("(sin resultados)");
+            out.flush();
+            return 0;
+        }
+
+        int[] widths = new int[cols];
+        for (int i = 0; i < cols; i++) {
+            if (declaredWidths != null && i < declaredWidths.length) {
+                widths[i] = Math.min(declaredWidths[i], MAX_COL_WIDTH);
+            } else {
+                // Inicializar con el tamaño del nombre de variable (header) y ampliar con la muestra
+                widths[i] = Math.min(vars.get(i).length(), MAX_COL_WIDTH);
+                for (String[] row : sample) widths[i] = Math.max(widths[i], row[i].length());
+            }
+        }
+
+        // Construir separador horizontal (líneas de guiones entre celdas)
+        StringBuilder sb = new StringBuilder(128);
+        sb.append('+');
+        for (int w : widths) {
+            sb.append(repeat('-', w + 2)); // +2 para espacios de padding
+            sb.append('+');
+        }
+        String sep = sb.toString();
+
+        // Cabecera (nombres legibles de variables centrados)
+        sb.setLength(0);
+        sb.append('|');
+        for (int i = 0; i < cols; i++) {
+            String label = niceLabel(vars.get(i));
+            sb.append(' ').append(center(label, widths[i])).append(' ').append('|');
+        }
+        out.println(sep);
+        out.println(sb);
+        out.println(sep);
+
+        // Filas de la muestra y, a continuación, el resto directamente del ResultSet
+        long count = 0;
+        for (int r = 0; r < sample.size(); r++) {
+            writeRow(sb, sample.get(r), sampleNumeric.get(r), widths);
+            count++;
+        }
+        sample.clear();
+        sampleNumeric.clear();
+
+        String[] row = new String[cols];
+        boolean[] numeric = new boolean[cols];
+        while (results.hasNext()) {
+            Binding b = results.nextBinding();
+            for (int i = 0; i < cols; i++) {
+                Node node = b.get(columns[i]);
+                row[i] = truncate(text(node), widths[i]);
+                numeric[i] = isNumeric(node);
+            }
+            writeRow(sb, row, numeric, widths);
+            count++;
+        }
+
+        // Separador final de tabla
+        out.println(sep);
+        out.flush();
+        return count;
+    }
+
+    private void writeRow(StringBuilder sb, String[] row, boolean[] numeric, int[] widths) {
+        sb.setLength(0);
+        sb.append('|');
+        for (int i = 0; i < row.length; i++) {
+            // Alinear números a la derecha, texto a la izquierda
+            sb.append(' ').append(formatCell(row[i], widths[i], numeric[i])).append(' ').append('|');
+        }
+        out.println(sb);
+    }
+
+    /** Texto a mostrar de un nodo: forma léxica de los literales, URI o etiqueta en otro caso. */
+    private static String text(Node node) {
+        if (node == null) return "";
+        return node.isLiteral() ? node.getLiteralLexicalForm() : node.toString();
+    }
+
+    /** Numérico según el tipo de dato del literal (xsd:integer, xsd:decimal, xsd:double...). */
+    private static boolean isNumeric(Node node) {
+        return node != null && node.isLiteral() && XSDFuncOp.isNumeric(node);
+    }
+
+    /** Trunca con "..." los valores que exceden el ancho dado. */
+    private static String truncate(String s, int width) {
+        if (s.length() <= width) return s;
+        if (width <= 3) return s.substring(0, width);
+        return s.substring(0, width - 3) + "...";
+    }
+
+    /**
+     * Repite un carácter n veces y devuelve la cadena resultante.
+     *
+     * @param c Carácter a repetir.
+     * @param n Número de repeticiones (si es negativo, devuelve cadena vacía).
+     * @return Cadena con el carácter repetido n veces.
+     */
+    private static String repeat(char c, int n) {
+        return String.valueOf(c).repeat(Math.max(0, n));
+    }
+
+    /**
+     * Convierte nombres de variables SPARQL en etiquetas legibles para humanos.
+     * Utiliza un mapa de traducciones comunes y, si no encuentra coincidencia,
+     * transforma camelCase y guiones bajos en espacios.
+     *
+     * Ejemplo: "duracionPromedio" → "duracionPromedio" (según mapa),
+     *          "myVariableName" → "my Variable Name" (transformación genérica).
+     *
+     * @param var Nombre de la variable SPARQL.
+     * @return Etiqueta legible para mostrar en la cabecera de tabla.
+     */
+    private static String niceLabel(String var) {
+        if (var == null || var.isEmpty()) return "";
+        // Si la variable está en el mapa, usar la etiqueta personalizada
+        String label = LABELS.get(var);
+        if (label != null) return label;
+        // Transformación genérica: insertar espacio antes de mayúsculas y reemplazar '_'
+        return CAMEL_CASE.matcher(var).replaceAll("$1 $2").replace('_', ' ');
+    }
+
+    /** Mapeo de nombres comunes a etiquetas preferidas (puedes personalizarlo). */
+    private static final Map<String, String> LABELS = Map.of(
+        "tituloEspanol", "tituloEspanol",
+        "titulo", "titulo",
+        "estreno", "estreno",
+        "duracion", "duracion",
+        "genero", "genero",
+        "clasificacion", "clasificacion",
+        "preventa", "preventa",
+        "formato", "formato",
+        "duracionPromedio", "duracionPromedio",
+        "totalPeliculas", "totalPeliculas");
+
+    private static final Pattern CAMEL_CASE = Pattern.compile("([a-z])([A-Z])");
+
+    /**
+     * Formatea una celda para que ocupe exactamente el ancho especificado,
+     * añadiendo espacios de relleno a la izquierda (si rightAlign=true)
+     * o a la derecha (si rightAlign=false).
+     *
+     * Si la cadena excede el ancho, se trunca.
+     *
+     * @param s Contenido de la celda.
+     * @param width Ancho objetivo de la celda.
+     * @param rightAlign Si true, alinea a la derecha (útil para números).
+     * @return Cadena formateada con el ancho exacto especificado.
+     */
+    private static String formatCell(String s, int width, boolean rightAlign) {
+        if (s == null) s = "";
+        // Truncar si excede el ancho
+        if (s.length() > width) s = s.substring(0, width);
+        int pad = width - s.length();
+        if (pad <= 0) return s;
+        // Alineación derecha: espacios antes del texto
+        if (rightAlign) {
+            return " ".repeat(pad) + s;
+        } else {
+            // Alineación izquierda: espacios después del texto
+            return s + " ".repeat(pad);
+        }
+    }
+
+    /**
+     * Centra una cadena dentro de un ancho especificado, distribuyendo
+     * espacios de relleno de forma equitativa a ambos lados.
+     *
+     * Si la cadena es más larga que el ancho, se trunca.
+     *
+     * @param s Cadena a centrar.
+     * @param width Ancho objetivo.
+     * @return Cadena centrada con espacios de padding.
+     */
+    private static String center(String s, int width) {
+        if (s == null) s = "";
+        // Truncar si excede el ancho
+        if (s.length() >= width) return s.substring(0, width);
+        int totalPad = width - s.length();
+        int left = totalPad / 2;
+        int right = totalPad - left;
+        return " ".repeat(left) + s + " ".repeat(right);
+    }
+}
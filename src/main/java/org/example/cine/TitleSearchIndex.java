@@ -0,0 +1,421 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre cine:titulo y cine:tituloEspanol,
+ * mantenido en sincronía con el grafo mediante un listener, igual que
+ * {@link CatalogIndexes}.
+ *
+ * Análisis de los títulos (el mismo para el texto buscado):
+ * <ul>
+ *   <li>minúsculas y separación por todo lo que no sea letra o dígito;</li>
+ *   <li>palabras vacías del español ("el", "de", "los"...) descartadas;</li>
+ *   <li>acentos plegados ("Acción" → "accion"); la "ñ" se indexa como "n" y
+ *       como "ni", de modo que "muneca" y "munieca" encuentran "Muñeca";</li>
+ *   <li>cada palabra se indexa entera y con su raíz ligera (plurales y vocal
+ *       final fuera: "tierras" → "tierr"), para que singular y plural coincidan.</li>
+ * </ul>
+ *
+ * Una búsqueda devuelve las películas que contienen todas las palabras del
+ * texto. La última palabra, o cualquiera acabada en '*', se busca además
+ * como prefijo ("depre", "tro*"). Los términos se guardan en un mapa
+ * ordenado, así que un prefijo es un rango contiguo del mapa, y cada término
+ * tiene una lista ordenada de ids de película: la intersección cuesta lo
+ * que la lista más corta y no depende del tamaño del catálogo.
+ *
+ * Las consultas llegan con {@code idx:titulo} de {@link IndexFunctions}.
+ */
+public final class TitleSearchIndex extends TripleListener {
+
+    /** Índices registrados por grafo (claves débiles: no retienen el grafo). */
+    private static final Map<Graph, TitleSearchIndex> ATTACHED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** Predicados indexados. */
+    static final List<Node> PREDICATES = List.of(CineVocab.TITULO, CineVocab.TITULO_ESPANOL);
+
+    private static final Set<String> STOPWORDS = Set.of(
+        "el", "la", "los", "las", "lo", "un", "una", "unos", "unas", "de", "del", "al", "a",
+        "y", "e", "o", "u", "en", "por", "para", "con", "sin", "su", "sus", "se", "que");
+
+    /** Resultado de una búsqueda: película y puntuación en (0, 1]. */
+    public static final class Hit {
+        public final Node movie;
+        public final double score;
+
+        Hit(Node movie, double score) {
+            this.movie = movie;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return movie + " (" + score + ")";
+        }
+    }
+
+    /** Lista ordenada de ids de película de un término. */
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            ids[i] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) return;
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            size--;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private final List<Node> movies = new ArrayList<>();
+    /** Literales de título de cada película (por id). */
+    private final List<Set<Node>> titles = new ArrayList<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    private TitleSearchIndex() {
+    }
+
+    /**
+     * Indexa los títulos actuales del grafo y los mantiene actualizados a
+     * partir de ese momento. Si el grafo ya tenía índice, se devuelve el existente.
+     *
+     * @param graph Grafo a indexar.
+     * @return Índice de títulos del grafo.
+     */
+    public static TitleSearchIndex attach(Graph graph) {
+        synchronized (ATTACHED) {
+            TitleSearchIndex existing = ATTACHED.get(graph);
+            if (existing != null) return existing;
+            TitleSearchIndex index = build(graph);
+            graph.getEventManager().register(index);
+            ATTACHED.put(graph, index);
+            return index;
+        }
+    }
+
+    /**
+     * Indexa los títulos actuales del grafo sin registrarse como listener
+     * (para grafos sin índice, como un dataset TDB2).
+     */
+    static TitleSearchIndex build(Graph graph) {
+        TitleSearchIndex index = new TitleSearchIndex();
+        for (Node p : PREDICATES) {
+            ExtendedIterator<Triple> it = graph.find(Node.ANY, p, Node.ANY);
+            try {
+                while (it.hasNext()) index.added(it.next());
+            } finally {
+                it.close();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return Índice de títulos del grafo, o null si no se ha construido.
+     */
+    public static TitleSearchIndex forGraph(Graph graph) {
+        return ATTACHED.get(graph);
+    }
+
+    /**
+     * Deja de mantener el índice del grafo y lo descarta.
+     */
+    public static void detach(Graph graph) {
+        TitleSearchIndex index = ATTACHED.remove(graph);
+        if (index != null) graph.getEventManager().unregister(index);
+    }
+
+    @Override
+    protected void added(Triple t) {
+        if (isTitle(t)) update(t, true);
+    }
+
+    @Override
+    protected void removed(Triple t) {
+        if (isTitle(t)) update(t, false);
+    }
+
+    @Override
+    protected void cleared() {
+        lock.writeLock().lock();
+        try {
+            titles.forEach(Set::clear);
+            terms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isTitle(Triple t) {
+        return t.getObject().isLiteral() && PREDICATES.contains(t.getPredicate());
+    }
+
+    /**
+     * Añade o quita un título de la película y ajusta sólo los términos que
+     * dejan de aparecer o aparecen por primera vez en sus títulos.
+     */
+    private void update(Triple t, boolean add) {
+        lock.writeLock().lock();
+        try {
+            Integer known = ids.get(t.getSubject());
+            if (known == null && !add) return;
+            int id = known != null ? known : id(t.getSubject());
+            Set<Node> literals = titles.get(id);
+            Set<String> before = termsOf(literals);
+            if (!(add ? literals.add(t.getObject()) : literals.remove(t.getObject()))) return;
+            Set<String> after = termsOf(literals);
+            for (String term : before) {
+                if (after.contains(term)) continue;
+                Postings postings = terms.get(term);
+                if (postings == null) continue;
+                postings.remove(id);
+                if (postings.size == 0) terms.remove(term);
+            }
+            for (String term : after) {
+                if (!before.contains(term)) terms.computeIfAbsent(term, k -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int id(Node movie) {
+        int id = movies.size();
+        ids.put(movie, id);
+        movies.add(movie);
+        titles.add(new HashSet<>(2));
+        return id;
+    }
+
+    private static Set<String> termsOf(Set<Node> literals) {
+        Set<String> out = new HashSet<>();
+        for (Node literal : literals) indexTerms(literal.getLiteralLexicalForm(), out);
+        return out;
+    }
+
+    /**
+     * Busca películas cuyo título (original o en español) contenga todas las
+     * palabras del texto.
+     *
+     * @param text Texto buscado, con el mismo análisis que los títulos.
+     * @param limit Máximo de resultados (0 o negativo = sin límite).
+     * @return Películas encontradas: primero las que coinciden con palabras
+     *         completas, después las que sólo coinciden por prefijo.
+     */
+    public List<Hit> search(String text, int limit) {
+        List<String> words = words(text);
+        if (words.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            int[] exact = null;
+            BitSet prefixOnly = null;
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                boolean prefix = word.endsWith("*") || i == words.size() - 1;
+                word = word.endsWith("*") ? word.substring(0, word.length() - 1) : word;
+                if (word.isEmpty()) continue;
+                int[] whole = postings(stem(word));
+                int[] matched = whole;
+                if (prefix) {
+                    BitSet union = prefixUnion(word);
+                    for (int id : whole) union.set(id);
+                    matched = union.stream().toArray();
+                    // Las que sólo encajan por prefijo puntúan menos
+                    BitSet partial = (BitSet) union.clone();
+                    for (int id : whole) partial.clear(id);
+                    if (prefixOnly == null) prefixOnly = partial;
+                    else prefixOnly.or(partial);
+                }
+                exact = exact == null ? matched : intersect(exact, matched);
+                if (exact.length == 0) return List.of();
+            }
+            if (exact == null) return List.of();
+
+            int max = limit > 0 ? Math.min(limit, exact.length) : exact.length;
+            List<Hit> hits = new ArrayList<>(max);
+            List<Hit> partial = new ArrayList<>();
+            for (int id : exact) {
+                if (prefixOnly != null && prefixOnly.get(id)) {
+                    if (hits.size() + partial.size() < max) partial.add(new Hit(movies.get(id), 0.5));
+                } else if (hits.size() < max) {
+                    hits.add(new Hit(movies.get(id), 1.0));
+                }
+            }
+            for (Hit h : partial) {
+                if (hits.size() == max) break;
+                hits.add(h);
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] postings(String term) {
+        Postings p = terms.get(term);
+        return p == null ? new int[0] : Arrays.copyOf(p.ids, p.size);
+    }
+
+    /** Películas con algún término que empiece por el prefijo. */
+    private BitSet prefixUnion(String prefix) {
+        BitSet union = new BitSet();
+        for (Postings p : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < p.size; i++) union.set(p.ids[i]);
+        }
+        return union;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Palabras significativas del texto: minúsculas, sin acentos (la "ñ"
+     * queda como "n") y sin palabras vacías. Un '*' final se conserva.
+     */
+    static List<String> words(String text) {
+        List<String> out = new ArrayList<>();
+        for (String token : tokens(text, false)) {
+            if (!STOPWORDS.contains(token)) out.add(token);
+        }
+        return out;
+    }
+
+    /** Añade los términos indexados de un título: palabra plegada y raíz, con variantes de "ñ". */
+    static void indexTerms(String title, Set<String> out) {
+        for (String folded : tokens(title, true)) {
+            if (STOPWORDS.contains(folded)) continue;
+            out.add(folded);
+            out.add(stem(folded));
+        }
+    }
+
+    /**
+     * Separa el texto en palabras en minúsculas y sin acentos. Con
+     * {@code variants}, una palabra con "ñ" aparece dos veces: con "n" y con "ni".
+     */
+    private static Set<String> tokens(String text, boolean variants) {
+        Set<String> out = new LinkedHashSet<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && (Character.isLetterOrDigit(lower.charAt(i))
+                || (!variants && lower.charAt(i) == '*' && start >= 0));
+            if (word && start < 0) start = i;
+            if (!word && start >= 0) {
+                String token = lower.substring(start, i);
+                out.add(fold(token.replace('ñ', 'n')));
+                if (variants && token.indexOf('ñ') >= 0) out.add(fold(token.replace("ñ", "ni")));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    /** Quita las marcas diacríticas ("acción" → "accion"). */
+    private static String fold(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Raíz ligera en español (plurales y vocal final), como el
+     * SpanishLightStemmer de Lucene: "tierras" → "tierr", "luces" → "luz".
+     * Las palabras de menos de cinco letras no se tocan.
+     */
+    static String stem(String w) {
+        int len = w.length();
+        if (len < 5) return w;
+        switch (w.charAt(len - 1)) {
+            case 'o': case 'a': case 'e':
+                return w.substring(0, len - 1);
+            case 's':
+                if (w.charAt(len - 2) == 'e' && w.charAt(len - 3) == 's' && w.charAt(len - 4) == 'e') {
+                    return w.substring(0, len - 2);
+                }
+                if (w.charAt(len - 2) == 'e' && w.charAt(len - 3) == 'c') {
+                    return w.substring(0, len - 3) + "z";
+                }
+                if (w.charAt(len - 2) == 'o' || w.charAt(len - 2) == 'a' || w.charAt(len - 2) == 'e') {
+                    return w.substring(0, len - 2);
+                }
+                return w;
+            default:
+                return w;
+        }
+    }
+
+    /** @return Número de películas con algún título indexado. */
+    public int movieCount() {
+        lock.readLock().lock();
+        try {
+            int n = 0;
+            for (Set<Node> t : titles) if (!t.isEmpty()) n++;
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return Número de términos distintos del índice. */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d películas, %,d términos", movieCount(), termCount());
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.cine;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ResultSet que delega en otro y alimenta una {@link QueryTrace}: cuenta
+ * filas, anota la primera y cierra la traza al agotarse, al cerrarse o al
+ * fallar la evaluación.
+ */
+public final class TracedResultSet implements ResultSet {
+
+    private final ResultSet delegate;
+    private final QueryTrace trace;
+
+    TracedResultSet(ResultSet delegate, QueryTrace trace) {
+        this.delegate = delegate;
+        this.trace = trace;
+    }
+
+    /** @return Traza de esta ejecución. */
+    public QueryTrace trace() {
+        return trace;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            boolean more = delegate.hasNext();
+            if (!more) trace.finish(null);
+            return more;
+        } catch (RuntimeException e) {
+            trace.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Binding nextBinding() {
+        try {
+            Binding b = delegate.nextBinding();
+            trace.row();
+            return b;
+        } catch (RuntimeException e) {
+            trace.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public QuerySolution nextSolution() {
+        try {
+            QuerySolution s = delegate.nextSolution();
+            trace.row();
+            return s;
+        } catch (RuntimeException e) {
+            trace.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public QuerySolution next() {
+        return nextSolution();
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super QuerySolution> action) {
+        while (hasNext()) action.accept(nextSolution());
+    }
+
+    @Override
+    public int getRowNumber() {
+        return delegate.getRowNumber();
+    }
+
+    @Override
+    public List<String> getResultVars() {
+        return delegate.getResultVars();
+    }
+
+    @Override
+    public Model getResourceModel() {
+        return delegate.getResourceModel();
+    }
+
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } finally {
+            trace.finish(null);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.GraphListener;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Adaptador de {@link GraphListener} que reduce todas las notificaciones
+ * (triples sueltos, arrays, listas, iteradores y grafos) a tres métodos:
+ * {@link #added(Triple)}, {@link #removed(Triple)} y {@link #cleared()}.
+ *
+ * Jena notifica cada add/delete aunque el triple ya existiera (o no
+ * existiera), así que las subclases deben tratar las notificaciones con
+ * semántica de conjunto: añadir dos veces lo mismo no puede contar doble.
+ */
+abstract class TripleListener implements GraphListener {
+
+    /** Un triple se ha añadido (o se ha vuelto a añadir) al grafo. */
+    protected abstract void added(Triple t);
+
+    /** Un triple se ha eliminado (o se ha intentado eliminar) del grafo. */
+    protected abstract void removed(Triple t);
+
+    @Override
+    public void notifyAddTriple(Graph g, Triple t) {
+        added(t);
+    }
+
+    @Override
+    public void notifyAddArray(Graph g, Triple[] triples) {
+        for (Triple t : triples) added(t);
+    }
+
+    @Override
+    public void notifyAddList(Graph g, List<Triple> triples) {
+        for (Triple t : triples) added(t);
+    }
+
+    @Override
+    public void notifyAddIterator(Graph g, Iterator<Triple> it) {
+        while (it.hasNext()) added(it.next());
+    }
+
+    @Override
+    public void notifyAddGraph(Graph g, Graph added) {
+        ExtendedIterator<Triple> it = added.find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (it.hasNext()) added(it.next());
+        } finally {
+            it.close();
+        }
+    }
+
+    @Override
+    public void notifyDeleteTriple(Graph g, Triple t) {
+        removed(t);
+    }
+
+    @Override
+    public void notifyDeleteList(Graph g, List<Triple> triples) {
+        for (Triple t : triples) removed(t);
+    }
+
+    @Override
+    public void notifyDeleteArray(Graph g, Triple[] triples) {
+        for (Triple t : triples) removed(t);
+    }
+
+    @Override
+    public void notifyDeleteIterator(Graph g, Iterator<Triple> it) {
+        while (it.hasNext()) removed(it.next());
+    }
+
+    @Override
+    public void notifyDeleteGraph(Graph g, Graph removed) {
+        ExtendedIterator<Triple> it = removed.find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (it.hasNext()) removed(it.next());
+        } finally {
+            it.close();
+        }
+    }
+
+    /** El grafo se ha vaciado por completo ({@code Graph.clear()}). */
+    protected abstract void cleared();
+
+    @Override
+    public void notifyEvent(Graph source, Object value) {
+        // remove(s,p,o) ya llega también como borrados de triples individuales;
+        // clear() sólo se notifica con este evento.
+        if (GraphEvents.removeAll.equals(value)) {
+            cleared();
+        }
+    }
+}
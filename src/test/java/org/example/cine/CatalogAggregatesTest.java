@@ -0,0 +1,107 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogAggregatesTest {
+
+    private static final List<Node> GENRES = List.of(
+        MovieTriples.string("Acción"), MovieTriples.string("Drama"), MovieTriples.string("Terror"));
+    private static final List<Node> RATINGS = List.of(
+        MovieTriples.string("Mayores de 12 años"), MovieTriples.string("Para todo el Público"));
+    private static final List<Node> STATUSES = List.of(
+        MovieTriples.string("En cartelera"), MovieTriples.string("Próximamente"));
+
+    private static Node minutes(int value) {
+        return NodeFactory.createLiteral(Integer.toString(value), XSDDatatype.XSDinteger);
+    }
+
+    /** Estadísticas como texto comparable (DurationStats no define equals). */
+    private static Map<Node, String> durations(CatalogAggregates aggregates, int min) {
+        Map<Node, String> out = new HashMap<>();
+        aggregates.durationByGenre(min).forEach((g, s) ->
+            out.put(g, s.count + "/" + s.sum + "/" + s.min + "/" + s.max));
+        return out;
+    }
+
+    /** Los agregados mantenidos deben coincidir con los calculados desde cero. */
+    private static void assertMatchesRecomputed(Graph graph, CatalogAggregates maintained) {
+        Graph copy = GraphFactory.createDefaultGraph();
+        GraphUtil.addInto(copy, graph);
+        CatalogAggregates fresh = CatalogAggregates.attach(copy);
+        assertEquals(fresh.moviesByGenre(), maintained.moviesByGenre());
+        assertEquals(fresh.moviesByRating(), maintained.moviesByRating());
+        assertEquals(fresh.moviesByStatus(), maintained.moviesByStatus());
+        for (int min : new int[] {0, 90, 110, 130, 300}) {
+            assertEquals(durations(fresh, min), durations(maintained, min), "minimo " + min);
+        }
+    }
+
+    @Test
+    void randomUpdatesMatchARecomputation() {
+        Graph graph = GraphFactory.createDefaultGraph();
+        new CatalogGenerator(5).generate(StreamRDFLib.graph(graph), 300);
+        CatalogAggregates aggregates = CatalogAggregates.attach(graph);
+        assertMatchesRecomputed(graph, aggregates);
+
+        SplittableRandom rnd = new SplittableRandom(17);
+        for (int step = 0; step < 5_000; step++) {
+            Node movie = CineVocab.movie(Integer.toString(1 + rnd.nextInt(320)));
+            Triple t;
+            switch (rnd.nextInt(4)) {
+                case 0: t = Triple.create(movie, CineVocab.GENERO, GENRES.get(rnd.nextInt(GENRES.size()))); break;
+                case 1: t = Triple.create(movie, CineVocab.DURACION, minutes(80 + rnd.nextInt(80))); break;
+                case 2: t = Triple.create(movie, CineVocab.CLASIFICACION, RATINGS.get(rnd.nextInt(RATINGS.size()))); break;
+                default: t = Triple.create(movie, CineVocab.ESTADO, STATUSES.get(rnd.nextInt(STATUSES.size())));
+            }
+            // Se añaden y borran triples existentes e inexistentes
+            if (rnd.nextBoolean()) {
+                graph.add(t);
+            } else {
+                graph.delete(t);
+            }
+            if (step % 1_000 == 0) assertMatchesRecomputed(graph, aggregates);
+        }
+        graph.remove(CineVocab.movie("1"), Node.ANY, Node.ANY);
+        assertMatchesRecomputed(graph, aggregates);
+    }
+
+    @Test
+    void duplicatesCountOnceAndOrderDoesNotMatter() {
+        Graph graph = GraphFactory.createDefaultGraph();
+        CatalogAggregates aggregates = CatalogAggregates.attach(graph);
+        Node dune = CineVocab.movie("p1");
+        Node drama = GENRES.get(1);
+        // Duración antes que el género
+        graph.add(Triple.create(dune, CineVocab.DURACION, minutes(155)));
+        graph.add(Triple.create(dune, CineVocab.GENERO, drama));
+        graph.add(Triple.create(dune, CineVocab.GENERO, drama));
+        assertEquals(Map.of(drama, 1), aggregates.moviesByGenre());
+        assertEquals(Map.of(drama, "1/155/155/155"), durations(aggregates, 0));
+        assertEquals(Map.of(), durations(aggregates, 155));
+
+        graph.delete(Triple.create(dune, CineVocab.GENERO, drama));
+        assertEquals(Map.of(), aggregates.moviesByGenre());
+        assertEquals(Map.of(), durations(aggregates, 0));
+
+        graph.add(Triple.create(dune, CineVocab.GENERO, drama));
+        graph.clear();
+        assertTrue(aggregates.moviesByGenre().isEmpty());
+        assertEquals(Map.of(), durations(aggregates, 0));
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogBulkLoaderTest {
+
+    private static final String VALID =
+        "{\"id\":\"p1\",\"titulo\":\"Dune\",\"genero\":[\"Drama\",\"Ciencia ficci\\u00f3n\"],"
+            + "\"duracion\":155,\"estreno\":\"2021-10-21\",\"preventa\":true}";
+
+    @Test
+    void jsonLinesRowIsLoaded() throws IOException {
+        Graph graph = GraphFactory.createDefaultGraph();
+        CatalogBulkLoader.Stats stats = CatalogBulkLoader.loadJsonLines(new StringReader(VALID), StreamRDFLib.graph(graph));
+        assertEquals(1, stats.rows);
+        assertEquals(0, stats.skipped);
+        assertTrue(graph.contains(CineVocab.movie("p1"), CineVocab.GENERO,
+            NodeFactory.createLiteral("Ciencia ficción")));
+    }
+
+    @Test
+    void malformedUnicodeEscapeSkipsOnlyThatRow() throws IOException {
+        String input = "{\"id\":\"p0\",\"titulo\":\"Mal \\u00zz\",\"estreno\":\"2021-01-01\"}\n" + VALID;
+        Graph graph = GraphFactory.createDefaultGraph();
+        CatalogBulkLoader.Stats stats = CatalogBulkLoader.loadJsonLines(new StringReader(input), StreamRDFLib.graph(graph));
+        assertEquals(1, stats.rows);
+        assertEquals(1, stats.skipped);
+    }
+
+    @Test
+    void invalidReleaseDateSkipsRow() throws IOException {
+        String input = "id,titulo,estreno\np1,Dune,2021-10-21\np2,Malo,21/10/2021\np3,Peor,2021-02-30\n";
+        Graph graph = GraphFactory.createDefaultGraph();
+        CatalogBulkLoader.Stats stats = CatalogBulkLoader.loadCsv(new StringReader(input), StreamRDFLib.graph(graph));
+        assertEquals(1, stats.rows);
+        assertEquals(2, stats.skipped);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CatalogColumnsTest {
+
+    @Test
+    void genreGroupByMatchesSparql() {
+        Model model = ModelFactory.createDefaultModel();
+        StreamRDF sink = StreamRDFLib.graph(model.getGraph());
+        sink.start();
+        new CatalogGenerator(7).generate(sink, 5_000);
+        sink.finish();
+
+        CatalogColumns columns = CatalogColumns.build(model.getGraph());
+        BitSet selection = columns.durationBetween(90, Integer.MAX_VALUE);
+        Map<String, Long> counts = new TreeMap<>(columns.countBy(CatalogColumns.Dimension.GENERO, selection));
+        Map<String, Long> sums = new TreeMap<>();
+        columns.durationBy(CatalogColumns.Dimension.GENERO, selection).forEach((g, s) -> sums.put(g, s.sum));
+
+        Map<String, Long> expectedCounts = new TreeMap<>();
+        Map<String, Long> expectedSums = new TreeMap<>();
+        String query = "PREFIX cine: <" + CineVocab.NS + ">\n"
+            + "SELECT ?g (COUNT(?p) AS ?n) (SUM(?d) AS ?total) WHERE {\n"
+            + "  ?p cine:genero ?g . ?p cine:duracion ?d . FILTER(?d >= 90)\n"
+            + "} GROUP BY ?g";
+        try (QueryExecution qe = QueryExecution.model(model).query(query).build()) {
+            ResultSet rs = qe.execSelect();
+            while (rs.hasNext()) {
+                QuerySolution row = rs.next();
+                String genre = row.getLiteral("g").getString();
+                expectedCounts.put(genre, row.getLiteral("n").getLong());
+                expectedSums.put(genre, row.getLiteral("total").getLong());
+            }
+        }
+        assertEquals(expectedCounts, counts);
+        assertEquals(expectedSums, sums);
+    }
+
+    @Test
+    void moreThan64GenresWidenTheGenreColumn() {
+        // 200 películas, 150 géneros: la película i tiene el género i % 150 y,
+        // si es par, también el (i + 70) % 150, que cae en otra palabra
+        Graph graph = GraphFactory.createDefaultGraph();
+        Map<String, Long> expectedCounts = new TreeMap<>();
+        Map<String, Long> expectedSums = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            Node movie = CineVocab.movie("p" + i);
+            graph.add(Triple.create(movie, CineVocab.DURACION,
+                NodeFactory.createLiteral(Integer.toString(80 + i % 50), XSDDatatype.XSDinteger)));
+            int[] genres = i % 2 == 0 ? new int[] {i % 150, (i + 70) % 150} : new int[] {i % 150};
+            for (int g : genres) {
+                String genre = "genero" + g;
+                graph.add(Triple.create(movie, CineVocab.GENERO, MovieTriples.string(genre)));
+                expectedCounts.merge(genre, 1L, Long::sum);
+                expectedSums.merge(genre, (long) (80 + i % 50), Long::sum);
+            }
+        }
+
+        CatalogColumns columns = CatalogColumns.build(graph);
+        BitSet all = columns.all();
+        assertEquals(expectedCounts, new TreeMap<>(columns.countBy(CatalogColumns.Dimension.GENERO, all)));
+        Map<String, Long> sums = new HashMap<>();
+        columns.durationBy(CatalogColumns.Dimension.GENERO, all).forEach((g, s) -> sums.put(g, s.sum));
+        assertEquals(expectedSums, sums);
+
+        // genero140 sólo lo tienen p140 y, por el segundo género, p70 (par)
+        BitSet selected = columns.anyOf(CatalogColumns.Dimension.GENERO, "genero140");
+        BitSet expected = new BitSet();
+        for (int row = 0; row < columns.size(); row++) {
+            String id = columns.movie(row).getURI();
+            if (id.equals(CineVocab.movie("p140").getURI()) || id.equals(CineVocab.movie("p70").getURI())) {
+                expected.set(row);
+            }
+        }
+        assertEquals(expected, selected);
+        assertEquals(2, selected.cardinality());
+    }
+}
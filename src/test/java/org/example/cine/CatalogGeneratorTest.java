@@ -0,0 +1,68 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogGeneratorTest {
+
+    private static Graph generate(long seed, int films) {
+        Graph graph = GraphFactory.createDefaultGraph();
+        new CatalogGenerator(seed).generate(StreamRDFLib.graph(graph), films);
+        return graph;
+    }
+
+    private static Set<Triple> triples(Graph graph) {
+        return new HashSet<>(graph.find().toList());
+    }
+
+    @Test
+    void sameSeedProducesTheSameCatalog() {
+        Graph first = generate(42, 500);
+        Graph second = generate(42, 500);
+        assertEquals(triples(first), triples(second));
+        assertEquals(500, first.find(Node.ANY, CineVocab.TITULO, Node.ANY).toList().size());
+    }
+
+    @Test
+    void differentSeedsProduceDifferentCatalogs() {
+        assertFalse(triples(generate(1, 200)).equals(triples(generate(2, 200))));
+    }
+
+    @Test
+    void smallerCatalogIsAPrefixOfALargerOne() {
+        Set<Triple> larger = triples(generate(7, 300));
+        Set<Triple> smaller = triples(generate(7, 100));
+        assertTrue(larger.containsAll(smaller));
+        for (Triple t : smaller) {
+            String uri = t.getSubject().getURI();
+            int id = Integer.parseInt(uri.substring(uri.lastIndexOf('/') + 1));
+            assertTrue(id >= 1 && id <= 100, t.toString());
+        }
+    }
+
+    @Test
+    void writtenFilesAreByteIdentical(@TempDir Path dir) throws IOException {
+        Path a = dir.resolve("a.nt");
+        Path b = dir.resolve("b.nt");
+        long triples = new CatalogGenerator(9).writeTo(a, 250);
+        assertEquals(triples, new CatalogGenerator(9).writeTo(b, 250));
+        assertArrayEquals(Files.readAllBytes(a), Files.readAllBytes(b));
+        assertEquals(triples, Files.readAllLines(b).size());
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CatalogIndexesTest {
+
+    private static final String QUERY = "PREFIX idx: <" + IndexFunctions.NS + ">\n"
+        + "SELECT ?p WHERE { ?p idx:estrenoEntre (\"2025-01-01\"^^<http://www.w3.org/2001/XMLSchema#date> "
+        + "\"2025-12-31\"^^<http://www.w3.org/2001/XMLSchema#date>) } ORDER BY ?p";
+
+    @BeforeAll
+    static void register() {
+        IndexFunctions.register();
+    }
+
+    private static Model catalog() {
+        Model model = ModelFactory.createDefaultModel();
+        Graph g = model.getGraph();
+        // p1: dos estrenos dentro del rango; p2: uno; p3: fecha como texto sin tipo
+        g.add(Triple.create(CineVocab.movie("p1"), CineVocab.ESTRENO, MovieTriples.date("2025-03-01")));
+        g.add(Triple.create(CineVocab.movie("p1"), CineVocab.ESTRENO, MovieTriples.date("2025-09-01")));
+        g.add(Triple.create(CineVocab.movie("p2"), CineVocab.ESTRENO, MovieTriples.date("2025-06-15")));
+        g.add(Triple.create(CineVocab.movie("p3"), CineVocab.ESTRENO, NodeFactory.createLiteral("2025-07-01")));
+        g.add(Triple.create(CineVocab.movie("p3"), CineVocab.DURACION, NodeFactory.createLiteral("120")));
+        return model;
+    }
+
+    private static List<Node> run(Model model) {
+        List<Node> out = new ArrayList<>();
+        try (QueryExecution qe = QueryExecution.model(model).query(QUERY).build()) {
+            ResultSet rs = qe.execSelect();
+            while (rs.hasNext()) out.add(rs.next().get("p").asNode());
+        }
+        return out;
+    }
+
+    @Test
+    void untypedLiteralsAreNotIndexed() {
+        assertNull(CatalogIndexes.epochDay(NodeFactory.createLiteral("2025-07-01")));
+        assertNull(CatalogIndexes.intValue(NodeFactory.createLiteral("120")));
+        assertEquals(120, CatalogIndexes.intValue(NodeFactory.createLiteral("120", XSDDatatype.XSDinteger)));
+        assertEquals(LocalDate.of(2025, 7, 1).toEpochDay(),
+            CatalogIndexes.epochDay(NodeFactory.createLiteral("2025-07-01T20:00:00", XSDDatatype.XSDdateTime)));
+
+        CatalogIndexes indexes = CatalogIndexes.attach(catalog().getGraph());
+        assertEquals(3, indexes.estrenoSize());
+        assertEquals(0, indexes.duracionBetween(Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+    }
+
+    @Test
+    void overlappingRangeReturnsEachMovieOnceWithAndWithoutIndex() {
+        List<Node> expected = List.of(CineVocab.movie("p1"), CineVocab.movie("p2"));
+        Model scanned = catalog();
+        assertEquals(expected, run(scanned));
+
+        Model indexed = catalog();
+        CatalogIndexes.attach(indexed.getGraph());
+        assertEquals(expected, run(indexed));
+    }
+
+    @Test
+    void titleSearchWithoutAttachedIndexAnswersEveryInputRow() {
+        Model model = catalog();
+        model.getGraph().add(Triple.create(CineVocab.movie("p1"), CineVocab.TITULO, MovieTriples.string("Dune")));
+        model.getGraph().add(Triple.create(CineVocab.movie("p2"), CineVocab.TITULO, MovieTriples.string("Alien")));
+        String query = "PREFIX idx: <" + IndexFunctions.NS + ">\n"
+            + "SELECT ?t ?p WHERE { VALUES ?t { \"dune\" \"alien\" \"tron\" } ?p idx:titulo ?t } ORDER BY ?p";
+        List<String> rows = new ArrayList<>();
+        try (QueryExecution qe = QueryExecution.model(model).query(query).build()) {
+            qe.execSelect().forEachRemaining(r -> rows.add(r.getLiteral("t").getString() + "=" + r.getResource("p").getURI()));
+        }
+        assertEquals(List.of("dune=" + CineVocab.movie("p1").getURI(), "alien=" + CineVocab.movie("p2").getURI()), rows);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static Triple title(String id, String title) {
+        return Triple.create(CineVocab.movie(id), CineVocab.TITULO, MovieTriples.string(title));
+    }
+
+    private static void add(CatalogJournal journal, Triple t) throws IOException {
+        journal.update(g -> {
+            g.add(t);
+            return null;
+        });
+    }
+
+    private static List<String> files(Path dir) throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void compactionWritesSnapshotAndKeepsLaterChanges() throws IOException {
+        try (CatalogJournal journal = CatalogJournal.open(dir, Long.MAX_VALUE)) {
+            add(journal, title("p1", "Dune"));
+            add(journal, title("p2", "Alien"));
+            journal.update(g -> {
+                g.delete(title("p2", "Alien"));
+                return null;
+            });
+            journal.compact();
+            add(journal, title("p3", "Her"));
+            assertEquals(1, journal.compactions());
+        }
+        assertEquals(List.of("catalogo-00000001.rt.zst", "diario-00000001.rdfp"), files(dir));
+
+        try (CatalogJournal reopened = CatalogJournal.open(dir, Long.MAX_VALUE)) {
+            assertEquals(1, reopened.replayed());
+            assertTrue(reopened.model().getGraph().contains(title("p1", "Dune")));
+            assertFalse(reopened.model().getGraph().contains(title("p2", "Alien")));
+            assertTrue(reopened.model().getGraph().contains(title("p3", "Her")));
+            assertEquals(2, reopened.model().size());
+        }
+    }
+
+    @Test
+    void tornTailIsDiscardedAndTruncated() throws IOException {
+        try (CatalogJournal journal = CatalogJournal.open(dir, Long.MAX_VALUE)) {
+            add(journal, title("p1", "Dune"));
+        }
+        Path log = dir.resolve("diario-00000000.rdfp");
+        long committed = Files.size(log);
+        Node movie = CineVocab.movie("p9");
+        Files.writeString(log, "TX .\nA <" + movie.getURI() + "> <" + CineVocab.TITULO.getURI() + "> \"Medio",
+            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (CatalogJournal reopened = CatalogJournal.open(dir, Long.MAX_VALUE)) {
+            assertEquals(1, reopened.replayed());
+            assertEquals(1, reopened.model().size());
+            assertEquals(committed, Files.size(log));
+            add(reopened, title("p2", "Alien"));
+        }
+        try (CatalogJournal again = CatalogJournal.open(dir, Long.MAX_VALUE)) {
+            assertEquals(2, again.replayed());
+            assertTrue(again.model().getGraph().contains(title("p2", "Alien")));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.system.Txn;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static Triple title(String id, String title) {
+        return Triple.create(CineVocab.movie(id), CineVocab.TITULO, MovieTriples.string(title));
+    }
+
+    private static Graph catalog(int films) {
+        Graph graph = GraphFactory.createDefaultGraph();
+        new CatalogGenerator(3).generate(StreamRDFLib.graph(graph), films);
+        return graph;
+    }
+
+    private static boolean storedEquals(CatalogStore store, Graph expected) {
+        return Txn.calculateRead(store.dataset(),
+            () -> store.dataset().asDatasetGraph().getDefaultGraph().isIsomorphicWith(expected));
+    }
+
+    @Test
+    void applyPersistsAndReopensWithoutReloading() {
+        Graph source = catalog(50);
+        try (CatalogStore store = CatalogStore.open(dir)) {
+            CatalogStore.ApplyResult result = store.apply(source);
+            assertEquals(50, result.added);
+            assertEquals(0, result.updated);
+            assertEquals(0, result.unchanged);
+        }
+        try (CatalogStore reopened = CatalogStore.open(dir)) {
+            assertEquals(source.size(), reopened.size());
+            assertTrue(storedEquals(reopened, source));
+            // Volver a aplicar el mismo catálogo no reescribe nada
+            CatalogStore.ApplyResult again = reopened.apply(source);
+            assertEquals(0, again.added);
+            assertEquals(0, again.updated);
+            assertEquals(50, again.unchanged);
+        }
+    }
+
+    @Test
+    void syncRewritesOnlyChangedSubjectsAndKeepsTheRest() {
+        Graph source = GraphFactory.createDefaultGraph();
+        source.add(title("p1", "Dune"));
+        source.add(title("p2", "Alien"));
+        Graph target = GraphFactory.createDefaultGraph();
+        target.add(title("p1", "Dune"));
+        target.add(title("p2", "Aliens"));
+        target.add(title("p9", "Solo en el destino"));
+
+        CatalogStore.ApplyResult result = CatalogStore.sync(source, target);
+        assertEquals(0, result.added);
+        assertEquals(1, result.updated);
+        assertEquals(1, result.unchanged);
+        assertTrue(target.contains(title("p2", "Alien")));
+        assertFalse(target.contains(title("p2", "Aliens")));
+        assertTrue(target.contains(title("p9", "Solo en el destino")));
+        assertEquals(3, target.size());
+
+        source.add(title("p3", "Her"));
+        result = CatalogStore.sync(source, target);
+        assertEquals(1, result.added);
+        assertEquals(0, result.updated);
+        assertEquals(2, result.unchanged);
+    }
+
+    @Test
+    void bulkAddAndRemoveAreDurable() {
+        Graph expected = catalog(20);
+        try (CatalogStore store = CatalogStore.open(dir)) {
+            store.bulkAdd(sink -> {
+                new CatalogGenerator(3).generate(sink, 20);
+                return 20;
+            });
+            assertTrue(storedEquals(store, expected));
+            store.remove(List.of(CineVocab.movie("1"), CineVocab.movie("2")));
+        }
+        expected.remove(CineVocab.movie("1"), Node.ANY, Node.ANY);
+        expected.remove(CineVocab.movie("2"), Node.ANY, Node.ANY);
+        try (CatalogStore reopened = CatalogStore.open(dir)) {
+            assertEquals(expected.size(), reopened.size());
+            assertTrue(storedEquals(reopened, expected));
+        }
+    }
+}
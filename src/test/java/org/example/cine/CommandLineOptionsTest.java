@@ -0,0 +1,33 @@
+package org.example.cine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandLineOptionsTest {
+
+    @Test
+    void numericOptionsParseOrFallBackToDefault() {
+        String[] args = {"--hilos", "4", "--cache", "128"};
+        assertEquals(4, CineColombiaManager.threads(args));
+        assertEquals(128, CineColombiaManager.longOption(args, "--cache", -1));
+        assertEquals(-1, CineColombiaManager.longOption(args, "--tiempo-max", -1));
+        assertNull(CineColombiaManager.port(args));
+    }
+
+    @Test
+    void invalidNumbersAreUsageErrors() {
+        CineColombiaManager.UsageError e = assertThrows(CineColombiaManager.UsageError.class,
+            () -> CineColombiaManager.threads(new String[] {"--hilos", "cuatro"}));
+        assertTrue(e.getMessage().contains("--hilos"), e.getMessage());
+        assertThrows(CineColombiaManager.UsageError.class,
+            () -> CineColombiaManager.longOption(new String[] {"--cache", "-5"}, "--cache", 64));
+        assertThrows(CineColombiaManager.UsageError.class,
+            () -> CineColombiaManager.intOption(new String[] {"--hilos-carga", "99999999999"}, "--hilos-carga", 0));
+        assertThrows(CineColombiaManager.UsageError.class,
+            () -> CineColombiaManager.port(new String[] {"--servidor", "70000"}));
+    }
+}
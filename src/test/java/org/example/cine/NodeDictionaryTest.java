@@ -0,0 +1,31 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class NodeDictionaryTest {
+
+    @Test
+    void eachGraphHasItsOwnDictionary() {
+        Graph a = GraphFactory.createDefaultGraph();
+        Graph b = GraphFactory.createDefaultGraph();
+        NodeDictionary dictionary = NodeDictionary.attach(a);
+        assertSame(dictionary, NodeDictionary.attach(a));
+        assertNotSame(dictionary, NodeDictionary.attach(b));
+
+        Node first = NodeFactory.createLiteral("Drama");
+        assertSame(first, dictionary.intern(CineVocab.GENERO, first));
+        assertSame(first, dictionary.intern(CineVocab.GENERO, NodeFactory.createLiteral("Drama")));
+        assertNotSame(first, NodeDictionary.attach(b).intern(CineVocab.GENERO, NodeFactory.createLiteral("Drama")));
+
+        NodeDictionary.detach(a);
+        assertNull(NodeDictionary.forGraph(a));
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelRdfLoaderTest {
+
+    /** Un nodo en blanco que aparece al principio y al final del volcado, en trozos distintos. */
+    private static final String BLANK_FIRST = "_:b0 <" + CineVocab.NS + "titulo> \"Sala 1\" .\n";
+    private static final String BLANK_LAST = "<" + CineVocab.movie("1").getURI() + "> <" + CineVocab.NS
+        + "sala> _:b0 .\n";
+
+    @TempDir
+    Path dir;
+
+    private Path dump(int films) throws IOException {
+        Path generated = dir.resolve("generado.nt");
+        new CatalogGenerator(13).writeTo(generated, films);
+        Path file = dir.resolve("catalogo.nt");
+        Files.writeString(file, "# volcado de prueba\n" + BLANK_FIRST);
+        Files.write(file, Files.readAllBytes(generated), StandardOpenOption.APPEND);
+        Files.writeString(file, BLANK_LAST, StandardOpenOption.APPEND);
+        return file;
+    }
+
+    private static Graph sequential(Path file) {
+        Graph graph = GraphFactory.createDefaultGraph();
+        RDFDataMgr.read(graph, file.toString());
+        return graph;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void parallelLoadMatchesTheSequentialParser(int threads) throws IOException {
+        Path file = dump(400);
+        Graph expected = sequential(file);
+
+        Graph graph = GraphFactory.createDefaultGraph();
+        ParallelRdfLoader.Stats stats = ParallelRdfLoader.load(file, graph, threads, 4096, null);
+        assertTrue(stats.chunks > 10, stats.toString());
+        assertEquals(Files.size(file), stats.bytes);
+        assertEquals(expected.size(), stats.triples);
+        assertEquals(expected.size(), graph.size());
+        // Isomorfos sólo si _:b0 es el mismo nodo en el primer y el último trozo
+        assertTrue(expected.isIsomorphicWith(graph));
+    }
+
+    @Test
+    void chunksStartRightAfterALineBreak() throws IOException {
+        Path file = dump(200);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = ParallelRdfLoader.split(channel, size, 1000);
+            assertEquals(0, bounds[0]);
+            assertEquals(size, bounds[bounds.length - 1]);
+            ByteBuffer one = ByteBuffer.allocate(1);
+            for (int i = 1; i < bounds.length - 1; i++) {
+                assertTrue(bounds[i] > bounds[i - 1]);
+                one.clear();
+                channel.read(one, bounds[i] - 1);
+                assertEquals('\n', one.get(0), "límite " + bounds[i]);
+            }
+        }
+    }
+
+    @Test
+    void quadsGoToTheTargetGraph() throws IOException {
+        Path file = dir.resolve("catalogo.nq");
+        Node dune = CineVocab.movie("p1");
+        Files.writeString(file,
+            "<" + dune.getURI() + "> <" + CineVocab.NS + "titulo> \"Dune\" <http://example.org/g1> .\n"
+                + "<" + dune.getURI() + "> <" + CineVocab.NS + "genero> \"Drama\" .\n",
+            StandardCharsets.UTF_8);
+        Graph graph = GraphFactory.createDefaultGraph();
+        ParallelRdfLoader.load(file, graph, 2, 16, null);
+        assertEquals(2, graph.size());
+        assertTrue(graph.contains(Triple.create(dune, CineVocab.TITULO, MovieTriples.string("Dune"))));
+    }
+
+    @Test
+    void onlyUncompressedLineSyntaxesAreSupported() {
+        assertTrue(ParallelRdfLoader.supports(dir.resolve("a.nt")));
+        assertTrue(ParallelRdfLoader.supports(dir.resolve("a.nq")));
+        assertFalse(ParallelRdfLoader.supports(dir.resolve("a.nt.gz")));
+        assertFalse(ParallelRdfLoader.supports(dir.resolve("a.ttl")));
+        assertThrows(IllegalArgumentException.class,
+            () -> ParallelRdfLoader.load(dir.resolve("a.ttl"), GraphFactory.createDefaultGraph(), 1, 1024, null));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.cine;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryGovernorTest {
+
+    private static final QueryRegistry REGISTRY = new QueryRegistry();
+
+    private static Model catalog(int movies) {
+        Model model = ModelFactory.createDefaultModel();
+        for (int i = 0; i < movies; i++) {
+            Resource movie = model.createResource(CineVocab.movie("p" + i).getURI());
+            movie.addLiteral(model.createProperty(CineVocab.NS, "duracion"), 90L + i);
+        }
+        return model;
+    }
+
+    private static QueryGovernor governor(QueryGovernor.Limits interactive) {
+        return new QueryGovernor(interactive, QueryGovernor.DEFAULT_BATCH);
+    }
+
+    private static QueryGovernor.Limits limits(int concurrency, int queue, Duration timeout, long maxRows) {
+        return new QueryGovernor.Limits(concurrency, queue, Duration.ofMillis(50), timeout, maxRows, 1L << 30);
+    }
+
+    @Test
+    void fullQueueIsRejectedAndUnusedAdmissionReleasesItsSlot() {
+        QueryGovernor governor = governor(limits(1, 0, Duration.ofSeconds(10), 1000));
+        QueryGovernor.Admission first = governor.admit(QueryGovernor.Priority.INTERACTIVE);
+        assertThrows(QueryGovernor.Rejected.class, () -> governor.admit(QueryGovernor.Priority.INTERACTIVE));
+        first.close();
+        governor.admit(QueryGovernor.Priority.INTERACTIVE).close();
+        assertEquals(2, governor.admitted(QueryGovernor.Priority.INTERACTIVE));
+        assertEquals(1, governor.rejected(QueryGovernor.Priority.INTERACTIVE));
+    }
+
+    @Test
+    void rowCapCancelsAndFreesTheSlot() {
+        QueryGovernor governor = governor(limits(1, 0, Duration.ofSeconds(10), 5));
+        Model model = catalog(20);
+        QueryGovernor.GovernedResultSet results = governor.execute(
+            REGISTRY.compileTemplate("SELECT ?s ?o WHERE { ?s ?p ?o }"), model, Map.of(), QueryGovernor.Priority.INTERACTIVE);
+        QueryGovernor.Cancelled e = assertThrows(QueryGovernor.Cancelled.class, () -> {
+            while (results.hasNext()) results.nextSolution();
+        });
+        assertEquals(QueryGovernor.Reason.ROWS, e.reason);
+        assertEquals(1, governor.cancelled(QueryGovernor.Priority.INTERACTIVE, QueryGovernor.Reason.ROWS));
+        // La plaza única vuelve a estar libre
+        governor.admit(QueryGovernor.Priority.INTERACTIVE).close();
+    }
+
+    @Test
+    void timeoutCancelsBlindSortPhase() {
+        QueryGovernor governor = governor(limits(1, 0, Duration.ofMillis(100), Long.MAX_VALUE));
+        Model model = catalog(300);
+        QueryGovernor.GovernedResultSet results = governor.execute(REGISTRY.compileTemplate(
+                "SELECT * WHERE { ?a ?b ?c . ?d ?e ?f . ?g ?h ?i } ORDER BY ?c ?f ?i"),
+            model, Map.of(), QueryGovernor.Priority.INTERACTIVE);
+        QueryGovernor.Cancelled e = assertThrows(QueryGovernor.Cancelled.class, results::hasNext);
+        assertEquals(QueryGovernor.Reason.TIMEOUT, e.reason);
+        governor.admit(QueryGovernor.Priority.INTERACTIVE).close();
+    }
+
+    @Test
+    void budgetAppliesDeadlineToUnindexedPageScan() {
+        QueryGovernor governor = governor(limits(1, 0, Duration.ZERO, Long.MAX_VALUE));
+        QueryRegistry.CompiledQuery compiled = REGISTRY.compileTemplate(
+            "SELECT ?s ?o WHERE { ?s <" + CineVocab.NS + "duracion> ?o } ORDER BY ?o");
+        Model model = catalog(50);
+        QueryGovernor.Cancelled e;
+        try (QueryGovernor.Budget budget = governor.budget(governor.admit(QueryGovernor.Priority.INTERACTIVE))) {
+            e = assertThrows(QueryGovernor.Cancelled.class,
+                () -> QueryPager.page(compiled, model, Map.of(), null, 10, budget));
+        }
+        assertEquals(QueryGovernor.Reason.TIMEOUT, e.reason);
+        assertEquals(1, governor.cancelled(QueryGovernor.Priority.INTERACTIVE, QueryGovernor.Reason.TIMEOUT));
+        governor.admit(QueryGovernor.Priority.INTERACTIVE).close();
+    }
+
+    @Test
+    void budgetCountsPageRowsAgainstRowCap() {
+        QueryGovernor governor = governor(limits(1, 0, Duration.ofSeconds(10), 3));
+        QueryRegistry.CompiledQuery compiled = REGISTRY.compileTemplate(
+            "SELECT ?s ?o WHERE { ?s <" + CineVocab.NS + "duracion> ?o } ORDER BY ?o");
+        Model model = catalog(50);
+        CatalogIndexes.attach(model.getGraph());
+        try (QueryGovernor.Budget budget = governor.budget(governor.admit(QueryGovernor.Priority.INTERACTIVE))) {
+            assertEquals(3, QueryPager.page(compiled, model, Map.of(), null, 3, budget).rows.size());
+        }
+        try (QueryGovernor.Budget budget = governor.budget(governor.admit(QueryGovernor.Priority.INTERACTIVE))) {
+            QueryGovernor.Cancelled e = assertThrows(QueryGovernor.Cancelled.class,
+                () -> QueryPager.page(compiled, model, Map.of(), null, 4, budget));
+            assertEquals(QueryGovernor.Reason.ROWS, e.reason);
+        }
+        governor.admit(QueryGovernor.Priority.INTERACTIVE).close();
+    }
+}
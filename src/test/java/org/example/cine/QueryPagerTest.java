@@ -0,0 +1,73 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryPagerTest {
+
+    private static final String QUERY = "PREFIX cine: <" + CineVocab.NS + ">\n"
+        + "SELECT ?pelicula ?estreno WHERE { ?pelicula cine:estreno ?estreno } ORDER BY ?estreno";
+
+    private static Model catalog() {
+        Model model = ModelFactory.createDefaultModel();
+        Graph g = model.getGraph();
+        String[][] rows = {
+            {"p5", "2024-01-01"}, {"p2", "2024-03-01"}, {"p4", "2024-03-01"}, {"p1", "2024-03-01"}, {"p3", "2025-01-01"}};
+        for (String[] row : rows) {
+            g.add(Triple.create(CineVocab.movie(row[0]), CineVocab.ESTRENO, MovieTriples.date(row[1])));
+        }
+        return model;
+    }
+
+    /** Recorre todas las páginas siguiendo el cursor devuelto como texto. */
+    private static List<Node> allPages(Model model, int size) {
+        QueryRegistry.CompiledQuery compiled = new QueryRegistry().compileTemplate(QUERY);
+        List<Node> movies = new ArrayList<>();
+        QueryPager.Cursor after = null;
+        do {
+            QueryPager.Page page = QueryPager.page(compiled, model, Map.of(), after, size);
+            for (Binding b : page.rows) movies.add(b.get(Var.alloc("pelicula")));
+            after = page.next == null ? null : QueryPager.Cursor.parse(page.next.token());
+        } while (after != null);
+        return movies;
+    }
+
+    @Test
+    void pagesFollowKeyThenUriWithAndWithoutIndex() {
+        List<Node> expected = List.of(CineVocab.movie("p5"), CineVocab.movie("p1"), CineVocab.movie("p2"),
+            CineVocab.movie("p4"), CineVocab.movie("p3"));
+        assertEquals(expected, allPages(catalog(), 2));
+
+        Model indexed = catalog();
+        CatalogIndexes.attach(indexed.getGraph());
+        assertEquals(expected, allPages(indexed, 2));
+        assertEquals(expected, allPages(indexed, 1));
+    }
+
+    @Test
+    void cursorRoundTripsAndMalformedTokensAreRejected() {
+        QueryPager.Cursor cursor = new QueryPager.Cursor(MovieTriples.date("2024-03-01"), CineVocab.movie("p1"));
+        QueryPager.Cursor parsed = QueryPager.Cursor.parse(cursor.token());
+        assertEquals(cursor.key, parsed.key);
+        assertEquals(cursor.movie, parsed.movie);
+
+        String badNode = Base64.getUrlEncoder().encodeToString("\"sin cerrar <http://x>".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> QueryPager.Cursor.parse(badNode));
+        assertThrows(IllegalArgumentException.class, () -> QueryPager.Cursor.parse("%%%"));
+    }
+}
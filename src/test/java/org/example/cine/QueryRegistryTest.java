@@ -0,0 +1,113 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryRegistryTest {
+
+    private static final String LONGER_THAN = "PREFIX cine: <" + CineVocab.NS + ">\n"
+        + "SELECT ?titulo WHERE {\n"
+        + "  ?p cine:titulo ?titulo ; cine:duracion ?d . FILTER(?d >= ?minDuracion)\n"
+        + "} ORDER BY ?titulo";
+
+    private static final String WITH_GENRE = "PREFIX cine: <" + CineVocab.NS + ">\n"
+        + "SELECT ?titulo WHERE { ?p cine:titulo ?titulo ; cine:genero ?genero } ORDER BY ?titulo";
+
+    private static Model catalog() {
+        Model model = ModelFactory.createDefaultModel();
+        movie(model, "p1", "Alien", "Terror", 117);
+        movie(model, "p2", "Dune", "Ciencia Ficción", 155);
+        movie(model, "p3", "Her", "Drama", 126);
+        return model;
+    }
+
+    private static void movie(Model model, String id, String title, String genre, int minutes) {
+        Node m = CineVocab.movie(id);
+        model.getGraph().add(Triple.create(m, CineVocab.TITULO, MovieTriples.string(title)));
+        model.getGraph().add(Triple.create(m, CineVocab.GENERO, MovieTriples.string(genre)));
+        model.getGraph().add(Triple.create(m, CineVocab.DURACION,
+            NodeFactory.createLiteral(Integer.toString(minutes), XSDDatatype.XSDinteger)));
+    }
+
+    private static Node minutes(int value) {
+        return NodeFactory.createLiteral(Integer.toString(value), XSDDatatype.XSDinteger);
+    }
+
+    private static List<String> titles(QueryRegistry registry, String name, Model model, Map<String, Node> params) {
+        ResultSet rs = registry.execute(name, model, params);
+        List<String> titles = new ArrayList<>();
+        try {
+            while (rs.hasNext()) titles.add(rs.next().getLiteral("titulo").getString());
+        } finally {
+            rs.close();
+        }
+        return titles;
+    }
+
+    @Test
+    void parametersAreBoundPerExecution() {
+        QueryRegistry registry = new QueryRegistry();
+        registry.register("largas", LONGER_THAN);
+        Model model = catalog();
+        assertEquals(List.of("Dune", "Her"),
+            titles(registry, "largas", model, Map.of("minDuracion", minutes(120))));
+        assertEquals(List.of("Dune"), titles(registry, "largas", model, Map.of("minDuracion", minutes(150))));
+        assertEquals(List.of(), titles(registry, "largas", model, Map.of("minDuracion", minutes(200))));
+    }
+
+    @Test
+    void boundVariableRestrictsTriplePatterns() {
+        QueryRegistry registry = new QueryRegistry();
+        registry.register("porGenero", WITH_GENRE);
+        Model model = catalog();
+        assertEquals(List.of("Alien"),
+            titles(registry, "porGenero", model, Map.of("genero", MovieTriples.string("Terror"))));
+        assertEquals(List.of("Alien", "Dune", "Her"), titles(registry, "porGenero", model, Map.of()));
+    }
+
+    @Test
+    void unboundParameterMatchesNothingInFilter() {
+        QueryRegistry registry = new QueryRegistry();
+        registry.register("largas", LONGER_THAN);
+        assertEquals(List.of(), titles(registry, "largas", catalog(), Map.of()));
+    }
+
+    @Test
+    void planIsCompiledOnceAndReusedAcrossParameters() {
+        QueryRegistry registry = new QueryRegistry();
+        registry.register("largas", LONGER_THAN);
+        Model model = catalog();
+        QueryRegistry.CompiledQuery first = registry.compile("largas");
+        for (int min : new int[] {100, 120, 150}) {
+            titles(registry, "largas", model, Map.of("minDuracion", minutes(min)));
+        }
+        assertEquals(1, registry.misses());
+        assertEquals(3, registry.hits());
+        assertSame(first.plan, registry.compile("largas").plan);
+        // El mismo texto fuera del registro comparte el plan
+        assertSame(first.plan, registry.compileTemplate(LONGER_THAN).plan);
+    }
+
+    @Test
+    void unknownNameIsRejected() {
+        QueryRegistry registry = new QueryRegistry();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> registry.execute("inexistente", catalog(), Map.of()));
+        assertTrue(e.getMessage().contains("inexistente"), e.getMessage());
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryTraceTest {
+
+    private static final String TITLES = "PREFIX cine: <" + CineVocab.NS + ">\n"
+        + "SELECT ?titulo WHERE { ?p cine:titulo ?titulo } ORDER BY ?titulo";
+
+    private static Model catalog() {
+        Model model = ModelFactory.createDefaultModel();
+        for (String title : new String[] {"Alien", "Dune", "Her"}) {
+            Node movie = CineVocab.movie(title.toLowerCase());
+            model.getGraph().add(Triple.create(movie, CineVocab.TITULO, MovieTriples.string(title)));
+        }
+        return model;
+    }
+
+    private static QueryTrace drain(TracedResultSet rs) {
+        while (rs.hasNext()) rs.next();
+        return rs.trace();
+    }
+
+    @Test
+    void firstExecutionCarriesCompileCostAndLaterOnesReuseThePlan() {
+        QueryRegistry registry = new QueryRegistry();
+        registry.register("trazaTitulos", TITLES);
+        Model model = catalog();
+
+        QueryTrace first = drain(registry.execute("trazaTitulos", model, Map.of()));
+        assertEquals("trazaTitulos", first.query);
+        assertFalse(first.cachedPlan);
+        assertTrue(first.parseNanos > 0 && first.optimizeNanos > 0);
+        assertSame(registry.compile("trazaTitulos").plan, first.plan);
+        assertEquals(3, first.rows());
+        assertTrue(first.firstRowNanos() >= 0 && first.firstRowNanos() <= first.totalNanos());
+        assertNull(first.error());
+        assertFalse(first.isMaterialized());
+        assertFalse(first.isCached());
+
+        QueryTrace second = drain(registry.execute("trazaTitulos", model, Map.of()));
+        assertTrue(second.cachedPlan);
+        assertEquals(0, second.parseNanos);
+        assertEquals(0, second.optimizeNanos);
+        assertEquals(3, second.rows());
+        assertTrue(second.toString().startsWith("trazaTitulos: plan en caché"), second.toString());
+        assertTrue(second.toString().contains(", 3 filas"), second.toString());
+    }
+
+    @Test
+    void emptyOrClosedEarlyResultsAreTracedAsSuch() {
+        QueryRegistry registry = new QueryRegistry();
+        registry.register("trazaVacia", TITLES);
+        QueryTrace empty = drain(registry.execute("trazaVacia", ModelFactory.createDefaultModel(), Map.of()));
+        assertEquals(0, empty.rows());
+        assertEquals(-1, empty.firstRowNanos());
+        assertTrue(empty.toString().contains("primera fila -"), empty.toString());
+
+        TracedResultSet partial = registry.execute("trazaVacia", catalog(), Map.of());
+        partial.next();
+        partial.close();
+        long total = partial.trace().totalNanos();
+        assertEquals(1, partial.trace().rows());
+        // Cerrada: el tiempo total ya no avanza
+        assertEquals(total, partial.trace().totalNanos());
+    }
+
+    @Test
+    void viewAnswersAndFailuresAreRecorded() {
+        QueryRegistry registry = new QueryRegistry();
+        registry.register("trazaVista", TITLES);
+        registry.registerView("trazaVista", (model, params) ->
+            QueryExecution.model(model).query(TITLES).build().execSelect());
+        QueryTrace viewed = drain(registry.execute("trazaVista", catalog(), Map.of()));
+        assertTrue(viewed.isMaterialized());
+        assertEquals(3, viewed.rows());
+        assertTrue(viewed.toString().contains("vista materializada"), viewed.toString());
+
+        registry.register("trazaError", TITLES);
+        registry.registerView("trazaError", (model, params) -> {
+            throw new IllegalStateException("vista rota");
+        });
+        assertThrows(IllegalStateException.class, () -> registry.execute("trazaError", catalog(), Map.of()));
+
+        String json = QueryMetrics.get().toJson();
+        assertTrue(json.contains("{\"name\":\"trazaError\",\"count\":1,\"errors\":1,"), json);
+        assertTrue(json.contains("{\"name\":\"trazaVista\",\"count\":1,\"errors\":0,\"materialized\":1,"), json);
+        assertTrue(QueryMetrics.get().toPrometheus().contains("cine_query_errors_total{query=\"trazaError\"} 1"));
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RdfSnapshotTest {
+
+    private static Graph catalog() {
+        Graph graph = GraphFactory.createDefaultGraph();
+        new CatalogGenerator(11).generate(StreamRDFLib.graph(graph), 40);
+        return graph;
+    }
+
+    @ParameterizedTest
+    @EnumSource(RdfSnapshot.Format.class)
+    void everyFormatAndCompressionRoundTrips(RdfSnapshot.Format format, @TempDir Path dir) throws IOException {
+        Graph graph = catalog();
+        for (RdfSnapshot.Compression compression : RdfSnapshot.Compression.values()) {
+            Path file = dir.resolve(RdfSnapshot.fileName("instantanea", format, compression));
+            RdfSnapshot.save(graph, file, format, compression);
+            Graph loaded = GraphFactory.createDefaultGraph();
+            RdfSnapshot.load(file, loaded);
+            assertTrue(graph.isIsomorphicWith(loaded), file.getFileName().toString());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RdfSnapshot.Format.class)
+    void syntaxIsSniffedWithoutAKnownExtension(RdfSnapshot.Format format, @TempDir Path dir) throws IOException {
+        Graph graph = catalog();
+        for (RdfSnapshot.Compression compression : RdfSnapshot.Compression.values()) {
+            Path file = dir.resolve("instantanea-" + compression + ".bin");
+            RdfSnapshot.save(graph, file, format, compression);
+            Graph loaded = GraphFactory.createDefaultGraph();
+            RdfSnapshot.load(file, loaded);
+            assertTrue(graph.isIsomorphicWith(loaded), format + " " + compression);
+        }
+    }
+
+    @Test
+    void textSyntaxesAreToldApart() {
+        assertEquals(Lang.RDFXML, sniff("<?xml version=\"1.0\"?>\n<rdf:RDF/>"));
+        assertEquals(Lang.RDFXML, sniff("  <rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"/>"));
+        assertEquals(Lang.NTRIPLES, sniff("# comentario\n<http://example.org/a> <http://example.org/p> \"x\" .\n"));
+        assertEquals(Lang.NTRIPLES, sniff("_:b0 <http://example.org/p> <http://example.org/o> .\n"));
+    }
+
+    @Test
+    void unknownSyntaxFailsWithAClearError(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("datos.bin");
+        Files.write(file, new byte[] {0x00, 0x01, 0x02, 0x03, 0x04});
+        IOException e = assertThrows(IOException.class, () -> RdfSnapshot.load(file, GraphFactory.createDefaultGraph()));
+        assertTrue(e.getMessage().contains("Sintaxis de instantánea desconocida"), e.getMessage());
+
+        Path text = dir.resolve("notas.txt");
+        Files.writeString(text, "esto no es RDF\n");
+        assertThrows(IOException.class, () -> RdfSnapshot.load(text, GraphFactory.createDefaultGraph()));
+    }
+
+    private static Lang sniff(String text) {
+        return RdfSnapshot.sniffLang(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
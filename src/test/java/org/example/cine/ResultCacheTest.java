@@ -0,0 +1,125 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultCacheTest {
+
+    private static final String TITLES = "PREFIX cine: <" + CineVocab.NS + ">\n"
+        + "SELECT ?titulo WHERE { ?p cine:titulo ?titulo } ORDER BY ?titulo";
+
+    private final ResultCache cache = ResultCache.get();
+    private final QueryRegistry registry = new QueryRegistry();
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+        registry.register("titulos", TITLES);
+    }
+
+    private static Triple title(String id, String title) {
+        return Triple.create(CineVocab.movie(id), CineVocab.TITULO, MovieTriples.string(title));
+    }
+
+    private static Model catalog() {
+        Model model = ModelFactory.createDefaultModel();
+        model.getGraph().add(title("p1", "Dune"));
+        model.getGraph().add(title("p2", "Alien"));
+        return model;
+    }
+
+    /** Lee el resultado completo; devuelve los títulos y si salió de la caché. */
+    private List<String> titles(Model model, boolean[] cached) {
+        TracedResultSet rs = registry.execute("titulos", model, Map.of());
+        List<String> titles = new ArrayList<>();
+        while (rs.hasNext()) titles.add(rs.next().getLiteral("titulo").getString());
+        cached[0] = rs.trace().isCached();
+        return titles;
+    }
+
+    @Test
+    void repeatedQueryIsServedUntilTheGenerationAdvances() {
+        Model model = catalog();
+        GraphGeneration generation = GraphGeneration.attach(model.getGraph());
+        boolean[] cached = new boolean[1];
+
+        assertEquals(List.of("Alien", "Dune"), titles(model, cached));
+        assertFalse(cached[0]);
+        assertEquals(List.of("Alien", "Dune"), titles(model, cached));
+        assertTrue(cached[0]);
+        assertEquals(1, cache.hits());
+
+        long before = generation.current();
+        model.getGraph().add(title("p3", "Her"));
+        assertTrue(generation.current() > before);
+        assertEquals(List.of("Alien", "Dune", "Her"), titles(model, cached));
+        assertFalse(cached[0]);
+        assertEquals(1, cache.stale());
+
+        model.getGraph().delete(title("p2", "Alien"));
+        assertEquals(List.of("Dune", "Her"), titles(model, cached));
+        assertFalse(cached[0]);
+        assertEquals(List.of("Dune", "Her"), titles(model, cached));
+        assertTrue(cached[0]);
+    }
+
+    @Test
+    void mutationDuringEvaluationLeavesTheEntryStale() {
+        Model model = catalog();
+        GraphGeneration.attach(model.getGraph());
+        TracedResultSet rs = registry.execute("titulos", model, Map.of());
+        assertTrue(rs.hasNext());
+        rs.next();
+        // ORDER BY ya materializó las filas: se puede escribir sin invalidar el iterador
+        model.getGraph().add(title("p3", "Her"));
+        while (rs.hasNext()) rs.next();
+
+        boolean[] cached = new boolean[1];
+        assertEquals(List.of("Alien", "Dune", "Her"), titles(model, cached));
+        assertFalse(cached[0]);
+        assertEquals(1, cache.stale());
+    }
+
+    @Test
+    void graphWithoutGenerationOrPartialReadsAreNotCached() {
+        Model untracked = catalog();
+        boolean[] cached = new boolean[1];
+        titles(untracked, cached);
+        titles(untracked, cached);
+        assertFalse(cached[0]);
+        assertEquals(0, cache.size());
+
+        Model model = catalog();
+        GraphGeneration.attach(model.getGraph());
+        TracedResultSet partial = registry.execute("titulos", model, Map.of());
+        partial.next();
+        partial.close();
+        titles(model, cached);
+        assertFalse(cached[0]);
+    }
+
+    @Test
+    void detachingTheCounterStopsServingOldEntries() {
+        Model model = catalog();
+        GraphGeneration.attach(model.getGraph());
+        boolean[] cached = new boolean[1];
+        titles(model, cached);
+
+        GraphGeneration.detach(model.getGraph());
+        model.getGraph().add(title("p3", "Her"));
+        GraphGeneration.attach(model.getGraph());
+        assertEquals(List.of("Alien", "Dune", "Her"), titles(model, cached));
+        assertFalse(cached[0]);
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResultExporterTest {
+
+    private static final List<String> VARS = List.of("p", "titulo", "duracion");
+
+    /** Más de 65535 bytes en UTF-8: el límite de writeUTF. */
+    private static final String LONG = "ñ".repeat(40_000);
+
+    private static final String QUERY = "SELECT ?p ?titulo ?duracion WHERE { VALUES (?p ?titulo ?duracion) {\n"
+        + "(<" + CineVocab.movie("p1").getURI() + "> \"Dune, \\\"parte dos\\\"\"@es 166)\n"
+        + "(<" + CineVocab.movie("p2").getURI() + "> \"Alien\" UNDEF)\n"
+        + "(<" + CineVocab.movie("p3").getURI() + "> \"" + LONG + "\" 90)\n"
+        + "(<" + CineVocab.movie("p4").getURI() + "> \"Alien\" 90)\n"
+        + "} }";
+
+    private static ResultSet results() {
+        QueryExecution qe = QueryExecution.model(ModelFactory.createDefaultModel()).query(QUERY).build();
+        return qe.execSelect();
+    }
+
+    private static List<Map<String, Node>> expected() {
+        List<Map<String, Node>> rows = new ArrayList<>();
+        rows.add(row("p1", NodeFactory.createLiteral("Dune, \"parte dos\"", "es"), integer("166")));
+        rows.add(row("p2", NodeFactory.createLiteral("Alien"), null));
+        rows.add(row("p3", NodeFactory.createLiteral(LONG), integer("90")));
+        rows.add(row("p4", NodeFactory.createLiteral("Alien"), integer("90")));
+        return rows;
+    }
+
+    private static Node integer(String lex) {
+        return NodeFactory.createLiteral(lex, XSDDatatype.XSDinteger);
+    }
+
+    private static Map<String, Node> row(String id, Node titulo, Node duracion) {
+        Map<String, Node> row = new HashMap<>();
+        row.put("p", CineVocab.movie(id));
+        row.put("titulo", titulo);
+        if (duracion != null) row.put("duracion", duracion);
+        return row;
+    }
+
+    private static Path export(Path dir, ResultExporter.Format format, RdfSnapshot.Compression compression)
+            throws IOException {
+        Path file = dir.resolve(ResultExporter.fileName("resultado", format, compression));
+        ResultExporter.Summary summary = ResultExporter.export(results(), VARS, file, format, compression);
+        assertEquals(4, summary.rows);
+        return file;
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        return RdfSnapshot.decompress(new BufferedInputStream(Files.newInputStream(file)));
+    }
+
+    private static List<Map<String, Node>> read(Path file, Lang lang) throws IOException {
+        List<Map<String, Node>> rows = new ArrayList<>();
+        try (InputStream in = open(file)) {
+            ResultSet rs = ResultSetMgr.read(in, lang);
+            assertEquals(VARS, rs.getResultVars());
+            while (rs.hasNext()) {
+                Binding b = rs.nextBinding();
+                Map<String, Node> row = new HashMap<>();
+                b.forEach((v, n) -> row.put(v.getVarName(), n));
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    @ParameterizedTest
+    @EnumSource(RdfSnapshot.Compression.class)
+    void tsvAndJsonRoundTripEveryTerm(RdfSnapshot.Compression compression, @TempDir Path dir) throws IOException {
+        assertEquals(expected(), read(export(dir, ResultExporter.Format.TSV, compression), ResultSetLang.RS_TSV));
+        assertEquals(expected(), read(export(dir, ResultExporter.Format.JSON, compression), ResultSetLang.RS_JSON));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RdfSnapshot.Compression.class)
+    void csvQuotesOnlyWhenNeeded(RdfSnapshot.Compression compression, @TempDir Path dir) throws IOException {
+        String text;
+        try (InputStream in = open(export(dir, ResultExporter.Format.CSV, compression))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals("p,titulo,duracion\r\n"
+            + CineVocab.movie("p1").getURI() + ",\"Dune, \"\"parte dos\"\"\",166\r\n"
+            + CineVocab.movie("p2").getURI() + ",Alien,\r\n"
+            + CineVocab.movie("p3").getURI() + "," + LONG + ",90\r\n"
+            + CineVocab.movie("p4").getURI() + ",Alien,90\r\n", text);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RdfSnapshot.Compression.class)
+    void columnarDecodesWithDictionaryAndFooter(RdfSnapshot.Compression compression, @TempDir Path dir)
+            throws IOException {
+        byte[] bytes;
+        try (InputStream in = open(export(dir, ResultExporter.Format.COLUMNAR, compression))) {
+            bytes = in.readAllBytes();
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte[] magic = "CINECOL1".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(magic, in.readNBytes(magic.length));
+        int cols = in.readInt();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < cols; i++) names.add(readString(in));
+        assertEquals(VARS, names);
+
+        // Un único grupo: empieza justo después de la cabecera
+        long groupOffset = bytes.length - in.available();
+        int rows = in.readInt();
+        List<Map<String, Node>> decoded = new ArrayList<>();
+        for (int r = 0; r < rows; r++) decoded.add(new HashMap<>());
+        int[] dictionarySizes = new int[cols];
+        for (int c = 0; c < cols; c++) {
+            List<Node> terms = new ArrayList<>();
+            dictionarySizes[c] = readVarint(in);
+            for (int t = 0; t < dictionarySizes[c]; t++) terms.add(readTerm(in));
+            for (int r = 0; r < rows; r++) {
+                int code = readVarint(in);
+                if (code != 0) decoded.get(r).put(names.get(c), terms.get(code - 1));
+            }
+        }
+        assertEquals(expected(), decoded);
+        // "Alien" y 90 se repiten: una entrada de diccionario cada uno
+        assertArrayEquals(new int[] {4, 3, 2}, dictionarySizes);
+
+        long footer = bytes.length - in.available();
+        assertEquals(1, in.readInt());
+        assertEquals(groupOffset, in.readLong());
+        assertEquals(4, in.readInt());
+        assertEquals(4, in.readLong());
+        assertEquals(footer, in.readLong());
+        assertArrayEquals(magic, in.readNBytes(magic.length));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void emptyResultWritesHeaderOnly(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("vacio.csv");
+        String query = "SELECT ?p ?titulo ?duracion WHERE { FILTER(false) }";
+        try (QueryExecution qe = QueryExecution.model(ModelFactory.createDefaultModel()).query(query).build()) {
+            ResultExporter.Summary summary = ResultExporter.export(qe.execSelect(), VARS, file,
+                ResultExporter.Format.CSV, RdfSnapshot.Compression.NONE);
+            assertEquals(0, summary.rows);
+        }
+        assertEquals("p,titulo,duracion\r\n", Files.readString(file));
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(readVarint(in)), StandardCharsets.UTF_8);
+    }
+
+    private static Node readTerm(DataInputStream in) throws IOException {
+        switch (in.readUnsignedByte()) {
+            case 1: return NodeFactory.createURI(readString(in));
+            case 2: return NodeFactory.createBlankNode(readString(in));
+            case 3: {
+                String lex = readString(in);
+                return NodeFactory.createLiteral(lex, TypeMapper.getInstance()
+                    .getSafeTypeByName(readString(in)));
+            }
+            default: {
+                String lex = readString(in);
+                return NodeFactory.createLiteral(lex, readString(in));
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.cine;
+
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShardedCatalogTest {
+
+    private static final String PREFIX = "PREFIX cine: <" + CineVocab.NS + ">\n";
+
+    private static Model catalog;
+    private static ShardedCatalog sharded;
+    private static final QueryRegistry REGISTRY = new QueryRegistry();
+
+    @BeforeAll
+    static void split() {
+        catalog = ModelFactory.createDefaultModel();
+        StreamRDF sink = StreamRDFLib.graph(catalog.getGraph());
+        sink.start();
+        new CatalogGenerator(11).generate(sink, 400);
+        sink.finish();
+        sharded = ShardedCatalog.split(catalog.getGraph(), ShardedCatalog.byCity(catalog.getGraph()), REGISTRY, 4);
+    }
+
+    @AfterAll
+    static void close() {
+        sharded.close();
+    }
+
+    /** Filas de la consulta sobre todas las sedes y sobre el catálogo completo, como texto comparable. */
+    private static void assertSameAsWhole(String text) {
+        QueryRegistry.CompiledQuery compiled = REGISTRY.compileTemplate(PREFIX + text);
+        List<Map<String, String>> expected;
+        try (QueryExecution qe = QueryExecution.model(catalog).query(compiled.query).build()) {
+            expected = rows(qe.execSelect());
+        }
+        ResultSet merged = sharded.execute(compiled, Map.of());
+        assertEquals(expected, rows(merged));
+    }
+
+    private static List<Map<String, String>> rows(ResultSet rs) {
+        List<String> vars = rs.getResultVars();
+        return ResultSetFormatter.toList(rs).stream()
+            .map(s -> {
+                Map<String, String> row = new TreeMap<>();
+                for (String v : vars) if (s.contains(v)) row.put(v, s.get(v).toString());
+                return row;
+            })
+            .toList();
+    }
+
+    @Test
+    void offsetWithoutLimitSkipsRowsInsteadOfReturningNone() {
+        assertSameAsWhole("SELECT ?p ?d WHERE { ?p cine:duracion ?d } ORDER BY ?d ?p OFFSET 10");
+        assertSameAsWhole("SELECT ?p ?d WHERE { ?p cine:duracion ?d } ORDER BY DESC(?d) ?p LIMIT 5 OFFSET 3");
+    }
+
+    @Test
+    void groupsAreReaggregatedAcrossShards() {
+        assertSameAsWhole("SELECT ?g (COUNT(?p) AS ?n) (MIN(?d) AS ?min) (MAX(?d) AS ?max) (AVG(?d) AS ?media) "
+            + "WHERE { ?p cine:genero ?g . ?p cine:duracion ?d } GROUP BY ?g ORDER BY ?g");
+        assertSameAsWhole("SELECT ?g (SUM(?d) AS ?total) WHERE { ?p cine:genero ?g . ?p cine:duracion ?d } "
+            + "GROUP BY ?g HAVING (COUNT(?p) > 20) ORDER BY DESC(?total) ?g LIMIT 3");
+    }
+}
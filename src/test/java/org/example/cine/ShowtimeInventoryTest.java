@@ -0,0 +1,61 @@
+package org.example.cine;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShowtimeInventoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 11, 13, 20, 0);
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        try (ShowtimeInventory inventory = new ShowtimeInventory()) {
+            inventory.add("f1", CineVocab.movie("p1"), "Andino 3", START, 5_000);
+            int threads = 8, attempts = 1_000;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < attempts; i++) inventory.reserve("f1", 1);
+                }));
+            }
+            for (Future<?> f : tasks) f.get();
+            pool.shutdown();
+
+            assertEquals(5_000, inventory.screening("f1").sold());
+            assertEquals(5_000, inventory.accepted());
+            assertEquals(threads * attempts - 5_000, inventory.rejected());
+
+            Model model = ModelFactory.createDefaultModel();
+            assertEquals(1, inventory.publish(model));
+            assertTrue(model.getGraph().contains(inventory.screening("f1").node, CineVocab.DISPONIBLES,
+                NodeFactory.createLiteral("0", XSDDatatype.XSDinteger)));
+        }
+    }
+
+    @Test
+    void largeRequestDoesNotOverflowPastCapacity() {
+        try (ShowtimeInventory inventory = new ShowtimeInventory()) {
+            inventory.add("f1", CineVocab.movie("p1"), "Andino 3", START, Integer.MAX_VALUE);
+            assertTrue(inventory.reserve("f1", 1));
+            assertFalse(inventory.reserve("f1", Integer.MAX_VALUE));
+            assertTrue(inventory.reserve("f1", Integer.MAX_VALUE - 1));
+            assertEquals(0, inventory.screening("f1").available());
+            assertFalse(inventory.reserve("f1", 1));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.cine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SortedLongIndexTest {
+
+    private static int[] expectedRange(TreeSet<Long> reference, int min, int max) {
+        List<Long> keys = new ArrayList<>(reference.subSet(SortedLongIndex.key(min, 0), true,
+            SortedLongIndex.key(max, Integer.MAX_VALUE), true));
+        return keys.stream().mapToInt(SortedLongIndex::id).toArray();
+    }
+
+    private static Integer expectedNext(TreeSet<Long> reference, Integer value, boolean descending) {
+        Long k;
+        if (descending) k = value == null ? (reference.isEmpty() ? null : reference.last())
+            : reference.lower(SortedLongIndex.key(value, 0));
+        else k = value == null ? (reference.isEmpty() ? null : reference.first())
+            : reference.ceiling(SortedLongIndex.key(value + 1, 0));
+        return k == null ? null : SortedLongIndex.value(k);
+    }
+
+    @Test
+    void lookupsSeePendingChangesWithoutCompacting() {
+        Random random = new Random(7);
+        SortedLongIndex index = new SortedLongIndex();
+        TreeSet<Long> reference = new TreeSet<>();
+        long[] initial = new long[2000];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = SortedLongIndex.key(random.nextInt(300), i);
+            reference.add(initial[i]);
+        }
+        index.load(initial, initial.length);
+
+        // Pocas escrituras intercaladas con lecturas: quedan como pendientes
+        for (int step = 0; step < 3000; step++) {
+            int value = random.nextInt(300);
+            int id = random.nextInt(2500);
+            if (random.nextBoolean()) {
+                index.add(value, id);
+                reference.add(SortedLongIndex.key(value, id));
+            } else {
+                index.remove(value, id);
+                reference.remove(SortedLongIndex.key(value, id));
+            }
+            int min = random.nextInt(300);
+            int max = min + random.nextInt(40);
+            assertArrayEquals(expectedRange(reference, min, max), index.range(min, max));
+            Integer from = random.nextInt(10) == 0 ? null : random.nextInt(300);
+            assertEquals(expectedNext(reference, from, false), index.nextValue(from, false));
+            assertEquals(expectedNext(reference, from, true), index.nextValue(from, true));
+        }
+        assertEquals(reference.size(), index.size());
+        assertArrayEquals(expectedRange(reference, Integer.MIN_VALUE, Integer.MAX_VALUE),
+            index.range(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void removingEverythingEmptiesTheWalk() {
+        SortedLongIndex index = new SortedLongIndex();
+        index.load(new long[] {SortedLongIndex.key(5, 1), SortedLongIndex.key(9, 2)}, 2);
+        index.add(7, 3);
+        index.remove(5, 1);
+        index.remove(9, 2);
+        assertEquals(Integer.valueOf(7), index.nextValue(null, false));
+        assertEquals(Integer.valueOf(7), index.nextValue(null, true));
+        index.remove(7, 3);
+        assertNull(index.nextValue(null, false));
+        assertNull(index.nextValue(null, true));
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.cine;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparqlEndpointTest {
+
+    private static HttpResponse<String> post(SparqlEndpoint endpoint, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + endpoint.port() + "/sparql"))
+            .header("Content-Type", "application/sparql-query")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void adHocQueryIsAnsweredAndOversizedBodyGets413() throws Exception {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource("http://example.org/pelicula/p1").addProperty(model.createProperty(CineVocab.NS, "titulo"), "Dune");
+        try (SparqlEndpoint endpoint = SparqlEndpoint.start(model, new QueryRegistry(), 0)) {
+            HttpResponse<String> ok = post(endpoint, "SELECT ?t WHERE { ?p ?x ?t }");
+            assertEquals(200, ok.statusCode());
+            assertTrue(ok.body().contains("Dune"), ok.body());
+
+            HttpResponse<String> tooBig = post(endpoint, "#".repeat((1 << 20) + 1));
+            assertEquals(413, tooBig.statusCode());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StandingQueriesTest {
+
+    private static final String PREFIX = "PREFIX cine: <" + CineVocab.NS + ">\n";
+
+    private static Set<Node> movies(List<Binding> rows) {
+        return rows.stream().map(b -> b.get(Var.alloc("p"))).collect(Collectors.toSet());
+    }
+
+    private static Model catalog() {
+        Model model = ModelFactory.createDefaultModel();
+        Graph g = model.getGraph();
+        g.add(Triple.create(CineVocab.movie("p1"), CineVocab.TITULO, MovieTriples.string("Dune")));
+        g.add(Triple.create(CineVocab.movie("p2"), CineVocab.TITULO, MovieTriples.string("Alien")));
+        g.add(Triple.create(CineVocab.movie("p2"), CineVocab.PREVENTA, MovieTriples.TRUE));
+        return model;
+    }
+
+    @Test
+    void notExistsPatternsAreTracked() {
+        Model model = catalog();
+        List<StandingQueries.Delta> deltas = new ArrayList<>();
+        try (StandingQueries standing = StandingQueries.attach(model)) {
+            standing.subscribe(new QueryRegistry().compileTemplate(PREFIX
+                    + "SELECT ?p ?t WHERE { ?p cine:titulo ?t FILTER NOT EXISTS { ?p cine:preventa true } }"),
+                Map.of(), deltas::add);
+            assertEquals(Set.of(CineVocab.movie("p1")), movies(deltas.get(0).added));
+
+            Graph g = model.getGraph();
+            g.add(Triple.create(CineVocab.movie("p1"), CineVocab.PREVENTA, MovieTriples.TRUE));
+            g.delete(Triple.create(CineVocab.movie("p2"), CineVocab.PREVENTA, MovieTriples.TRUE));
+            assertEquals(1, standing.flush());
+            StandingQueries.Delta delta = deltas.get(1);
+            assertEquals(Set.of(CineVocab.movie("p2")), movies(delta.added));
+            assertEquals(Set.of(CineVocab.movie("p1")), movies(delta.removed));
+            assertEquals(2, delta.movies);
+        }
+    }
+
+    @Test
+    void onlyNetChangesOfReadPredicatesAreDelivered() {
+        Model model = catalog();
+        List<StandingQueries.Delta> deltas = new ArrayList<>();
+        try (StandingQueries standing = StandingQueries.attach(model)) {
+            StandingQueries.Subscription sub = standing.subscribe(new QueryRegistry().compileTemplate(PREFIX
+                    + "SELECT ?p ?t WHERE { ?p cine:titulo ?t }"), Map.of(), deltas::add);
+            Graph g = model.getGraph();
+            // Predicado que la consulta no lee: no se reevalúa nada
+            g.add(Triple.create(CineVocab.movie("p1"), CineVocab.DURACION, MovieTriples.string("x")));
+            // Alta y baja entre dos actualizaciones: efecto neto nulo
+            Triple her = Triple.create(CineVocab.movie("p3"), CineVocab.TITULO, MovieTriples.string("Her"));
+            g.add(her);
+            g.delete(her);
+            assertEquals(0, standing.flush());
+            g.add(her);
+            assertEquals(1, standing.flush());
+            assertEquals(Set.of(CineVocab.movie("p3")), movies(deltas.get(1).added));
+            assertEquals(3, sub.size());
+        }
+    }
+
+    @Test
+    void existsOnAnotherSubjectIsRejected() {
+        try (StandingQueries standing = StandingQueries.attach(catalog())) {
+            assertThrows(IllegalArgumentException.class, () -> standing.subscribe(new QueryRegistry().compileTemplate(PREFIX
+                    + "SELECT ?p WHERE { ?p cine:titulo ?t FILTER EXISTS { ?otra cine:preventa true } }"),
+                Map.of(), d -> { }));
+        }
+    }
+}
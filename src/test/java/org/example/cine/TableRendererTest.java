@@ -0,0 +1,50 @@
+package org.example.cine;
+
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableRendererTest {
+
+    private static long render(Model model, String query, TableRenderer renderer) {
+        try (QueryExecution qe = QueryExecution.model(model).query(query).build()) {
+            return renderer.render(qe.execSelect(), List.of("tituloEspanol", "duracion"));
+        }
+    }
+
+    @Test
+    void emptyResultPrintsPlaceholder() {
+        StringWriter out = new StringWriter();
+        long rows = render(ModelFactory.createDefaultModel(),
+            "SELECT ?tituloEspanol ?duracion WHERE { ?s ?p ?o }", TableRenderer.sampled(out, 4));
+        assertEquals(0, rows);
+        assertEquals("(sin resultados)", out.toString().strip());
+    }
+
+    @Test
+    void rowsAfterTheSampleAreTruncatedAndNumbersRightAligned() {
+        Model model = ModelFactory.createDefaultModel();
+        StringWriter out = new StringWriter();
+        long rows = render(model,
+            "SELECT ?tituloEspanol ?duracion WHERE { VALUES (?tituloEspanol ?duracion) "
+                + "{ (\"Dune\" 155) (\"Un título bastante más largo\" 9) } }",
+            TableRenderer.sampled(out, 1));
+        assertEquals(2, rows);
+        String[] lines = out.toString().split("\\R");
+        // separador, cabecera, separador, dos filas, separador
+        assertEquals(6, lines.length);
+        assertTrue(lines[1].contains("tituloEspanol"), lines[1]);
+        assertEquals(lines[0].length(), lines[4].length());
+        assertTrue(lines[3].startsWith("| Dune "), lines[3]);
+        assertTrue(lines[3].endsWith(" 155 |"), lines[3]);
+        assertTrue(lines[4].contains("..."), lines[4]);
+        assertTrue(lines[4].endsWith("   9 |"), lines[4]);
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.cine;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TitleSearchIndexTest {
+
+    @BeforeAll
+    static void registerFunctions() {
+        IndexFunctions.register();
+    }
+
+    private static void title(Graph graph, String id, Node predicate, String title) {
+        graph.add(Triple.create(CineVocab.movie(id), predicate, MovieTriples.string(title)));
+    }
+
+    private static Graph catalog() {
+        Graph graph = GraphFactory.createDefaultGraph();
+        title(graph, "accion", CineVocab.TITULO, "Acción Final");
+        title(graph, "muneca", CineVocab.TITULO, "La Muñeca Diabólica");
+        title(graph, "tierras", CineVocab.TITULO, "Tierras Salvajes");
+        title(graph, "luces", CineVocab.TITULO, "Luces de la Ciudad");
+        title(graph, "predator", CineVocab.TITULO, "Predator: Badlands");
+        title(graph, "predator", CineVocab.TITULO_ESPANOL, "Depredador: Tierras Salvajes");
+        title(graph, "tron", CineVocab.TITULO, "Tron: Ares");
+        title(graph, "trolls", CineVocab.TITULO, "Trolls 3");
+        return graph;
+    }
+
+    private static List<String> ids(List<TitleSearchIndex.Hit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (TitleSearchIndex.Hit hit : hits) {
+            String uri = hit.movie.getURI();
+            ids.add(uri.substring(uri.lastIndexOf('/') + 1));
+        }
+        return ids;
+    }
+
+    /** Ids en orden alfabético, para aciertos de igual puntuación. */
+    private static List<String> sorted(List<TitleSearchIndex.Hit> hits) {
+        List<String> ids = ids(hits);
+        ids.sort(null);
+        return ids;
+    }
+
+    @Test
+    void accentsAndCaseAreFolded() {
+        TitleSearchIndex index = TitleSearchIndex.attach(catalog());
+        assertEquals(List.of("accion"), ids(index.search("accion", 0)));
+        assertEquals(List.of("accion"), ids(index.search("ACCIÓN final", 0)));
+        assertEquals(List.of("muneca"), ids(index.search("diabolica", 0)));
+    }
+
+    @Test
+    void enyeMatchesBothSpellings() {
+        TitleSearchIndex index = TitleSearchIndex.attach(catalog());
+        assertEquals(List.of("muneca"), ids(index.search("muñeca", 0)));
+        assertEquals(List.of("muneca"), ids(index.search("muneca", 0)));
+        assertEquals(List.of("muneca"), ids(index.search("munieca", 0)));
+    }
+
+    @Test
+    void singularAndPluralShareTheStem() {
+        TitleSearchIndex index = TitleSearchIndex.attach(catalog());
+        // "tierra" también está en el título en español de Predator
+        assertEquals(List.of("predator", "tierras"), sorted(index.search("tierra salvaje", 0)));
+        assertEquals(List.of("luces"), ids(index.search("luz ciudad", 0)));
+        assertEquals("tierr", TitleSearchIndex.stem("tierras"));
+        assertEquals("luz", TitleSearchIndex.stem("luces"));
+    }
+
+    @Test
+    void lastWordAndStarredWordsArePrefixes() {
+        TitleSearchIndex index = TitleSearchIndex.attach(catalog());
+        assertEquals(List.of("predator"), ids(index.search("depre", 0)));
+        assertEquals(List.of("trolls", "tron"), sorted(index.search("tro", 0)));
+        // Coincidencia completa antes que sólo por prefijo
+        List<TitleSearchIndex.Hit> hits = index.search("tron", 0);
+        assertEquals(List.of("tron"), ids(hits));
+        assertEquals(1.0, hits.get(0).score);
+        assertEquals(List.of("tron"), ids(index.search("tr* ares", 0)));
+        assertEquals(1, index.search("tro", 1).size());
+        // Sin '*', una palabra que no es la última tiene que ser completa
+        assertEquals(List.of(), ids(index.search("tro ares", 0)));
+    }
+
+    @Test
+    void stopwordsAloneFindNothing() {
+        TitleSearchIndex index = TitleSearchIndex.attach(catalog());
+        assertEquals(List.of(), index.search("de la", 0));
+        assertEquals(List.of(), index.search("", 0));
+    }
+
+    @Test
+    void indexFollowsGraphChanges() {
+        Graph graph = catalog();
+        TitleSearchIndex index = TitleSearchIndex.attach(graph);
+        graph.delete(Triple.create(CineVocab.movie("predator"), CineVocab.TITULO_ESPANOL,
+            MovieTriples.string("Depredador: Tierras Salvajes")));
+        assertEquals(List.of(), ids(index.search("depredador", 0)));
+        assertEquals(List.of("tierras"), ids(index.search("tierra", 0)));
+        title(graph, "nueva", CineVocab.TITULO, "Niñera Salvaje");
+        assertEquals(List.of("nueva"), ids(index.search("ninera", 0)));
+    }
+
+    @Test
+    void sparqlGivesTheSameHitsWithAndWithoutIndex() {
+        String query = "PREFIX idx: <" + IndexFunctions.NS + ">\n"
+            + "SELECT ?p ?s WHERE { (?p ?s) idx:titulo (\"munieca\") }";
+        Model plain = ModelFactory.createModelForGraph(catalog());
+        Model indexed = ModelFactory.createModelForGraph(catalog());
+        TitleSearchIndex.attach(indexed.getGraph());
+        assertEquals(List.of("muneca"), sparqlIds(plain, query));
+        assertEquals(List.of("muneca"), sparqlIds(indexed, query));
+    }
+
+    private static List<String> sparqlIds(Model model, String query) {
+        List<String> ids = new ArrayList<>();
+        try (QueryExecution qe = QueryExecution.model(model).query(query).build()) {
+            ResultSet rs = qe.execSelect();
+            while (rs.hasNext()) {
+                String uri = rs.next().getResource("p").getURI();
+                ids.add(uri.substring(uri.lastIndexOf('/') + 1));
+            }
+        }
+        return ids;
+    }
+}